@@ -4,6 +4,7 @@ import cn.treedeep.king.core.domain.AggregateRepository;
 import cn.treedeep.king.core.domain.AggregateRoot;
 import cn.treedeep.king.core.domain.DomainEvent;
 import cn.treedeep.king.core.domain.EventBus;
+import cn.treedeep.king.shared.trace.CommandTrace;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.jmolecules.ddd.types.Identifier;
@@ -54,7 +55,9 @@ public abstract class AbstractCommandHandler<C extends Command, A extends Aggreg
     @Transactional
     public void handle(C command, CompletableFuture<CommandResult<R>> future) {
         // 执行具体的命令处理逻辑
+        long handlerStart = CommandTrace.start();
         A aggregate = doHandle(command, future);
+        CommandTrace.record(CommandTrace.Stage.HANDLER, handlerStart);
 
         if (aggregate == null) {
             log.warn("Aggregate not found - Type: {}, ID: {}", command.getClass().getSimpleName(), command.getAggregateId());
@@ -64,7 +67,7 @@ public abstract class AbstractCommandHandler<C extends Command, A extends Aggreg
         // 保存聚合根
         aggregateRepository.save(aggregate);
 
-        // 发布所有新产生的领域事件
+        // 发布所有新产生的领域事件，发布耗时已由仓储计入PUBLISH阶段
         for (DomainEvent event : aggregate.getDomainEvents()) {
             eventBus.publish(event);
         }
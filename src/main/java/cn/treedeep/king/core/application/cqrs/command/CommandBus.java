@@ -1,15 +1,21 @@
 package cn.treedeep.king.core.application.cqrs.command;
 
 import cn.treedeep.king.core.domain.validation.AbstractCommandValidator;
+import cn.treedeep.king.core.infrastructure.admission.CommandAdmissionControl;
+import cn.treedeep.king.core.infrastructure.admission.CommandRejectedException;
+import cn.treedeep.king.core.infrastructure.idempotency.CommandCoalescer;
 import cn.treedeep.king.core.infrastructure.idempotency.CommandIdempotencyControl;
 import cn.treedeep.king.core.infrastructure.monitoring.CommandMetrics;
+import cn.treedeep.king.core.infrastructure.monitoring.CommandTracer;
 import cn.treedeep.king.shared.properties.CqrsProperties;
+import cn.treedeep.king.shared.trace.CommandTrace;
 import jakarta.annotation.Resource;
 import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.GenericTypeResolver;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Map;
 import java.util.Objects;
@@ -28,9 +34,10 @@ import java.util.concurrent.ConcurrentHashMap;
  * <li>命令处理器注册和管理</li>
  * <li>命令路由和分发</li>
  * <li>同步和异步命令执行</li>
+ * <li>准入控制和过载保护</li>
  * <li>命令验证和前置检查</li>
- * <li>幂等性控制</li>
- * <li>性能监控和指标收集</li>
+ * <li>幂等性控制和重复命令合并</li>
+ * <li>性能监控和指标收集（含分阶段耗时）</li>
  * <li>异常处理和日志记录</li>
  * </ul>
  * <p>
@@ -57,6 +64,10 @@ public class CommandBus {
     private final Map<Class<? extends Command>, CommandHandler<?, ?>> handlers = new ConcurrentHashMap<>();
     private final CommandMetrics commandMetrics;
     private final CommandIdempotencyControl idempotencyControl;
+    private final CommandAdmissionControl admissionControl;
+    private final CommandCoalescer commandCoalescer;
+    private final CommandTracer commandTracer;
+    private final TransactionTemplate transactionTemplate;
 
     private final Validator validator;
 
@@ -83,10 +94,21 @@ public class CommandBus {
      *
      * @param commandMetrics     命令指标收集器
      * @param idempotencyControl 幂等性控制器
+     * @param admissionControl   准入控制器
+     * @param commandCoalescer   重复命令合并器
+     * @param commandTracer      命令链路记录器
+     * @param transactionManager 事务管理器，命令在获得准入许可之后才开启事务
      */
-    public CommandBus(CqrsProperties properties, Validator validator, CommandMetrics commandMetrics, CommandIdempotencyControl idempotencyControl) {
+    public CommandBus(CqrsProperties properties, Validator validator, CommandMetrics commandMetrics,
+                      CommandIdempotencyControl idempotencyControl, CommandAdmissionControl admissionControl,
+                      CommandCoalescer commandCoalescer, CommandTracer commandTracer,
+                      PlatformTransactionManager transactionManager) {
         this.commandMetrics = commandMetrics;
         this.idempotencyControl = idempotencyControl;
+        this.admissionControl = admissionControl;
+        this.commandCoalescer = commandCoalescer;
+        this.commandTracer = commandTracer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.validator = validator;
         this.failFast = properties.getValidation().isFailFast();
         this.validationEnabled = properties.getValidation().isValidationEnabled();
@@ -110,30 +132,98 @@ public class CommandBus {
 
     /**
      * 分发命令到对应的处理器
+     * <p>
+     * 启用准入控制时，超过并发限制的命令会以{@link CommandRejectedException}快速失败，
+     * 此时尚未写入幂等性记录，调用方可以直接重试。
+     * 命令在获得许可之后才开启事务，排队等待的命令不占用事务和数据库连接。
+     * <p>
+     * 相同commandId的命令仍在执行时再次到达，会直接共享原命令的结果而不是失败；
+     * 原命令成功提交后的短时间内到达的重试，会直接获得已保存的结果。
      *
      * @param command 要处理的命令
      * @param <T>     命令类型
      */
-    @Transactional
-    @SuppressWarnings("unchecked")
     public <T extends Command, R> CompletableFuture<CommandResult<R>> dispatch(T command) {
+        CompletableFuture<CommandResult<R>> outcome = new CompletableFuture<>();
+        CompletableFuture<CommandResult<R>> existing = commandCoalescer.attach(command, outcome);
+        if (existing != null) {
+            return existing;
+        }
+
+        CommandTrace trace = commandTracer.begin(command);
+        CompletableFuture<CommandResult<R>> result = null;
+        try {
+            result = admitAndDispatch(command, trace);
+            return result;
+        } finally {
+            commandCoalescer.complete(command, outcome, result != null ? result
+                    : CompletableFuture.failedFuture(new IllegalStateException("Command dispatch aborted")));
+        }
+    }
+
+    /**
+     * 获得准入许可后在事务中分发命令
+     * <p>
+     * 链路记录在事务回调内结束，由事务同步器延续到提交完成，才能统计提交阶段和提交后的事件分发耗时
+     */
+    private <T extends Command, R> CompletableFuture<CommandResult<R>> admitAndDispatch(T command, CommandTrace trace) {
+        CommandAdmissionControl.Permit permit;
+        try {
+            permit = admissionControl.acquire(command);
+        } catch (CommandRejectedException e) {
+            commandTracer.end(trace, false);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        boolean[] traceEnded = new boolean[1];
+        try {
+            CompletableFuture<CommandResult<R>> result = transactionTemplate.execute(status -> {
+                CompletableFuture<CommandResult<R>> dispatched = null;
+                try {
+                    dispatched = doDispatch(command);
+                    return dispatched;
+                } finally {
+                    traceEnded[0] = true;
+                    commandTracer.end(trace, dispatched != null && !dispatched.isCompletedExceptionally());
+                }
+            });
+            if (result != null && !result.isCompletedExceptionally()) {
+                idempotencyControl.markCompleted(command);
+            }
+            return result;
+        } finally {
+            if (!traceEnded[0]) {
+                // 事务没有开启成功
+                commandTracer.end(trace, false);
+            }
+            permit.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Command, R> CompletableFuture<CommandResult<R>> doDispatch(T command) {
         CompletableFuture<CommandResult<R>> future = new CompletableFuture<>();
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         String commandType = command.getClass().getSimpleName();
 
         try {
             // 检查幂等性
-            if (idempotencyControl.isDuplicate(command)) {
+            long stageStart = CommandTrace.start();
+            boolean duplicate = idempotencyControl.isDuplicate(command);
+            CommandTrace.record(CommandTrace.Stage.IDEMPOTENCY, stageStart);
+            if (duplicate) {
                 log.warn("Duplicate command detected - Type: {}, ID: {}", commandType, command.getCommandId());
                 return CompletableFuture.failedFuture(new IllegalStateException("Duplicate command detected"));
             }
 
             // 验证命令
+            stageStart = CommandTrace.start();
             commandValidators.stream()
                     .filter(v -> v.getClass().getSimpleName().startsWith(commandType) ||
                             command.getClass().equals(Objects.requireNonNull(GenericTypeResolver.resolveTypeArguments(v.getClass(), AbstractCommandValidator.class))[0]))
                     .forEach(v -> v.doValidate(validator, validationEnabled, failFast, command));
+            CommandTrace.record(CommandTrace.Stage.VALIDATION, stageStart);
 
             // 获取处理器
             CommandHandler<T, R> handler = (CommandHandler<T, R>) handlers.get(command.getClass());
@@ -145,14 +235,14 @@ public class CommandBus {
             handler.handle(command, future);
 
             // 记录成功指标
-            commandMetrics.recordSuccess(commandType, System.currentTimeMillis() - startTime);
+            commandMetrics.recordSuccessNanos(commandType, System.nanoTime() - startTime);
             log.debug("Successfully processed command: {}", commandType);
 
             return future;
 
         } catch (Exception e) {
             // 记录失败指标
-            commandMetrics.recordFailure(commandType, System.currentTimeMillis() - startTime);
+            commandMetrics.recordFailureNanos(commandType, System.nanoTime() - startTime);
             log.error("Failed to process command: {} - {}", commandType, e.getMessage());
 
             // 清除幂等性记录，允许重试
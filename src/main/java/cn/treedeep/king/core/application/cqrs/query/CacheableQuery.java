@@ -0,0 +1,52 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import java.util.Set;
+
+/**
+ * 可缓存的查询
+ * <p>
+ * 查询实现此接口后，启用查询缓存时其结果按"查询类型 + 缓存键"缓存，并声明结果依赖的数据：
+ * <ul>
+ * <li>聚合根ID - 这些聚合根发布领域事件时，只失效依赖它们的缓存条目</li>
+ * <li>聚合根类型 - 该类型的任意聚合根发布领域事件时，失效该查询类型的全部缓存条目</li>
+ * </ul>
+ * 两者都未声明时，缓存条目只按过期时间失效。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * public class OrderSummaryQuery extends Query<OrderSummary> implements CacheableQuery {
+ *     private final String orderId;
+ *
+ *     public Object cacheKey() { return orderId; }
+ *
+ *     public Set<String> dependsOnAggregates() { return Set.of(orderId); }
+ * }
+ * }
+ * </pre>
+ */
+public interface CacheableQuery {
+
+    /**
+     * 获取缓存键
+     * <p>
+     * 查询对象自身带有随机的queryId，不能直接作为缓存键，应返回由查询条件组成的值
+     *
+     * @return 缓存键，需要正确实现equals和hashCode
+     */
+    Object cacheKey();
+
+    /**
+     * 获取结果依赖的聚合根ID
+     */
+    default Set<String> dependsOnAggregates() {
+        return Set.of();
+    }
+
+    /**
+     * 获取结果依赖的聚合根类型，与聚合根类的简单名称一致
+     */
+    default Set<String> dependsOnAggregateTypes() {
+        return Set.of();
+    }
+}
@@ -0,0 +1,60 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import reactor.core.publisher.Flux;
+
+import java.util.stream.Stream;
+
+/**
+ * 支持投影、游标分页和流式读取的查询服务
+ * <p>
+ * 这些能力依赖查询条件编译引擎，不是每个{@link QueryService}都能实现，因此单独声明；
+ * 基于JPA的实现继承{@link cn.treedeep.king.core.infrastructure.query.AbstractJpaQueryService}即可获得全部能力。
+ *
+ * @param <T>  查询结果类型
+ * @param <ID> 标识符类型
+ */
+public interface CriteriaQueryService<T, ID> extends QueryService<T, ID> {
+
+    /**
+     * 投影分页查询，只查询投影记录需要的列
+     *
+     * @param criteria       查询条件
+     * @param projectionType 投影记录类型，组件按名称或{@link ProjectionField}对应实体属性
+     * @param page           页码，从0开始
+     * @param size           每页大小
+     * @param <P>            投影类型
+     * @return 分页结果
+     */
+    <P> QPage<P> findProjectedPage(QueryCriteria criteria, Class<P> projectionType, int page, int size);
+
+    /**
+     * 游标分页查询
+     * <p>
+     * 按查询条件的排序键定位下一页，排序键之后自动追加标识符作为最后一个排序键，保证顺序唯一
+     *
+     * @param criteria  查询条件，翻页过程中必须保持不变
+     * @param cursor    上一页返回的游标，查询第一页时为null
+     * @param size      每页大小
+     * @param totalMode 总数计算方式
+     * @return 分页结果
+     */
+    CursorPage<T> findCursorPage(QueryCriteria criteria, String cursor, int size, TotalMode totalMode);
+
+    /**
+     * 流式查询，用于导出等需要遍历大量记录的场景
+     * <p>
+     * 必须在调用方的事务中调用，返回的流在事务结束时关闭，使用完毕后也应尽早关闭
+     *
+     * @param criteria 查询条件
+     * @return 实体流
+     */
+    Stream<T> streamByCriteria(QueryCriteria criteria);
+
+    /**
+     * 响应式流式查询，按订阅者的请求量从数据库读取
+     *
+     * @param criteria 查询条件
+     * @return 实体流
+     */
+    Flux<T> fluxByCriteria(QueryCriteria criteria);
+}
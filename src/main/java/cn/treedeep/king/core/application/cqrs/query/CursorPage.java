@@ -0,0 +1,31 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 游标分页查询结果
+ * <p>
+ * 与{@link QPage}的偏移量分页不同，下一页从上一页最后一条记录的排序键之后继续读取，
+ * 翻页代价与页码无关，适合无限滚动等只需顺序翻页的场景
+ *
+ * @param <T> 结果类型
+ */
+@Data
+@Builder
+public class CursorPage<T> {
+    private List<T> content;
+    private int pageSize;
+    private boolean hasNext;
+    /**
+     * 获取下一页的游标，没有下一页时为null
+     */
+    private String nextCursor;
+    /**
+     * 总记录数，{@link TotalMode#NONE}时为null
+     */
+    private Long totalElements;
+    private TotalMode totalMode;
+}
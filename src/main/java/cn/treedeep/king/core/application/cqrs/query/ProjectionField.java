@@ -0,0 +1,28 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 投影字段
+ * <p>
+ * 标注在投影记录（record）的组件上，指定该组件取自实体的哪个属性路径；未标注时按组件名取同名属性。
+ * 例如聚合根标识是嵌入的值对象时，可以把标识值直接投影为字符串：
+ * <pre>
+ * {@code
+ * public record OrderDto(@ProjectionField("id.value") String id, String status) {
+ * }
+ * }
+ * </pre>
+ */
+@Target(ElementType.RECORD_COMPONENT)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProjectionField {
+
+    /**
+     * 以"."分隔的实体属性路径
+     */
+    String value();
+}
@@ -1,19 +1,75 @@
 package cn.treedeep.king.core.application.cqrs.query;
 
+import cn.treedeep.king.core.infrastructure.query.QueryCoalescer;
+import cn.treedeep.king.core.infrastructure.query.QueryDeadlineManager;
+import cn.treedeep.king.core.infrastructure.query.QueryResultCache;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
 
 /**
  * 查询总线
  * <p>
- * 负责分发查询到对应的处理器
+ * 负责分发查询到对应的处理器，支持三种执行方式：
+ * <ul>
+ * <li>同步执行 - {@link #execute(Query)}在调用线程中执行，参与调用方的事务</li>
+ * <li>异步执行 - {@link #executeAsync(Query)}在查询线程池中执行，取消返回的Future会中断执行线程</li>
+ * <li>并行批量执行 - {@link #executeAll(List)}并行执行多个互不依赖的查询，按同一个总超时收集结果</li>
+ * </ul>
+ * 异步和并行执行的查询在各自的只读事务中执行，看不到调用方事务中未提交的数据。
+ * <p>
+ * 启用查询缓存时，实现了{@link CacheableQuery}的查询先从{@link QueryResultCache}获取结果；
+ * 缓存未命中时经过{@link QueryCoalescer}，同时到达的相同查询只执行一次；调用时指定了期限的查询和异步查询
+ * 有各自的取消条件，不参与合并。
+ * <p>
+ * 查询的执行期限可以在调用时指定，也可以按查询类型配置，超过期限的查询由{@link QueryDeadlineManager}
+ * 在数据库端取消并抛出{@link QueryTimeoutException}；取消异步查询返回的Future同样会取消数据库端的语句
+ * <p>
+ * 查询结果不能是{@link java.util.stream.Stream}：总线可能在自己的事务中执行查询，流在返回给调用方之前就已关闭，
+ * 也不能被缓存或在合并的查询之间共享。处理器返回流时总线关闭它并抛出{@link IllegalStateException}。
+ * 需要流式读取时在调用方的事务中直接调用{@link CriteriaQueryService#streamByCriteria}，
+ * 或通过总线返回{@link reactor.core.publisher.Flux}，它在订阅时开启自己的事务
  */
+@Slf4j
 @Service
 public class QueryBus {
-    private final Map<Class<? extends Query<?>>, QueryHandler<?, ?>> handlers = new HashMap<>();
+    private final Map<Class<? extends Query<?>>, QueryHandler<?, ?>> handlers = new ConcurrentHashMap<>();
+    private final QueryResultCache queryResultCache;
+    private final QueryCoalescer queryCoalescer;
+    private final QueryDeadlineManager queryDeadlineManager;
+    private final AsyncTaskExecutor queryExecutor;
+    private final Duration defaultTimeout;
+
+    /**
+     * 构造查询总线
+     *
+     * @param queryResultCache 查询结果缓存
+     * @param queryCoalescer       相同查询合并器
+     * @param queryDeadlineManager 查询执行期限管理器
+     * @param queryExecutor        查询执行器
+     * @param properties           CQRS配置属性
+     */
+    public QueryBus(QueryResultCache queryResultCache,
+                    QueryCoalescer queryCoalescer,
+                    QueryDeadlineManager queryDeadlineManager,
+                    @Qualifier("queryExecutor") AsyncTaskExecutor queryExecutor,
+                    CqrsProperties properties) {
+        this.queryResultCache = queryResultCache;
+        this.queryCoalescer = queryCoalescer;
+        this.queryDeadlineManager = queryDeadlineManager;
+        this.queryExecutor = queryExecutor;
+        this.defaultTimeout = Duration.ofMillis(properties.getQuery().getTimeout());
+    }
 
     /**
      * 注册查询处理器
@@ -21,7 +77,11 @@ public class QueryBus {
      * @param handler 查询处理器
      */
     public void register(QueryHandler<?, ?> handler) {
-        handlers.put(handler.getQueryType(), handler);
+        QueryHandler<?, ?> previous = handlers.put(handler.getQueryType(), handler);
+        if (previous != null && previous != handler) {
+            log.warn("查询处理器被替换: 查询类型: {}, 原处理器: {}, 新处理器: {}", handler.getQueryType().getSimpleName(),
+                    previous.getClass().getSimpleName(), handler.getClass().getSimpleName());
+        }
     }
 
     /**
@@ -32,21 +92,203 @@ public class QueryBus {
      * @return 查询结果
      */
     public <R> R execute(Query<R> query) {
-        return execute(query, null);
+        return execute(query, null, null, null);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * 在指定期限内执行查询
+     *
+     * @param query    查询对象
+     * @param deadline 执行期限，覆盖按查询类型配置的期限，为0时不限制
+     * @param <R>      查询结果类型
+     * @return 查询结果
+     * @throws QueryTimeoutException 超过执行期限
+     */
+    public <R> R execute(Query<R> query, Duration deadline) {
+        return execute(query, null, deadline, null);
+    }
+
+    /**
+     * 执行查询，处理结果同时写入异步结果
+     *
+     * @param query  查询对象
+     * @param future 异步结果，查询失败或超时时以异常结束，取消时同时取消查询
+     * @param <R>    查询结果类型
+     * @return 查询结果
+     */
     public <R> R execute(Query<R> query, CompletableFuture<QueryResult<R>> future) {
+        return execute(query, future, null, future);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R execute(Query<R> query, CompletableFuture<QueryResult<R>> future, Duration deadline,
+                          CompletableFuture<?> caller) {
 
         Class<? extends Query<?>> queryType = (Class<? extends Query<?>>) query.getClass();
         QueryHandler<Query<R>, R> handler = (QueryHandler<Query<R>, R>) handlers.get(queryType);
 
         if (handler == null) {
             IllegalStateException ex = new IllegalStateException("No handler registered for query type: " + queryType.getName());
-            future.completeExceptionally(ex);
+            if (future != null) {
+                future.completeExceptionally(ex);
+            }
             throw ex;
         }
 
-        return handler.handle(query, future);
+        Duration resolved = queryDeadlineManager.resolve(query, deadline);
+        boolean[] loaded = new boolean[1];
+        Supplier<R> loader = () -> queryDeadlineManager.execute(query, resolved, caller, () -> {
+            loaded[0] = true;
+            return rejectStream(query, handler.handle(query, future));
+        });
+        // 调用时指定的期限和调用方的取消只属于本次调用，合并后会作用到共享结果的其他调用上，因此不参与合并
+        Supplier<R> source = deadline == null && caller == null ? () -> queryCoalescer.execute(query, loader) : loader;
+        R result;
+        try {
+            result = queryResultCache.get(query, source);
+        } catch (RuntimeException e) {
+            if (future != null) {
+                future.completeExceptionally(e);
+            }
+            throw e;
+        }
+        if (!loaded[0] && future != null) {
+            // 命中缓存或共享了相同查询的结果时处理器没有执行，由总线完成异步结果
+            future.complete(new QueryResult<>(query, result));
+        }
+        return result;
+    }
+
+    /**
+     * 拒绝流式结果，流绑定在执行查询的事务上，离开总线后不可用
+     */
+    private static <R> R rejectStream(Query<R> query, R result) {
+        if (result instanceof BaseStream<?, ?> stream) {
+            stream.close();
+            throw new IllegalStateException("查询结果不能是Stream，请在调用方的事务中使用CriteriaQueryService.streamByCriteria: "
+                    + query.getQueryName());
+        }
+        return result;
+    }
+
+    /**
+     * 在查询线程池中异步执行查询
+     *
+     * @param query 查询对象
+     * @param <R>   查询结果类型
+     * @return 查询结果，取消时中断正在执行的查询
+     */
+    public <R> CompletableFuture<R> executeAsync(Query<R> query) {
+        return executeAsync(query, null);
+    }
+
+    /**
+     * 在查询线程池中异步执行查询，并指定执行期限
+     *
+     * @param query    查询对象
+     * @param deadline 执行期限，覆盖按查询类型配置的期限，为0时不限制；为null时使用配置
+     * @param <R>      查询结果类型
+     * @return 查询结果，超过期限时以{@link QueryTimeoutException}结束；取消时取消数据库端的语句并中断执行线程
+     */
+    public <R> CompletableFuture<R> executeAsync(Query<R> query, Duration deadline) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = queryExecutor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(execute(query, null, deadline, result));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new QueryException("查询线程池已满: " + query.getQueryName(), e));
+        }
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled() || e instanceof QueryTimeoutException) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 并行执行多个互不依赖的查询，使用默认总超时
+     *
+     * @param queries 查询列表
+     * @return 与查询列表一一对应的结果
+     * @see #executeAll(List, Duration)
+     */
+    public List<Object> executeAll(List<? extends Query<?>> queries) {
+        return executeAll(queries, defaultTimeout);
+    }
+
+    /**
+     * 并行执行多个互不依赖的查询
+     * <p>
+     * 任意查询失败或超过总超时时，取消其余未完成的查询并抛出{@link QueryException}
+     *
+     * @param queries 查询列表
+     * @param timeout 所有查询的总超时时间
+     * @return 与查询列表一一对应的结果
+     */
+    public List<Object> executeAll(List<? extends Query<?>> queries, Duration timeout) {
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>(queries.size());
+        for (Query<?> query : queries) {
+            futures.add(executeAsync(query));
+        }
+
+        // 任意查询失败时立即结束等待，不必等到其余查询完成
+        CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+        futures.forEach(f -> f.whenComplete((r, e) -> {
+            if (e != null) {
+                all.completeExceptionally(e);
+            }
+        }));
+
+        try {
+            all.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll(futures);
+            throw new QueryException("批量查询超时: " + timeout.toMillis() + "ms, 未完成查询: " + pendingNames(queries, futures));
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
+            throw new QueryException("批量查询被中断", e);
+        } catch (ExecutionException e) {
+            cancelAll(futures);
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new QueryException("批量查询失败", cause);
+        }
+
+        List<Object> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<?> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+
+    private static void cancelAll(List<CompletableFuture<?>> futures) {
+        futures.forEach(f -> f.cancel(true));
+    }
+
+    private static List<String> pendingNames(List<? extends Query<?>> queries, List<CompletableFuture<?>> futures) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            if (!futures.get(i).isDone() || futures.get(i).isCancelled()) {
+                names.add(queries.get(i).getQueryName());
+            }
+        }
+        return names;
     }
 }
@@ -1,39 +1,181 @@
 package cn.treedeep.king.core.application.cqrs.query;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * 通用查询条件
+ * <p>
+ * 由若干个"且"关系的过滤条件和有序的多字段排序组成，交给{@link cn.treedeep.king.core.infrastructure.query.CriteriaQueryEngine}
+ * 编译执行。条件的字段和运算符构成查询的形状（{@link #signature()}），形状相同的查询共享同一条编译好的语句，
+ * 只有参数值不同。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * QueryCriteria criteria = new QueryCriteria()
+ *         .eq("status", "PAID")
+ *         .between("createdAt", from, to)
+ *         .in("region", List.of("east", "north"))
+ *         .addSort("createdAt", "desc")
+ *         .addSort("id", "asc");
+ * }
+ * </pre>
+ * 旧版本的{@code filters}属性保留为相等条件的视图（{@link #getFilters()}/{@link #setFilters(Map)}），
+ * 新代码应使用{@link #getConditions()}。
  */
 @Data
 public class QueryCriteria {
-    private Map<String, Object> filters;
+    private List<Condition> conditions;
+    /**
+     * 排序字段到排序方向，按添加顺序排序
+     */
     private Map<String, String> sorts;
 
     public QueryCriteria() {
-        this.filters = new HashMap<>();
-        this.sorts = new HashMap<>();
+        this.conditions = new ArrayList<>();
+        this.sorts = new LinkedHashMap<>();
+    }
+
+    /**
+     * 设置排序条件
+     * <p>
+     * 复制到保持插入顺序的映射中，传入HashMap时多字段排序的先后顺序取决于其迭代顺序
+     *
+     * @param sorts 排序字段到排序方向
+     */
+    public void setSorts(Map<String, String> sorts) {
+        this.sorts = sorts == null ? new LinkedHashMap<>() : new LinkedHashMap<>(sorts);
+    }
+
+    /**
+     * 获取相等过滤条件
+     * <p>
+     * 兼容旧版本的{@code filters}属性：返回{@code EQ}条件的字段和值，{@code IS_NULL}条件的值为null。
+     * 返回的是查询条件的实时视图，{@code put}/{@code remove}/{@code clear}直接修改对应的相等条件，
+     * 其他运算符的条件不受影响；序列化时不输出，避免与{@code conditions}重复
+     *
+     * @return 字段到值的可写映射，同一字段有多个相等条件时取最后一个
+     * @deprecated 使用{@link #getConditions()}
+     */
+    @Deprecated
+    @JsonIgnore
+    public Map<String, Object> getFilters() {
+        return new FilterView();
+    }
+
+    /**
+     * 设置相等过滤条件
+     * <p>
+     * 兼容旧版本的{@code filters}属性：替换现有的{@code EQ}和{@code IS_NULL}条件，其他条件保留
+     *
+     * @param filters 字段到值，值为null时匹配字段为空的记录
+     * @deprecated 使用{@link #addFilter}或{@link #eq}等方法
+     */
+    @Deprecated
+    @JsonProperty("filters")
+    public void setFilters(Map<String, Object> filters) {
+        conditions.removeIf(QueryCriteria::isEquality);
+        if (filters != null) {
+            filters.forEach(this::addFilter);
+        }
     }
 
     /**
-     * 添加过滤条件
+     * 添加相等过滤条件，值为null时匹配字段为空的记录
      *
      * @param field 字段名
      * @param value 字段值
      * @return 当前对象
      */
     public QueryCriteria addFilter(String field, Object value) {
-        filters.put(field, value);
-        return this;
+        return value == null ? isNull(field) : add(field, Operator.EQ, value);
+    }
+
+    /**
+     * 字段等于指定值
+     */
+    public QueryCriteria eq(String field, Object value) {
+        return addFilter(field, value);
+    }
+
+    /**
+     * 字段不等于指定值
+     */
+    public QueryCriteria ne(String field, Object value) {
+        return value == null ? isNotNull(field) : add(field, Operator.NE, value);
+    }
+
+    /**
+     * 字段大于指定值
+     */
+    public QueryCriteria gt(String field, Comparable<?> value) {
+        return add(field, Operator.GT, Objects.requireNonNull(value));
+    }
+
+    /**
+     * 字段大于等于指定值
+     */
+    public QueryCriteria ge(String field, Comparable<?> value) {
+        return add(field, Operator.GE, Objects.requireNonNull(value));
+    }
+
+    /**
+     * 字段小于指定值
+     */
+    public QueryCriteria lt(String field, Comparable<?> value) {
+        return add(field, Operator.LT, Objects.requireNonNull(value));
+    }
+
+    /**
+     * 字段小于等于指定值
+     */
+    public QueryCriteria le(String field, Comparable<?> value) {
+        return add(field, Operator.LE, Objects.requireNonNull(value));
+    }
+
+    /**
+     * 字段在闭区间内
+     */
+    public QueryCriteria between(String field, Comparable<?> from, Comparable<?> to) {
+        return add(field, Operator.BETWEEN, List.of(from, to));
+    }
+
+    /**
+     * 字段等于集合中的任意一个值，集合为空时不匹配任何记录
+     */
+    public QueryCriteria in(String field, Collection<?> values) {
+        return add(field, Operator.IN, List.copyOf(values));
+    }
+
+    /**
+     * 字段匹配LIKE模式，模式中的通配符由调用方指定
+     */
+    public QueryCriteria like(String field, String pattern) {
+        return add(field, Operator.LIKE, Objects.requireNonNull(pattern));
+    }
+
+    /**
+     * 字段为空
+     */
+    public QueryCriteria isNull(String field) {
+        return add(field, Operator.IS_NULL, null);
     }
 
     /**
-     * 添加排序条件
+     * 字段不为空
+     */
+    public QueryCriteria isNotNull(String field) {
+        return add(field, Operator.IS_NOT_NULL, null);
+    }
+
+    /**
+     * 添加排序条件，多次调用时按添加顺序依次排序
      *
-     * @param field 字段名
+     * @param field     字段名
      * @param direction 排序方向 ("asc" 或 "desc")
      * @return 当前对象
      */
@@ -41,4 +183,156 @@ public class QueryCriteria {
         sorts.put(field, direction);
         return this;
     }
+
+    /**
+     * 获取查询形状的签名
+     * <p>
+     * 由字段、运算符和排序组成，不包含参数值。IN条件的值个数向上取整到2的幂，
+     * 个数相近的IN条件共享同一个形状
+     *
+     * @return 形状签名
+     */
+    public String signature() {
+        StringBuilder signature = new StringBuilder();
+        for (Condition condition : conditions) {
+            signature.append(condition.field()).append(' ').append(condition.operator());
+            if (condition.operator() == Operator.IN) {
+                signature.append('[').append(paddedSize(((List<?>) condition.value()).size())).append(']');
+            }
+            signature.append(';');
+        }
+        signature.append('|');
+        sorts.forEach((field, direction) -> signature.append(field).append(' ')
+                .append(direction.toLowerCase(Locale.ROOT)).append(';'));
+        return signature.toString();
+    }
+
+    /**
+     * IN条件编译后的参数个数
+     *
+     * @param size 实际值个数
+     * @return 不小于实际个数的2的幂，实际个数为0时返回0
+     */
+    public static int paddedSize(int size) {
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private QueryCriteria add(String field, Operator operator, Object value) {
+        conditions.add(new Condition(Objects.requireNonNull(field), operator, value));
+        return this;
+    }
+
+    private static boolean isEquality(Condition condition) {
+        return condition.operator() == Operator.EQ || condition.operator() == Operator.IS_NULL;
+    }
+
+    private static Condition equality(String field, Object value) {
+        return new Condition(Objects.requireNonNull(field), value == null ? Operator.IS_NULL : Operator.EQ, value);
+    }
+
+    /**
+     * 相等条件的映射视图，读取时按条件列表现算，修改时直接改写条件列表
+     */
+    private final class FilterView extends AbstractMap<String, Object> {
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, Object>> snapshot = snapshot().entrySet().iterator();
+                    return new Iterator<>() {
+                        private Entry<String, Object> current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return snapshot.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            current = snapshot.next();
+                            return new SimpleImmutableEntry<>(current);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (current == null) {
+                                throw new IllegalStateException();
+                            }
+                            FilterView.this.remove(current.getKey());
+                            current = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return snapshot().size();
+                }
+            };
+        }
+
+        @Override
+        public Object put(String field, Object value) {
+            Object previous = get(field);
+            Condition replacement = equality(field, value);
+            boolean replaced = false;
+            for (ListIterator<Condition> it = conditions.listIterator(); it.hasNext(); ) {
+                Condition condition = it.next();
+                if (isEquality(condition) && condition.field().equals(field)) {
+                    // 保留第一个同名条件的位置，其余的删除
+                    if (replaced) {
+                        it.remove();
+                    } else {
+                        it.set(replacement);
+                        replaced = true;
+                    }
+                }
+            }
+            if (!replaced) {
+                conditions.add(replacement);
+            }
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object field) {
+            Object previous = get(field);
+            conditions.removeIf(condition -> isEquality(condition) && condition.field().equals(field));
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            conditions.removeIf(QueryCriteria::isEquality);
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> filters = new LinkedHashMap<>();
+            for (Condition condition : conditions) {
+                if (isEquality(condition)) {
+                    filters.put(condition.field(), condition.value());
+                }
+            }
+            return filters;
+        }
+    }
+
+    /**
+     * 过滤条件运算符
+     */
+    public enum Operator {
+        EQ, NE, GT, GE, LT, LE, BETWEEN, IN, LIKE, IS_NULL, IS_NOT_NULL
+    }
+
+    /**
+     * 过滤条件
+     *
+     * @param field    字段名，可以是以"."分隔的属性路径
+     * @param operator 运算符
+     * @param value    参数值，BETWEEN为两个元素的列表，IN为值列表，IS_NULL和IS_NOT_NULL为null
+     */
+    public record Condition(String field, Operator operator, Object value) {
+    }
 }
@@ -6,7 +6,8 @@ import java.util.Optional;
 /**
  * 查询服务接口
  * <p>
- * CQRS模式中的查询端服务，负责处理所有的查询操作
+ * CQRS模式中的查询端服务，负责处理所有的查询操作。
+ * 投影、游标分页和流式读取由{@link CriteriaQueryService}提供
  *
  * @param <T> 查询结果类型
  * @param <ID> 标识符类型
@@ -40,7 +41,7 @@ public interface QueryService<T, ID> {
      * 分页查询
      *
      * @param criteria 查询条件
-     * @param page 页码
+     * @param page 页码，从0开始
      * @param size 每页大小
      * @return 分页结果
      */
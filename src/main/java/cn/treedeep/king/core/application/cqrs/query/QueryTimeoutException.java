@@ -0,0 +1,17 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+/**
+ * 查询超时异常
+ * <p>
+ * 查询超过执行期限时抛出，此时数据库端的语句已被取消
+ */
+public class QueryTimeoutException extends QueryException {
+
+    public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,23 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+/**
+ * 游标分页的总数计算方式
+ */
+public enum TotalMode {
+    /**
+     * 不计算总数
+     */
+    NONE,
+    /**
+     * 数据库统计信息估算的总数
+     * <p>
+     * 没有过滤条件时读取数据库维护的表行数统计（PostgreSQL的{@code pg_class.reltuples}），
+     * 不扫描表，准确程度取决于最近一次ANALYZE。有过滤条件、数据库不支持或表还没有统计信息时
+     * 退化为与EXACT相同的计数查询
+     */
+    ESTIMATE,
+    /**
+     * 每次执行计数查询得到准确总数
+     */
+    EXACT
+}
@@ -0,0 +1,124 @@
+package cn.treedeep.king.core.domain;
+
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
+import cn.treedeep.king.core.domain.validation.BusinessConstraintValidator;
+import cn.treedeep.king.core.domain.validation.CustomValidationRegistry;
+import cn.treedeep.king.core.domain.validation.DomainEventValidator;
+import cn.treedeep.king.core.domain.validation.EventIntegrityChecker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * 抽象批量事件处理器基类
+ * <p>
+ * 与{@link AbstractEventHandler}提供相同的基础设施，按批执行：<br>
+ * 1. 事务支持 - 一批事件在同一个事务中处理<br>
+ * 2. 异常处理<br>
+ * 3. 日志记录<br>
+ * 4. 事件验证 - 批内每个事件执行基础验证、完整性检查和自定义验证<br>
+ * 5. 死信停放 - 直接调用（不经过事件总线或编排器）失败时，批内事件停放到{@link DeadLetterQueue}
+ *
+ * @param <T> 要处理的领域事件类型
+ */
+@Slf4j
+@RequiredArgsConstructor
+public abstract class AbstractBatchEventHandler<T extends DomainEvent> implements BatchEventHandler<T> {
+
+    /**
+     * 领域事件验证器
+     */
+    private final DomainEventValidator<T> validator;
+
+    /**
+     * 业务约束验证器
+     */
+    private final BusinessConstraintValidator businessValidator;
+
+    /**
+     * 事件完整性检查器
+     */
+    private final EventIntegrityChecker integrityChecker;
+
+    /**
+     * 自定义验证注册表
+     */
+    private final CustomValidationRegistry customValidationRegistry;
+
+    /**
+     * 死信队列，未启用时为空
+     */
+    private DeadLetterQueue deadLetterQueue;
+
+    /**
+     * 设置死信队列
+     *
+     * @param deadLetterQueue 死信队列
+     */
+    @Autowired(required = false)
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    @Override
+    @Transactional
+    public void handle(T event) {
+        handleBatch(List.of(event));
+    }
+
+    @Override
+    @Transactional
+    public void handleBatch(List<T> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            log.debug("开始批量处理事件: {}, 事件数: {}", events.getFirst().getClass().getSimpleName(), events.size());
+
+            // 1. 执行基础验证
+            for (T event : events) {
+                validator.validate(event);
+            }
+
+            // 2. 执行完整性检查
+            // 一批事件可能来自多个聚合根，同一聚合根的其他类型事件也不会进入本处理器，
+            // 版本号在批内不连续是正常的，因此与单事件处理器一样逐个检查
+            for (T event : events) {
+                integrityChecker.checkIntegrity(List.of(event));
+            }
+
+            // 3. 执行自定义验证规则
+            for (T event : events) {
+                customValidationRegistry.validate(event);
+            }
+
+            // 4. 处理事件
+            doHandleBatch(events);
+
+            log.debug("批量事件处理完成: {}, 事件数: {}", events.getFirst().getClass().getSimpleName(), events.size());
+        } catch (Exception e) {
+            log.error("批量事件处理失败: {}, 事件数: {}, 错误: {}",
+                    events.getFirst().getClass().getSimpleName(),
+                    events.size(),
+                    e.getMessage());
+            // 由事件总线或编排器调用时，失败由调用方拆分重试或停放
+            if (deadLetterQueue != null && !HandlerInvocation.isManaged()) {
+                for (T event : events) {
+                    deadLetterQueue.park(event, this, e, 1);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 具体的批量处理逻辑
+     *
+     * @param events 已通过验证的事件，按投递顺序排列
+     */
+    protected abstract void doHandleBatch(List<T> events);
+}
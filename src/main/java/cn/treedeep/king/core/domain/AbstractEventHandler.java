@@ -1,11 +1,14 @@
 package cn.treedeep.king.core.domain;
 
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
 import cn.treedeep.king.core.domain.validation.BusinessConstraintValidator;
 import cn.treedeep.king.core.domain.validation.CustomValidationRegistry;
 import cn.treedeep.king.core.domain.validation.DomainEventValidator;
 import cn.treedeep.king.core.domain.validation.EventIntegrityChecker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -17,7 +20,8 @@ import java.util.List;
  * 1. 事务支持<br>
  * 2. 异常处理<br>
  * 3. 日志记录<br>
- * 4. 事件验证
+ * 4. 事件验证<br>
+ * 5. 死信停放 - 直接调用（不经过事件总线或编排器）失败时，事件停放到{@link DeadLetterQueue}
  *
  * @param <T> 要处理的领域事件类型
  */
@@ -45,6 +49,21 @@ public abstract class AbstractEventHandler<T extends DomainEvent> implements Eve
      */
     private final CustomValidationRegistry customValidationRegistry;
 
+    /**
+     * 死信队列，未启用时为空
+     */
+    private DeadLetterQueue deadLetterQueue;
+
+    /**
+     * 设置死信队列
+     *
+     * @param deadLetterQueue 死信队列
+     */
+    @Autowired(required = false)
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
     @Override
     @Transactional
     public void handle(T event) {
@@ -77,6 +96,10 @@ public abstract class AbstractEventHandler<T extends DomainEvent> implements Eve
                     event.getClass().getSimpleName(),
                     event.getAggregateId(),
                     e.getMessage());
+            // 由事件总线或编排器调用时，失败在重试耗尽后由调用方停放
+            if (deadLetterQueue != null && !HandlerInvocation.isManaged()) {
+                deadLetterQueue.park(event, this, e, 1);
+            }
             throw e;
         }
     }
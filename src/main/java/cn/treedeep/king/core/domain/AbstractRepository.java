@@ -1,5 +1,6 @@
 package cn.treedeep.king.core.domain;
 
+import cn.treedeep.king.shared.trace.CommandTrace;
 import lombok.RequiredArgsConstructor;
 import org.jmolecules.ddd.types.Identifier;
 import org.springframework.cache.Cache;
@@ -19,7 +20,7 @@ import java.util.Optional;
  * <li>乐观锁并发控制 - 防止并发冲突</li>
  * <li>事务管理 - 确保数据一致性</li>
  * <li>事件存储 - 支持事件溯源</li>
- * <li>领域事件发布 - 支持事件驱动架构</li>
+ * <li>领域事件发布 - 支持事件驱动架构，启用发件箱时事件与事件存储在同一事务中持久化</li>
  * </ul>
  * <p>
  * 子类需要实现具体的持久化逻辑：
@@ -108,17 +109,23 @@ public abstract class AbstractRepository<T extends AggregateRoot<ID>, ID extends
 
         try {
             // 1. 保存聚合根
+            long stageStart = CommandTrace.start();
             doSave(aggregate);
+            CommandTrace.record(CommandTrace.Stage.AGGREGATE_SAVE, stageStart);
 
             // 2. 保存领域事件
+            stageStart = CommandTrace.start();
             eventStore.saveEvents(
                     aggregate.getId().toString(),
                     domainEvents,
                     aggregate.getVersion().intValue()
             );
+            CommandTrace.record(CommandTrace.Stage.EVENT_STORE_APPEND, stageStart);
 
-            // 3. 发布领域事件
+            // 3. 发布领域事件（启用发件箱时写入发件箱，与事件存储同一事务提交）
+            stageStart = CommandTrace.start();
             eventPublisher.publishAll(domainEvents);
+            CommandTrace.record(CommandTrace.Stage.PUBLISH, stageStart);
 
             // 4. 更新缓存
             getCache().put(aggregate.getId().toString(), aggregate);
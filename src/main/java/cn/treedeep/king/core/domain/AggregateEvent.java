@@ -0,0 +1,32 @@
+package cn.treedeep.king.core.domain;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明事件所属的聚合根类型
+ * <p>
+ * 聚合根注册事件时会把自己的类型写入{@link DomainEvent#getAggregateType()}，
+ * 但增加聚合根类型字段之前保存的历史事件，以及不经过聚合根发布的事件，该字段为空。
+ * 标注后这些事件的聚合根类型按注解推导，追赶订阅和按聚合根类型的过滤、缓存失效对历史事件同样有效：
+ * <pre>
+ * {@code
+ * @Entity
+ * @AggregateEvent(Order.class)
+ * public class OrderCreatedEvent extends DomainEvent {
+ * }
+ * }
+ * </pre>
+ * 启用JPA事件存储时，启动过程中会按注解回填历史事件表中为空的聚合根类型。
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface AggregateEvent {
+
+    /**
+     * 事件所属的聚合根类，聚合根类型取其简单名称
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends AggregateRoot> value();
+}
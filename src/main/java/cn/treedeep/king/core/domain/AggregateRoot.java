@@ -155,6 +155,9 @@ public abstract class AggregateRoot<ID extends Identifier> extends AbstractAggre
             throw new DomainValidationException("DELETED_AGGREGATE", "无法修改已删除的聚合根");
         }
         this.updateLastModifiedAt();
+        if (event.getAggregateType() == null) {
+            event.setAggregateType(getClass().getSimpleName());
+        }
         // super.registerEvent(event);
         domainEvents.add(event);
     }
@@ -0,0 +1,65 @@
+package cn.treedeep.king.core.domain;
+
+import java.util.List;
+
+/**
+ * 批量事件处理器接口
+ * <p>
+ * 用于批量写入读模型等场景：异步事件总线把事件累积到批大小上限或等待时间上限后，
+ * 通过{@link #handleBatch}一次性交给处理器，一批事件可以合并为一条批量SQL。
+ * <ul>
+ * <li>批内有序 - 同一聚合根的事件在批内保持发布顺序，批与批之间按顺序投递</li>
+ * <li>按批失败 - 整批成功或整批失败；{@link #splitOnFailure}为true时失败的批拆成两半分别重试，
+ * 直到定位出单个失败的事件，其余事件正常处理</li>
+ * <li>同步投递 - 同步事件总线和编排器仍然逐个投递，每次调用收到只含一个事件的批</li>
+ * </ul>
+ * 与{@link EventHandler}一样，实现类需要保证幂等。
+ *
+ * @param <T> 要处理的领域事件类型
+ */
+public interface BatchEventHandler<T extends DomainEvent> extends EventHandler<T> {
+
+    /**
+     * 批量处理领域事件
+     *
+     * @param events 要处理的事件，按投递顺序排列，不为空
+     */
+    void handleBatch(List<T> events);
+
+    /**
+     * 单个事件作为只含一个事件的批处理
+     *
+     * @param event 要处理的领域事件
+     */
+    @Override
+    default void handle(T event) {
+        handleBatch(List.of(event));
+    }
+
+    /**
+     * 批大小上限
+     *
+     * @return 批大小上限，小于等于0时使用事件总线的默认配置
+     */
+    default int maxBatchSize() {
+        return 0;
+    }
+
+    /**
+     * 批的最长等待时间，第一个事件进入批后超过该时间即投递
+     *
+     * @return 等待时间（毫秒），小于等于0时使用事件总线的默认配置
+     */
+    default long lingerMillis() {
+        return 0;
+    }
+
+    /**
+     * 批处理失败时是否拆分重试
+     *
+     * @return true表示拆成两半分别重试，false表示整批记为失败
+     */
+    default boolean splitOnFailure() {
+        return true;
+    }
+}
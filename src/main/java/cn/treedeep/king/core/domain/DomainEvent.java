@@ -8,6 +8,8 @@ import org.hibernate.annotations.Comment;
 import org.springframework.context.ApplicationEvent;
 
 import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -44,6 +46,27 @@ public abstract class DomainEvent extends ApplicationEvent {
     @Column(name = "aggregate_version")
     private Long aggregateVersion;
 
+    @Comment("聚合根类型")
+    @Column(name = "aggregate_type")
+    private String aggregateType;
+
+    /**
+     * 事件头，用于租户、来源等路由元数据，不随事件持久化到事件表
+     */
+    @Transient
+    private Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * 事件类通过{@link AggregateEvent}声明的聚合根类型
+     */
+    private static final ClassValue<String> DECLARED_AGGREGATE_TYPE = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            AggregateEvent declared = type.getAnnotation(AggregateEvent.class);
+            return declared == null ? null : declared.value().getSimpleName();
+        }
+    };
+
 
     protected DomainEvent() {
         super("DomainEvent");
@@ -57,5 +80,49 @@ public abstract class DomainEvent extends ApplicationEvent {
         this.occurredOn = DateTimeUtil.now();
     }
 
+    /**
+     * 获取聚合根类型
+     * <p>
+     * 未设置时（例如增加该字段之前保存的历史事件）按事件类上的{@link AggregateEvent}推导
+     *
+     * @return 聚合根类的简单名称，无法确定时返回null
+     */
+    public String getAggregateType() {
+        return aggregateType != null ? aggregateType : DECLARED_AGGREGATE_TYPE.get(getClass());
+    }
+
+    /**
+     * 获取事件类声明的聚合根类型
+     *
+     * @param eventType 事件类
+     * @return 聚合根类的简单名称，未通过{@link AggregateEvent}声明时返回null
+     */
+    public static String declaredAggregateType(Class<? extends DomainEvent> eventType) {
+        return DECLARED_AGGREGATE_TYPE.get(eventType);
+    }
+
+    /**
+     * 获取事件头的值
+     *
+     * @param name 事件头名称
+     * @return 事件头的值，不存在时返回null
+     */
+    public String getHeader(String name) {
+        return headers == null ? null : headers.get(name);
+    }
+
+    /**
+     * 设置事件头，应在事件发布前设置
+     *
+     * @param name  事件头名称
+     * @param value 事件头的值
+     */
+    public void putHeader(String name, String value) {
+        if (headers == null) {
+            headers = new LinkedHashMap<>();
+        }
+        headers.put(name, value);
+    }
+
 }
 
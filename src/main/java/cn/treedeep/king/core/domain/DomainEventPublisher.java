@@ -1,6 +1,12 @@
 package cn.treedeep.king.core.domain;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronization;
@@ -8,43 +14,88 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 事件发布者基类
  * <p>
  * 提供事件发布的通用功能:
- * 1. 事务内发布
- * 2. 事务提交后发布
+ * 1. 事务内发布 - 事件进入与当前事务绑定的缓冲区，每个事务只注册一个事务同步器
+ * 2. 事务提交后发布 - 提交后按发布顺序整批投递，回滚时整批丢弃
  * 3. 批量发布支持
+ * 4. 发件箱模式 - 配置了{@link EventOutbox}时，事务内的事件随事务写入发件箱，由中继进程投递
+ * 5. 异步投递 - 配置了投递执行器时，提交后的整批事件交给执行器投递，不占用提交线程
+ * 6. 监控 - 记录每批事件数和投递耗时
+ * <p>
+ * 缓冲区作为事务资源绑定，REQUIRES_NEW等嵌套的独立事务各自拥有缓冲区，互不影响。
+ * 提交后投递过程中再发布的事件直接投递。
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class DomainEventPublisher {
 
     private final ApplicationEventPublisher eventPublisher;
-    private final ThreadLocal<List<DomainEvent>> pendingEvents = ThreadLocal.withInitial(ArrayList::new);
+
+    private EventOutbox eventOutbox;
+    private Executor dispatchExecutor;
+    private DistributionSummary batchSize;
+    private Timer dispatchTimer;
+
+    /**
+     * 设置事件发件箱
+     *
+     * @param eventOutbox 事件发件箱，未启用发件箱时为空
+     */
+    @Autowired(required = false)
+    public void setEventOutbox(EventOutbox eventOutbox) {
+        this.eventOutbox = eventOutbox;
+    }
+
+    /**
+     * 设置指标注册表
+     *
+     * @param meterRegistry 指标注册表
+     */
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.batchSize = DistributionSummary.builder("event.publisher.batch.size")
+                .description("事务提交后每批投递的事件数")
+                .register(meterRegistry);
+        this.dispatchTimer = Timer.builder("event.publisher.dispatch")
+                .description("事务提交后整批事件的投递耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 设置异步投递执行器
+     * <p>
+     * 执行器的线程数大于1时，不同事务的批之间不保证顺序
+     *
+     * @param dispatchExecutor 投递执行器，未启用异步投递时为空，此时在提交线程中同步投递
+     */
+    @Autowired(required = false)
+    public void setDispatchExecutor(@Qualifier("eventDispatchExecutor") Executor dispatchExecutor) {
+        this.dispatchExecutor = dispatchExecutor;
+    }
 
     /**
      * 立即发布事件
      */
     public void publish(DomainEvent event) {
-        if (TransactionSynchronizationManager.isActualTransactionActive()) {
-            // 如果在事务中,则将事件添加到待发布列表
-            pendingEvents.get().add(event);
-
-            // 注册事务同步器,在事务提交后发布事件
-            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    publishEvent(event);
-                }
-
-                @Override
-                public void afterCompletion(int status) {
-                    // 清理线程本地变量
-                    pendingEvents.remove();
-                }
-            });
+        if (eventOutbox != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            // 启用发件箱时,事件随当前事务持久化,由中继进程在提交后投递
+            eventOutbox.append(List.of(event));
+        } else if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionBatch batch = currentBatch(true);
+            if (batch.dispatching) {
+                // 提交后投递过程中发布的事件没有事务可以等待,直接发布
+                publishEvent(event);
+            } else {
+                batch.events.add(event);
+            }
         } else {
             // 不在事务中,直接发布
             publishEvent(event);
@@ -55,7 +106,40 @@ public class DomainEventPublisher {
      * 批量发布事件
      */
     public void publishAll(List<DomainEvent> events) {
-        events.forEach(this::publish);
+        if (events.isEmpty()) {
+            return;
+        }
+        if (eventOutbox != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            eventOutbox.append(events);
+            return;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionBatch batch = currentBatch(true);
+            if (!batch.dispatching) {
+                batch.events.addAll(events);
+                return;
+            }
+        }
+        events.forEach(this::publishEvent);
+    }
+
+    /**
+     * 立即投递事件，不感知事务
+     * <p>
+     * 供发件箱中继等已经处于提交之后的投递方使用
+     *
+     * @param events 要投递的事件，按顺序逐个投递
+     */
+    public void dispatch(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        events.forEach(this::publishEvent);
+        if (dispatchTimer != null) {
+            batchSize.record(events.size());
+            dispatchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
     private void publishEvent(DomainEvent event) {
@@ -74,13 +158,86 @@ public class DomainEventPublisher {
      * 获取当前事务中待发布的事件
      */
     public List<DomainEvent> getPendingEvents() {
-        return new ArrayList<>(pendingEvents.get());
+        TransactionBatch batch = currentBatch(false);
+        return batch == null ? new ArrayList<>() : new ArrayList<>(batch.events);
     }
 
     /**
      * 清除待发布事件
      */
     public void clearPendingEvents() {
-        pendingEvents.remove();
+        TransactionBatch batch = currentBatch(false);
+        if (batch != null) {
+            batch.events.clear();
+        }
+    }
+
+    /**
+     * 获取与当前事务绑定的缓冲区
+     *
+     * @param create 不存在时是否创建并注册事务同步器
+     */
+    private TransactionBatch currentBatch(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionBatch batch = (TransactionBatch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null && create) {
+            batch = new TransactionBatch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * 事务范围内的事件缓冲区，同时作为该事务唯一的事务同步器
+     */
+    private final class TransactionBatch implements TransactionSynchronization {
+
+        private final List<DomainEvent> events = new ArrayList<>();
+        private boolean dispatching;
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(DomainEventPublisher.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(DomainEventPublisher.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            dispatching = true;
+            if (events.isEmpty()) {
+                return;
+            }
+            List<DomainEvent> batch = List.copyOf(events);
+            Executor executor = dispatchExecutor;
+            if (executor == null) {
+                dispatch(batch);
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        dispatch(batch);
+                    } catch (Exception e) {
+                        log.error("异步投递事件失败: 事件数={}, 错误={}", batch.size(), e.getMessage(), e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("事件投递线程池已满，改为在提交线程中投递");
+                dispatch(batch);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(DomainEventPublisher.this);
+            events.clear();
+        }
     }
 }
@@ -22,6 +22,23 @@ public interface EventBus {
      */
     void subscribe(String eventType, EventHandler<?> handler);
 
+    /**
+     * 按条件订阅特定类型的领域事件
+     * <p>
+     * 只有满足过滤条件的事件才会交给处理器，实现类应当根据过滤条件建立路由索引
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     * @param filter    过滤条件
+     * @throws UnsupportedOperationException 实现类不支持条件订阅且过滤条件不是{@link EventFilter#ANY}
+     */
+    default void subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        if (!filter.isUnconditional()) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support filtered subscriptions");
+        }
+        subscribe(eventType, handler);
+    }
+
     /**
      * 取消订阅特定类型的领域事件
      *
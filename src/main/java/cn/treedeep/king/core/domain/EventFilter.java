@@ -0,0 +1,116 @@
+package cn.treedeep.king.core.domain;
+
+import java.util.*;
+
+/**
+ * 事件订阅过滤条件
+ * <p>
+ * 在事件类型（含继承关系）之外，按聚合根类型和事件头进一步限定订阅：
+ * <ul>
+ * <li>聚合根类型 - 匹配{@link DomainEvent#getAggregateType()}，多个值之间为"或"关系</li>
+ * <li>事件头 - 匹配{@link DomainEvent#getHeader(String)}，多个事件头之间为"且"关系</li>
+ * </ul>
+ * 过滤条件是声明式的，事件总线据此建立路由索引，发布事件时只访问可能匹配的处理器，
+ * 而不是把所有事件交给处理器再由处理器自行过滤。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * eventBus.subscribe(OrderEvent.class.getName(), handler,
+ *         EventFilter.builder()
+ *                 .aggregateType("Order")
+ *                 .header("tenant", "acme")
+ *                 .build());
+ * }
+ * </pre>
+ *
+ * @param aggregateTypes 聚合根类型，为空表示不限
+ * @param headers        事件头名称到期望值的映射，为空表示不限
+ */
+public record EventFilter(Set<String> aggregateTypes, Map<String, String> headers) {
+
+    /**
+     * 不限制任何条件
+     */
+    public static final EventFilter ANY = new EventFilter(Set.of(), Map.of());
+
+    public EventFilter {
+        aggregateTypes = Set.copyOf(aggregateTypes);
+        headers = Map.copyOf(headers);
+    }
+
+    /**
+     * 是否不限制任何条件
+     */
+    public boolean isUnconditional() {
+        return aggregateTypes.isEmpty() && headers.isEmpty();
+    }
+
+    /**
+     * 判断事件是否满足过滤条件
+     *
+     * @param event 领域事件
+     * @return 满足所有条件时返回true
+     */
+    public boolean matches(DomainEvent event) {
+        if (!aggregateTypes.isEmpty() && !aggregateTypes.contains(event.getAggregateType())) {
+            return false;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!header.getValue().equals(event.getHeader(header.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 过滤条件构建器
+     */
+    public static final class Builder {
+
+        private final Set<String> aggregateTypes = new LinkedHashSet<>();
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 限定聚合根类型，多次调用时满足任意一个即可
+         *
+         * @param aggregateType 聚合根类型，与聚合根类的简单名称一致
+         */
+        public Builder aggregateType(String aggregateType) {
+            aggregateTypes.add(Objects.requireNonNull(aggregateType));
+            return this;
+        }
+
+        /**
+         * 限定聚合根类型
+         *
+         * @param aggregateType 聚合根类
+         */
+        public Builder aggregateType(Class<? extends AggregateRoot<?>> aggregateType) {
+            return aggregateType(aggregateType.getSimpleName());
+        }
+
+        /**
+         * 限定事件头的值，多次调用时需要全部满足
+         *
+         * @param name  事件头名称
+         * @param value 期望值
+         */
+        public Builder header(String name, String value) {
+            headers.put(Objects.requireNonNull(name), Objects.requireNonNull(value));
+            return this;
+        }
+
+        public EventFilter build() {
+            return aggregateTypes.isEmpty() && headers.isEmpty() ? ANY : new EventFilter(aggregateTypes, headers);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cn.treedeep.king.core.domain;
+
+import java.util.List;
+
+/**
+ * 事件发件箱接口
+ * <p>
+ * 在与事件存储追加相同的事务中持久化待发布的领域事件，
+ * 再由独立的中继进程在事务提交后批量投递，
+ * 保证节点在事务提交后宕机时事件不会丢失（至少一次投递）。
+ */
+public interface EventOutbox {
+
+    /**
+     * 将领域事件写入发件箱
+     * <p>
+     * 必须在事务中调用，事件随事务一起提交或回滚
+     *
+     * @param events 要发布的领域事件列表，按发生顺序排列
+     */
+    void append(List<DomainEvent> events);
+}
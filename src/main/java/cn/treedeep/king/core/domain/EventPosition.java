@@ -0,0 +1,68 @@
+package cn.treedeep.king.core.domain;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+
+/**
+ * 事件在全局事件流中的位置
+ * <p>
+ * 事件存储中没有全局序号，全局顺序定义为"事件发生时间 + 聚合根ID + 聚合根版本号 + 事件ID"：
+ * 同一时间发生的事件先按聚合根ID和版本号排序，保证同一聚合根的事件按版本顺序出现；
+ * 事件ID只用于区分聚合根ID和版本号都相同的事件（例如没有聚合根的事件，或修正版本号编号之前保存的历史事件），
+ * 保证顺序稳定、位置唯一。
+ * <p>
+ * 聚合根ID为null时按空字符串、版本号为null时按-1比较，与{@code EventStoreRepository#findAfter}的查询条件一致。
+ *
+ * @param occurredOn       事件发生时间
+ * @param aggregateId      聚合根ID
+ * @param aggregateVersion 聚合根版本号
+ * @param eventId          事件ID
+ */
+public record EventPosition(OffsetDateTime occurredOn, String aggregateId, long aggregateVersion, String eventId)
+        implements Comparable<EventPosition> {
+
+    /**
+     * 事件流的起点，位于所有事件之前
+     */
+    public static final EventPosition START = at(OffsetDateTime.ofInstant(Instant.EPOCH, ZoneOffset.UTC));
+
+    private static final Comparator<EventPosition> ORDER = Comparator
+            .comparing((EventPosition p) -> p.occurredOn().toInstant())
+            .thenComparing(EventPosition::aggregateId)
+            .thenComparingLong(EventPosition::aggregateVersion)
+            .thenComparing(EventPosition::eventId);
+
+    public EventPosition {
+        aggregateId = aggregateId == null ? "" : aggregateId;
+        eventId = eventId == null ? "" : eventId;
+    }
+
+    /**
+     * 获取事件所在的位置
+     */
+    public static EventPosition of(DomainEvent event) {
+        return new EventPosition(event.getOccurredOn(), event.getAggregateId(),
+                version(event.getAggregateVersion()), event.getEventId());
+    }
+
+    /**
+     * 获取指定时间点的位置，位于该时间发生的所有事件之前
+     */
+    public static EventPosition at(OffsetDateTime occurredOn) {
+        return new EventPosition(occurredOn, "", -1L, "");
+    }
+
+    /**
+     * 把可能为null的聚合根版本号转换为位置中使用的版本号
+     */
+    public static long version(Long aggregateVersion) {
+        return aggregateVersion == null ? -1L : aggregateVersion;
+    }
+
+    @Override
+    public int compareTo(EventPosition other) {
+        return ORDER.compare(this, other);
+    }
+}
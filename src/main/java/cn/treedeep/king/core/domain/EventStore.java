@@ -1,5 +1,7 @@
 package cn.treedeep.king.core.domain;
 
+import java.time.OffsetDateTime;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -33,4 +35,23 @@ public interface EventStore {
      * @return 所有历史事件列表
      */
     List<DomainEvent> getAllEvents();
+
+    /**
+     * 按全局顺序读取指定位置之后的事件
+     * <p>
+     * 用于追赶订阅。默认实现基于{@link #getAllEvents()}在内存中排序，持久化实现应当覆盖为分页查询
+     *
+     * @param after    起始位置（不包含）
+     * @param upTo     只读取发生时间不晚于该时间的事件
+     * @param maxCount 最多读取的事件数
+     * @return 按{@link EventPosition}排序的事件列表
+     */
+    default List<DomainEvent> readAllEvents(EventPosition after, OffsetDateTime upTo, int maxCount) {
+        return getAllEvents().stream()
+                .filter(event -> EventPosition.of(event).compareTo(after) > 0)
+                .filter(event -> !event.getOccurredOn().isAfter(upTo))
+                .sorted(Comparator.comparing(EventPosition::of))
+                .limit(maxCount)
+                .toList();
+    }
 }
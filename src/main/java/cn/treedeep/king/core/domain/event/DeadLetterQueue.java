@@ -0,0 +1,26 @@
+package cn.treedeep.king.core.domain.event;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+
+/**
+ * 死信队列
+ * <p>
+ * 事件处理最终失败（重试耗尽或异步处理失败）时，由事件总线、{@link EventHandlerOrchestrator}
+ * 或{@link cn.treedeep.king.core.domain.AbstractEventHandler}把事件与失败信息停放到死信队列，
+ * 之后可以查询并重新投递，而不是只记录日志后丢弃。
+ * <p>
+ * 实现类需要在独立事务中持久化，不受调用方事务回滚的影响。
+ */
+public interface DeadLetterQueue {
+
+    /**
+     * 停放处理失败的事件
+     *
+     * @param event    处理失败的事件
+     * @param handler  处理失败的处理器
+     * @param error    最后一次失败的异常
+     * @param attempts 已尝试的次数
+     */
+    void park(DomainEvent event, EventHandler<?> handler, Throwable error, int attempts);
+}
@@ -1,115 +1,253 @@
 package cn.treedeep.king.core.domain.event;
 
 import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventFilter;
 import cn.treedeep.king.core.domain.EventHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * 事件处理编排器
  * <p>
  * 负责管理和协调事件处理器的执行：
- * 1. 支持顺序和并行执行
- * 2. 提供重试机制
- * 3. 错误处理和监控
+ * 1. 支持顺序、并行和按依赖关系（DAG）执行
+ * 2. 提供重试机制 - 重试通过延迟调度实现，等待期间不占用任何线程
+ * 3. 单个处理器超时控制 - 默认30秒，可通过{@link HandlerTimeout}覆盖
+ * 4. 错误处理和监控 - 按事件类型和处理器记录耗时、重试和超时指标
+ * 5. 死信停放 - 重试耗尽的事件停放到{@link DeadLetterQueue}
+ * 6. 条件路由 - 注册可以附带{@link EventFilter}，不满足条件的事件不会触发该组处理器；
+ * 事件类没有注册时沿父类查找最近的注册，查找结果按事件类缓存
+ * <p>
+ * 顺序执行（SEQUENTIAL）的处理器与原来一样在调用线程中依次执行，参与调用方的事务，
+ * 重试在调用线程中等待，不受超时控制；{@link #processEventAsync}返回时它们已经执行完毕。
+ * <p>
+ * 并行和按依赖关系执行的处理器由CompletableFuture组合完成，{@link #processEventAsync}不会阻塞调用线程，
+ * 处理器在编排器自己的线程池中执行，不参与调用方的事务。
+ * 超时的尝试会被视为失败，但已经开始执行的处理器无法被中断，因此超时后不再重试，直接停放到死信队列，
+ * 避免同一处理器的两次尝试同时执行。
  */
 @Slf4j
 @Component
 public class EventHandlerOrchestrator {
 
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30_000L;
+
     private final Map<String, HandlerExecutionOrder> handlerRegistry = new ConcurrentHashMap<>();
+    private final Map<String, EventFilter> filters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Resolution> resolved = new ConcurrentHashMap<>();
+    /**
+     * 注册版本，每次注册后递增
+     * <p>
+     * 查找结果记录查找时的版本，版本不一致的缓存视为过期，
+     * 避免与注册并发查找出的旧结果在清空缓存之后才写入而长期有效
+     */
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<Class<?>, Long> timeouts = new ConcurrentHashMap<>();
+    private final Map<MeterKey, HandlerMeters> meters = new ConcurrentHashMap<>();
     private final ExecutorService executorService;
     private final RetryStrategy retryStrategy;
+    private final MeterRegistry meterRegistry;
+    private DeadLetterQueue deadLetterQueue;
 
-    public EventHandlerOrchestrator(RetryStrategy retryStrategy) {
+    public EventHandlerOrchestrator(RetryStrategy retryStrategy, MeterRegistry meterRegistry) {
         this.retryStrategy = retryStrategy;
+        this.meterRegistry = meterRegistry;
         this.executorService = Executors.newWorkStealingPool();
     }
 
+    /**
+     * 设置死信队列
+     *
+     * @param deadLetterQueue 死信队列，未启用时为空
+     */
+    @Autowired(required = false)
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
     /**
      * 注册事件处理器
      */
     public void register(String eventType, List<EventHandler<?>> handlers, HandlerExecutionOrder.ExecutionOrder order) {
+        register(eventType, handlers, order, EventFilter.ANY);
+    }
+
+    /**
+     * 按条件注册事件处理器
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handlers  处理器列表
+     * @param order     执行顺序
+     * @param filter    过滤条件，不满足条件的事件不会触发这组处理器
+     */
+    public void register(String eventType,
+                         List<EventHandler<?>> handlers,
+                         HandlerExecutionOrder.ExecutionOrder order,
+                         EventFilter filter) {
         handlerRegistry.put(eventType, new HandlerExecutionOrder(eventType, handlers, order));
-        log.info("注册事件处理器: eventType={}, handlers={}, order={}", eventType, handlers.size(), order);
+        updateFilter(eventType, filter);
+        log.info("注册事件处理器: eventType={}, handlers={}, order={}, filter={}", eventType, handlers.size(), order, filter);
     }
 
     /**
-     * 处理事件
+     * 按依赖关系注册事件处理器
+     *
+     * @param eventType    事件类型的完全限定名
+     * @param handlers     处理器列表
+     * @param dependencies 处理器到其依赖的处理器列表的映射，未出现的处理器没有依赖
+     * @throws IllegalArgumentException 依赖了未注册的处理器或依赖关系存在环
+     */
+    public void register(String eventType,
+                         List<EventHandler<?>> handlers,
+                         Map<EventHandler<?>, List<EventHandler<?>>> dependencies) {
+        handlerRegistry.put(eventType, new HandlerExecutionOrder(eventType, handlers,
+                HandlerExecutionOrder.ExecutionOrder.DAG, dependencies));
+        updateFilter(eventType, EventFilter.ANY);
+        log.info("注册事件处理器: eventType={}, handlers={}, order={}, dependencies={}",
+                eventType, handlers.size(), HandlerExecutionOrder.ExecutionOrder.DAG, dependencies.size());
+    }
+
+    /**
+     * 处理事件，等待所有处理器完成
      */
-    @SuppressWarnings("unchecked")
     public void processEvent(DomainEvent event) {
+        try {
+            processEventAsync(event).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 异步处理事件
+     * <p>
+     * 每个处理器在其依赖的处理器全部成功后开始执行，依赖失败的处理器不会执行
+     *
+     * @param event 领域事件
+     * @return 所有处理器完成后结束的Future，任一处理器最终失败时以异常结束
+     */
+    public CompletableFuture<Void> processEventAsync(DomainEvent event) {
         String eventType = event.getClass().getName();
-        HandlerExecutionOrder executionOrder = handlerRegistry.get(eventType);
+        HandlerExecutionOrder executionOrder = resolve(event.getClass());
 
         if (executionOrder == null) {
             log.warn("没有找到事件处理器: eventType={}", eventType);
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+        EventFilter filter = filters.get(executionOrder.eventType());
+        if (filter != null && !filter.matches(event)) {
+            log.debug("事件不满足注册条件，跳过: eventType={}, filter={}", eventType, filter);
+            return CompletableFuture.completedFuture(null);
         }
 
-        try {
-            if (executionOrder.order() == HandlerExecutionOrder.ExecutionOrder.PARALLEL) {
-                processParallel(event, executionOrder.handlers());
-            } else {
-                processSequential(event, executionOrder.handlers());
+        if (executionOrder.order() == HandlerExecutionOrder.ExecutionOrder.SEQUENTIAL) {
+            try {
+                for (EventHandler<?> handler : executionOrder.handlers()) {
+                    executeInCaller(event, handler);
+                }
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                log.error("事件处理失败: eventType={}, error={}", eventType, e.getMessage(), e);
+                return CompletableFuture.failedFuture(e);
             }
-        } catch (Exception e) {
-            log.error("事件处理失败: eventType={}, error={}", eventType, e.getMessage(), e);
-            throw e;
         }
-    }
 
-    private void processSequential(DomainEvent event, List<EventHandler<?>> handlers) {
-        for (EventHandler handler : handlers) {
-            executeWithRetry(event, handler);
+        // 处理器已按拓扑顺序排列，依赖的阶段总是先于自身创建
+        Map<EventHandler<?>, CompletableFuture<Void>> stages = new HashMap<>();
+        for (EventHandler<?> handler : executionOrder.handlers()) {
+            List<EventHandler<?>> dependencies = executionOrder.dependenciesOf(handler);
+            CompletableFuture<Void> ready = dependencies.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.allOf(dependencies.stream().map(stages::get).toArray(CompletableFuture[]::new));
+            stages.put(handler, ready.thenCompose(v -> executeWithRetry(event, handler, 1, 0L)));
         }
-    }
 
-    private void processParallel(DomainEvent event, List<EventHandler<?>> handlers) {
-        try {
-            handlers.stream()
-                .map(handler -> executorService.submit(() -> executeWithRetry(event, handler)))
-                .forEach(future -> {
-                    try {
-                        future.get(30, TimeUnit.SECONDS);
-                    } catch (Exception e) {
-                        throw new RuntimeException("并行处理事件超时", e);
+        return CompletableFuture.allOf(stages.values().toArray(CompletableFuture[]::new))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        log.error("事件处理失败: eventType={}, error={}", eventType, cause.getMessage(), cause);
                     }
                 });
-        } catch (Exception e) {
-            throw new RuntimeException("并行处理事件失败", e);
+    }
+
+    /**
+     * 查找事件类对应的注册，精确类型优先，其次是最近的父类
+     */
+    private HandlerExecutionOrder resolve(Class<?> eventClass) {
+        // 先读版本再读注册：注册先修改注册表再递增版本，按这个版本查找出的结果不会比版本更旧
+        long current = generation.get();
+        Resolution cached = resolved.get(eventClass);
+        if (cached != null && cached.generation() == current) {
+            return cached.executionOrder();
+        }
+        HandlerExecutionOrder found = null;
+        for (Class<?> type = eventClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            found = handlerRegistry.get(type.getName());
+            if (found != null) {
+                break;
+            }
         }
+        resolved.put(eventClass, new Resolution(found, current));
+        return found;
     }
 
-    private void executeWithRetry(DomainEvent event, EventHandler handler) {
-        int attempts = 0;
-        Exception lastException = null;
+    private void updateFilter(String eventType, EventFilter filter) {
+        if (filter.isUnconditional()) {
+            filters.remove(eventType);
+        } else {
+            filters.put(eventType, filter);
+        }
+        generation.incrementAndGet();
+        resolved.clear();
+    }
 
-        while (true) {
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    /**
+     * 在调用线程中执行处理器，失败时在调用线程中等待后重试
+     */
+    @SuppressWarnings("unchecked")
+    private void executeInCaller(DomainEvent event, EventHandler<?> handler) {
+        HandlerMeters handlerMeters = meters(event, handler);
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
             try {
-                handler.handle(event);
+                HandlerInvocation.runManaged(() -> ((EventHandler<DomainEvent>) handler).handle(event));
+                handlerMeters.record(null, System.nanoTime() - start);
                 return;
-            } catch (Exception e) {
-                lastException = e;
-                attempts++;
-
-                if (!retryStrategy.shouldRetry(event, e, attempts)) {
+            } catch (RuntimeException e) {
+                handlerMeters.record(e, System.nanoTime() - start);
+                if (!retryStrategy.shouldRetry(event, e, attempt)) {
                     log.error("事件处理重试次数超限: eventType={}, handler={}, attempts={}",
-                        event.getClass().getSimpleName(), handler.getClass().getSimpleName(), attempts);
-                    throw new RuntimeException("事件处理失败", lastException);
+                            handlerMeters.eventName(), handlerMeters.handlerName(), attempt);
+                    if (deadLetterQueue != null) {
+                        deadLetterQueue.park(event, handler, e, attempt);
+                    }
+                    throw new RuntimeException("事件处理失败", e);
                 }
 
-                long delay = retryStrategy.getNextDelay(attempts);
+                long delay = retryStrategy.getNextDelay(attempt);
                 log.warn("事件处理失败，准备重试: eventType={}, handler={}, attempt={}, delay={}ms",
-                    event.getClass().getSimpleName(), handler.getClass().getSimpleName(), attempts, delay);
-
+                        handlerMeters.eventName(), handlerMeters.handlerName(), attempt, delay);
+                handlerMeters.retries().increment();
                 try {
                     Thread.sleep(delay);
                 } catch (InterruptedException ie) {
@@ -119,4 +257,115 @@ public class EventHandlerOrchestrator {
             }
         }
     }
+
+    /**
+     * 执行一次尝试，失败时按重试策略延迟后再次尝试
+     * <p>
+     * 先等待重试延迟结束，再开始计算本次尝试的超时时间和耗时，延迟不计入处理器的超时
+     *
+     * @param delay 开始本次尝试之前的延迟（毫秒）
+     */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Void> executeWithRetry(DomainEvent event, EventHandler<?> handler, int attempt, long delay) {
+        HandlerMeters handlerMeters = meters(event, handler);
+        String eventName = handlerMeters.eventName();
+        String handlerName = handlerMeters.handlerName();
+        AtomicLong start = new AtomicLong();
+
+        CompletableFuture<Void> delayed = delay > 0
+                ? CompletableFuture.runAsync(() -> {
+                }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executorService))
+                : CompletableFuture.completedFuture(null);
+
+        return delayed
+                .thenCompose(v -> {
+                    start.set(System.nanoTime());
+                    return CompletableFuture.runAsync(() -> {
+                                // 从处理器实际开始执行时计时，不包括在线程池中排队的时间
+                                start.set(System.nanoTime());
+                                HandlerInvocation.runManaged(() -> ((EventHandler<DomainEvent>) handler).handle(event));
+                            }, executorService)
+                            .orTimeout(timeoutOf(handler), TimeUnit.MILLISECONDS);
+                })
+                .handle((v, error) -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    handlerMeters.record(cause, System.nanoTime() - start.get());
+                    if (cause == null) {
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+
+                    // 超时的尝试仍在执行，重试会让同一处理器的两次尝试同时执行
+                    if (cause instanceof TimeoutException
+                            || !(cause instanceof Exception exception) || !retryStrategy.shouldRetry(event, exception, attempt)) {
+                        log.error("事件处理重试次数超限: eventType={}, handler={}, attempts={}",
+                                eventName, handlerName, attempt);
+                        if (deadLetterQueue != null) {
+                            deadLetterQueue.park(event, handler, cause, attempt);
+                        }
+                        return CompletableFuture.<Void>failedFuture(new RuntimeException("事件处理失败", cause));
+                    }
+
+                    long nextDelay = retryStrategy.getNextDelay(attempt);
+                    log.warn("事件处理失败，准备重试: eventType={}, handler={}, attempt={}, delay={}ms",
+                            eventName, handlerName, attempt, nextDelay);
+                    handlerMeters.retries().increment();
+                    return executeWithRetry(event, handler, attempt + 1, nextDelay);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private long timeoutOf(EventHandler<?> handler) {
+        return timeouts.computeIfAbsent(ClassUtils.getUserClass(handler), type -> {
+            HandlerTimeout annotation = type.getAnnotation(HandlerTimeout.class);
+            return annotation != null ? annotation.value() : DEFAULT_TIMEOUT_MILLIS;
+        });
+    }
+
+    private HandlerMeters meters(DomainEvent event, EventHandler<?> handler) {
+        return meters.computeIfAbsent(new MeterKey(event.getClass(), ClassUtils.getUserClass(handler)), key -> {
+            String eventName = key.eventClass().getSimpleName();
+            String handlerName = key.handlerClass().getSimpleName();
+            return new HandlerMeters(eventName, handlerName,
+                    executionTimer(eventName, handlerName, "success"),
+                    executionTimer(eventName, handlerName, "failure"),
+                    executionTimer(eventName, handlerName, "timeout"),
+                    Counter.builder("event.handler.retries")
+                            .tag("event", eventName)
+                            .tag("handler", handlerName)
+                            .register(meterRegistry));
+        });
+    }
+
+    private Timer executionTimer(String eventName, String handlerName, String outcome) {
+        return Timer.builder("event.handler.execution")
+                .description("事件处理器单次执行耗时")
+                .tag("event", eventName)
+                .tag("handler", handlerName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record MeterKey(Class<?> eventClass, Class<?> handlerClass) {
+    }
+
+    /**
+     * 单个事件类型和处理器组合的指标，首次执行时创建后复用
+     */
+    private record HandlerMeters(String eventName, String handlerName,
+                                 Timer success, Timer failure, Timer timeout, Counter retries) {
+
+        void record(Throwable error, long nanos) {
+            Timer timer = error == null ? success : error instanceof TimeoutException ? timeout : failure;
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 事件类的查找结果
+     *
+     * @param executionOrder 最近的注册，没有注册时为null
+     * @param generation     查找时的注册版本
+     */
+    private record Resolution(HandlerExecutionOrder executionOrder, long generation) {
+    }
 }
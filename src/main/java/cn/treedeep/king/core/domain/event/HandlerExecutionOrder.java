@@ -2,19 +2,25 @@ package cn.treedeep.king.core.domain.event;
 
 import cn.treedeep.king.core.domain.EventHandler;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * 事件处理器的执行顺序配置
  * <p>
  * 定义了特定事件类型的处理器执行顺序和方式。
- * 支持顺序执行和并行执行两种模式。
+ * 支持顺序执行、并行执行和按依赖关系执行三种模式，三者统一表示为处理器之间的依赖关系：
+ * 顺序执行时每个处理器依赖前一个处理器，并行执行时没有依赖，
+ * 按依赖关系执行时由调用方声明一个有向无环图，互不依赖的分支并发执行。
  *
- * @param eventType 事件类型的完全限定名
- * @param handlers  处理该事件的处理器列表
- * @param order     执行顺序配置
+ * @param eventType    事件类型的完全限定名
+ * @param handlers     处理该事件的处理器列表，按拓扑顺序排列
+ * @param order        执行顺序配置
+ * @param dependencies 处理器到其依赖的处理器列表的映射，仅DAG模式使用
  */
-public record HandlerExecutionOrder(String eventType, List<EventHandler<?>> handlers, ExecutionOrder order) {
+public record HandlerExecutionOrder(String eventType,
+                                    List<EventHandler<?>> handlers,
+                                    ExecutionOrder order,
+                                    Map<EventHandler<?>, List<EventHandler<?>>> dependencies) {
 
     /**
      * 执行顺序枚举
@@ -27,6 +33,84 @@ public record HandlerExecutionOrder(String eventType, List<EventHandler<?>> hand
         /**
          * 并行执行 - 所有处理器同时执行
          */
-        PARALLEL
+        PARALLEL,
+        /**
+         * 按依赖关系执行 - 处理器在其依赖的处理器全部成功后执行
+         */
+        DAG
+    }
+
+    public HandlerExecutionOrder {
+        handlers = List.copyOf(handlers);
+        dependencies = dependencies == null ? Map.of() : Map.copyOf(dependencies);
+        if (order == ExecutionOrder.DAG) {
+            handlers = topologicalOrder(eventType, handlers, dependencies);
+        }
+    }
+
+    public HandlerExecutionOrder(String eventType, List<EventHandler<?>> handlers, ExecutionOrder order) {
+        this(eventType, handlers, order, Map.of());
+    }
+
+    /**
+     * 获取处理器依赖的处理器
+     *
+     * @param handler 处理器
+     * @return 必须先成功执行的处理器
+     */
+    public List<EventHandler<?>> dependenciesOf(EventHandler<?> handler) {
+        return switch (order) {
+            case PARALLEL -> List.of();
+            case SEQUENTIAL -> {
+                int index = handlers.indexOf(handler);
+                yield index > 0 ? List.of(handlers.get(index - 1)) : List.of();
+            }
+            case DAG -> dependencies.getOrDefault(handler, List.of());
+        };
+    }
+
+    /**
+     * 校验依赖关系并按拓扑顺序排列处理器，同层处理器保持注册顺序
+     */
+    private static List<EventHandler<?>> topologicalOrder(String eventType,
+                                                          List<EventHandler<?>> handlers,
+                                                          Map<EventHandler<?>, List<EventHandler<?>>> dependencies) {
+        Set<EventHandler<?>> known = new HashSet<>(handlers);
+        Map<EventHandler<?>, Integer> inDegree = new HashMap<>();
+        Map<EventHandler<?>, List<EventHandler<?>>> dependents = new HashMap<>();
+        for (EventHandler<?> handler : handlers) {
+            List<EventHandler<?>> required = dependencies.getOrDefault(handler, List.of());
+            for (EventHandler<?> dependency : required) {
+                if (!known.contains(dependency)) {
+                    throw new IllegalArgumentException("处理器依赖未注册的处理器: eventType=" + eventType
+                            + ", handler=" + handler.getClass().getSimpleName()
+                            + ", dependency=" + dependency.getClass().getSimpleName());
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(handler);
+            }
+            inDegree.put(handler, required.size());
+        }
+
+        List<EventHandler<?>> sorted = new ArrayList<>(handlers.size());
+        Deque<EventHandler<?>> ready = new ArrayDeque<>();
+        for (EventHandler<?> handler : handlers) {
+            if (inDegree.get(handler) == 0) {
+                ready.add(handler);
+            }
+        }
+        while (!ready.isEmpty()) {
+            EventHandler<?> handler = ready.poll();
+            sorted.add(handler);
+            for (EventHandler<?> dependent : dependents.getOrDefault(handler, List.of())) {
+                if (inDegree.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (sorted.size() != handlers.size()) {
+            throw new IllegalArgumentException("处理器依赖关系存在环: eventType=" + eventType);
+        }
+        return List.copyOf(sorted);
     }
 }
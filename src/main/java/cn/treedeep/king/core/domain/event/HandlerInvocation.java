@@ -0,0 +1,42 @@
+package cn.treedeep.king.core.domain.event;
+
+/**
+ * 事件处理器调用上下文
+ * <p>
+ * 事件总线和{@link EventHandlerOrchestrator}调用处理器时会标记当前线程，
+ * 由它们在重试耗尽后统一停放死信；未被标记的调用（如在Spring事件监听器中直接调用处理器）
+ * 由{@link cn.treedeep.king.core.domain.AbstractEventHandler}自行停放，避免同一次失败被重复停放。
+ */
+public final class HandlerInvocation {
+
+    private static final ThreadLocal<Boolean> MANAGED = new ThreadLocal<>();
+
+    private HandlerInvocation() {
+    }
+
+    /**
+     * 在受管上下文中执行处理器调用
+     *
+     * @param invocation 处理器调用
+     */
+    public static void runManaged(Runnable invocation) {
+        Boolean previous = MANAGED.get();
+        MANAGED.set(Boolean.TRUE);
+        try {
+            invocation.run();
+        } finally {
+            if (previous == null) {
+                MANAGED.remove();
+            } else {
+                MANAGED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 当前线程的处理器调用是否由框架管理
+     */
+    public static boolean isManaged() {
+        return MANAGED.get() != null;
+    }
+}
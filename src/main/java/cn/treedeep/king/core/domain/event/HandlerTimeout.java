@@ -0,0 +1,29 @@
+package cn.treedeep.king.core.domain.event;
+
+import java.lang.annotation.*;
+
+/**
+ * 事件处理器超时时间
+ * <p>
+ * 标注在事件处理器类上，覆盖{@link EventHandlerOrchestrator}的默认超时时间。
+ * 超时只作用于单次尝试，从重试延迟结束、尝试开始时计算。已经开始执行的处理器无法被中断，
+ * 因此超时的尝试不再重试，直接停放到死信队列。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * @HandlerTimeout(2000)
+ * public class OrderProjectionHandler implements EventHandler<OrderCreatedEvent> { ... }
+ * }
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface HandlerTimeout {
+
+    /**
+     * 单次处理的超时时间（毫秒）
+     */
+    long value();
+}
@@ -0,0 +1,161 @@
+package cn.treedeep.king.core.infrastructure.admission;
+
+import cn.treedeep.king.core.application.cqrs.command.Command;
+import cn.treedeep.king.core.infrastructure.monitoring.CommandMetrics;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 命令准入控制器
+ * <p>
+ * 在命令进入处理流程之前进行并发准入判断，防止过载时所有命令类型的延迟一起崩溃。
+ * <p>
+ * 两级控制：
+ * <ul>
+ * <li>命令类型级 - 每种命令独立的并发上限和有界等待队列，可选按延迟自适应调整上限</li>
+ * <li>全局级 - 按优先级划分的全局并发额度，bulk命令最多占用bulk-share比例，
+ * normal命令最多占用normal-share比例，剩余额度只留给critical命令</li>
+ * </ul>
+ * <p>
+ * 超过限制的命令会立即（或在有界等待后）以{@link CommandRejectedException}快速失败，
+ * 并记录command.rejected指标。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * CommandAdmissionControl.Permit permit = admissionControl.acquire(command);
+ * try {
+ *     // 执行命令
+ * } finally {
+ *     permit.release();
+ * }
+ * }
+ * </pre>
+ */
+@Slf4j
+@Component
+public class CommandAdmissionControl {
+
+    /**
+     * 执行许可
+     */
+    public interface Permit {
+        /**
+         * 归还许可，命令执行结束后必须调用且只能调用一次
+         */
+        void release();
+    }
+
+    private static final Permit NOOP_PERMIT = () -> {
+    };
+
+    private final CqrsProperties.AdmissionProperties properties;
+    private final CommandMetrics commandMetrics;
+    private final Map<Class<?>, CommandConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, CommandPriority> priorities = new ConcurrentHashMap<>();
+    private final AtomicInteger globalInFlight = new AtomicInteger();
+
+    /**
+     * 构造准入控制器
+     *
+     * @param properties     CQRS配置属性
+     * @param commandMetrics 命令指标收集器
+     */
+    public CommandAdmissionControl(CqrsProperties properties, CommandMetrics commandMetrics) {
+        this.properties = properties.getAdmission();
+        this.commandMetrics = commandMetrics;
+
+        if (this.properties.isEnabled()) {
+            commandMetrics.registerGlobalAdmissionGauge(globalInFlight::get);
+            log.info("Command admission control enabled - max concurrency: {}, normal share: {}, bulk share: {}, adaptive: {}",
+                    this.properties.getMaxConcurrency(), this.properties.getNormalShare(),
+                    this.properties.getBulkShare(), this.properties.getAdaptive().isEnabled());
+        }
+    }
+
+    /**
+     * 为命令获取执行许可
+     *
+     * @param command 要执行的命令
+     * @return 执行许可
+     * @throws CommandRejectedException 命令被拒绝时抛出
+     */
+    public Permit acquire(Command command) {
+        if (!properties.isEnabled()) {
+            return NOOP_PERMIT;
+        }
+
+        Class<?> type = command.getClass();
+        String commandType = type.getSimpleName();
+        CommandConcurrencyLimiter limiter = limiters.computeIfAbsent(type, t -> createLimiter(commandType));
+        CommandPriority priority = priorities.computeIfAbsent(type, t -> resolvePriority(commandType));
+
+        try {
+            limiter.acquire(commandType, TimeUnit.MILLISECONDS.toNanos(properties.getMaxWait()));
+        } catch (CommandRejectedException e) {
+            reject(e);
+        }
+
+        if (!tryAcquireGlobal(priority)) {
+            limiter.release(-1);
+            reject(new CommandRejectedException(commandType, CommandRejectedException.Reason.GLOBAL_LIMIT));
+        }
+
+        long startTime = System.nanoTime();
+        return () -> {
+            globalInFlight.decrementAndGet();
+            limiter.release(System.nanoTime() - startTime);
+        };
+    }
+
+    private boolean tryAcquireGlobal(CommandPriority priority) {
+        int ceiling = ceilingOf(priority);
+        while (true) {
+            int current = globalInFlight.get();
+            if (current >= ceiling) {
+                return false;
+            }
+            if (globalInFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private int ceilingOf(CommandPriority priority) {
+        int max = properties.getMaxConcurrency();
+        return switch (priority) {
+            case CRITICAL -> max;
+            case NORMAL -> (int) Math.ceil(max * properties.getNormalShare());
+            case BULK -> (int) Math.ceil(max * properties.getBulkShare());
+        };
+    }
+
+    private void reject(CommandRejectedException e) {
+        commandMetrics.recordRejection(e.getCommandType(), e.getReason().name().toLowerCase());
+        log.warn("Command rejected - Type: {}, Reason: {}", e.getCommandType(), e.getReason());
+        throw e;
+    }
+
+    private CommandConcurrencyLimiter createLimiter(String commandType) {
+        CqrsProperties.CommandLimitProperties config = properties.getCommands().get(commandType);
+        int limit = config != null && config.getLimit() != null ? config.getLimit() : properties.getDefaultLimit();
+        int queueSize = config != null && config.getQueueSize() != null ? config.getQueueSize() : properties.getDefaultQueueSize();
+
+        CommandConcurrencyLimiter limiter = new CommandConcurrencyLimiter(limit, queueSize, properties.getAdaptive());
+        commandMetrics.registerAdmissionGauges(commandType, limiter::getInFlight, limiter::getLimit, limiter::getWaiting);
+        log.debug("Created command limiter - Type: {}, limit: {}, queue size: {}", commandType, limit, queueSize);
+        return limiter;
+    }
+
+    private CommandPriority resolvePriority(String commandType) {
+        CommandPriority defaultPriority = CommandPriority.of(properties.getDefaultPriority(), CommandPriority.NORMAL);
+        CqrsProperties.CommandLimitProperties config = properties.getCommands().get(commandType);
+        return config != null ? CommandPriority.of(config.getPriority(), defaultPriority) : defaultPriority;
+    }
+}
@@ -0,0 +1,138 @@
+package cn.treedeep.king.core.infrastructure.admission;
+
+import cn.treedeep.king.shared.properties.CqrsProperties;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个命令类型的并发限制器
+ * <p>
+ * 维护该类型命令的在途数量、有界等待队列以及（可选的）自适应并发上限。
+ * <p>
+ * 自适应算法采用梯度方式：以观测到的最小延迟作为基线，
+ * 平滑延迟在基线的容忍倍数以内时逐步放大上限，超出时按比例收缩上限。
+ */
+class CommandConcurrencyLimiter {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private final int queueSize;
+    private final CqrsProperties.AdaptiveProperties adaptive;
+
+    private volatile double estimatedLimit;
+    private volatile int inFlight;
+    private volatile int waiting;
+
+    private double baselineLatencyNanos = Double.MAX_VALUE;
+    private double smoothedLatencyNanos;
+
+    CommandConcurrencyLimiter(int limit, int queueSize, CqrsProperties.AdaptiveProperties adaptive) {
+        this.estimatedLimit = Math.max(limit, 1);
+        this.queueSize = Math.max(queueSize, 0);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * 获取执行许可
+     *
+     * @param maxWaitNanos 最长等待时间（纳秒）
+     * @throws CommandRejectedException 无法获取许可时抛出
+     */
+    void acquire(String commandType, long maxWaitNanos) {
+        lock.lock();
+        try {
+            if (inFlight < getLimit()) {
+                inFlight++;
+                return;
+            }
+            if (waiting >= queueSize) {
+                throw new CommandRejectedException(commandType, CommandRejectedException.Reason.QUEUE_FULL);
+            }
+
+            waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= getLimit()) {
+                    if (remaining <= 0) {
+                        throw new CommandRejectedException(commandType, CommandRejectedException.Reason.WAIT_TIMEOUT);
+                    }
+                    remaining = permitReleased.awaitNanos(remaining);
+                }
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CommandRejectedException(commandType, CommandRejectedException.Reason.INTERRUPTED);
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可并记录本次执行延迟
+     *
+     * @param latencyNanos 执行延迟（纳秒），小于0表示不参与自适应调整
+     */
+    void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (adaptive.isEnabled() && latencyNanos >= 0) {
+                adjustLimit(latencyNanos);
+            }
+            // 自适应上限放大时一次可能空出多个许可，按空出的许可数唤醒等待者
+            int free = Math.min(getLimit() - inFlight, waiting);
+            for (int i = 0; i < free; i++) {
+                permitReleased.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjustLimit(long latencyNanos) {
+        if (smoothedLatencyNanos == 0) {
+            smoothedLatencyNanos = latencyNanos;
+        } else {
+            smoothedLatencyNanos += (latencyNanos - smoothedLatencyNanos) * adaptive.getSmoothing();
+        }
+
+        // 基线取最小延迟，并缓慢上浮以适应负载特征的长期变化
+        if (latencyNanos < baselineLatencyNanos) {
+            baselineLatencyNanos = latencyNanos;
+        } else {
+            baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * 0.001;
+        }
+
+        double limit = estimatedLimit;
+
+        // 在途数量远低于上限时说明瓶颈不在这里，不放大上限
+        if (inFlight * 2 < limit && smoothedLatencyNanos <= baselineLatencyNanos * adaptive.getTolerance()) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0,
+                baselineLatencyNanos * adaptive.getTolerance() / smoothedLatencyNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - adaptive.getSmoothing()) + newLimit * adaptive.getSmoothing();
+
+        estimatedLimit = Math.max(adaptive.getMinLimit(), Math.min(adaptive.getMaxLimit(), newLimit));
+    }
+
+    int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    int getInFlight() {
+        return inFlight;
+    }
+
+    int getWaiting() {
+        return waiting;
+    }
+
+}
@@ -0,0 +1,31 @@
+package cn.treedeep.king.core.infrastructure.admission;
+
+/**
+ * 命令优先级
+ * <p>
+ * 决定命令在全局并发额度中可占用的比例：
+ * <ul>
+ * <li>CRITICAL - 可使用全部全局额度，如支付类命令</li>
+ * <li>NORMAL - 可使用app.cqrs.admission.normal-share比例的额度</li>
+ * <li>BULK - 可使用app.cqrs.admission.bulk-share比例的额度，如批量导入</li>
+ * </ul>
+ */
+public enum CommandPriority {
+    CRITICAL,
+    NORMAL,
+    BULK;
+
+    /**
+     * 解析配置中的优先级名称（大小写不敏感）
+     *
+     * @param name         优先级名称
+     * @param defaultValue 名称为空时使用的默认值
+     * @return 命令优先级
+     */
+    public static CommandPriority of(String name, CommandPriority defaultValue) {
+        if (name == null || name.isBlank()) {
+            return defaultValue;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,45 @@
+package cn.treedeep.king.core.infrastructure.admission;
+
+import lombok.Getter;
+
+/**
+ * 命令被准入控制拒绝异常
+ * <p>
+ * 当命令超过其类型的并发上限且无法在等待队列中获得执行机会，
+ * 或全局并发额度已被同等及更高优先级的命令占满时抛出。
+ * 调用方应视为可重试的过载信号，而不是业务失败。
+ */
+@Getter
+public class CommandRejectedException extends RuntimeException {
+
+    /**
+     * 拒绝原因
+     */
+    public enum Reason {
+        /**
+         * 等待队列已满
+         */
+        QUEUE_FULL,
+        /**
+         * 排队等待超时
+         */
+        WAIT_TIMEOUT,
+        /**
+         * 全局并发额度不足
+         */
+        GLOBAL_LIMIT,
+        /**
+         * 排队等待时线程被中断
+         */
+        INTERRUPTED
+    }
+
+    private final String commandType;
+    private final Reason reason;
+
+    public CommandRejectedException(String commandType, Reason reason) {
+        super("Command rejected by admission control - Type: " + commandType + ", Reason: " + reason);
+        this.commandType = commandType;
+        this.reason = reason;
+    }
+}
@@ -1,16 +1,22 @@
 package cn.treedeep.king.core.infrastructure.config;
 
 import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
 import cn.treedeep.king.core.infrastructure.eventstore.compression.DefaultEventCompressor;
 import cn.treedeep.king.core.infrastructure.eventstore.compression.EventCompressor;
 import cn.treedeep.king.shared.properties.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
 
 /**
  * AggregateX框架自动配置类
@@ -84,6 +90,42 @@ public class AggregateXAutoConfiguration {
         return new DefaultEventCompressor(properties.getBatchSize());
     }
 
+    /**
+     * 领域事件序列化器
+     * <p>
+     * 供发件箱等需要持久化并还原领域事件的组件使用
+     *
+     * @param objectMapper JSON对象映射器
+     * @return 领域事件序列化器实例
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public DomainEventSerializer domainEventSerializer(ObjectMapper objectMapper) {
+        return new DomainEventSerializer(objectMapper);
+    }
+
+    /**
+     * 领域事件异步投递线程池
+     * <p>
+     * 仅在启用异步投递时创建，事务提交后的整批事件在该线程池中投递
+     *
+     * @param properties 事件总线配置属性
+     * @return 线程池执行器
+     */
+    @Bean(name = "eventDispatchExecutor")
+    @ConditionalOnProperty(prefix = "app.event-bus.publisher", name = "async", havingValue = "true")
+    public Executor eventDispatchExecutor(EventBusProperties properties) {
+        EventBusProperties.PublisherProperties publisher = properties.getPublisher();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(publisher.getPoolSize());
+        executor.setMaxPoolSize(publisher.getPoolSize());
+        executor.setQueueCapacity(publisher.getQueueCapacity());
+        executor.setThreadNamePrefix("event-dispatch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * 领域事件发布器
      * <p>
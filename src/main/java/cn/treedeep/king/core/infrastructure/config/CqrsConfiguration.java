@@ -7,6 +7,8 @@ import jakarta.validation.Validator;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -22,6 +24,7 @@ import java.util.concurrent.Executor;
  * 配置的组件：
  * <ul>
  * <li>异步执行器 - 支持命令的异步处理</li>
+ * <li>查询执行器 - 支持查询的异步和并行执行，可使用虚拟线程</li>
  * <li>命令验证器 - 基于JSR-303的命令参数验证</li>
  * <li>监控指标收集器 - 收集命令执行的性能指标</li>
  * <li>重试机制 - 支持失败命令的自动重试</li>
@@ -77,6 +80,30 @@ public class CqrsConfiguration {
         return executor;
     }
 
+    /**
+     * 配置查询执行线程池
+     * <p>
+     * 启用虚拟线程时每个查询一个虚拟线程，超过最大并发数时提交线程等待
+     *
+     * @return 配置好的查询执行器
+     */
+    @Bean(name = "queryExecutor")
+    public AsyncTaskExecutor queryExecutor() {
+        CqrsProperties.QueryProperties query = properties.getQuery();
+        if (query.isVirtualThreads()) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(query.getThreadNamePrefix());
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(query.getMaxPoolSize());
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(query.getCorePoolSize());
+        executor.setMaxPoolSize(query.getMaxPoolSize());
+        executor.setQueueCapacity(query.getQueueCapacity());
+        executor.setThreadNamePrefix(query.getThreadNamePrefix());
+        executor.initialize();
+        return executor;
+    }
 
     /**
      * 配置命令指标收集器
@@ -86,7 +113,7 @@ public class CqrsConfiguration {
      */
     @Bean
     public CommandMetrics commandMetrics(MeterRegistry meterRegistry) {
-        return new CommandMetrics(meterRegistry);
+        return new CommandMetrics(meterRegistry, properties.getTracing().isPercentileHistogram());
     }
 
     /**
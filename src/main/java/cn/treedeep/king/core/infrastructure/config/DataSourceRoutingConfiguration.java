@@ -0,0 +1,117 @@
+package cn.treedeep.king.core.infrastructure.config;
+
+import cn.treedeep.king.core.infrastructure.datasource.ReplicaRoutingDataSource;
+import cn.treedeep.king.core.infrastructure.datasource.RoutingSessionResolver;
+import cn.treedeep.king.shared.properties.DataSourceRoutingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离配置类
+ * <p>
+ * 启用后应用使用的数据源由三层组成：
+ * <ul>
+ * <li>主库 - 按spring.datasource及spring.datasource.hikari配置创建</li>
+ * <li>路由数据源 - 只读事务使用副本，其余使用主库</li>
+ * <li>延迟连接代理 - 推迟到第一条语句执行时才获取物理连接，此时事务的只读标记已经生效</li>
+ * </ul>
+ * 配置项见{@link DataSourceRoutingProperties}。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfiguration {
+
+    /**
+     * 配置主库数据源
+     *
+     * @param dataSourceProperties spring.datasource配置
+     * @return 主库连接池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * 配置读写分离路由数据源
+     *
+     * @param primaryDataSource    主库数据源
+     * @param dataSourceProperties spring.datasource配置，副本未配置用户名和密码时沿用
+     * @param properties           读写分离配置
+     * @param meterRegistry        指标注册表
+     * @param sessionResolver      会话解析器，未提供时以当前线程作为会话
+     * @return 路由数据源
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             DataSourceRoutingProperties properties,
+                                                             MeterRegistry meterRegistry,
+                                                             ObjectProvider<RoutingSessionResolver> sessionResolver) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceRoutingProperties.ReplicaProperties> configured = properties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            DataSourceRoutingProperties.ReplicaProperties replica = configured.get(i);
+            String name = replica.getName() != null ? replica.getName() : "replica-" + (i + 1);
+            DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername() != null ? replica.getUsername() : dataSourceProperties.determineUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : dataSourceProperties.determinePassword());
+            if (replica.getDriverClassName() != null) {
+                builder.driverClassName(replica.getDriverClassName());
+            }
+            HikariDataSource dataSource = builder.build();
+            dataSource.setPoolName(name);
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.put(name, dataSource);
+        }
+        if (replicas.isEmpty()) {
+            log.warn("已启用读写分离但没有配置只读副本，所有连接使用主库");
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryDataSource, replicas,
+                ReplicaRoutingDataSource.Strategy.of(properties.getStrategy()),
+                Duration.ofMillis(properties.getStickyWindow()),
+                Duration.ofMillis(properties.getHealthCheckInterval()),
+                meterRegistry);
+        sessionResolver.ifAvailable(routing::setSessionResolver);
+        log.info("读写分离已启用: 副本={}, 策略={}, 写后粘滞={}ms", replicas.keySet(), properties.getStrategy(),
+                properties.getStickyWindow());
+        return routing;
+    }
+
+    /**
+     * 配置应用使用的数据源
+     *
+     * @param routing 路由数据源
+     * @return 延迟获取连接的数据源代理
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
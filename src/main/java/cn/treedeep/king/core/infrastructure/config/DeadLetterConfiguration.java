@@ -0,0 +1,60 @@
+package cn.treedeep.king.core.infrastructure.config;
+
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.deadletter.DeadLetterRepository;
+import cn.treedeep.king.core.infrastructure.deadletter.DeadLetterService;
+import cn.treedeep.king.core.infrastructure.deadletter.JpaDeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.properties.EventBusProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 死信队列配置类
+ * <p>
+ * 只有在JPA可用且启用死信队列时才加载。
+ * 启用后事件总线、{@link cn.treedeep.king.core.domain.event.EventHandlerOrchestrator}
+ * 和{@link cn.treedeep.king.core.domain.AbstractEventHandler}会把最终处理失败的事件停放到死信表。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass(name = "org.springframework.data.jpa.repository.JpaRepository")
+@ConditionalOnProperty(name = "app.event-bus.dead-letter.enabled", havingValue = "true", matchIfMissing = false)
+public class DeadLetterConfiguration {
+
+    /**
+     * JPA死信队列
+     */
+    @Bean
+    @ConditionalOnMissingBean(DeadLetterQueue.class)
+    public DeadLetterQueue jpaDeadLetterQueue(DeadLetterRepository repository,
+                                              DomainEventSerializer domainEventSerializer,
+                                              PlatformTransactionManager transactionManager,
+                                              MeterRegistry meterRegistry) {
+        log.info("Enabling event dead-letter queue");
+        return new JpaDeadLetterQueue(repository, domainEventSerializer, transactionManager, meterRegistry);
+    }
+
+    /**
+     * 死信查询与重新投递服务
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public DeadLetterService deadLetterService(DeadLetterRepository repository,
+                                               DomainEventSerializer domainEventSerializer,
+                                               ObjectProvider<EventHandler<?>> eventHandlers,
+                                               PlatformTransactionManager transactionManager,
+                                               EventBusProperties properties,
+                                               MeterRegistry meterRegistry) {
+        return new DeadLetterService(repository, domainEventSerializer, eventHandlers,
+                transactionManager, properties.getDeadLetter(), meterRegistry);
+    }
+}
@@ -2,15 +2,29 @@ package cn.treedeep.king.core.infrastructure.config;
 
 import cn.treedeep.king.core.domain.DomainEventPublisher;
 import cn.treedeep.king.core.domain.EventBus;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.eventbus.EventBatcher;
+import cn.treedeep.king.core.infrastructure.eventbus.RingBufferEventBus;
 import cn.treedeep.king.core.infrastructure.eventbus.SimpleEventBus;
+import cn.treedeep.king.core.infrastructure.eventbus.TransportEventBus;
+import cn.treedeep.king.core.infrastructure.eventbus.WaitStrategy;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.core.infrastructure.transport.EventTransport;
+import cn.treedeep.king.core.infrastructure.transport.FileEventTransport;
 import cn.treedeep.king.shared.properties.EventBusProperties;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 /**
  * 事件总线配置类
  */
@@ -36,11 +50,38 @@ public class EventBusConfiguration {
         return executor;
     }
 
+    /**
+     * 配置批量事件累积器，异步事件总线通过它向批量事件处理器按批投递
+     */
+    @Bean(destroyMethod = "close")
+    public EventBatcher eventBatcher(MeterRegistry meterRegistry, ObjectProvider<DeadLetterQueue> deadLetterQueue) {
+        EventBusProperties.BatchProperties batch = properties.getBatch();
+        EventBatcher batcher = new EventBatcher(batch.getMaxSize(), batch.getLinger(), meterRegistry);
+        batcher.setDeadLetterQueue(deadLetterQueue.getIfAvailable());
+        return batcher;
+    }
+
+    /**
+     * 配置嵌入式文件事件传输
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.event-bus", name = "type", havingValue = "file")
+    public EventTransport fileEventTransport() {
+        EventBusProperties.FileProperties file = properties.getFile();
+        return new FileEventTransport(Path.of(file.getDirectory()), file.getSegmentSize(), file.isSyncOnWrite());
+    }
+
     /**
      * 配置事件总线实现
      */
     @Bean
-    public EventBus eventBus(ThreadPoolTaskExecutor eventProcessingExecutor, DomainEventPublisher domainEventPublisher) {
+    public EventBus eventBus(ThreadPoolTaskExecutor eventProcessingExecutor,
+                             DomainEventPublisher domainEventPublisher,
+                             MeterRegistry meterRegistry,
+                             ObjectProvider<DeadLetterQueue> deadLetterQueue,
+                             EventBatcher eventBatcher,
+                             ObjectProvider<EventTransport> eventTransport,
+                             DomainEventSerializer domainEventSerializer) {
         log.info("Configuring event bus implementation: {}", properties.getType());
 
         log.info("Event bus configured with retry policy: max attempts={}, initial delay={}ms",
@@ -50,15 +91,50 @@ public class EventBusConfiguration {
         return switch (properties.getType().toLowerCase()) {
             case "simple" -> {
                 log.info("Using simple event bus implementation with {} mode", properties.isAsync() ? "async" : "sync");
-                yield new SimpleEventBus(domainEventPublisher);
+                SimpleEventBus eventBus = properties.isAsync()
+                        ? new SimpleEventBus(domainEventPublisher, eventProcessingExecutor, properties.getPoolSize() * 4)
+                        : new SimpleEventBus(domainEventPublisher);
+                eventBus.setDeadLetterQueue(deadLetterQueue.getIfAvailable());
+                eventBus.setEventBatcher(eventBatcher);
+                yield eventBus;
+            }
+            case "ring" -> {
+                EventBusProperties.RingProperties ring = properties.getRing();
+                log.info("Using ring buffer event bus implementation: buffer size={}, consumers={}, wait strategy={}",
+                        ring.getBufferSize(), ring.getConsumers(), ring.getWaitStrategy());
+                RingBufferEventBus eventBus = new RingBufferEventBus(domainEventPublisher,
+                        ring.getBufferSize(),
+                        ring.getConsumers(),
+                        ring.getMaxBatchSize(),
+                        WaitStrategy.of(ring.getWaitStrategy()),
+                        meterRegistry);
+                eventBus.setDeadLetterQueue(deadLetterQueue.getIfAvailable());
+                eventBus.setEventBatcher(eventBatcher);
+                yield eventBus;
             }
-            case "rabbitmq" -> {
-                log.info("Using RabbitMQ event bus implementation");
-                throw new UnsupportedOperationException("RabbitMQ implementation not yet available");
+            case "file", "transport" -> {
+                EventTransport transport = eventTransport.getIfAvailable();
+                if (transport == null) {
+                    throw new IllegalStateException("Event bus type '" + properties.getType() +
+                            "' requires an EventTransport bean");
+                }
+                EventBusProperties.TransportProperties consumer = properties.getTransport();
+                log.info("Using transport event bus implementation: transport={}, consumer={}, batch size={}",
+                        transport.getClass().getSimpleName(), consumer.getConsumer(), consumer.getBatchSize());
+                TransportEventBus eventBus = new TransportEventBus(domainEventPublisher,
+                        transport,
+                        domainEventSerializer,
+                        consumer.getConsumer(),
+                        consumer.getBatchSize(),
+                        Duration.ofMillis(consumer.getPollTimeout()));
+                eventBus.setDeadLetterQueue(deadLetterQueue.getIfAvailable());
+                eventBus.setEventBatcher(eventBatcher);
+                yield eventBus;
             }
             default -> throw new IllegalStateException(
                     "Unsupported event bus type: " + properties.getType() +
-                            ". Supported types are: simple, rabbitmq"
+                            ". Supported types are: simple, ring, file, transport" +
+                            " (for a message broker such as RabbitMQ, provide an EventTransport bean and use type 'transport')"
             );
         };
     }
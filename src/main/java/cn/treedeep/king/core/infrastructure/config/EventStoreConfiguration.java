@@ -1,6 +1,7 @@
 package cn.treedeep.king.core.infrastructure.config;
 
 import cn.treedeep.king.core.domain.EventStore;
+import cn.treedeep.king.core.infrastructure.eventstore.AggregateTypeBackfill;
 import cn.treedeep.king.core.infrastructure.eventstore.EventStoreRepository;
 import cn.treedeep.king.core.infrastructure.eventstore.InMemoryEventStore;
 import cn.treedeep.king.core.infrastructure.eventstore.JpaEventStore;
@@ -17,6 +18,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
 
 /**
  * 事件存储配置类
@@ -74,5 +76,13 @@ public class EventStoreConfiguration {
                     metrics,
                     cacheManager);
         }
+
+        /**
+         * 回填历史事件的聚合根类型
+         */
+        @Bean
+        public AggregateTypeBackfill aggregateTypeBackfill(PlatformTransactionManager transactionManager) {
+            return new AggregateTypeBackfill(transactionManager);
+        }
     }
 }
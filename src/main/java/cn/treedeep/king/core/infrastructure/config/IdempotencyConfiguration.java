@@ -0,0 +1,93 @@
+package cn.treedeep.king.core.infrastructure.config;
+
+import cn.treedeep.king.core.infrastructure.idempotency.CommandIdempotencyControl;
+import cn.treedeep.king.core.infrastructure.idempotency.IdempotencyStore;
+import cn.treedeep.king.core.infrastructure.idempotency.InMemoryIdempotencyStore;
+import cn.treedeep.king.core.infrastructure.idempotency.JdbcIdempotencyStore;
+import cn.treedeep.king.core.infrastructure.idempotency.RedisIdempotencyStore;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+/**
+ * 命令幂等性配置类
+ * <p>
+ * 根据app.cqrs.idempotency.backend选择幂等性记录的后端存储：<br>
+ * 1. Redis存储（redis）：默认实现，适用于集群部署<br>
+ * 2. JDBC存储（jdbc）：使用数据库表，适用于没有Redis的部署<br>
+ * 3. 内存存储（memory）：适用于单节点、开发和测试环境
+ * <p>
+ * 后端存储之前统一叠加进程内的近端缓存，由{@link CommandIdempotencyControl}负责。
+ */
+@Slf4j
+@Configuration
+public class IdempotencyConfiguration {
+
+    /**
+     * 命令幂等性控制器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public CommandIdempotencyControl commandIdempotencyControl(IdempotencyStore idempotencyStore,
+                                                               CqrsProperties properties,
+                                                               MeterRegistry meterRegistry) {
+        CqrsProperties.IdempotencyProperties idempotency = properties.getIdempotency();
+        log.info("Command idempotency configured - backend: {}, local cache: {}",
+                idempotency.getBackend(), idempotency.getLocalCache().isEnabled());
+        return new CommandIdempotencyControl(idempotencyStore, idempotency, meterRegistry);
+    }
+
+    /**
+     * 内存幂等性存储
+     */
+    @Bean
+    @ConditionalOnMissingBean(IdempotencyStore.class)
+    @ConditionalOnProperty(name = "app.cqrs.idempotency.backend", havingValue = "memory")
+    public IdempotencyStore memoryIdempotencyStore(CqrsProperties properties) {
+        CqrsProperties.IdempotencyProperties idempotency = properties.getIdempotency();
+        log.info("Using in-memory idempotency store - suitable for single node and testing");
+        return new InMemoryIdempotencyStore(idempotency.getLocalCache().getMaximumSize(),
+                Duration.ofSeconds(idempotency.getExpiration()));
+    }
+
+    /**
+     * JDBC幂等性存储
+     */
+    @Bean
+    @ConditionalOnMissingBean(IdempotencyStore.class)
+    @ConditionalOnProperty(name = "app.cqrs.idempotency.backend", havingValue = "jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                                 PlatformTransactionManager transactionManager,
+                                                 CqrsProperties properties) {
+        String tableName = properties.getIdempotency().getTableName();
+        log.info("Using JDBC idempotency store - table: {}", tableName);
+        return new JdbcIdempotencyStore(jdbcTemplate, transactionManager, tableName);
+    }
+
+    /**
+     * Redis幂等性存储配置
+     * 只有在Redis可用时才启用
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.data.redis.core.RedisTemplate")
+    @ConditionalOnProperty(name = "app.cqrs.idempotency.backend", havingValue = "redis", matchIfMissing = true)
+    public static class RedisIdempotencyStoreConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(IdempotencyStore.class)
+        public IdempotencyStore redisIdempotencyStore(RedisTemplate<String, String> redisTemplate) {
+            log.info("Using Redis idempotency store");
+            return new RedisIdempotencyStore(redisTemplate);
+        }
+    }
+}
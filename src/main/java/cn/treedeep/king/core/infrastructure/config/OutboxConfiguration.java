@@ -0,0 +1,57 @@
+package cn.treedeep.king.core.infrastructure.config;
+
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventOutbox;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.core.infrastructure.outbox.JpaEventOutbox;
+import cn.treedeep.king.core.infrastructure.outbox.OutboxEventRepository;
+import cn.treedeep.king.core.infrastructure.outbox.OutboxRelay;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 事务发件箱配置类
+ * <p>
+ * 只有在JPA可用且启用发件箱时才加载。
+ * 启用后{@link DomainEventPublisher}在事务内不再为每个事件注册事务同步器，
+ * 而是把事件写入发件箱，由{@link OutboxRelay}在提交后批量投递。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass(name = "org.springframework.data.jpa.repository.JpaRepository")
+@ConditionalOnProperty(name = "app.event-store.outbox.enabled", havingValue = "true", matchIfMissing = false)
+public class OutboxConfiguration {
+
+    /**
+     * JPA事件发件箱
+     */
+    @Bean
+    @ConditionalOnMissingBean(EventOutbox.class)
+    public EventOutbox jpaEventOutbox(OutboxEventRepository repository,
+                                      DomainEventSerializer domainEventSerializer,
+                                      MeterRegistry meterRegistry) {
+        log.info("Enabling transactional event outbox");
+        return new JpaEventOutbox(repository, domainEventSerializer, meterRegistry);
+    }
+
+    /**
+     * 发件箱中继
+     */
+    @Bean
+    public OutboxRelay outboxRelay(OutboxEventRepository repository,
+                                   DomainEventSerializer domainEventSerializer,
+                                   DomainEventPublisher domainEventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   EventStoreProperties properties,
+                                   MeterRegistry meterRegistry) {
+        return new OutboxRelay(repository, domainEventSerializer, domainEventPublisher,
+                transactionManager, properties.getOutbox(), meterRegistry);
+    }
+}
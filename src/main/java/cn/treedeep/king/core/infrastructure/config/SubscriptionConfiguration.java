@@ -0,0 +1,44 @@
+package cn.treedeep.king.core.infrastructure.config;
+
+import cn.treedeep.king.core.domain.EventStore;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.subscription.SubscriptionCheckpointRepository;
+import cn.treedeep.king.core.infrastructure.subscription.SubscriptionRunner;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 追赶订阅配置类
+ * <p>
+ * 只有在JPA可用且启用追赶订阅时才加载，检查点保存在event_subscription_checkpoint表中。
+ * 应用通过{@link SubscriptionRunner#register}注册订阅及其处理器。
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.data.jpa.repository.JpaRepository")
+@ConditionalOnProperty(name = "app.event-store.subscription.enabled", havingValue = "true", matchIfMissing = false)
+public class SubscriptionConfiguration {
+
+    /**
+     * 追赶订阅运行器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public SubscriptionRunner subscriptionRunner(EventStore eventStore,
+                                                 SubscriptionCheckpointRepository checkpointRepository,
+                                                 PlatformTransactionManager transactionManager,
+                                                 EventStoreProperties properties,
+                                                 MeterRegistry meterRegistry,
+                                                 ObjectProvider<DeadLetterQueue> deadLetterQueue) {
+        SubscriptionRunner runner = new SubscriptionRunner(eventStore, checkpointRepository,
+                transactionManager, properties.getSubscription(), meterRegistry);
+        runner.setDeadLetterQueue(deadLetterQueue.getIfAvailable());
+        return runner;
+    }
+}
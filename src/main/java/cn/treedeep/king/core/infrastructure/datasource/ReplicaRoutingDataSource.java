@@ -0,0 +1,291 @@
+package cn.treedeep.king.core.infrastructure.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由数据源
+ * <p>
+ * 只读事务（{@code @Transactional(readOnly = true)}，例如查询处理器）的连接从只读副本获取，其余连接使用主库：
+ * <ul>
+ * <li>副本选择 - 轮询，或选择当前借出连接数最少的副本</li>
+ * <li>写后粘滞 - 会话执行过写事务后，在粘滞时间内它的只读事务仍然使用主库，避免读不到自己刚写入的数据</li>
+ * <li>故障回退 - 从副本获取连接失败时把副本标记为不可用并尝试其他副本，全部不可用时使用主库；
+ * 健康检查线程定期检测副本，恢复后重新启用</li>
+ * </ul>
+ * 事务开始时事务管理器就会获取连接，此时只读标记尚未生效，因此必须包装在
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}中使用，
+ * 使物理连接推迟到第一条语句执行时才获取。
+ * <p>
+ * 监控指标：
+ * <ul>
+ * <li>datasource.routing.connections - 按target（primary或副本名称）和reason（write/sticky/fallback/replica）统计获取的连接数</li>
+ * <li>datasource.replica.healthy - 副本是否可用</li>
+ * <li>datasource.replica.active - 副本当前借出的连接数，仅least-loaded策略统计</li>
+ * </ul>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    /**
+     * 副本选择策略
+     */
+    public enum Strategy {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 当前借出连接数最少
+         */
+        LEAST_LOADED;
+
+        /**
+         * 按配置值解析策略，例如round-robin、least-loaded
+         */
+        public static Strategy of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final DataSource primary;
+    private final Replica[] replicas;
+    private final Strategy strategy;
+    private final Cache<Object, Boolean> stickySessions;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+    private final MeterRegistry meterRegistry;
+    private final Counter writeConnections;
+    private final Counter stickyConnections;
+    private final Counter fallbackConnections;
+
+    private volatile RoutingSessionResolver sessionResolver = () -> Thread.currentThread().threadId();
+
+    /**
+     * 构造读写分离路由数据源
+     *
+     * @param primary             主库
+     * @param replicas            副本名称到副本数据源的映射，副本数据源在{@link #close()}时一并关闭
+     * @param strategy            副本选择策略
+     * @param stickyWindow        写后粘滞时间，为0时不粘滞
+     * @param healthCheckInterval 副本健康检查间隔
+     * @param meterRegistry       指标注册表
+     */
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Strategy strategy,
+                                    Duration stickyWindow,
+                                    Duration healthCheckInterval,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.strategy = strategy;
+        this.meterRegistry = meterRegistry;
+        this.replicas = replicas.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toArray(Replica[]::new);
+        this.stickySessions = stickyWindow.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .build();
+        this.writeConnections = connectionCounter("primary", "write");
+        this.stickyConnections = connectionCounter("primary", "sticky");
+        this.fallbackConnections = connectionCounter("primary", "fallback");
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 设置会话解析器，写后粘滞按会话生效
+     *
+     * @param sessionResolver 会话解析器，默认以当前线程作为会话
+     */
+    public void setSessionResolver(RoutingSessionResolver sessionResolver) {
+        this.sessionResolver = sessionResolver;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * 关闭健康检查线程和副本数据源，主库由容器管理，不在这里关闭
+     */
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("关闭只读副本数据源失败: replica={}, error={}", replica.name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (stickySessions != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                stickySessions.put(sessionResolver.currentSession(), Boolean.TRUE);
+            }
+            writeConnections.increment();
+            return opener.open(primary);
+        }
+
+        if (stickySessions != null && stickySessions.getIfPresent(sessionResolver.currentSession()) != null) {
+            stickyConnections.increment();
+            return opener.open(primary);
+        }
+
+        for (Replica replica = choose(); replica != null; replica = choose()) {
+            try {
+                return replica.open(opener);
+            } catch (SQLException e) {
+                replica.markUnhealthy(e);
+            }
+        }
+        fallbackConnections.increment();
+        return opener.open(primary);
+    }
+
+    private Replica choose() {
+        int count = replicas.length;
+        if (count == 0) {
+            return null;
+        }
+        int start = Math.floorMod(cursor.getAndIncrement(), count);
+        Replica best = null;
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas[(start + i) % count];
+            if (!replica.healthy) {
+                continue;
+            }
+            if (strategy == Strategy.ROUND_ROBIN) {
+                return replica;
+            }
+            if (best == null || replica.active.get() < best.active.get()) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(2);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("只读副本已恢复: {}", replica.name);
+            } else if (!healthy && replica.healthy) {
+                log.warn("只读副本健康检查失败，暂停使用: {}", replica.name);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    private Counter connectionCounter(String target, String reason) {
+        return Counter.builder("datasource.routing.connections")
+                .description("读写分离数据源获取的连接数")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 从数据源获取连接的方式，区分是否指定用户名和密码
+     */
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * 只读副本
+     */
+    private final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+        private final Counter connections;
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.connections = connectionCounter(name, "replica");
+            Gauge.builder("datasource.replica.healthy", this, r -> r.healthy ? 1 : 0)
+                    .description("只读副本是否可用")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("datasource.replica.active", active, AtomicInteger::get)
+                    .description("只读副本当前借出的连接数")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+
+        Connection open(ConnectionOpener opener) throws SQLException {
+            Connection connection = opener.open(dataSource);
+            connections.increment();
+            if (strategy != Strategy.LEAST_LOADED) {
+                return connection;
+            }
+            active.incrementAndGet();
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        void markUnhealthy(SQLException e) {
+            if (healthy) {
+                log.warn("从只读副本获取连接失败，暂停使用: replica={}, error={}", name, e.getMessage());
+            }
+            healthy = false;
+        }
+    }
+}
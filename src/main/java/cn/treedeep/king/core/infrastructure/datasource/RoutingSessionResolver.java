@@ -0,0 +1,19 @@
+package cn.treedeep.king.core.infrastructure.datasource;
+
+/**
+ * 读写分离的会话解析器
+ * <p>
+ * 写后粘滞以会话为单位：同一会话执行过写事务后，短时间内的只读事务继续使用主库。
+ * 默认以当前线程作为会话，只覆盖同一请求内先写后读的场景；
+ * 需要跨请求读到自己写入的数据时，应提供按用户或客户端会话解析的实现。
+ */
+@FunctionalInterface
+public interface RoutingSessionResolver {
+
+    /**
+     * 获取当前会话的标识
+     *
+     * @return 会话标识，需要正确实现equals和hashCode
+     */
+    Object currentSession();
+}
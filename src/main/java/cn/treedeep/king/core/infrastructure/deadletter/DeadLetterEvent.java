@@ -0,0 +1,143 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Comment;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 死信事件实体
+ * <p>
+ * 每个"事件 + 处理器"组合只保留一条记录，同一组合再次失败时累加尝试次数并更新错误信息
+ */
+@Data
+@Entity
+@Table(name = "event_dead_letter",
+        uniqueConstraints = @UniqueConstraint(name = "uk_dead_letter_event_handler", columnNames = {"event_id", "handler_id"}),
+        indexes = @Index(name = "idx_dead_letter_status", columnList = "status, id"))
+@Comment("死信事件表")
+public class DeadLetterEvent {
+
+    /**
+     * 死信状态
+     */
+    public enum Status {
+        /**
+         * 已停放，等待重新投递
+         */
+        PARKED,
+        /**
+         * 重新投递中
+         */
+        REDRIVING,
+        /**
+         * 已重新投递成功
+         */
+        REDRIVEN,
+        /**
+         * 已丢弃，不再投递
+         */
+        DISCARDED
+    }
+
+    /**
+     * 主键ID
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Comment("主键ID")
+    private Long id;
+
+    /**
+     * 事件ID
+     */
+    @Column(name = "event_id", nullable = false)
+    @Comment("事件ID")
+    private String eventId;
+
+    /**
+     * 事件类型
+     */
+    @Column(name = "event_type", nullable = false)
+    @Comment("事件类型")
+    private String eventType;
+
+    /**
+     * 聚合根ID
+     */
+    @Column(name = "aggregate_id")
+    @Comment("聚合根ID")
+    private String aggregateId;
+
+    /**
+     * 处理器ID（处理器类的完全限定名）
+     */
+    @Column(name = "handler_id", nullable = false)
+    @Comment("处理器ID")
+    private String handlerId;
+
+    /**
+     * 事件数据(JSON格式)
+     */
+    @Column(name = "event_data", columnDefinition = "TEXT")
+    @Comment("事件数据(JSON格式)")
+    private String eventData;
+
+    /**
+     * 异常类型
+     */
+    @Column(name = "error_type")
+    @Comment("异常类型")
+    private String errorType;
+
+    /**
+     * 异常信息
+     */
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    @Comment("异常信息")
+    private String errorMessage;
+
+    /**
+     * 累计尝试次数
+     */
+    @Column(name = "attempts")
+    @Comment("累计尝试次数")
+    private int attempts;
+
+    /**
+     * 重新投递次数
+     */
+    @Column(name = "redrive_count")
+    @Comment("重新投递次数")
+    private int redriveCount;
+
+    /**
+     * 状态
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    @Comment("状态")
+    private Status status;
+
+    /**
+     * 停放时间
+     */
+    @Column(name = "created_at")
+    @Comment("停放时间")
+    private OffsetDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "updated_at")
+    @Comment("更新时间")
+    private OffsetDateTime updatedAt;
+
+    /**
+     * 重新投递成功时间
+     */
+    @Column(name = "redriven_at")
+    @Comment("重新投递成功时间")
+    private OffsetDateTime redrivenAt;
+}
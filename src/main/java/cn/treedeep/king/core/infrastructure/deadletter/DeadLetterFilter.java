@@ -0,0 +1,34 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+/**
+ * 死信筛选条件
+ * <p>
+ * 各条件为null时不限制
+ *
+ * @param eventType   事件类型的完全限定名
+ * @param handlerId   处理器类的完全限定名
+ * @param aggregateId 聚合根ID
+ */
+public record DeadLetterFilter(String eventType, String handlerId, String aggregateId) {
+
+    /**
+     * 不限制任何条件
+     */
+    public static DeadLetterFilter all() {
+        return new DeadLetterFilter(null, null, null);
+    }
+
+    /**
+     * 按事件类型筛选
+     */
+    public static DeadLetterFilter ofEventType(String eventType) {
+        return new DeadLetterFilter(eventType, null, null);
+    }
+
+    /**
+     * 按处理器筛选
+     */
+    public static DeadLetterFilter ofHandler(String handlerId) {
+        return new DeadLetterFilter(null, handlerId, null);
+    }
+}
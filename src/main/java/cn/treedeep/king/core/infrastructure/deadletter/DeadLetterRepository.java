@@ -0,0 +1,73 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 死信事件仓储接口
+ */
+@Repository
+public interface DeadLetterRepository extends JpaRepository<DeadLetterEvent, Long> {
+
+    /**
+     * 查找事件在某个处理器上的死信记录
+     */
+    Optional<DeadLetterEvent> findByEventIdAndHandlerId(String eventId, String handlerId);
+
+    /**
+     * 按条件分页查询死信，条件为null时不限制
+     */
+    @Query("SELECT d FROM DeadLetterEvent d WHERE (:status IS NULL OR d.status = :status)"
+            + " AND (:eventType IS NULL OR d.eventType = :eventType)"
+            + " AND (:handlerId IS NULL OR d.handlerId = :handlerId)"
+            + " AND (:aggregateId IS NULL OR d.aggregateId = :aggregateId)")
+    Page<DeadLetterEvent> search(
+        @Param("status") DeadLetterEvent.Status status,
+        @Param("eventType") String eventType,
+        @Param("handlerId") String handlerId,
+        @Param("aggregateId") String aggregateId,
+        Pageable pageable);
+
+    /**
+     * 按主键顺序取出下一批待重新投递的死信ID
+     */
+    @Query("SELECT d.id FROM DeadLetterEvent d WHERE d.status = :status AND d.id > :afterId"
+            + " AND (:eventType IS NULL OR d.eventType = :eventType)"
+            + " AND (:handlerId IS NULL OR d.handlerId = :handlerId)"
+            + " AND (:aggregateId IS NULL OR d.aggregateId = :aggregateId)"
+            + " ORDER BY d.id ASC")
+    List<Long> findNextIds(
+        @Param("status") DeadLetterEvent.Status status,
+        @Param("afterId") Long afterId,
+        @Param("eventType") String eventType,
+        @Param("handlerId") String handlerId,
+        @Param("aggregateId") String aggregateId,
+        Pageable pageable);
+
+    /**
+     * 条件状态迁移，只有当前状态匹配时才会更新，用于认领死信
+     *
+     * @return 更新的行数，0表示已被其他操作认领或状态已变化
+     */
+    @Modifying
+    @Query("UPDATE DeadLetterEvent d SET d.status = :to, d.updatedAt = :now WHERE d.id = :id AND d.status = :from")
+    int transition(
+        @Param("id") Long id,
+        @Param("from") DeadLetterEvent.Status from,
+        @Param("to") DeadLetterEvent.Status to,
+        @Param("now") OffsetDateTime now);
+
+    /**
+     * 按状态统计死信数量
+     */
+    long countByStatus(DeadLetterEvent.Status status);
+}
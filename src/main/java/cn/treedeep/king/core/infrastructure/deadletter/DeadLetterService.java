@@ -0,0 +1,249 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.properties.EventBusProperties;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 死信服务
+ * <p>
+ * 提供死信的查询与重新投递：
+ * <ul>
+ * <li>查询 - 按状态、事件类型、处理器、聚合根分页查询</li>
+ * <li>批量重新投递 - 按主键顺序分批处理，每批只查询ID，逐条认领后投递</li>
+ * <li>限流 - 按配置的速率投递，避免故障恢复后的回放压垮下游</li>
+ * <li>防重复 - 以条件更新认领死信，已投递、已丢弃或正被其他操作投递的死信会被跳过</li>
+ * </ul>
+ * 死信直接交给原处理器处理，不经过事件总线，因此不会影响其他已经成功处理该事件的处理器。
+ */
+@Slf4j
+public class DeadLetterService {
+
+    private enum Outcome {REDRIVEN, FAILED, SKIPPED}
+
+    private final DeadLetterRepository repository;
+    private final DomainEventSerializer serializer;
+    private final ObjectProvider<EventHandler<?>> eventHandlers;
+    private final TransactionTemplate transactionTemplate;
+    private final EventBusProperties.DeadLetterProperties properties;
+    private final MeterRegistry registry;
+
+    private volatile Map<String, EventHandler<?>> handlersById;
+
+    public DeadLetterService(DeadLetterRepository repository,
+                             DomainEventSerializer serializer,
+                             ObjectProvider<EventHandler<?>> eventHandlers,
+                             PlatformTransactionManager transactionManager,
+                             EventBusProperties.DeadLetterProperties properties,
+                             MeterRegistry registry) {
+        this.repository = repository;
+        this.serializer = serializer;
+        this.eventHandlers = eventHandlers;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * 分页查询死信
+     *
+     * @param filter   筛选条件
+     * @param status   状态，为null时不限制
+     * @param pageable 分页参数
+     * @return 死信分页结果
+     */
+    public Page<DeadLetterEvent> find(DeadLetterFilter filter, DeadLetterEvent.Status status, Pageable pageable) {
+        return repository.search(status, filter.eventType(), filter.handlerId(), filter.aggregateId(), pageable);
+    }
+
+    /**
+     * 根据ID查询死信
+     */
+    public Optional<DeadLetterEvent> findById(Long id) {
+        return repository.findById(id);
+    }
+
+    /**
+     * 统计各状态的死信数量
+     */
+    public Map<DeadLetterEvent.Status, Long> countByStatus() {
+        Map<DeadLetterEvent.Status, Long> counts = new HashMap<>();
+        for (DeadLetterEvent.Status status : DeadLetterEvent.Status.values()) {
+            counts.put(status, repository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    /**
+     * 重新投递单条死信
+     *
+     * @param id 死信ID
+     * @return 投递结果
+     */
+    public RedriveResult redrive(Long id) {
+        return switch (redriveOne(id)) {
+            case REDRIVEN -> new RedriveResult(1, 0, 0);
+            case FAILED -> new RedriveResult(0, 1, 0);
+            case SKIPPED -> new RedriveResult(0, 0, 1);
+        };
+    }
+
+    /**
+     * 批量重新投递符合条件的停放死信
+     * <p>
+     * 按主键顺序分批处理，本次调用中再次失败的死信不会被重复投递
+     *
+     * @param filter 筛选条件
+     * @return 投递结果
+     */
+    public RedriveResult redrive(DeadLetterFilter filter) {
+        RateLimiter rateLimiter = RateLimiter.create(properties.getRedriveRate());
+        int batchSize = properties.getRedriveBatchSize();
+        int redriven = 0;
+        int failed = 0;
+        int skipped = 0;
+
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = repository.findNextIds(DeadLetterEvent.Status.PARKED, afterId,
+                    filter.eventType(), filter.handlerId(), filter.aggregateId(), PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            for (Long id : ids) {
+                rateLimiter.acquire();
+                switch (redriveOne(id)) {
+                    case REDRIVEN -> redriven++;
+                    case FAILED -> failed++;
+                    case SKIPPED -> skipped++;
+                }
+            }
+            afterId = ids.getLast();
+            log.info("死信重新投递进度: 已投递={}, 失败={}, 跳过={}", redriven, failed, skipped);
+
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+
+        return new RedriveResult(redriven, failed, skipped);
+    }
+
+    /**
+     * 丢弃死信，丢弃后不再参与重新投递
+     *
+     * @param id 死信ID
+     * @return 是否丢弃成功
+     */
+    public boolean discard(Long id) {
+        Integer updated = transactionTemplate.execute(status ->
+                repository.transition(id, DeadLetterEvent.Status.PARKED, DeadLetterEvent.Status.DISCARDED, DateTimeUtil.now()));
+        return updated != null && updated > 0;
+    }
+
+    /**
+     * 把停留在投递中状态的死信放回停放状态
+     * <p>
+     * 用于重新投递过程中进程退出的情况
+     *
+     * @param id 死信ID
+     * @return 是否放回成功
+     */
+    public boolean release(Long id) {
+        Integer updated = transactionTemplate.execute(status ->
+                repository.transition(id, DeadLetterEvent.Status.REDRIVING, DeadLetterEvent.Status.PARKED, DateTimeUtil.now()));
+        return updated != null && updated > 0;
+    }
+
+    private Outcome redriveOne(Long id) {
+        Integer claimed = transactionTemplate.execute(status ->
+                repository.transition(id, DeadLetterEvent.Status.PARKED, DeadLetterEvent.Status.REDRIVING, DateTimeUtil.now()));
+        if (claimed == null || claimed == 0) {
+            record(Outcome.SKIPPED);
+            return Outcome.SKIPPED;
+        }
+
+        DeadLetterEvent entry = repository.findById(id).orElse(null);
+        if (entry == null) {
+            record(Outcome.SKIPPED);
+            return Outcome.SKIPPED;
+        }
+
+        try {
+            EventHandler<?> handler = handler(entry.getHandlerId());
+            DomainEvent event = serializer.deserialize(entry.getEventType(), entry.getEventData());
+            invoke(handler, event);
+
+            transactionTemplate.executeWithoutResult(status -> repository.findById(id).ifPresent(current -> {
+                current.setStatus(DeadLetterEvent.Status.REDRIVEN);
+                current.setRedriveCount(current.getRedriveCount() + 1);
+                current.setRedrivenAt(DateTimeUtil.now());
+                current.setUpdatedAt(current.getRedrivenAt());
+                repository.save(current);
+            }));
+            record(Outcome.REDRIVEN);
+            return Outcome.REDRIVEN;
+        } catch (Exception e) {
+            log.warn("死信重新投递失败: id={}, eventType={}, handler={}, error={}",
+                    id, entry.getEventType(), entry.getHandlerId(), e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> repository.findById(id).ifPresent(current -> {
+                current.setStatus(DeadLetterEvent.Status.PARKED);
+                current.setAttempts(current.getAttempts() + 1);
+                current.setRedriveCount(current.getRedriveCount() + 1);
+                current.setErrorType(e.getClass().getName());
+                current.setErrorMessage(e.getMessage());
+                current.setUpdatedAt(DateTimeUtil.now());
+                repository.save(current);
+            }));
+            record(Outcome.FAILED);
+            return Outcome.FAILED;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void invoke(EventHandler<?> handler, DomainEvent event) {
+        // 受管调用，失败由本服务更新原记录，处理器不会再停放一条新的死信
+        HandlerInvocation.runManaged(() -> ((EventHandler<DomainEvent>) handler).handle(event));
+    }
+
+    private EventHandler<?> handler(String handlerId) {
+        Map<String, EventHandler<?>> handlers = handlersById;
+        if (handlers == null) {
+            Map<String, EventHandler<?>> resolved = new HashMap<>();
+            eventHandlers.orderedStream().forEach(handler ->
+                    resolved.putIfAbsent(ClassUtils.getUserClass(handler).getName(), handler));
+            handlersById = handlers = resolved;
+        }
+
+        EventHandler<?> handler = handlers.get(handlerId);
+        if (handler == null) {
+            throw new IllegalStateException("Event handler not found: " + handlerId);
+        }
+        return handler;
+    }
+
+    private void record(Outcome outcome) {
+        registry.counter("eventbus.deadletter.redriven", "outcome", outcome.name().toLowerCase()).increment();
+    }
+}
@@ -0,0 +1,82 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 基于JPA的死信队列
+ * <p>
+ * 在独立的新事务中写入，处理器所在事务回滚不会丢失死信记录。
+ * 停放本身失败时只记录日志，不会掩盖原始的处理异常。
+ */
+@Slf4j
+public class JpaDeadLetterQueue implements DeadLetterQueue {
+
+    private final DeadLetterRepository repository;
+    private final DomainEventSerializer serializer;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry registry;
+
+    public JpaDeadLetterQueue(DeadLetterRepository repository,
+                              DomainEventSerializer serializer,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry registry) {
+        this.repository = repository;
+        this.serializer = serializer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.registry = registry;
+    }
+
+    @Override
+    public void park(DomainEvent event, EventHandler<?> handler, Throwable error, int attempts) {
+        String handlerId = ClassUtils.getUserClass(handler).getName();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                OffsetDateTime now = DateTimeUtil.now();
+                DeadLetterEvent entry = repository.findByEventIdAndHandlerId(event.getEventId(), handlerId)
+                        .orElseGet(() -> newEntry(event, handlerId, now));
+                entry.setAttempts(entry.getAttempts() + attempts);
+                entry.setErrorType(error.getClass().getName());
+                entry.setErrorMessage(error.getMessage());
+                entry.setStatus(DeadLetterEvent.Status.PARKED);
+                entry.setUpdatedAt(now);
+                repository.save(entry);
+            });
+
+            Counter.builder("eventbus.deadletter.parked")
+                    .description("停放到死信队列的事件数")
+                    .tag("event", event.getClass().getSimpleName())
+                    .register(registry)
+                    .increment();
+            log.warn("事件已停放到死信队列: eventType={}, eventId={}, handler={}, attempts={}",
+                    event.getClass().getSimpleName(), event.getEventId(), handlerId, attempts);
+        } catch (Exception e) {
+            log.error("停放死信失败: eventType={}, eventId={}, handler={}, error={}",
+                    event.getClass().getSimpleName(), event.getEventId(), handlerId, e.getMessage(), e);
+        }
+    }
+
+    private DeadLetterEvent newEntry(DomainEvent event, String handlerId, OffsetDateTime now) {
+        DeadLetterEvent entry = new DeadLetterEvent();
+        entry.setEventId(event.getEventId());
+        entry.setEventType(event.getClass().getName());
+        entry.setAggregateId(event.getAggregateId());
+        entry.setHandlerId(handlerId);
+        entry.setEventData(serializer.serialize(event));
+        entry.setCreatedAt(now);
+        return entry;
+    }
+}
@@ -0,0 +1,18 @@
+package cn.treedeep.king.core.infrastructure.deadletter;
+
+/**
+ * 重新投递结果
+ *
+ * @param redriven 投递成功的数量
+ * @param failed   再次失败的数量，这些死信保持停放状态
+ * @param skipped  已被其他操作认领或已投递而跳过的数量
+ */
+public record RedriveResult(int redriven, int failed, int skipped) {
+
+    /**
+     * 处理的死信总数
+     */
+    public int total() {
+        return redriven + failed + skipped;
+    }
+}
@@ -0,0 +1,181 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.BatchEventHandler;
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 批量事件累积器
+ * <p>
+ * 异步事件总线把投递给{@link BatchEventHandler}的事件交给累积器，每个处理器一个缓冲区：
+ * <ul>
+ * <li>按大小投递 - 缓冲区达到批大小上限时，由放入事件的线程立即投递</li>
+ * <li>按时间投递 - 缓冲区收到第一个事件后开始计时，超过等待时间由定时线程投递</li>
+ * <li>有序投递 - 同一处理器的批串行投递，批内事件保持放入顺序</li>
+ * <li>拆分重试 - 批处理失败且处理器允许拆分时，拆成两半依次重新投递，
+ * 单个事件仍然失败时记录日志并停放到死信队列</li>
+ * </ul>
+ */
+@Slf4j
+public class EventBatcher implements AutoCloseable {
+
+    private final int defaultMaxBatchSize;
+    private final long defaultLingerMillis;
+    private final MeterRegistry registry;
+    private final ScheduledExecutorService scheduler;
+    private final Map<BatchEventHandler<?>, Buffer> buffers = new ConcurrentHashMap<>();
+
+    private volatile DeadLetterQueue deadLetterQueue;
+
+    /**
+     * 构造批量事件累积器
+     *
+     * @param defaultMaxBatchSize 处理器未指定时的批大小上限
+     * @param defaultLingerMillis 处理器未指定时的等待时间（毫秒）
+     * @param registry            指标注册表
+     */
+    public EventBatcher(int defaultMaxBatchSize, long defaultLingerMillis, MeterRegistry registry) {
+        this.defaultMaxBatchSize = Math.max(1, defaultMaxBatchSize);
+        this.defaultLingerMillis = Math.max(1, defaultLingerMillis);
+        this.registry = registry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 设置死信队列，拆分到单个事件仍然失败时停放到死信队列
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * 放入事件，达到批大小上限时在当前线程投递
+     *
+     * @param handler 批量事件处理器
+     * @param event   领域事件
+     */
+    public void add(BatchEventHandler<?> handler, DomainEvent event) {
+        Buffer buffer = buffers.computeIfAbsent(handler, Buffer::new);
+        if (buffer.add(event)) {
+            buffer.flush();
+        }
+    }
+
+    /**
+     * 立即投递所有缓冲区中的事件
+     */
+    public void flushAll() {
+        buffers.values().forEach(Buffer::flush);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flushAll();
+    }
+
+    /**
+     * 投递一批事件，失败时按处理器的设置拆分重试
+     */
+    @SuppressWarnings("unchecked")
+    private void deliver(BatchEventHandler<?> handler, List<DomainEvent> batch) {
+        try {
+            HandlerInvocation.runManaged(() -> ((BatchEventHandler<DomainEvent>) handler).handleBatch(batch));
+        } catch (Exception e) {
+            if (batch.size() > 1 && handler.splitOnFailure()) {
+                log.warn("批量事件处理失败，拆分后重试: 处理器: {}, 事件数: {}, 错误: {}",
+                        handler.getClass().getSimpleName(), batch.size(), e.getMessage());
+                int middle = batch.size() / 2;
+                deliver(handler, batch.subList(0, middle));
+                deliver(handler, batch.subList(middle, batch.size()));
+                return;
+            }
+            log.error("批量事件处理失败: 处理器: {}, 事件数: {}, 错误: {}",
+                    handler.getClass().getSimpleName(), batch.size(), e.getMessage(), e);
+            DeadLetterQueue queue = deadLetterQueue;
+            if (queue != null) {
+                for (DomainEvent event : batch) {
+                    queue.park(event, handler, e, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个处理器的缓冲区
+     */
+    private final class Buffer {
+
+        private final BatchEventHandler<?> handler;
+        private final int maxBatchSize;
+        private final long lingerMillis;
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final DistributionSummary batchSize;
+        private List<DomainEvent> events;
+
+        Buffer(BatchEventHandler<?> handler) {
+            this.handler = handler;
+            this.maxBatchSize = handler.maxBatchSize() > 0 ? handler.maxBatchSize() : defaultMaxBatchSize;
+            this.lingerMillis = handler.lingerMillis() > 0 ? handler.lingerMillis() : defaultLingerMillis;
+            this.events = new ArrayList<>(maxBatchSize);
+            this.batchSize = DistributionSummary.builder("eventbus.batch.size")
+                    .description("批量事件处理器每批收到的事件数")
+                    .tag("handler", handler.getClass().getSimpleName())
+                    .register(registry);
+        }
+
+        /**
+         * @return 是否已达到批大小上限
+         */
+        synchronized boolean add(DomainEvent event) {
+            events.add(event);
+            if (events.size() == 1) {
+                try {
+                    scheduler.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 已关闭，由放入事件的线程立即投递
+                    return true;
+                }
+            }
+            return events.size() >= maxBatchSize;
+        }
+
+        synchronized List<DomainEvent> drain() {
+            List<DomainEvent> drained = events;
+            events = new ArrayList<>(maxBatchSize);
+            return drained;
+        }
+
+        /**
+         * 取出缓冲区的事件并投递，同一处理器的投递串行执行以保证批之间的顺序
+         */
+        void flush() {
+            flushLock.lock();
+            try {
+                List<DomainEvent> batch = drain();
+                if (!batch.isEmpty()) {
+                    batchSize.record(batch.size());
+                    deliver(handler, batch);
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+}
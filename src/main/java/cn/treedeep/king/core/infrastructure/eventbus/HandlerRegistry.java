@@ -0,0 +1,337 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.BatchEventHandler;
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventFilter;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事件处理器注册表
+ * <p>
+ * 进程内事件总线和追赶订阅共用的订阅关系：
+ * <ul>
+ * <li>写时复制 - 每个事件类型的订阅保存在不可变数组中，订阅与路由可以并发进行</li>
+ * <li>继承感知 - 订阅父类或接口的处理器同样会匹配子类事件</li>
+ * <li>条件订阅 - 订阅可以附带{@link EventFilter}，按聚合根类型和事件头进一步限定</li>
+ * <li>路由索引 - 按事件类编译路由表并缓存，订阅变更时递增订阅版本使缓存失效：无条件的处理器直接返回；
+ * 有条件的订阅按聚合根类型或第一个事件头建立索引，发布时只对命中索引的订阅求值</li>
+ * </ul>
+ * 无条件订阅的处理器排在前面，其余处理器按订阅时的类型由近及远排列，同一处理器只出现一次。
+ */
+@Slf4j
+public final class HandlerRegistry {
+
+    public static final EventHandler<?>[] NO_HANDLERS = new EventHandler<?>[0];
+
+    /**
+     * 存储事件类型和对应的订阅数组
+     * <p>
+     * Key: 事件类型的完全限定名
+     * Value: 该类型事件的订阅，修改时整体替换
+     */
+    private final Map<String, Route[]> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 事件类到已编译路由表的缓存，包含父类和接口上的订阅
+     */
+    private final Map<Class<?>, RouteTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅版本，订阅变更时递增
+     * <p>
+     * 路由表记录编译时的版本，版本不一致的缓存视为过期，
+     * 避免与订阅变更并发编译出的旧路由表在清空缓存之后才写入而长期有效
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder routedEvents = new LongAdder();
+    private final LongAdder filterEvaluations = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+
+    /**
+     * 订阅事件类型
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     */
+    public void subscribe(String eventType, EventHandler<?> handler) {
+        subscribe(eventType, handler, EventFilter.ANY);
+    }
+
+    /**
+     * 按条件订阅事件类型
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     * @param filter    过滤条件
+     */
+    public void subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        Route route = new Route(handler, filter);
+        routes.compute(eventType, (type, current) -> {
+            if (current == null) {
+                return new Route[]{route};
+            }
+            Route[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = route;
+            return updated;
+        });
+        generation.incrementAndGet();
+        tables.clear();
+    }
+
+    /**
+     * 取消订阅事件类型，同一处理器在该类型上的所有订阅都会被移除
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     */
+    public void unsubscribe(String eventType, EventHandler<?> handler) {
+        routes.computeIfPresent(eventType, (type, current) -> {
+            Route[] updated = Arrays.stream(current)
+                    .filter(route -> !route.handler().equals(handler))
+                    .toArray(Route[]::new);
+            return updated.length == 0 ? null : updated;
+        });
+        generation.incrementAndGet();
+        tables.clear();
+    }
+
+    /**
+     * 解析事件类上无条件订阅的处理器
+     *
+     * @param eventClass 事件类
+     * @return 匹配的处理器，调用方不得修改
+     */
+    public EventHandler<?>[] resolve(Class<?> eventClass) {
+        return table(eventClass).unconditional();
+    }
+
+    /**
+     * 路由事件，返回应当收到该事件的处理器
+     *
+     * @param event 领域事件
+     * @return 匹配的处理器，调用方不得修改
+     */
+    public EventHandler<?>[] route(DomainEvent event) {
+        RouteTable table = table(event.getClass());
+        routedEvents.increment();
+        if (table.conditionalRoutes() == 0) {
+            deliveries.add(table.unconditional().length);
+            return table.unconditional();
+        }
+
+        List<EventHandler<?>> matched = null;
+        String aggregateType = event.getAggregateType();
+        if (aggregateType != null) {
+            matched = collect(table.byAggregateType().get(aggregateType), event, table, matched);
+        }
+        for (Map.Entry<String, Map<String, Route[]>> index : table.byHeader().entrySet()) {
+            String value = event.getHeader(index.getKey());
+            if (value != null) {
+                matched = collect(index.getValue().get(value), event, table, matched);
+            }
+        }
+
+        EventHandler<?>[] result = matched == null ? table.unconditional() : matched.toArray(NO_HANDLERS);
+        deliveries.add(result.length);
+        return result;
+    }
+
+    /**
+     * 获取路由表统计信息
+     */
+    public RoutingStats stats() {
+        int total = 0;
+        int conditional = 0;
+        for (Route[] subscribed : routes.values()) {
+            total += subscribed.length;
+            for (Route route : subscribed) {
+                if (!route.filter().isUnconditional()) {
+                    conditional++;
+                }
+            }
+        }
+        return new RoutingStats(routes.size(), total, conditional, tables.size(),
+                routedEvents.sum(), filterEvaluations.sum(), deliveries.sum());
+    }
+
+    private List<EventHandler<?>> collect(Route[] candidates, DomainEvent event, RouteTable table,
+                                          List<EventHandler<?>> matched) {
+        if (candidates == null) {
+            return matched;
+        }
+        filterEvaluations.add(candidates.length);
+        for (Route candidate : candidates) {
+            if (!candidate.filter().matches(event)) {
+                continue;
+            }
+            if (matched == null) {
+                matched = new ArrayList<>(table.unconditional().length + candidates.length);
+                Collections.addAll(matched, table.unconditional());
+            }
+            if (!matched.contains(candidate.handler())) {
+                matched.add(candidate.handler());
+            }
+        }
+        return matched;
+    }
+
+    private RouteTable table(Class<?> eventClass) {
+        // 先读版本再读订阅：订阅变更先修改订阅再递增版本，按这个版本编译出的路由表不会比版本更旧
+        long current = generation.get();
+        RouteTable cached = tables.get(eventClass);
+        if (cached != null && cached.generation() == current) {
+            return cached;
+        }
+        RouteTable compiled = compile(eventClass, current);
+        tables.put(eventClass, compiled);
+        return compiled;
+    }
+
+    /**
+     * 编译事件类的路由表
+     * <p>
+     * 先是精确类型上的订阅，再按继承链由近及远依次是父类和接口上的订阅
+     */
+    private RouteTable compile(Class<?> eventClass, long generation) {
+        Set<EventHandler<?>> unconditional = new LinkedHashSet<>();
+        Map<String, List<Route>> byAggregateType = new HashMap<>();
+        Map<String, Map<String, List<Route>>> byHeader = new HashMap<>();
+        int conditionalRoutes = 0;
+
+        Set<Class<?>> visited = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.add(eventClass);
+        while (!pending.isEmpty()) {
+            Class<?> type = pending.poll();
+            if (type == Object.class || !visited.add(type)) {
+                continue;
+            }
+            Route[] subscribed = routes.get(type.getName());
+            if (subscribed != null) {
+                for (Route route : subscribed) {
+                    EventFilter filter = route.filter();
+                    if (filter.isUnconditional()) {
+                        unconditional.add(route.handler());
+                    } else if (!filter.aggregateTypes().isEmpty()) {
+                        filter.aggregateTypes().forEach(aggregateType ->
+                                byAggregateType.computeIfAbsent(aggregateType, k -> new ArrayList<>()).add(route));
+                        conditionalRoutes++;
+                    } else {
+                        // 按名称最小的事件头建立索引，其余事件头在命中后求值
+                        String header = new TreeSet<>(filter.headers().keySet()).first();
+                        byHeader.computeIfAbsent(header, k -> new HashMap<>())
+                                .computeIfAbsent(filter.headers().get(header), k -> new ArrayList<>())
+                                .add(route);
+                        conditionalRoutes++;
+                    }
+                }
+            }
+            if (type.getSuperclass() != null) {
+                pending.add(type.getSuperclass());
+            }
+            Collections.addAll(pending, type.getInterfaces());
+        }
+
+        Map<String, Route[]> aggregateIndex = new HashMap<>();
+        byAggregateType.forEach((key, list) -> aggregateIndex.put(key, list.toArray(Route[]::new)));
+        Map<String, Map<String, Route[]>> headerIndex = new HashMap<>();
+        byHeader.forEach((header, values) -> {
+            Map<String, Route[]> valueIndex = new HashMap<>();
+            values.forEach((value, list) -> valueIndex.put(value, list.toArray(Route[]::new)));
+            headerIndex.put(header, valueIndex);
+        });
+
+        return new RouteTable(
+                unconditional.isEmpty() ? NO_HANDLERS : unconditional.toArray(NO_HANDLERS),
+                aggregateIndex,
+                headerIndex,
+                conditionalRoutes,
+                generation);
+    }
+
+    /**
+     * 依次调用处理器，第一个异常会中断后续处理器并向上抛出，由发布方决定如何处理
+     */
+    public static void invokeAll(EventHandler<?>[] eventHandlers, DomainEvent event) {
+        HandlerInvocation.runManaged(() -> {
+            for (EventHandler<?> handler : eventHandlers) {
+                invoke(handler, event);
+            }
+        });
+    }
+
+    /**
+     * 逐个调用处理器，单个处理器失败不影响其他处理器，失败的事件停放到死信队列
+     * <p>
+     * 用于异步投递和追赶订阅，此时发布方已经返回，异常无法再向上传递
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     */
+    public static void invokeEach(EventHandler<?>[] eventHandlers, DomainEvent event, DeadLetterQueue deadLetterQueue) {
+        invokeEach(eventHandlers, event, deadLetterQueue, null);
+    }
+
+    /**
+     * 逐个调用处理器，{@link BatchEventHandler}交给累积器按批投递
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     * @param batcher         批量事件累积器，为null时批量处理器也逐个调用
+     */
+    public static void invokeEach(EventHandler<?>[] eventHandlers, DomainEvent event,
+                                  DeadLetterQueue deadLetterQueue, EventBatcher batcher) {
+        HandlerInvocation.runManaged(() -> {
+            for (EventHandler<?> handler : eventHandlers) {
+                try {
+                    if (batcher != null && handler instanceof BatchEventHandler<?> batchHandler) {
+                        batcher.add(batchHandler, event);
+                    } else {
+                        invoke(handler, event);
+                    }
+                } catch (Exception e) {
+                    log.error("事件处理失败: {}, 处理器: {}, 聚合ID: {}, 错误: {}",
+                            event.getClass().getSimpleName(), handler.getClass().getSimpleName(),
+                            event.getAggregateId(), e.getMessage(), e);
+                    if (deadLetterQueue != null) {
+                        deadLetterQueue.park(event, handler, e, 1);
+                    }
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void invoke(EventHandler<?> handler, DomainEvent event) {
+        ((EventHandler<DomainEvent>) handler).handle(event);
+    }
+
+    /**
+     * 一条订阅
+     */
+    private record Route(EventHandler<?> handler, EventFilter filter) {
+    }
+
+    /**
+     * 事件类的已编译路由表
+     *
+     * @param unconditional     无条件订阅的处理器
+     * @param byAggregateType   聚合根类型到有条件订阅的索引
+     * @param byHeader          事件头名称到事件头的值再到有条件订阅的索引
+     * @param conditionalRoutes 有条件订阅的数量，为0时路由直接返回无条件订阅的处理器
+     * @param generation        编译时的订阅版本
+     */
+    private record RouteTable(EventHandler<?>[] unconditional,
+                              Map<String, Route[]> byAggregateType,
+                              Map<String, Map<String, Route[]>> byHeader,
+                              int conditionalRoutes,
+                              long generation) {
+    }
+}
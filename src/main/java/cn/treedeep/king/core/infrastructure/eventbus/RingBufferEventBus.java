@@ -0,0 +1,453 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventBus;
+import cn.treedeep.king.core.domain.EventFilter;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 环形缓冲区事件总线
+ * <p>
+ * 面向高频事件的进程内事件总线，参考Disruptor的设计：
+ * <ul>
+ * <li>预分配 - 缓冲区槽位在启动时一次性创建，发布事件只写入槽位字段，不产生队列节点等临时对象</li>
+ * <li>多生产者 - 发布线程以CAS在生产者游标上申请序号，写入槽位后单独标记为可用</li>
+ * <li>序号屏障 - 消费者只能读取到连续可用的最高序号，生产者不会覆盖最慢消费者尚未处理的槽位</li>
+ * <li>批量消费 - 消费者一次取走所有可用事件（不超过批大小上限）处理完成后才推进自己的序号</li>
+ * <li>按聚合根分区 - 每个事件按聚合根ID落到固定的消费者上，同一聚合根的事件按发布顺序处理</li>
+ * <li>批量投递 - 配置了{@link EventBatcher}时，批量事件处理器按批收到事件</li>
+ * </ul>
+ * 缓冲区写满时发布线程会自旋等待，因此处理器内部不应同步发布大量事件。
+ * 总线未启动或已停止时，处理器在发布线程中同步执行。
+ * 与{@link SimpleEventBus}一样，在事务中发布的事件在事务提交后才会写入缓冲区，
+ * 同一事务内的事件暂存在与事务绑定的缓冲中，每个事务只注册一个事务同步器。
+ * <p>
+ * 停止时先拒绝新的写入并等待正在写入的发布线程完成，再由消费者处理完所有已申请的序号后退出，
+ * 已写入缓冲区的事件不会丢失。
+ */
+@Slf4j
+public class RingBufferEventBus implements EventBus, SmartLifecycle {
+
+    private static final VarHandle AVAILABLE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final HandlerRegistry registry = new HandlerRegistry();
+    private final DomainEventPublisher domainEventPublisher;
+    private final WaitStrategy waitStrategy;
+
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+    private final int maxBatchSize;
+    private final Slot[] slots;
+    private final int[] available;
+
+    /**
+     * 生产者游标，记录已申请的最大序号
+     */
+    private final Sequence cursor = new Sequence(-1L);
+
+    /**
+     * 最慢消费者序号的缓存，减少生产者扫描消费者序号的次数
+     */
+    private final Sequence gatingCache = new Sequence(-1L);
+
+    private final Consumer[] consumers;
+    private final Sequence[] consumerSequences;
+    private final DistributionSummary batchSummary;
+    private DeadLetterQueue deadLetterQueue;
+    private EventBatcher batcher;
+
+    /**
+     * 消费者是否运行，停止时在所有已申请的序号写完之后才置为false
+     */
+    private volatile boolean running;
+
+    /**
+     * 是否接受写入缓冲区，停止时首先置为false
+     */
+    private volatile boolean accepting;
+
+    /**
+     * 正在写入缓冲区的发布线程数
+     */
+    private final AtomicInteger activePublishers = new AtomicInteger();
+    private final BooleanSupplier stopped = () -> !running;
+
+    /**
+     * 构造环形缓冲区事件总线
+     *
+     * @param domainEventPublisher 领域事件发布器
+     * @param bufferSize           缓冲区大小，必须是2的幂
+     * @param consumerCount        消费者线程数
+     * @param maxBatchSize         消费者单批处理的最大事件数
+     * @param waitStrategy         消费者等待策略
+     * @param registry             指标注册表
+     */
+    public RingBufferEventBus(DomainEventPublisher domainEventPublisher,
+                              int bufferSize,
+                              int consumerCount,
+                              int maxBatchSize,
+                              WaitStrategy waitStrategy,
+                              MeterRegistry registry) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of 2: " + bufferSize);
+        }
+        if (consumerCount < 1) {
+            throw new IllegalArgumentException("consumerCount must be positive: " + consumerCount);
+        }
+
+        this.domainEventPublisher = domainEventPublisher;
+        this.waitStrategy = waitStrategy;
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+
+        this.slots = new Slot[bufferSize];
+        this.available = new int[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot();
+            available[i] = -1;
+        }
+
+        this.consumers = new Consumer[consumerCount];
+        this.consumerSequences = new Sequence[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            consumers[i] = new Consumer(i);
+            consumerSequences[i] = consumers[i].sequence;
+        }
+
+        this.batchSummary = DistributionSummary.builder("eventbus.ring.batch.size")
+                .description("环形缓冲区消费者每批处理的事件数")
+                .register(registry);
+        Gauge.builder("eventbus.ring.remaining", this, RingBufferEventBus::remainingCapacity)
+                .description("环形缓冲区剩余容量")
+                .register(registry);
+    }
+
+    /**
+     * 设置死信队列，异步处理失败的事件会停放到死信队列
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * 设置批量事件累积器
+     *
+     * @param batcher 批量事件累积器，为null时批量处理器逐个收到事件
+     */
+    public void setEventBatcher(EventBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    @Override
+    public void publish(DomainEvent event) {
+        EventHandler<?>[] eventHandlers = registry.route(event);
+
+        if (eventHandlers.length > 0) {
+            // 事务提交后再写入缓冲区，避免处理器读到未提交的数据
+            TransactionBuffer buffer = currentBuffer();
+            if (buffer != null && !buffer.committed) {
+                buffer.add(eventHandlers, event);
+            } else {
+                dispatch(eventHandlers, event);
+            }
+        }
+
+        // 发布Spring管理的事件
+        domainEventPublisher.publish(event);
+    }
+
+    @Override
+    public void subscribe(String eventType, EventHandler<?> handler) {
+        registry.subscribe(eventType, handler);
+    }
+
+    @Override
+    public void subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        registry.subscribe(eventType, handler, filter);
+    }
+
+    @Override
+    public void unsubscribe(String eventType, EventHandler<?> handler) {
+        registry.unsubscribe(eventType, handler);
+    }
+
+    /**
+     * 获取路由表统计信息
+     */
+    public RoutingStats getRoutingStats() {
+        return registry.stats();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        accepting = true;
+        for (Consumer consumer : consumers) {
+            Thread thread = new Thread(consumer, "ring-event-bus-" + consumer.partition);
+            thread.setDaemon(true);
+            consumer.thread = thread;
+            thread.start();
+        }
+        log.info("环形缓冲区事件总线已启动，缓冲区大小: {}，消费者: {}，批大小上限: {}",
+                bufferSize, consumers.length, maxBatchSize);
+    }
+
+    @Override
+    public void stop() {
+        // 新的发布改为同步执行，已经开始写入的发布线程写完后已申请的序号才是最终的
+        accepting = false;
+        while (activePublishers.get() > 0) {
+            LockSupport.parkNanos(1_000L);
+        }
+        running = false;
+        waitStrategy.signalAllWhenBlocking();
+        for (Consumer consumer : consumers) {
+            if (consumer.thread == null) {
+                continue;
+            }
+            try {
+                consumer.thread.join(5000);
+                if (consumer.thread.isAlive()) {
+                    log.warn("环形缓冲区消费者未在5秒内处理完剩余事件，继续在后台处理: {}", consumer.thread.getName());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (batcher != null) {
+            batcher.flushAll();
+        }
+        log.info("环形缓冲区事件总线已停止");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 获取缓冲区剩余容量
+     */
+    public long remainingCapacity() {
+        return bufferSize - (cursor.get() - Sequence.minimum(consumerSequences, cursor.get()));
+    }
+
+    private void dispatch(EventHandler<?>[] eventHandlers, DomainEvent event) {
+        long sequence;
+        activePublishers.incrementAndGet();
+        try {
+            sequence = accepting ? next() : -1L;
+            if (sequence >= 0) {
+                Slot slot = slots[(int) sequence & indexMask];
+                slot.event = event;
+                slot.handlers = eventHandlers;
+                slot.partition = partitionOf(event);
+                AVAILABLE.setRelease(available, (int) sequence & indexMask, (int) (sequence >>> indexShift));
+            }
+        } finally {
+            activePublishers.decrementAndGet();
+        }
+
+        if (sequence < 0) {
+            // 总线未启动或已停止
+            HandlerRegistry.invokeAll(eventHandlers, event);
+            return;
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * 获取与当前事务绑定的事件缓冲，不存在时创建并注册为事务同步器
+     *
+     * @return 不在事务同步中时返回null
+     */
+    private TransactionBuffer currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionBuffer buffer = (TransactionBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new TransactionBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+
+    private int partitionOf(DomainEvent event) {
+        Object key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+        return Math.floorMod(key.hashCode(), consumers.length);
+    }
+
+    /**
+     * 申请下一个序号，缓冲区写满时自旋等待最慢的消费者
+     *
+     * @return 申请到的序号，等待期间总线停止时返回-1
+     */
+    private long next() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - bufferSize;
+            long cachedGating = gatingCache.get();
+
+            if (wrapPoint > cachedGating || cachedGating > current) {
+                long gating = Sequence.minimum(consumerSequences, current);
+                if (wrapPoint > gating) {
+                    if (!running) {
+                        return -1L;
+                    }
+                    LockSupport.parkNanos(1L);
+                    continue;
+                }
+                gatingCache.set(gating);
+            } else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 从lowerBound开始查找连续可用的最高序号
+     */
+    private long highestPublished(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            int flag = (int) AVAILABLE.getAcquire(available, (int) sequence & indexMask);
+            if (flag != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return availableSequence;
+    }
+
+    /**
+     * 事务范围内待写入缓冲区的事件，同时作为该事务唯一的事务同步器
+     */
+    private final class TransactionBuffer implements TransactionSynchronization {
+
+        private final List<EventHandler<?>[]> handlers = new ArrayList<>();
+        private final List<DomainEvent> events = new ArrayList<>();
+        private boolean committed;
+
+        void add(EventHandler<?>[] eventHandlers, DomainEvent event) {
+            handlers.add(eventHandlers);
+            events.add(event);
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(RingBufferEventBus.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(RingBufferEventBus.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            // 提交后同步执行的处理器再发布的事件直接写入缓冲区
+            committed = true;
+            for (int i = 0; i < events.size(); i++) {
+                dispatch(handlers.get(i), events.get(i));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RingBufferEventBus.this);
+            handlers.clear();
+            events.clear();
+        }
+    }
+
+    /**
+     * 缓冲区槽位，启动时预分配并反复复用
+     */
+    private static final class Slot {
+        DomainEvent event;
+        EventHandler<?>[] handlers;
+        int partition;
+    }
+
+    /**
+     * 批量消费者
+     * <p>
+     * 每个消费者遍历所有序号，只处理属于自己分区的事件，处理完一批后统一推进序号
+     */
+    private final class Consumer implements Runnable {
+
+        private final int partition;
+        private final Sequence sequence = new Sequence(-1L);
+        private Thread thread;
+
+        Consumer(int partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void run() {
+            long nextSequence = sequence.get() + 1;
+            while (true) {
+                long availableSequence = waitStrategy.waitFor(nextSequence, cursor, stopped);
+                if (availableSequence >= nextSequence) {
+                    long upper = Math.min(availableSequence, nextSequence + maxBatchSize - 1);
+                    long highest = highestPublished(nextSequence, upper);
+                    if (highest >= nextSequence) {
+                        int handled = 0;
+                        for (long s = nextSequence; s <= highest; s++) {
+                            Slot slot = slots[(int) s & indexMask];
+                            if (slot.partition == partition) {
+                                handle(slot);
+                                handled++;
+                            }
+                        }
+                        sequence.set(highest);
+                        nextSequence = highest + 1;
+                        if (handled > 0) {
+                            batchSummary.record(handled);
+                        }
+                    } else {
+                        // 序号已申请但生产者尚未写完槽位
+                        Thread.onSpinWait();
+                    }
+                } else if (!running) {
+                    // 已停止且没有已申请的序号，缓冲区已排空
+                    return;
+                }
+            }
+        }
+
+        private void handle(Slot slot) {
+            DomainEvent event = slot.event;
+            EventHandler<?>[] eventHandlers = slot.handlers;
+            // 及时释放引用，避免已处理的事件在槽位中滞留到下一轮
+            slot.event = null;
+            slot.handlers = null;
+            HandlerRegistry.invokeEach(eventHandlers, event, deadLetterQueue, batcher);
+        }
+    }
+}
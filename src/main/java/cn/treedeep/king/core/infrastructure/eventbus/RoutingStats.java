@@ -0,0 +1,28 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+/**
+ * 事件路由表统计信息
+ *
+ * @param eventTypes        有订阅的事件类型数
+ * @param routes            订阅总数
+ * @param conditionalRoutes 附带过滤条件的订阅数
+ * @param compiledTables    已编译并缓存的路由表数（按事件类）
+ * @param routedEvents      累计路由的事件数
+ * @param filterEvaluations 累计对过滤条件求值的次数，只包含命中索引的订阅
+ * @param deliveries        累计投递给处理器的次数
+ */
+public record RoutingStats(int eventTypes,
+                           int routes,
+                           int conditionalRoutes,
+                           int compiledTables,
+                           long routedEvents,
+                           long filterEvaluations,
+                           long deliveries) {
+
+    /**
+     * 平均每个事件投递的处理器数
+     */
+    public double deliveriesPerEvent() {
+        return routedEvents == 0 ? 0.0 : (double) deliveries / routedEvents;
+    }
+}
@@ -0,0 +1,65 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+abstract class SequenceLhsPadding {
+    protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequenceLhsPadding {
+    protected volatile long value;
+}
+
+/**
+ * 环形缓冲区序号
+ * <p>
+ * 前后各填充一个缓存行，避免生产者游标与各消费者序号之间的伪共享
+ */
+public final class Sequence extends SequenceValue {
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected long p9, p10, p11, p12, p13, p14, p15;
+
+    Sequence(long initialValue) {
+        VALUE.setRelease(this, initialValue);
+    }
+
+    /**
+     * 读取当前序号
+     */
+    public long get() {
+        return value;
+    }
+
+    /**
+     * 有序写入，只保证之前的写操作对读取该序号的线程可见，开销低于volatile写
+     */
+    void set(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+
+    /**
+     * 取一组序号中的最小值
+     */
+    static long minimum(Sequence[] sequences, long fallback) {
+        long minimum = fallback;
+        for (Sequence sequence : sequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
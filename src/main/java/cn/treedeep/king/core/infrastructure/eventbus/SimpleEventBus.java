@@ -1,62 +1,242 @@
 package cn.treedeep.king.core.infrastructure.eventbus;
 
+import cn.treedeep.king.core.domain.BatchEventHandler;
 import cn.treedeep.king.core.domain.DomainEvent;
 import cn.treedeep.king.core.domain.DomainEventPublisher;
 import cn.treedeep.king.core.domain.EventBus;
+import cn.treedeep.king.core.domain.EventFilter;
 import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 简单事件总线实现
  * <p>
- * 使用内存中的ConcurrentHashMap来存储事件处理器
+ * 进程内事件总线，特性如下：
+ * <ul>
+ * <li>写时复制 - 每个事件类型的处理器保存在不可变数组中，订阅与发布可以并发进行</li>
+ * <li>继承感知 - 订阅父类或接口的处理器同样会收到子类事件，按事件类缓存解析结果，订阅变更时失效</li>
+ * <li>条件订阅 - 按聚合根类型和事件头过滤的订阅编译为路由索引，发布时只访问可能匹配的处理器</li>
+ * <li>单次发布 - 每个事件只向Spring事件机制发布一次，与处理器数量无关</li>
+ * <li>异步模式 - 配置执行器后处理器在线程池中执行，同一聚合根的事件按发布顺序串行处理</li>
+ * <li>批量投递 - 异步模式下配置了{@link EventBatcher}时，{@link BatchEventHandler}按批收到事件</li>
+ * </ul>
+ * 异步模式下，在事务中发布的事件在事务提交后才会交给执行器，回滚的事务不会触发处理器。
  */
+@Slf4j
 public class SimpleEventBus implements EventBus {
 
-    /**
-     * 存储事件类型和对应的事件处理器列表
-     * <p>
-     * Key: 事件类型的完全限定名
-     * Value: 该类型事件的处理器列表
-     */
-    private final Map<String, List<EventHandler<? extends DomainEvent>>> handlers = new ConcurrentHashMap<>();
+    private final HandlerRegistry registry = new HandlerRegistry();
     private final DomainEventPublisher domainEventPublisher;
+    private final Executor executor;
+    private final Lane[] lanes;
+    private DeadLetterQueue deadLetterQueue;
+    private EventBatcher batcher;
 
+    /**
+     * 构造同步事件总线
+     *
+     * @param domainEventPublisher 领域事件发布器
+     */
     public SimpleEventBus(DomainEventPublisher domainEventPublisher) {
+        this(domainEventPublisher, null, 0);
+    }
+
+    /**
+     * 构造事件总线
+     *
+     * @param domainEventPublisher 领域事件发布器
+     * @param executor             异步处理执行器，为null时在发布线程中同步处理
+     * @param laneCount            异步有序通道数，同一聚合根的事件总是落在同一通道上
+     */
+    public SimpleEventBus(DomainEventPublisher domainEventPublisher, Executor executor, int laneCount) {
         this.domainEventPublisher = domainEventPublisher;
+        this.executor = executor;
+        if (executor != null) {
+            this.lanes = new Lane[Math.max(1, laneCount)];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane();
+            }
+        } else {
+            this.lanes = null;
+        }
+    }
+
+    /**
+     * 设置死信队列，异步处理失败的事件会停放到死信队列
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * 设置批量事件累积器，仅异步模式生效
+     *
+     * @param batcher 批量事件累积器，为null时批量处理器逐个收到事件
+     */
+    public void setEventBatcher(EventBatcher batcher) {
+        this.batcher = batcher;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void publish(DomainEvent event) {
-        String eventType = event.getClass().getName();
-        List<EventHandler<? extends DomainEvent>> eventHandlers = handlers.get(eventType);
-
-        if (eventHandlers != null) {
-            // 同步调用所有的事件处理器
-            for (EventHandler<? extends DomainEvent> handler : eventHandlers) {
-                // 特定的事件处理器
-                ((EventHandler<DomainEvent>) handler).handle(event);
-                // 发布Spring管理的事件
-                domainEventPublisher.publish(event);
+        EventHandler<?>[] eventHandlers = registry.route(event);
+
+        if (eventHandlers.length > 0) {
+            if (executor == null) {
+                // 同步调用所有的事件处理器
+                HandlerRegistry.invokeAll(eventHandlers, event);
+            } else {
+                // 事务提交后再交给执行器，避免处理器读到未提交的数据
+                TransactionBuffer buffer = currentBuffer();
+                if (buffer != null && !buffer.committed) {
+                    buffer.add(eventHandlers, event);
+                } else {
+                    enqueue(eventHandlers, event);
+                }
             }
         }
+
+        // 发布Spring管理的事件
+        domainEventPublisher.publish(event);
     }
 
     @Override
     public void subscribe(String eventType, EventHandler<?> handler) {
-        handlers.computeIfAbsent(eventType, k -> new ArrayList<>()).add(handler);
+        registry.subscribe(eventType, handler);
+    }
+
+    @Override
+    public void subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        registry.subscribe(eventType, handler, filter);
     }
 
     @Override
     public void unsubscribe(String eventType, EventHandler<?> handler) {
-        List<EventHandler<?>> eventHandlers = handlers.get(eventType);
-        if (eventHandlers != null) {
-            eventHandlers.remove(handler);
+        registry.unsubscribe(eventType, handler);
+    }
+
+    /**
+     * 获取路由表统计信息
+     */
+    public RoutingStats getRoutingStats() {
+        return registry.stats();
+    }
+
+    /**
+     * 获取与当前事务绑定的事件缓冲，不存在时创建并注册为事务同步器
+     *
+     * @return 不在事务同步中时返回null
+     */
+    private TransactionBuffer currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionBuffer buffer = (TransactionBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new TransactionBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+
+    private void enqueue(EventHandler<?>[] eventHandlers, DomainEvent event) {
+        Object key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+        int index = Math.floorMod(key.hashCode(), lanes.length);
+        lanes[index].submit(() -> HandlerRegistry.invokeEach(eventHandlers, event, deadLetterQueue, batcher));
+    }
+
+    /**
+     * 事务范围内待交给执行器的事件，同时作为该事务唯一的事务同步器
+     */
+    private final class TransactionBuffer implements TransactionSynchronization {
+
+        private final List<EventHandler<?>[]> handlers = new ArrayList<>();
+        private final List<DomainEvent> events = new ArrayList<>();
+        private boolean committed;
+
+        void add(EventHandler<?>[] eventHandlers, DomainEvent event) {
+            handlers.add(eventHandlers);
+            events.add(event);
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(SimpleEventBus.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(SimpleEventBus.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            // 提交后同步执行的处理器再发布的事件直接交给执行器
+            committed = true;
+            for (int i = 0; i < events.size(); i++) {
+                enqueue(handlers.get(i), events.get(i));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(SimpleEventBus.this);
+            handlers.clear();
+            events.clear();
+        }
+    }
+
+    /**
+     * 有序通道
+     * <p>
+     * 通道内的任务按提交顺序串行执行，任意时刻最多占用执行器的一个线程
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // 执行器饱和时由发布线程排空通道，保证通道不会停滞
+                    log.warn("事件处理线程池已满，改为在发布线程中处理");
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean drained = false;
+            try {
+                do {
+                    tasks.poll().run();
+                } while (pending.decrementAndGet() != 0);
+                drained = true;
+            } finally {
+                // 任务抛出Error时该任务仍计为已处理，剩余任务交给新的执行，避免通道永久停滞
+                if (!drained && pending.decrementAndGet() != 0) {
+                    executor.execute(this);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,279 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventBus;
+import cn.treedeep.king.core.domain.EventFilter;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.core.infrastructure.transport.EventTransport;
+import cn.treedeep.king.core.infrastructure.transport.TransportMessage;
+import cn.treedeep.king.core.infrastructure.transport.TransportRecord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于传输层的事件总线
+ * <p>
+ * 发布的事件先序列化写入{@link EventTransport}，再由消费线程拉取、路由并交给处理器：
+ * <ul>
+ * <li>至少一次 - 一批记录全部处理完成（包括批量处理器的累积事件）后才确认，进程崩溃后未确认的事件重新投递；
+ * 消费失败时读取位置退回已确认的位置，未确认的事件在重试时重新投递</li>
+ * <li>事务感知 - 在事务中发布的事件缓冲到事务提交后一次写入传输层，回滚的事务不会产生消息</li>
+ * <li>有序 - 单个消费线程按写入顺序处理，同一聚合根的事件保持发布顺序</li>
+ * <li>失败处理 - 处理器失败时停放到死信队列后继续，无法反序列化的消息记录日志后跳过</li>
+ * </ul>
+ * 事务提交后写入传输层失败时事件会丢失，需要严格保证时应配合事务发件箱使用。
+ */
+@Slf4j
+public class TransportEventBus implements EventBus, SmartLifecycle {
+
+    private final HandlerRegistry registry = new HandlerRegistry();
+    private final DomainEventPublisher domainEventPublisher;
+    private final EventTransport transport;
+    private final DomainEventSerializer serializer;
+    private final String consumer;
+    private final int batchSize;
+    private final Duration pollTimeout;
+
+    private DeadLetterQueue deadLetterQueue;
+    private EventBatcher batcher;
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    /**
+     * 构造事件总线
+     *
+     * @param domainEventPublisher 领域事件发布器
+     * @param transport            事件传输
+     * @param serializer           领域事件序列化器
+     * @param consumer             消费者名称，传输层按名称记录确认位置
+     * @param batchSize            每次拉取的最大记录数
+     * @param pollTimeout          没有新消息时的等待时间
+     */
+    public TransportEventBus(DomainEventPublisher domainEventPublisher,
+                             EventTransport transport,
+                             DomainEventSerializer serializer,
+                             String consumer,
+                             int batchSize,
+                             Duration pollTimeout) {
+        this.domainEventPublisher = domainEventPublisher;
+        this.transport = transport;
+        this.serializer = serializer;
+        this.consumer = consumer;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollTimeout = pollTimeout;
+    }
+
+    /**
+     * 设置死信队列，处理失败的事件会停放到死信队列
+     *
+     * @param deadLetterQueue 死信队列，为null时只记录日志
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * 设置批量事件累积器
+     *
+     * @param batcher 批量事件累积器，为null时批量处理器逐个收到事件
+     */
+    public void setEventBatcher(EventBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    @Override
+    public void publish(DomainEvent event) {
+        TransportMessage message = new TransportMessage(event.getEventId(), event.getClass().getName(),
+                event.getAggregateId(), serializer.serialize(event));
+
+        // 事务中发布的事件在提交后整批写入，传输层每批只需一次刷盘
+        TransactionBuffer buffer = currentBuffer();
+        if (buffer != null && !buffer.committed) {
+            buffer.messages.add(message);
+        } else {
+            transport.send(List.of(message));
+        }
+
+        // 发布Spring管理的事件
+        domainEventPublisher.publish(event);
+    }
+
+    /**
+     * 获取与当前事务绑定的消息缓冲，不存在时创建并注册为事务同步器
+     *
+     * @return 不在事务同步中时返回null
+     */
+    private TransactionBuffer currentBuffer() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionBuffer buffer = (TransactionBuffer) TransactionSynchronizationManager.getResource(this);
+        if (buffer == null) {
+            buffer = new TransactionBuffer();
+            TransactionSynchronizationManager.bindResource(this, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        return buffer;
+    }
+
+    @Override
+    public void subscribe(String eventType, EventHandler<?> handler) {
+        registry.subscribe(eventType, handler);
+    }
+
+    @Override
+    public void subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        registry.subscribe(eventType, handler, filter);
+    }
+
+    @Override
+    public void unsubscribe(String eventType, EventHandler<?> handler) {
+        registry.unsubscribe(eventType, handler);
+    }
+
+    /**
+     * 获取路由表统计信息
+     */
+    public RoutingStats getRoutingStats() {
+        return registry.stats();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        consumerThread = new Thread(this::consume, "transport-event-bus-" + consumer);
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+        log.info("传输事件总线已启动: consumer={}, batchSize={}, pollTimeout={}ms",
+                consumer, batchSize, pollTimeout.toMillis());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (consumerThread != null) {
+            try {
+                consumerThread.join(pollTimeout.toMillis() + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("传输事件总线已停止: consumer={}", consumer);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume() {
+        while (running) {
+            try {
+                List<TransportRecord> records = transport.poll(consumer, batchSize, pollTimeout);
+                if (records.isEmpty()) {
+                    continue;
+                }
+                for (TransportRecord record : records) {
+                    dispatch(record);
+                }
+                // 批量处理器累积的事件落地后才能确认
+                if (batcher != null) {
+                    batcher.flushAll();
+                }
+                transport.acknowledge(consumer, records.getLast());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("传输事件总线消费失败，退回已确认的位置后重试: consumer={}, error={}", consumer, e.getMessage(), e);
+                rewind();
+                pause();
+            }
+        }
+    }
+
+    private void dispatch(TransportRecord record) {
+        TransportMessage message = record.message();
+        DomainEvent event;
+        try {
+            event = serializer.deserialize(message.eventType(), message.payload());
+        } catch (Exception e) {
+            log.error("无法反序列化传输消息，已跳过: offset={}, eventType={}, eventId={}, error={}",
+                    record.offset(), message.eventType(), message.eventId(), e.getMessage());
+            return;
+        }
+        EventHandler<?>[] eventHandlers = registry.route(event);
+        if (eventHandlers.length > 0) {
+            HandlerRegistry.invokeEach(eventHandlers, event, deadLetterQueue, batcher);
+        }
+    }
+
+    /**
+     * 退回已确认的位置，否则本批未确认的记录在重启前不会再被拉取
+     */
+    private void rewind() {
+        try {
+            transport.rewind(consumer);
+        } catch (Exception e) {
+            log.error("传输事件总线退回读取位置失败: consumer={}, error={}", consumer, e.getMessage(), e);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pollTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * 事务范围内待写入传输层的消息，同时作为该事务唯一的事务同步器
+     */
+    private final class TransactionBuffer implements TransactionSynchronization {
+
+        private final List<TransportMessage> messages = new ArrayList<>();
+        private boolean committed;
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(TransportEventBus.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TransportEventBus.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            // 提交后执行的代码再发布的事件直接写入传输层
+            committed = true;
+            if (messages.isEmpty()) {
+                return;
+            }
+            try {
+                transport.send(List.copyOf(messages));
+            } catch (Exception e) {
+                log.error("事务提交后写入事件传输失败，事件未投递: count={}, eventIds={}, error={}",
+                        messages.size(), messages.stream().map(TransportMessage::eventId).toList(), e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransportEventBus.this);
+            messages.clear();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 消费者等待策略
+ * <p>
+ * 决定消费者在没有新事件时如何等待，在延迟与CPU占用之间取舍：
+ * <ul>
+ * <li>busy-spin - 持续自旋，延迟最低，每个消费者独占一个CPU核</li>
+ * <li>yielding - 自旋后让出CPU，低延迟且允许其他线程运行</li>
+ * <li>sleeping - 自旋、让出后短暂休眠，空闲时CPU占用很低</li>
+ * <li>blocking - 基于锁和条件变量阻塞，CPU占用最低，延迟最高</li>
+ * </ul>
+ */
+public interface WaitStrategy {
+
+    /**
+     * 等待生产者游标到达指定序号
+     *
+     * @param sequence 期望的序号
+     * @param cursor   生产者游标
+     * @param alerted  是否需要中止等待（总线停止）
+     * @return 当前游标值，中止等待时可能小于期望的序号
+     */
+    long waitFor(long sequence, Sequence cursor, BooleanSupplier alerted);
+
+    /**
+     * 发布事件或停止总线后唤醒阻塞中的消费者
+     */
+    void signalAllWhenBlocking();
+
+    /**
+     * 根据名称创建等待策略
+     *
+     * @param name busy-spin、yielding、sleeping或blocking
+     * @return 等待策略实例
+     */
+    static WaitStrategy of(String name) {
+        return switch (name.toLowerCase()) {
+            case "busy-spin" -> new BusySpin();
+            case "yielding" -> new Yielding();
+            case "sleeping" -> new Sleeping();
+            case "blocking" -> new Blocking();
+            default -> throw new IllegalStateException(
+                    "Unsupported wait strategy: " + name +
+                            ". Supported strategies are: busy-spin, yielding, sleeping, blocking"
+            );
+        };
+    }
+
+    /**
+     * 持续自旋
+     */
+    final class BusySpin implements WaitStrategy {
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier alerted) {
+            long available;
+            while ((available = cursor.get()) < sequence && !alerted.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    /**
+     * 自旋一定次数后让出CPU
+     */
+    final class Yielding implements WaitStrategy {
+
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier alerted) {
+            int counter = SPIN_TRIES;
+            long available;
+            while ((available = cursor.get()) < sequence && !alerted.getAsBoolean()) {
+                if (counter > 0) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    /**
+     * 自旋、让出CPU后进入短暂休眠
+     */
+    final class Sleeping implements WaitStrategy {
+
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 100;
+        private static final long SLEEP_NANOS = 100_000L;
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier alerted) {
+            int counter = SPIN_TRIES + YIELD_TRIES;
+            long available;
+            while ((available = cursor.get()) < sequence && !alerted.getAsBoolean()) {
+                if (counter > YIELD_TRIES) {
+                    counter--;
+                    Thread.onSpinWait();
+                } else if (counter > 0) {
+                    counter--;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    /**
+     * 基于锁和条件变量阻塞
+     * <p>
+     * 只有存在等待中的消费者时，生产者才需要获取锁发出信号
+     */
+    final class Blocking implements WaitStrategy {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private volatile boolean signalNeeded;
+
+        @Override
+        public long waitFor(long sequence, Sequence cursor, BooleanSupplier alerted) {
+            long available = cursor.get();
+            if (available < sequence) {
+                lock.lock();
+                try {
+                    // 先声明需要唤醒再检查游标，生产者推进游标后必然能看到该标记
+                    while (true) {
+                        signalNeeded = true;
+                        if ((available = cursor.get()) >= sequence || alerted.getAsBoolean()) {
+                            break;
+                        }
+                        published.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public void signalAllWhenBlocking() {
+            if (signalNeeded) {
+                lock.lock();
+                try {
+                    signalNeeded = false;
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
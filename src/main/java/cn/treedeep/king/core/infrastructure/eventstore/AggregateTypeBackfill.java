@@ -0,0 +1,64 @@
+package cn.treedeep.king.core.infrastructure.eventstore;
+
+import cn.treedeep.king.core.domain.AggregateEvent;
+import cn.treedeep.king.core.domain.DomainEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Modifier;
+
+/**
+ * 聚合根类型回填
+ * <p>
+ * 聚合根类型字段是后来增加的，之前保存的事件该列为空，按聚合根类型过滤的追赶订阅会漏掉它们。
+ * 启动时（在追赶订阅等生命周期组件启动之前）对每个标注了{@link AggregateEvent}的事件实体，
+ * 把聚合根类型为空的行更新为注解声明的类型；每个事件表一个事务，失败只记录日志，
+ * 读取时{@link DomainEvent#getAggregateType()}仍会按注解推导。
+ * <p>
+ * 回填只更新为空的行，重复执行没有副作用。
+ */
+@Slf4j
+public class AggregateTypeBackfill implements SmartInitializingSingleton {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public AggregateTypeBackfill(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (EntityType<?> entity : entityManager.getMetamodel().getEntities()) {
+            Class<?> type = entity.getJavaType();
+            if (!DomainEvent.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            String aggregateType = DomainEvent.declaredAggregateType((Class<? extends DomainEvent>) type);
+            if (aggregateType == null) {
+                continue;
+            }
+            try {
+                Integer updated = transactionTemplate.execute(status -> entityManager
+                        .createQuery("UPDATE " + entity.getName() + " e SET e.aggregateType = :aggregateType"
+                                + " WHERE e.aggregateType IS NULL")
+                        .setParameter("aggregateType", aggregateType)
+                        .executeUpdate());
+                if (updated != null && updated > 0) {
+                    log.info("已回填历史事件的聚合根类型: event={}, aggregateType={}, rows={}",
+                            entity.getName(), aggregateType, updated);
+                }
+            } catch (RuntimeException e) {
+                log.warn("回填历史事件的聚合根类型失败: event={}, error={}", entity.getName(), e.getMessage());
+            }
+        }
+    }
+}
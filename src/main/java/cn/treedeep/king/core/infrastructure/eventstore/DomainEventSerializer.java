@@ -0,0 +1,74 @@
+package cn.treedeep.king.core.infrastructure.eventstore;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 领域事件序列化器
+ * <p>
+ * 将领域事件序列化为JSON文本，并按事件类型的完全限定名反序列化，
+ * 供发件箱、死信存储、持久化传输等需要把事件落盘再还原的组件共用。
+ * <p>
+ * 序列化时忽略{@link org.springframework.context.ApplicationEvent}自带的source和timestamp，
+ * 它们属于进程内发布的上下文，不是事件数据的一部分。
+ */
+public class DomainEventSerializer {
+
+    @JsonIgnoreProperties(value = {"source", "timestamp"}, ignoreUnknown = true)
+    private abstract static class DomainEventMixin {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, Class<? extends DomainEvent>> typeCache = new ConcurrentHashMap<>();
+
+    public DomainEventSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper.copy()
+                .addMixIn(DomainEvent.class, DomainEventMixin.class)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * 序列化领域事件
+     *
+     * @param event 领域事件
+     * @return JSON文本
+     */
+    public String serialize(DomainEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize event: " + event.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 反序列化领域事件
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param data      JSON文本
+     * @return 领域事件
+     */
+    public DomainEvent deserialize(String eventType, String data) {
+        try {
+            return objectMapper.readValue(data, resolveType(eventType));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize event: " + eventType, e);
+        }
+    }
+
+    private Class<? extends DomainEvent> resolveType(String eventType) {
+        return typeCache.computeIfAbsent(eventType, name -> {
+            try {
+                return Class.forName(name).asSubclass(DomainEvent.class);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("Unknown event type: " + name, e);
+            }
+        });
+    }
+}
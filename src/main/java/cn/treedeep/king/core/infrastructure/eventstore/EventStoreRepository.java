@@ -1,7 +1,10 @@
 package cn.treedeep.king.core.infrastructure.eventstore;
 
 import cn.treedeep.king.core.domain.DomainEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
@@ -30,4 +33,33 @@ public interface EventStoreRepository extends JpaRepository<DomainEvent, String>
      * @return 该时间点之前的所有事件列表
      */
     List<DomainEvent> findByOccurredOnBefore(OffsetDateTime cutoffDate);
+
+    /**
+     * 按全局顺序查找指定位置之后的事件
+     * <p>
+     * 全局顺序为发生时间、聚合根ID、聚合根版本号、事件ID，与{@link cn.treedeep.king.core.domain.EventPosition}一致，
+     * 聚合根ID为null时按空字符串、版本号为null时按-1比较
+     *
+     * @param occurredOn       起始位置的发生时间
+     * @param aggregateId      起始位置的聚合根ID
+     * @param aggregateVersion 起始位置的聚合根版本号
+     * @param eventId          起始位置的事件ID
+     * @param upTo             只查找发生时间不晚于该时间的事件
+     * @param pageable         分页参数，只使用页大小
+     * @return 按全局顺序排序的事件列表
+     */
+    @Query("SELECT e FROM DomainEvent e"
+            + " WHERE (e.occurredOn > :occurredOn"
+            + " OR (e.occurredOn = :occurredOn AND (COALESCE(e.aggregateId, '') > :aggregateId"
+            + " OR (COALESCE(e.aggregateId, '') = :aggregateId AND (COALESCE(e.aggregateVersion, -1) > :aggregateVersion"
+            + " OR (COALESCE(e.aggregateVersion, -1) = :aggregateVersion AND e.eventId > :eventId))))))"
+            + " AND e.occurredOn <= :upTo"
+            + " ORDER BY e.occurredOn ASC, COALESCE(e.aggregateId, '') ASC, COALESCE(e.aggregateVersion, -1) ASC, e.eventId ASC")
+    List<DomainEvent> findAfter(
+        @Param("occurredOn") OffsetDateTime occurredOn,
+        @Param("aggregateId") String aggregateId,
+        @Param("aggregateVersion") long aggregateVersion,
+        @Param("eventId") String eventId,
+        @Param("upTo") OffsetDateTime upTo,
+        Pageable pageable);
 }
@@ -2,6 +2,7 @@ package cn.treedeep.king.core.infrastructure.eventstore;
 
 import cn.treedeep.king.core.domain.ConcurrentModificationException;
 import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventPosition;
 import cn.treedeep.king.core.domain.EventStore;
 import cn.treedeep.king.core.infrastructure.eventstore.compression.EventCompressor;
 import cn.treedeep.king.core.infrastructure.monitoring.EventStoreMetrics;
@@ -14,8 +15,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -125,10 +128,11 @@ public class JpaEventStore implements EventStore {
             int end = Math.min(i + batchSize, events.size());
             List<DomainEvent> batch = events.subList(i, end);
 
-            for (DomainEvent event : batch) {
-                final DomainEvent eventToSave = event;
+            for (int j = 0; j < batch.size(); j++) {
+                final DomainEvent eventToSave = batch.get(j);
                 eventToSave.setAggregateId(aggregateId);
-                eventToSave.setAggregateVersion((long) baseVersion + i);
+                // 每个事件占用一个版本号，全局顺序依赖同一聚合根内版本号递增
+                eventToSave.setAggregateVersion((long) baseVersion + i + j);
 
                 metrics.getEventSaveTimer().record((Supplier<Void>) () -> {
                     eventRepository.save(eventToSave);
@@ -192,6 +196,17 @@ public class JpaEventStore implements EventStore {
         });
     }
 
+    @Override
+    public List<DomainEvent> readAllEvents(EventPosition after, OffsetDateTime upTo, int maxCount) {
+        return metrics.getEventReadTimer().record(() -> {
+            List<DomainEvent> events = eventRepository.findAfter(
+                    after.occurredOn(), after.aggregateId(), after.aggregateVersion(), after.eventId(),
+                    upTo, PageRequest.of(0, maxCount));
+            metrics.getEventsReadCounter().increment(events.size());
+            return events;
+        });
+    }
+
     @Cacheable(value = "snapshots", key = "#aggregateId + ':' + #aggregateType")
     public AggregateSnapshot getLatestSnapshot(String aggregateId, String aggregateType) {
         return metrics.getSnapshotReadTimer().record(() -> {
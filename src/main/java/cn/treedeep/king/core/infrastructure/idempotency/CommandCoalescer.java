@@ -0,0 +1,140 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import cn.treedeep.king.core.application.cqrs.command.Command;
+import cn.treedeep.king.core.application.cqrs.command.CommandResult;
+import cn.treedeep.king.core.infrastructure.monitoring.CommandMetrics;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 重复命令合并器
+ * <p>
+ * 客户端在原命令仍在执行时重试，会带着相同的commandId再次到达命令总线。
+ * 合并器让这类重复命令直接共享原命令的执行结果，而不是以"Duplicate command detected"失败，
+ * 从而避免客户端在网络抖动时形成重试风暴。
+ * <p>
+ * 工作方式：
+ * <ul>
+ * <li>在途登记 - 每条命令开始执行时登记一个结果Future，相同命令再次到达时直接返回它</li>
+ * <li>结果关联 - 原命令的事务提交后才把执行结果传递给等待者，回滚时等待者收到异常</li>
+ * <li>结果缓存 - 成功的结果在短TTL缓存中保留，迟到的重试直接获得已保存的结果</li>
+ * </ul>
+ * <p>
+ * 合并只在本节点内生效，跨节点的重复命令仍由{@link CommandIdempotencyControl}判定。
+ */
+@Slf4j
+@Component
+public class CommandCoalescer {
+
+    private final boolean enabled;
+    private final CommandMetrics commandMetrics;
+    private final Map<String, CompletableFuture<? extends CommandResult<?>>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<String, CompletableFuture<? extends CommandResult<?>>> completed;
+
+    /**
+     * 构造重复命令合并器
+     *
+     * @param properties     CQRS配置属性
+     * @param commandMetrics 命令指标收集器
+     */
+    public CommandCoalescer(CqrsProperties properties, CommandMetrics commandMetrics) {
+        CqrsProperties.CoalescingProperties coalescing = properties.getIdempotency().getCoalescing();
+        this.enabled = coalescing.isEnabled();
+        this.commandMetrics = commandMetrics;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(coalescing.getMaximumResults())
+                .expireAfterWrite(Duration.ofSeconds(coalescing.getResultTtl()))
+                .build();
+    }
+
+    /**
+     * 登记命令的执行结果
+     *
+     * @param command 要执行的命令
+     * @param outcome 当前调用将要产出的结果
+     * @return 相同命令已有的（在途或最近完成的）结果；返回null表示当前调用负责执行该命令
+     */
+    @SuppressWarnings("unchecked")
+    public <R> CompletableFuture<CommandResult<R>> attach(Command command, CompletableFuture<CommandResult<R>> outcome) {
+        if (!enabled) {
+            return null;
+        }
+
+        String key = buildKey(command);
+        String commandType = command.getClass().getSimpleName();
+
+        CompletableFuture<? extends CommandResult<?>> cached = completed.getIfPresent(key);
+        if (cached != null) {
+            commandMetrics.recordCoalesced(commandType, "result_cache");
+            log.debug("Returning cached result for duplicate command - Type: {}, ID: {}", commandType, command.getCommandId());
+            return ((CompletableFuture<CommandResult<R>>) cached).copy();
+        }
+
+        CompletableFuture<? extends CommandResult<?>> existing = inFlight.putIfAbsent(key, outcome);
+        if (existing != null) {
+            commandMetrics.recordCoalesced(commandType, "in_flight");
+            log.info("Duplicate command attached to in-flight execution - Type: {}, ID: {}", commandType, command.getCommandId());
+            return ((CompletableFuture<CommandResult<R>>) existing).copy();
+        }
+        return null;
+    }
+
+    /**
+     * 关联命令的实际执行结果
+     * <p>
+     * 在事务中调用时，等到事务结束后才传递结果并解除在途登记，
+     * 保证等待者看到的是已提交的结果，也保证提交前到达的重试仍能被合并。
+     *
+     * @param command 已执行的命令
+     * @param outcome {@link #attach}时登记的结果
+     * @param result  命令总线返回给调用方的结果
+     */
+    public <R> void complete(Command command, CompletableFuture<CommandResult<R>> outcome, CompletableFuture<CommandResult<R>> result) {
+        if (!enabled) {
+            return;
+        }
+
+        String key = buildKey(command);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        link(key, outcome, result);
+                    } else {
+                        inFlight.remove(key, outcome);
+                        outcome.completeExceptionally(new IllegalStateException("Command transaction rolled back"));
+                    }
+                }
+            });
+        } else {
+            link(key, outcome, result);
+        }
+    }
+
+    private <R> void link(String key, CompletableFuture<CommandResult<R>> outcome, CompletableFuture<CommandResult<R>> result) {
+        inFlight.remove(key, outcome);
+        result.whenComplete((value, ex) -> {
+            if (ex != null) {
+                outcome.completeExceptionally(ex);
+            } else {
+                completed.put(key, outcome);
+                outcome.complete(value);
+            }
+        });
+    }
+
+    private String buildKey(Command command) {
+        return command.getClass().getName() + ":" + command.getCommandId();
+    }
+}
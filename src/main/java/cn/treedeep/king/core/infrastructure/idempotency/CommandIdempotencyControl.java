@@ -1,23 +1,29 @@
 package cn.treedeep.king.core.infrastructure.idempotency;
 
 import cn.treedeep.king.core.application.cqrs.command.Command;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.stereotype.Component;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * 命令幂等性控制器
  * <p>
- * 基于Redis实现的命令幂等性控制，确保相同的命令不会被重复执行，
+ * 两级命令去重，确保相同的命令不会被重复执行，
  * 这对于防止因网络重试、用户重复点击等原因导致的重复操作至关重要。
  * <p>
  * 实现原理：
  * <ul>
- * <li>使用Redis的SETNX操作实现分布式锁</li>
+ * <li>第一级：进程内Caffeine近端缓存，记录本节点最近成功提交的命令ID，命中即判定为重复，无需网络往返。
+ * 只有执行成功的命令才写入近端缓存：执行失败时幂等性记录会被清除以允许重试，
+ * 而清除只能作用于本节点的近端缓存，其他节点缓存的重复判定会在过期前一直拒绝合法的重试</li>
+ * <li>第二级：可插拔的{@link IdempotencyStore}（Redis/JDBC/内存），负责跨节点的最终判定</li>
  * <li>基于命令ID生成唯一的幂等性键</li>
  * <li>设置合理的过期时间避免内存泄漏</li>
- * <li>支持自定义幂等性策略</li>
  * </ul>
  * <p>
  * 使用场景：
@@ -28,27 +34,67 @@ import java.util.concurrent.TimeUnit;
  * <li>外部API调用 - 防止重复调用第三方服务</li>
  * </ul>
  * <p>
+ * 指标：
+ * <ul>
+ * <li>command.idempotency.lookups{tier=local|backend, result=duplicate|new} - 各级处理的查询数</li>
+ * <li>command.idempotency.local.size - 近端缓存条数</li>
+ * </ul>
+ * <p>
  * 注意事项：
  * <ul>
  * <li>命令必须具有唯一且稳定的ID</li>
  * <li>过期时间需要根据业务场景合理设置</li>
- * <li>需要处理Redis不可用的降级策略</li>
+ * <li>近端缓存只会把命令判定为重复，不会放过后端已有的记录</li>
+ * <li>近端缓存过期时间应远小于客户端的重试窗口</li>
  * </ul>
  */
-@Component
 public class CommandIdempotencyControl {
 
-    private final RedisTemplate<String, String> redisTemplate;
     private static final String IDEMPOTENCY_KEY_PREFIX = "cmd_idempotency:";
-    private static final long DEFAULT_EXPIRATION = 24 * 60 * 60; // 24小时
+
+    private final IdempotencyStore store;
+    private final Cache<String, Boolean> nearCache;
+    private final Duration expiration;
+
+    private final Counter localDuplicates;
+    private final Counter backendDuplicates;
+    private final Counter backendNew;
 
     /**
      * 构造幂等性控制器
      *
-     * @param redisTemplate Redis模板，用于与Redis交互
+     * @param store      后端幂等性存储
+     * @param properties 幂等性配置
+     * @param registry   指标注册表
      */
-    public CommandIdempotencyControl(RedisTemplate<String, String> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    public CommandIdempotencyControl(IdempotencyStore store, CqrsProperties.IdempotencyProperties properties, MeterRegistry registry) {
+        this.store = store;
+        this.expiration = Duration.ofSeconds(properties.getExpiration());
+
+        CqrsProperties.LocalCacheProperties localCache = properties.getLocalCache();
+        if (localCache.isEnabled() && !store.isLocal()) {
+            this.nearCache = Caffeine.newBuilder()
+                    .maximumSize(localCache.getMaximumSize())
+                    .expireAfterWrite(Duration.ofSeconds(Math.min(localCache.getExpireAfterWrite(), properties.getExpiration())))
+                    .build();
+            Gauge.builder("command.idempotency.local.size", nearCache, Cache::estimatedSize)
+                    .description("命令幂等性近端缓存条数")
+                    .register(registry);
+        } else {
+            this.nearCache = null;
+        }
+
+        this.localDuplicates = lookupCounter(registry, "local", "duplicate");
+        this.backendDuplicates = lookupCounter(registry, "backend", "duplicate");
+        this.backendNew = lookupCounter(registry, "backend", "new");
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("command.idempotency.lookups")
+                .description("命令幂等性查询次数")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
     }
 
     /**
@@ -59,17 +105,38 @@ public class CommandIdempotencyControl {
      */
     public boolean isDuplicate(Command command) {
         String key = buildKey(command);
-        Boolean success = redisTemplate.opsForValue()
-                .setIfAbsent(key, String.valueOf(System.currentTimeMillis()),
-                        DEFAULT_EXPIRATION, TimeUnit.SECONDS);
-        return success != null && !success;
+
+        if (nearCache != null && nearCache.getIfPresent(key) != null) {
+            localDuplicates.increment();
+            return true;
+        }
+
+        if (store.putIfAbsent(key, expiration)) {
+            backendNew.increment();
+            return false;
+        }
+        backendDuplicates.increment();
+        return true;
+    }
+
+    /**
+     * 标记命令已执行成功并提交
+     * <p>
+     * 已提交的幂等性记录不会再被清除，此后本节点的重复命令直接由近端缓存拒绝
+     *
+     * @param command 命令对象
+     */
+    public void markCompleted(Command command) {
+        if (nearCache != null) {
+            nearCache.put(buildKey(command), Boolean.TRUE);
+        }
     }
 
     /**
      * 生成幂等性键
      *
      * @param command 命令对象
-     * @return Redis键
+     * @return 幂等性键
      */
     private String buildKey(Command command) {
         return IDEMPOTENCY_KEY_PREFIX +
@@ -84,6 +151,9 @@ public class CommandIdempotencyControl {
      */
     public void clearIdempotencyRecord(Command command) {
         String key = buildKey(command);
-        redisTemplate.delete(key);
+        if (nearCache != null) {
+            nearCache.invalidate(key);
+        }
+        store.remove(key);
     }
 }
@@ -0,0 +1,45 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import java.time.Duration;
+
+/**
+ * 幂等性记录存储
+ * <p>
+ * {@link CommandIdempotencyControl}的后端存储扩展点，负责跨节点的最终去重判定。
+ * <p>
+ * 内置实现：
+ * <ul>
+ * <li>{@link RedisIdempotencyStore} - 基于Redis SETNX，默认实现</li>
+ * <li>{@link JdbcIdempotencyStore} - 基于数据库表，适用于没有Redis的部署</li>
+ * <li>{@link InMemoryIdempotencyStore} - 基于本地内存，仅适用于单节点和测试环境</li>
+ * </ul>
+ */
+public interface IdempotencyStore {
+
+    /**
+     * 当键不存在时写入幂等性记录
+     *
+     * @param key 幂等性键
+     * @param ttl 记录的有效期
+     * @return 写入成功返回true，记录已存在返回false
+     */
+    boolean putIfAbsent(String key, Duration ttl);
+
+    /**
+     * 删除幂等性记录
+     *
+     * @param key 幂等性键
+     */
+    void remove(String key);
+
+    /**
+     * 是否为进程内存储
+     * <p>
+     * 进程内存储本身已经没有网络开销，无需再在前面叠加近端缓存
+     *
+     * @return 是否为进程内存储
+     */
+    default boolean isLocal() {
+        return false;
+    }
+}
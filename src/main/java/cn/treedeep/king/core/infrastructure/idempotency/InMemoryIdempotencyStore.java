@@ -0,0 +1,38 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * 基于内存的幂等性记录存储
+ * <p>
+ * 主要用于单节点部署、开发和测试环境，记录不跨节点共享，重启后丢失
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, Boolean> records;
+
+    public InMemoryIdempotencyStore(long maximumSize, Duration ttl) {
+        this.records = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Duration ttl) {
+        return records.asMap().putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public void remove(String key) {
+        records.invalidate(key);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 基于数据库表的幂等性记录存储
+ * <p>
+ * 适用于没有Redis的部署。依靠主键唯一约束实现"不存在时写入"，
+ * 每次写入都在独立事务中提交，既保证记录对其他节点立即可见，
+ * 也避免主键冲突使外层命令事务进入回滚状态（如PostgreSQL）。
+ * <p>
+ * 表结构：
+ * <pre>
+ * {@code
+ * CREATE TABLE command_idempotency (
+ *     idempotency_key VARCHAR(255) PRIMARY KEY,
+ *     created_at      TIMESTAMP NOT NULL,
+ *     expires_at      TIMESTAMP NOT NULL
+ * );
+ * CREATE INDEX idx_command_idempotency_expires_at ON command_idempotency (expires_at);
+ * }
+ * </pre>
+ */
+@Slf4j
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String insertSql;
+    private final String deleteSql;
+    private final String deleteExpiredSql;
+    private final String purgeSql;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.insertSql = "INSERT INTO " + tableName + " (idempotency_key, created_at, expires_at) VALUES (?, ?, ?)";
+        this.deleteSql = "DELETE FROM " + tableName + " WHERE idempotency_key = ?";
+        this.deleteExpiredSql = "DELETE FROM " + tableName + " WHERE idempotency_key = ? AND expires_at < ?";
+        this.purgeSql = "DELETE FROM " + tableName + " WHERE expires_at < ?";
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Duration ttl) {
+        Instant now = Instant.now();
+        if (tryInsert(key, now, ttl)) {
+            return true;
+        }
+
+        // 已过期的记录视为不存在，删除后重试一次
+        Integer purged = transactionTemplate.execute(status ->
+                jdbcTemplate.update(deleteExpiredSql, key, Timestamp.from(now)));
+        return purged != null && purged > 0 && tryInsert(key, now, ttl);
+    }
+
+    private boolean tryInsert(String key, Instant now, Duration ttl) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.update(insertSql, key, Timestamp.from(now), Timestamp.from(now.plus(ttl))));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(deleteSql, key));
+    }
+
+    /**
+     * 定期清理过期的幂等性记录，每小时执行一次
+     */
+    @Scheduled(fixedDelay = 60 * 60 * 1000)
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status ->
+                jdbcTemplate.update(purgeSql, Timestamp.from(Instant.now())));
+        log.debug("已清理过期的幂等性记录: {}", purged);
+    }
+}
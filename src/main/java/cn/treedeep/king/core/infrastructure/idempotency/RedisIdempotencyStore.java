@@ -0,0 +1,31 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 基于Redis的幂等性记录存储
+ * <p>
+ * 使用SETNX加过期时间实现，记录对集群内所有节点立即可见
+ */
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisIdempotencyStore(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Duration ttl) {
+        Boolean success = redisTemplate.opsForValue()
+                .setIfAbsent(key, String.valueOf(System.currentTimeMillis()), ttl);
+        return success == null || success;
+    }
+
+    @Override
+    public void remove(String key) {
+        redisTemplate.delete(key);
+    }
+}
@@ -8,6 +8,8 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * 命令日志切面
  * <p>
@@ -67,17 +69,17 @@ public class CommandLoggingAspect {
         String commandType = command.getClass().getSimpleName();
         String commandId = command.getCommandId();
 
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         log.info("Command execution started - Type: {}, ID: {}", commandType, commandId);
 
         try {
             Object result = joinPoint.proceed();
-            long duration = System.currentTimeMillis() - startTime;
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
             log.info("Command execution completed - Type: {}, ID: {}, Duration: {}ms",
                     commandType, commandId, duration);
             return result;
         } catch (Throwable ex) {
-            long duration = System.currentTimeMillis() - startTime;
+            long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
             log.error("Command execution failed - Type: {}, ID: {}, Duration: {}ms, Error: {}",
                     commandType, commandId, duration, ex.getMessage());
             throw ex;
@@ -7,8 +7,11 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 /**
  * 查询日志切面
@@ -19,6 +22,8 @@ import java.util.Arrays;
  * 3. 执行时间
  * 4. 返回结果数量
  * 5. 异常信息
+ * <p>
+ * 流式结果（{@link Stream}、{@link Flux}）不会被缓冲，行数在记录流过时累计，流关闭或结束时输出
  */
 @Aspect
 @Component
@@ -28,7 +33,11 @@ public class QueryLoggingAspect {
     @Pointcut("execution(* cn.treedeep.king.core.application.cqrs.query.QueryBus.execute(..))")
     public void queryExecution() {}
 
-    @Around("queryExecution()")
+    @Pointcut("execution(* cn.treedeep.king.core.application.cqrs.query.CriteriaQueryService+.streamByCriteria(..))"
+            + " || execution(* cn.treedeep.king.core.application.cqrs.query.CriteriaQueryService+.fluxByCriteria(..))")
+    public void streamingQueryExecution() {}
+
+    @Around("queryExecution() || streamingQueryExecution()")
     public Object logQueryExecution(ProceedingJoinPoint joinPoint) throws Throwable {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         String methodName = signature.getMethod().getName();
@@ -45,6 +54,10 @@ public class QueryLoggingAspect {
             // 执行查询
             result = joinPoint.proceed();
 
+            if (result instanceof Stream<?> || result instanceof Flux<?>) {
+                return countStreaming(result, className, methodName, startTime);
+            }
+
             // 计算执行时间
             long duration = System.currentTimeMillis() - startTime;
 
@@ -65,6 +78,19 @@ public class QueryLoggingAspect {
         }
     }
 
+    /**
+     * 包装流式结果，逐条累计行数，流关闭或结束时记录查询完成
+     */
+    private Object countStreaming(Object result, String className, String methodName, long startTime) {
+        LongAdder rows = new LongAdder();
+        Runnable completed = () -> log.info("Streaming query completed - Class: {}, Method: {}, Duration: {}ms, Rows: {}",
+                className, methodName, System.currentTimeMillis() - startTime, rows.sum());
+        if (result instanceof Stream<?> stream) {
+            return stream.peek(row -> rows.increment()).onClose(completed);
+        }
+        return ((Flux<?>) result).doOnNext(row -> rows.increment()).doFinally(signal -> completed.run());
+    }
+
     /**
      * 获取查询结果的大小
      * 如果结果是集合类型，返回集合大小
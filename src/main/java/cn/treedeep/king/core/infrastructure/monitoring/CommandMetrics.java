@@ -1,10 +1,14 @@
 package cn.treedeep.king.core.infrastructure.monitoring;
 
+import cn.treedeep.king.shared.trace.CommandTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 命令执行指标收集器
@@ -15,17 +19,23 @@ import java.util.concurrent.TimeUnit;
  * 收集的指标：
  * <ul>
  * <li>执行次数 - 按命令类型统计执行总数</li>
- * <li>执行时间 - 记录命令执行的耗时分布</li>
+ * <li>执行时间 - 记录命令执行的耗时分布（纳秒精度）</li>
+ * <li>阶段耗时 - 按幂等性检查、验证、处理器、聚合保存、事件存储追加、事件发布、事务提交分别统计</li>
  * <li>成功率 - 统计命令执行的成功和失败比例</li>
  * <li>吞吐量 - 计算每秒处理的命令数量</li>
  * <li>错误分布 - 按异常类型统计失败原因</li>
+ * <li>准入控制 - 被拒绝的命令数、在途数量、并发上限和排队数量</li>
+ * <li>重复命令合并 - 挂到在途执行或命中结果缓存的重复命令数</li>
  * </ul>
  * <p>
  * 标签维度：
  * <ul>
  * <li>type - 命令类型名称</li>
+ * <li>stage - 命令处理阶段（仅阶段耗时）</li>
  * <li>result - 执行结果(success/failure)</li>
  * <li>error_type - 错误类型（仅失败时）</li>
+ * <li>reason - 拒绝原因（仅准入拒绝时）</li>
+ * <li>source - 合并来源（in_flight/result_cache，仅重复命令合并时）</li>
  * <li>aggregate_type - 聚合根类型</li>
  * </ul>
  * <p>
@@ -39,8 +49,12 @@ import java.util.concurrent.TimeUnit;
 public class CommandMetrics {
 
     private final MeterRegistry registry;
+    private final boolean percentileHistogram;
+    private final ConcurrentHashMap<String, Timer[]> stageTimers = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Timer> successTimers = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Timer> failureTimers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> rejectionCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
 
     /**
      * 构造命令指标收集器
@@ -48,7 +62,18 @@ public class CommandMetrics {
      * @param registry Micrometer注册表，用于指标收集和上报
      */
     public CommandMetrics(MeterRegistry registry) {
+        this(registry, false);
+    }
+
+    /**
+     * 构造命令指标收集器
+     *
+     * @param registry            Micrometer注册表，用于指标收集和上报
+     * @param percentileHistogram 是否为耗时指标发布百分位直方图
+     */
+    public CommandMetrics(MeterRegistry registry, boolean percentileHistogram) {
         this.registry = registry;
+        this.percentileHistogram = percentileHistogram;
     }
 
     /**
@@ -58,13 +83,24 @@ public class CommandMetrics {
      * @param duration   执行时间(毫秒)
      */
     public void recordSuccess(String commandType, long duration) {
+        recordSuccessNanos(commandType, TimeUnit.MILLISECONDS.toNanos(duration));
+    }
+
+    /**
+     * 记录命令执行成功
+     *
+     * @param commandType   命令类型
+     * @param durationNanos 执行时间(纳秒)
+     */
+    public void recordSuccessNanos(String commandType, long durationNanos) {
         Timer timer = successTimers.computeIfAbsent(commandType,
             type -> Timer.builder("command.execution")
                         .tag("type", type)
                         .tag("result", "success")
+                        .publishPercentileHistogram(percentileHistogram)
                         .register(registry));
 
-        timer.record(duration, TimeUnit.MILLISECONDS);
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -74,12 +110,112 @@ public class CommandMetrics {
      * @param duration   执行时间(毫秒)
      */
     public void recordFailure(String commandType, long duration) {
+        recordFailureNanos(commandType, TimeUnit.MILLISECONDS.toNanos(duration));
+    }
+
+    /**
+     * 记录命令执行失败
+     *
+     * @param commandType   命令类型
+     * @param durationNanos 执行时间(纳秒)
+     */
+    public void recordFailureNanos(String commandType, long durationNanos) {
         Timer timer = failureTimers.computeIfAbsent(commandType,
             type -> Timer.builder("command.execution")
                         .tag("type", type)
                         .tag("result", "failure")
+                        .publishPercentileHistogram(percentileHistogram)
+                        .register(registry));
+
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录命令各阶段耗时
+     * <p>
+     * 未经历的阶段（耗时为0）不记录，避免拉低该阶段的分位数
+     *
+     * @param trace 已结束的命令链路记录
+     */
+    public void recordStages(CommandTrace trace) {
+        Timer[] timers = stageTimers.computeIfAbsent(trace.getCommandType(), this::createStageTimers);
+        for (CommandTrace.Stage stage : CommandTrace.Stage.values()) {
+            long nanos = trace.getStageNanos(stage);
+            if (nanos > 0) {
+                timers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Timer[] createStageTimers(String commandType) {
+        CommandTrace.Stage[] stages = CommandTrace.Stage.values();
+        Timer[] timers = new Timer[stages.length];
+        for (CommandTrace.Stage stage : stages) {
+            timers[stage.ordinal()] = Timer.builder("command.stage")
+                    .description("命令处理各阶段耗时")
+                    .tag("type", commandType)
+                    .tag("stage", stage.tagValue())
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(registry);
+        }
+        return timers;
+    }
+
+    /**
+     * 记录命令被准入控制拒绝
+     *
+     * @param commandType 命令类型
+     * @param reason      拒绝原因
+     */
+    public void recordRejection(String commandType, String reason) {
+        Counter counter = rejectionCounters.computeIfAbsent(commandType + ":" + reason,
+            key -> Counter.builder("command.rejected")
+                        .description("被准入控制拒绝的命令数")
+                        .tag("type", commandType)
+                        .tag("reason", reason)
+                        .register(registry));
+
+        counter.increment();
+    }
+
+    /**
+     * 记录被合并的重复命令
+     *
+     * @param commandType 命令类型
+     * @param source      合并来源
+     */
+    public void recordCoalesced(String commandType, String source) {
+        Counter counter = coalescedCounters.computeIfAbsent(commandType + ":" + source,
+            key -> Counter.builder("command.coalesced")
+                        .description("被合并的重复命令数")
+                        .tag("type", commandType)
+                        .tag("source", source)
                         .register(registry));
 
-        timer.record(duration, TimeUnit.MILLISECONDS);
+        counter.increment();
+    }
+
+    /**
+     * 注册命令类型的准入控制指标
+     *
+     * @param commandType 命令类型
+     * @param inFlight    在途数量
+     * @param limit       当前并发上限
+     * @param waiting     排队数量
+     */
+    public void registerAdmissionGauges(String commandType, Supplier<Number> inFlight,
+                                        Supplier<Number> limit, Supplier<Number> waiting) {
+        Gauge.builder("command.admission.inflight", inFlight).tag("type", commandType).register(registry);
+        Gauge.builder("command.admission.limit", limit).tag("type", commandType).register(registry);
+        Gauge.builder("command.admission.waiting", waiting).tag("type", commandType).register(registry);
+    }
+
+    /**
+     * 注册全局在途命令数指标
+     *
+     * @param inFlight 全局在途数量
+     */
+    public void registerGlobalAdmissionGauge(Supplier<Number> inFlight) {
+        Gauge.builder("command.admission.global.inflight", inFlight).register(registry);
     }
 }
@@ -0,0 +1,129 @@
+package cn.treedeep.king.core.infrastructure.monitoring;
+
+import cn.treedeep.king.core.application.cqrs.command.Command;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import cn.treedeep.king.shared.trace.CommandTrace;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令链路记录器
+ * <p>
+ * 负责开启和结束{@link CommandTrace}，并把各阶段耗时发布为command.stage指标。
+ * <p>
+ * 事务提交阶段的计时依赖两个事务同步器：
+ * <ul>
+ * <li>最低优先级的同步器在所有beforeCommit回调之后记下提交开始时间</li>
+ * <li>最高优先级的同步器在第一个afterCommit回调中记下提交耗时</li>
+ * </ul>
+ * 其余afterCommit回调（事务提交后的事件分发）计入PUBLISH阶段，
+ * 最后在afterCompletion中结束记录并上报。
+ * <p>
+ * 配置慢命令阈值后，总耗时超过阈值的命令会以WARN级别输出各阶段耗时摘要。
+ */
+@Slf4j
+@Component
+public class CommandTracer {
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final CommandMetrics commandMetrics;
+
+    /**
+     * 构造命令链路记录器
+     *
+     * @param properties     CQRS配置属性
+     * @param commandMetrics 命令指标收集器
+     */
+    public CommandTracer(CqrsProperties properties, CommandMetrics commandMetrics) {
+        this.enabled = properties.getTracing().isEnabled();
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(properties.getTracing().getSlowThreshold());
+        this.commandMetrics = commandMetrics;
+    }
+
+    /**
+     * 为命令开启链路记录
+     *
+     * @param command 要执行的命令
+     * @return 链路记录，未启用时返回null
+     */
+    public CommandTrace begin(Command command) {
+        if (!enabled) {
+            return null;
+        }
+        return CommandTrace.begin(command.getClass().getSimpleName(), command.getCommandId());
+    }
+
+    /**
+     * 结束命令链路记录
+     * <p>
+     * 在事务中调用时，记录会延续到事务结束，以便统计提交阶段的耗时
+     *
+     * @param trace   {@link #begin}返回的记录
+     * @param success 命令是否执行成功
+     */
+    public void end(CommandTrace trace, boolean success) {
+        if (trace == null) {
+            return;
+        }
+        trace.detach();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            complete(trace, success);
+            return;
+        }
+
+        long[] commitStart = new long[1];
+        long[] commitEnd = new long[1];
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart[0] = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commitEnd[0] != 0L) {
+                    trace.add(CommandTrace.Stage.PUBLISH, System.nanoTime() - commitEnd[0]);
+                }
+                complete(trace, success && status == STATUS_COMMITTED);
+            }
+        });
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                commitEnd[0] = System.nanoTime();
+                if (commitStart[0] != 0L) {
+                    trace.add(CommandTrace.Stage.COMMIT, commitEnd[0] - commitStart[0]);
+                }
+            }
+        });
+    }
+
+    private void complete(CommandTrace trace, boolean success) {
+        trace.finish(success);
+        commandMetrics.recordStages(trace);
+
+        if (slowThresholdNanos > 0 && trace.getTotalNanos() >= slowThresholdNanos) {
+            log.warn("Slow command - Type: {}, ID: {}, Success: {}, Stages: {}",
+                    trace.getCommandType(), trace.getCommandId(), trace.isSuccess(), trace.summary());
+        }
+    }
+}
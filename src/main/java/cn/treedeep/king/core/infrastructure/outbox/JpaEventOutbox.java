@@ -0,0 +1,52 @@
+package cn.treedeep.king.core.infrastructure.outbox;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventOutbox;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于JPA的事件发件箱
+ * <p>
+ * 以{@link Propagation#MANDATORY}加入调用方的事务，事件与聚合根、事件存储一起提交
+ */
+public class JpaEventOutbox implements EventOutbox {
+
+    private final OutboxEventRepository repository;
+    private final DomainEventSerializer serializer;
+    private final Counter appendedCounter;
+
+    public JpaEventOutbox(OutboxEventRepository repository, DomainEventSerializer serializer, MeterRegistry registry) {
+        this.repository = repository;
+        this.serializer = serializer;
+        this.appendedCounter = Counter.builder("outbox.events.appended")
+                .description("写入发件箱的事件总数")
+                .register(registry);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(List<DomainEvent> events) {
+        OffsetDateTime now = DateTimeUtil.now();
+        List<OutboxEvent> entries = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            OutboxEvent entry = new OutboxEvent();
+            entry.setEventId(event.getEventId());
+            entry.setAggregateId(event.getAggregateId());
+            entry.setEventType(event.getClass().getName());
+            entry.setEventData(serializer.serialize(event));
+            entry.setCreatedAt(now);
+            entries.add(entry);
+        }
+        repository.saveAll(entries);
+        appendedCounter.increment(entries.size());
+    }
+}
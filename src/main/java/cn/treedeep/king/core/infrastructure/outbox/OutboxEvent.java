@@ -0,0 +1,84 @@
+package cn.treedeep.king.core.infrastructure.outbox;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Comment;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 发件箱事件实体
+ * <p>
+ * 与事件存储追加在同一事务中写入，由{@link OutboxRelay}按主键顺序投递后删除；
+ * 连续投递失败达到上限的事件被停放（parkedAt不为空），保留在表中等待人工处理
+ */
+@Data
+@Entity
+@Table(name = "event_outbox")
+@Comment("事件发件箱表")
+public class OutboxEvent {
+
+    /**
+     * 主键ID，同时决定投递顺序
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Comment("主键ID")
+    private Long id;
+
+    /**
+     * 事件ID
+     */
+    @Column(name = "event_id")
+    @Comment("事件ID")
+    private String eventId;
+
+    /**
+     * 聚合根ID
+     */
+    @Column(name = "aggregate_id")
+    @Comment("聚合根ID")
+    private String aggregateId;
+
+    /**
+     * 事件类型
+     */
+    @Column(name = "event_type")
+    @Comment("事件类型")
+    private String eventType;
+
+    /**
+     * 事件数据(JSON格式)
+     */
+    @Column(name = "event_data", columnDefinition = "TEXT")
+    @Comment("事件数据(JSON格式)")
+    private String eventData;
+
+    /**
+     * 写入时间
+     */
+    @Column(name = "created_at")
+    @Comment("写入时间")
+    private OffsetDateTime createdAt;
+
+    /**
+     * 投递失败次数，没有失败过的事件为null
+     */
+    @Column(name = "attempts")
+    @Comment("投递失败次数")
+    private Integer attempts;
+
+    /**
+     * 最近一次投递失败的原因
+     */
+    @Column(name = "last_error", length = 1000)
+    @Comment("最近一次投递失败的原因")
+    private String lastError;
+
+    /**
+     * 停放时间，不为空的事件不再投递；清空后重新投递
+     */
+    @Column(name = "parked_at")
+    @Comment("停放时间")
+    private OffsetDateTime parkedAt;
+}
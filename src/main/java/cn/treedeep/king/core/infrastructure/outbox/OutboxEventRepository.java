@@ -0,0 +1,41 @@
+package cn.treedeep.king.core.infrastructure.outbox;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 发件箱事件仓储接口
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 按写入顺序锁定下一批待投递的事件
+     * <p>
+     * 使用悲观写锁，多个节点同时运行中继时会串行处理同一批事件，保证按聚合根的投递顺序
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.parkedAt IS NULL ORDER BY e.id ASC")
+    List<OutboxEvent> lockNextBatch(Pageable pageable);
+
+    /**
+     * 按写入顺序查询下一批待投递事件的主键，不加锁
+     */
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.parkedAt IS NULL ORDER BY e.id ASC")
+    List<Long> findNextIds(Pageable pageable);
+
+    /**
+     * 锁定单个事件，已被其他节点投递删除时返回空
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id = :id")
+    Optional<OutboxEvent> lockById(@Param("id") Long id);
+}
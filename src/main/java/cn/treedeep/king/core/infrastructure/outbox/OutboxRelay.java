@@ -0,0 +1,229 @@
+package cn.treedeep.king.core.infrastructure.outbox;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱中继
+ * <p>
+ * 按固定间隔轮询发件箱，每批在一个事务中完成"锁定 - 投递 - 删除"：
+ * <ul>
+ * <li>至少一次投递 - 投递成功但删除未提交时（如节点宕机），这批事件会被再次投递</li>
+ * <li>按聚合根有序 - 单线程按主键顺序投递，多节点之间依靠行锁串行</li>
+ * <li>批量排空 - 一批满额时立即继续下一批，直到发件箱清空再等待下一个轮询周期</li>
+ * </ul>
+ * 任意事件投递失败时整批回滚，随后逐条投递这一批以隔离失败的事件：
+ * <ul>
+ * <li>失败计数 - 失败的事件在独立事务中累加失败次数并记录原因，同一聚合根的后续事件在本轮跳过，保持顺序</li>
+ * <li>停放 - 连续失败达到上限（如事件类不存在、处理器持续失败）的事件被停放，不再阻塞其他事件</li>
+ * </ul>
+ * 事件可能被重复投递，因此事件处理器需要保证幂等。
+ * <p>
+ * 监控指标：outbox.events.relayed、outbox.batches.failed、outbox.events.failed、outbox.events.parked、outbox.relay.batch.time
+ */
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private final OutboxEventRepository repository;
+    private final DomainEventSerializer serializer;
+    private final DomainEventPublisher domainEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final EventStoreProperties.OutboxProperties properties;
+
+    private final Counter relayedCounter;
+    private final Counter failedBatchCounter;
+    private final Counter failedEventCounter;
+    private final Counter parkedCounter;
+    private final Timer batchTimer;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public OutboxRelay(OutboxEventRepository repository,
+                       DomainEventSerializer serializer,
+                       DomainEventPublisher domainEventPublisher,
+                       PlatformTransactionManager transactionManager,
+                       EventStoreProperties.OutboxProperties properties,
+                       MeterRegistry registry) {
+        this.repository = repository;
+        this.serializer = serializer;
+        this.domainEventPublisher = domainEventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+
+        this.relayedCounter = Counter.builder("outbox.events.relayed")
+                .description("发件箱已投递的事件总数")
+                .register(registry);
+        this.failedBatchCounter = Counter.builder("outbox.batches.failed")
+                .description("发件箱投递失败的批次数")
+                .register(registry);
+        this.failedEventCounter = Counter.builder("outbox.events.failed")
+                .description("发件箱逐条投递失败的次数")
+                .register(registry);
+        this.parkedCounter = Counter.builder("outbox.events.parked")
+                .description("连续投递失败后停放的事件数")
+                .register(registry);
+        this.batchTimer = Timer.builder("outbox.relay.batch.time")
+                .description("发件箱每批投递耗时")
+                .register(registry);
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        scheduler.scheduleWithFixedDelay(this::drain,
+                properties.getPollInterval(), properties.getPollInterval(), TimeUnit.MILLISECONDS);
+        log.info("发件箱中继已启动，轮询间隔: {}ms，批大小: {}", properties.getPollInterval(), properties.getBatchSize());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scheduler.shutdownNow();
+            }
+        }
+        log.info("发件箱中继已停止");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 排空发件箱
+     */
+    void drain() {
+        try {
+            int relayed;
+            do {
+                long start = System.nanoTime();
+                relayed = relayNext();
+                batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } while (running && relayed >= properties.getBatchSize());
+        } catch (Exception e) {
+            log.error("发件箱投递失败，将在下一个轮询周期重试: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 投递下一批，整批失败时改为逐条投递
+     *
+     * @return 投递成功的事件数，有事件失败时小于批大小，剩余事件等到下一个轮询周期
+     */
+    private int relayNext() {
+        try {
+            Integer relayed = transactionTemplate.execute(status -> relayBatch());
+            return relayed == null ? 0 : relayed;
+        } catch (RuntimeException e) {
+            failedBatchCounter.increment();
+            log.warn("发件箱整批投递失败，逐条投递以隔离失败的事件: {}", e.getMessage());
+            return relayOneByOne();
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = repository.lockNextBatch(PageRequest.of(0, properties.getBatchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<DomainEvent> events = new ArrayList<>(batch.size());
+        for (OutboxEvent entry : batch) {
+            events.add(serializer.deserialize(entry.getEventType(), entry.getEventData()));
+        }
+
+        domainEventPublisher.dispatch(events);
+        repository.deleteAllInBatch(batch);
+
+        relayedCounter.increment(batch.size());
+        log.debug("发件箱已投递事件: {}", batch.size());
+        return batch.size();
+    }
+
+    private int relayOneByOne() {
+        List<Long> ids = transactionTemplate.execute(status ->
+                repository.findNextIds(PageRequest.of(0, properties.getBatchSize())));
+        Set<String> blockedAggregates = new HashSet<>();
+        int relayed = 0;
+        for (Long id : ids) {
+            try {
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> relayOne(id, blockedAggregates)))) {
+                    relayed++;
+                }
+            } catch (RuntimeException e) {
+                failedEventCounter.increment();
+                transactionTemplate.executeWithoutResult(status -> recordFailure(id, e, blockedAggregates));
+            }
+        }
+        // 有事件失败时返回值小于批大小，不立即继续下一批，失败的事件在下一个轮询周期重试
+        return relayed;
+    }
+
+    private boolean relayOne(Long id, Set<String> blockedAggregates) {
+        OutboxEvent entry = repository.lockById(id).orElse(null);
+        if (entry == null || entry.getParkedAt() != null || blockedAggregates.contains(entry.getAggregateId())) {
+            return false;
+        }
+        domainEventPublisher.dispatch(List.of(serializer.deserialize(entry.getEventType(), entry.getEventData())));
+        repository.delete(entry);
+        relayedCounter.increment();
+        return true;
+    }
+
+    private void recordFailure(Long id, Exception error, Set<String> blockedAggregates) {
+        OutboxEvent entry = repository.lockById(id).orElse(null);
+        if (entry == null) {
+            return;
+        }
+        int attempts = (entry.getAttempts() == null ? 0 : entry.getAttempts()) + 1;
+        String message = error.getMessage() == null ? error.getClass().getName() : error.getMessage();
+        entry.setAttempts(attempts);
+        entry.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        if (attempts >= properties.getMaxAttempts()) {
+            entry.setParkedAt(DateTimeUtil.now());
+            parkedCounter.increment();
+            log.error("发件箱事件连续投递失败{}次，已停放: id={}, eventId={}, eventType={}, error={}",
+                    attempts, id, entry.getEventId(), entry.getEventType(), message, error);
+        } else {
+            if (entry.getAggregateId() != null) {
+                blockedAggregates.add(entry.getAggregateId());
+            }
+            log.warn("发件箱事件投递失败: id={}, eventId={}, 失败次数={}, error={}",
+                    id, entry.getEventId(), attempts, message);
+        }
+        repository.save(entry);
+    }
+}
@@ -0,0 +1,95 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.CriteriaQueryService;
+import cn.treedeep.king.core.application.cqrs.query.CursorPage;
+import cn.treedeep.king.core.application.cqrs.query.QPage;
+import cn.treedeep.king.core.application.cqrs.query.QueryCriteria;
+import cn.treedeep.king.core.application.cqrs.query.TotalMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * 基于JPA的查询服务基类
+ * <p>
+ * 按条件查询统一交给{@link CriteriaQueryEngine}编译执行，子类只需声明实体类型和标识符类型：
+ * <pre>
+ * {@code
+ * @Service
+ * public class OrderQueryService extends AbstractJpaQueryService<Order, String> {
+ *     public OrderQueryService(CriteriaQueryEngine engine) {
+ *         super(engine);
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @param <T>  实体类型
+ * @param <ID> 标识符类型
+ */
+@Transactional(readOnly = true)
+public abstract class AbstractJpaQueryService<T, ID> implements CriteriaQueryService<T, ID> {
+
+    protected final CriteriaQueryEngine engine;
+    protected final Class<T> entityType;
+
+    @PersistenceContext
+    protected EntityManager entityManager;
+
+    @SuppressWarnings("unchecked")
+    protected AbstractJpaQueryService(CriteriaQueryEngine engine) {
+        this.engine = engine;
+        this.entityType = (Class<T>) Objects.requireNonNull(
+                GenericTypeResolver.resolveTypeArguments(getClass(), AbstractJpaQueryService.class))[0];
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        return Optional.ofNullable(entityManager.find(entityType, id));
+    }
+
+    @Override
+    public List<T> findAll() {
+        return engine.list(entityType, new QueryCriteria());
+    }
+
+    @Override
+    public List<T> findByCriteria(QueryCriteria criteria) {
+        return engine.list(entityType, criteria);
+    }
+
+    @Override
+    public QPage<T> findPageByCriteria(QueryCriteria criteria, int page, int size) {
+        return engine.page(entityType, criteria, page, size);
+    }
+
+    @Override
+    public <P> QPage<P> findProjectedPage(QueryCriteria criteria, Class<P> projectionType, int page, int size) {
+        return engine.projectPage(entityType, projectionType, criteria, page, size);
+    }
+
+    @Override
+    public CursorPage<T> findCursorPage(QueryCriteria criteria, String cursor, int size, TotalMode totalMode) {
+        return engine.seek(entityType, criteria, cursor, size, totalMode);
+    }
+
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<T> streamByCriteria(QueryCriteria criteria) {
+        return engine.stream(entityType, criteria);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Flux<T> fluxByCriteria(QueryCriteria criteria) {
+        return engine.flux(entityType, criteria);
+    }
+}
@@ -0,0 +1,653 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.CursorPage;
+import cn.treedeep.king.core.application.cqrs.query.ProjectionField;
+import cn.treedeep.king.core.application.cqrs.query.QPage;
+import cn.treedeep.king.core.application.cqrs.query.QueryCriteria;
+import cn.treedeep.king.core.application.cqrs.query.QueryCriteria.Condition;
+import cn.treedeep.king.core.application.cqrs.query.TotalMode;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.SingleTableEntityPersister;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 查询条件编译引擎
+ * <p>
+ * 把{@link QueryCriteria}编译为指定实体的参数化JPQL并执行：
+ * <ul>
+ * <li>参数化 - 条件值全部以命名参数绑定，语句文本只由查询形状决定</li>
+ * <li>形状缓存 - 按"实体类型 + 形状签名"缓存编译结果，相同形状的查询直接复用，
+ * 语句文本不变使得JPA实现的查询计划缓存和连接池的预编译语句缓存都能命中</li>
+ * <li>IN参数补齐 - IN条件的参数个数补齐到2的幂（重复最后一个值），避免值个数不同产生大量不同的语句</li>
+ * <li>字段校验 - 编译时按JPA元模型校验字段路径和排序方向，字段名不会未经校验拼入语句</li>
+ * </ul>
+ * 排序按{@link QueryCriteria#getSorts()}的添加顺序生成。
+ * <p>
+ * 投影查询（{@link #project}、{@link #projectPage}）只查询投影记录需要的列，由构造表达式直接生成记录，
+ * 不加载实体及其关联，也不进入持久化上下文。列表类查询应优先使用投影。
+ * <p>
+ * 游标分页（{@link #seek}）使用键集定位：排序键末尾补上实体标识符保证顺序唯一，下一页的条件是
+ * "排序键大于上一页最后一条记录的排序键"，数据库可以沿索引直接定位，不需要扫描并丢弃前面的记录。
+ * 游标是上一页最后一条记录的排序键值经Base64编码后的字符串，同时记录了查询形状，
+ * 不能用于其他形状的查询。排序字段的值不能为空。
+ * <p>
+ * 流式查询（{@link #stream}、{@link #flux}）使用只进游标按批次（fetch size）从数据库读取，
+ * 每条记录交给调用方之前即从持久化上下文中分离，导出任意多条记录时内存占用保持不变。
+ * 分离后的实体不能再加载延迟关联，需要关联数据时应使用fetch join或DTO投影。
+ * <p>
+ * 监控指标：query.criteria.shapes - 形状缓存命中/未命中次数，按result标签区分
+ */
+@Slf4j
+@Component
+public class CriteriaQueryEngine {
+
+    private static final String ALIAS = "e";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+    private final Cache<ShapeKey, CompiledQuery> shapes;
+    private final Map<Class<?>, Optional<String>> statisticsTables = new ConcurrentHashMap<>();
+    private final Map<ProjectionKey, String> projections = new ConcurrentHashMap<>();
+    private final Counter shapeHits;
+    private final Counter shapeMisses;
+
+    /**
+     * 构造查询条件编译引擎
+     *
+     * @param properties    CQRS配置属性
+     * @param meterRegistry 指标注册表
+     * @param objectMapper       JSON序列化器，用于编解码游标
+     * @param transactionManager 事务管理器，用于响应式流式查询
+     */
+    public CriteriaQueryEngine(CqrsProperties properties, MeterRegistry meterRegistry,
+                               @Qualifier("defaultObjectMapper") ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = properties.getQuery().getFetchSize();
+        this.shapes = Caffeine.newBuilder()
+                .maximumSize(properties.getQuery().getCriteriaShapeCacheSize())
+                .build();
+        this.shapeHits = Counter.builder("query.criteria.shapes")
+                .description("查询形状缓存请求次数")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.shapeMisses = Counter.builder("query.criteria.shapes")
+                .description("查询形状缓存请求次数")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查询符合条件的全部实体
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件
+     * @return 实体列表
+     */
+    public <T> List<T> list(Class<T> entityType, QueryCriteria criteria) {
+        return select(entityType, criteria).getResultList();
+    }
+
+    /**
+     * 查询符合条件的一段实体
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件
+     * @param offset     跳过的记录数
+     * @param limit      最多返回的记录数
+     * @return 实体列表
+     */
+    public <T> List<T> list(Class<T> entityType, QueryCriteria criteria, int offset, int limit) {
+        return select(entityType, criteria)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 统计符合条件的实体数
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件，其中的排序被忽略
+     * @return 实体数
+     */
+    public long count(Class<?> entityType, QueryCriteria criteria) {
+        CompiledQuery compiled = compile(entityType, criteria, false);
+        TypedQuery<Long> query = entityManager.createQuery(compiled.count(), Long.class);
+        bind(query, criteria);
+        return query.getSingleResult();
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件
+     * @param page       页码，从0开始
+     * @param size       每页大小
+     * @return 分页结果
+     */
+    public <T> QPage<T> page(Class<T> entityType, QueryCriteria criteria, int page, int size) {
+        return toPage(list(entityType, criteria, page * size, size), entityType, criteria, page, size);
+    }
+
+    /**
+     * 投影查询符合条件的一段记录
+     *
+     * @param entityType     实体类型
+     * @param projectionType 投影记录类型，组件按名称或{@link ProjectionField}对应实体属性
+     * @param criteria       查询条件
+     * @param offset         跳过的记录数
+     * @param limit          最多返回的记录数
+     * @return 投影记录列表
+     */
+    public <P> List<P> project(Class<?> entityType, Class<P> projectionType, QueryCriteria criteria, int offset, int limit) {
+        String selection = projections.computeIfAbsent(new ProjectionKey(entityType, projectionType), this::compileProjection);
+        TypedQuery<P> query = entityManager.createQuery(compile(entityType, criteria, false).select(selection), projectionType);
+        bind(query, criteria);
+        return query.setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 投影分页查询
+     *
+     * @param entityType     实体类型
+     * @param projectionType 投影记录类型
+     * @param criteria       查询条件
+     * @param page           页码，从0开始
+     * @param size           每页大小
+     * @return 分页结果
+     * @see #project
+     */
+    public <P> QPage<P> projectPage(Class<?> entityType, Class<P> projectionType, QueryCriteria criteria, int page, int size) {
+        return toPage(project(entityType, projectionType, criteria, page * size, size), entityType, criteria, page, size);
+    }
+
+    private <T> QPage<T> toPage(List<T> content, Class<?> entityType, QueryCriteria criteria, int page, int size) {
+        // 不满一页时总数可以直接算出，省去计数查询
+        long total = content.size() < size && (page == 0 || !content.isEmpty())
+                ? (long) page * size + content.size()
+                : count(entityType, criteria);
+        int totalPages = size == 0 ? 0 : (int) ((total + size - 1) / size);
+        return QPage.<T>builder()
+                .content(content)
+                .totalElements(total)
+                .totalPages(totalPages)
+                .currentPage(page)
+                .pageSize(size)
+                .hasNext(page + 1 < totalPages)
+                .hasPrevious(page > 0)
+                .build();
+    }
+
+    /**
+     * 流式查询符合条件的实体
+     * <p>
+     * 必须在事务中调用，返回的流在事务结束时关闭，也可以由调用方提前关闭
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件
+     * @return 实体流
+     */
+    public <T> Stream<T> stream(Class<T> entityType, QueryCriteria criteria) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("流式查询必须在事务中执行: " + entityType.getSimpleName());
+        }
+        Stream<T> stream = select(entityType, criteria)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()
+                .peek(entityManager::detach);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stream.close();
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * 以响应式流查询符合条件的实体
+     * <p>
+     * 订阅后在独立线程中开启只读事务读取，按订阅者的请求量逐条推送，取消订阅时关闭游标并结束事务
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件
+     * @return 实体流
+     */
+    public <T> Flux<T> flux(Class<T> entityType, QueryCriteria criteria) {
+        return Flux.create(sink -> {
+            Semaphore demand = new Semaphore(0);
+            AtomicBoolean unbounded = new AtomicBoolean();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onRequest(n -> {
+                if (n == Long.MAX_VALUE) {
+                    unbounded.set(true);
+                }
+                demand.release((int) Math.min(n, 1 << 20));
+            });
+            sink.onDispose(() -> {
+                cancelled.set(true);
+                demand.release();
+            });
+            Schedulers.boundedElastic().schedule(() -> {
+                try {
+                    readOnlyTransaction.executeWithoutResult(status ->
+                            produce(stream(entityType, criteria), sink, demand, unbounded, cancelled));
+                    sink.complete();
+                } catch (Exception e) {
+                    sink.error(e);
+                }
+            });
+        });
+    }
+
+    private static <T> void produce(Stream<T> rows, FluxSink<T> sink, Semaphore demand,
+                                    AtomicBoolean unbounded, AtomicBoolean cancelled) {
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            while (!cancelled.get() && iterator.hasNext()) {
+                if (!unbounded.get()) {
+                    demand.acquire();
+                }
+                if (cancelled.get()) {
+                    return;
+                }
+                sink.next(iterator.next());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("流式查询被中断", e);
+        }
+    }
+
+    /**
+     * 游标分页查询
+     *
+     * @param entityType 实体类型
+     * @param criteria   查询条件，翻页过程中必须保持不变
+     * @param cursor     上一页返回的游标，查询第一页时为null
+     * @param size       每页大小
+     * @param totalMode  总数计算方式
+     * @return 分页结果
+     */
+    public <T> CursorPage<T> seek(Class<T> entityType, QueryCriteria criteria, String cursor, int size, TotalMode totalMode) {
+        EntityType<T> entity = entityManager.getMetamodel().entity(entityType);
+        QueryCriteria ordered = withIdentifierSort(entity, criteria);
+        String signature = ordered.signature();
+        List<String> keys = List.copyOf(ordered.getSorts().keySet());
+        List<Object> after = cursor == null ? null : decodeCursor(cursor, signature, entity, keys);
+
+        CompiledQuery compiled = compile(entityType, ordered, after != null);
+        TypedQuery<T> query = entityManager.createQuery(compiled.select(), entityType);
+        bind(query, ordered);
+        if (after != null) {
+            for (int i = 0; i < after.size(); i++) {
+                query.setParameter("k" + i, after.get(i));
+            }
+        }
+        // 多取一条判断是否还有下一页
+        List<T> rows = query.setMaxResults(size + 1).getResultList();
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+
+        Long total = switch (totalMode) {
+            case NONE -> null;
+            case EXACT -> count(entityType, criteria);
+            case ESTIMATE -> estimate(entityType, criteria);
+        };
+        return CursorPage.<T>builder()
+                .content(content)
+                .pageSize(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? encodeCursor(signature, content.getLast(), keys) : null)
+                .totalElements(total)
+                .totalMode(totalMode)
+                .build();
+    }
+
+    /**
+     * 估算符合条件的实体数
+     * <p>
+     * 没有过滤条件时读取数据库统计信息中的表行数（PostgreSQL的{@code pg_class.reltuples}），
+     * 不扫描表；有过滤条件、不是PostgreSQL或表还没有统计信息时执行精确计数
+     */
+    private long estimate(Class<?> entityType, QueryCriteria criteria) {
+        if (criteria.getConditions().isEmpty()) {
+            Optional<String> table = statisticsTables.computeIfAbsent(entityType, this::statisticsTable);
+            if (table.isPresent()) {
+                Object rows = entityManager.createNativeQuery(
+                                "select cast(reltuples as bigint) from pg_class where oid = to_regclass(:table)")
+                        .setParameter("table", table.get())
+                        .getResultStream()
+                        .findFirst()
+                        .orElse(null);
+                // 从未ANALYZE的表reltuples为-1（旧版本为0），此时统计信息不可用
+                if (rows instanceof Number number && number.longValue() > 0) {
+                    return number.longValue();
+                }
+            }
+        }
+        return count(entityType, criteria);
+    }
+
+    /**
+     * 获取可以读取行数统计的表名
+     *
+     * @return 数据库不是PostgreSQL、实体不是单表映射或是单表继承的子类时为空
+     */
+    private Optional<String> statisticsTable(Class<?> entityType) {
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class);
+        if (!(sessionFactory.getJdbcServices().getDialect() instanceof PostgreSQLDialect)) {
+            return Optional.empty();
+        }
+        if (sessionFactory.getMappingMetamodel().getEntityDescriptor(entityType)
+                instanceof SingleTableEntityPersister persister && !persister.isInherited()) {
+            return Optional.of(persister.getTableName());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 获取已缓存的查询形状数
+     */
+    public long getCachedShapes() {
+        return shapes.estimatedSize();
+    }
+
+    private <T> TypedQuery<T> select(Class<T> entityType, QueryCriteria criteria) {
+        CompiledQuery compiled = compile(entityType, criteria, false);
+        TypedQuery<T> query = entityManager.createQuery(compiled.select(), entityType);
+        bind(query, criteria);
+        return query;
+    }
+
+    private CompiledQuery compile(Class<?> entityType, QueryCriteria criteria, boolean seek) {
+        ShapeKey key = new ShapeKey(entityType, criteria.signature(), seek);
+        CompiledQuery compiled = shapes.getIfPresent(key);
+        if (compiled != null) {
+            shapeHits.increment();
+            return compiled;
+        }
+        shapeMisses.increment();
+        return shapes.get(key, k -> doCompile(entityType, criteria, seek));
+    }
+
+    private CompiledQuery doCompile(Class<?> entityType, QueryCriteria criteria, boolean seek) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityType);
+        String entityName = entity.getName();
+
+        StringBuilder where = new StringBuilder();
+        List<Condition> conditions = criteria.getConditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            Condition condition = conditions.get(i);
+            String path = ALIAS + "." + checkPath(entity, condition.field());
+            String p = ":p" + i;
+            where.append(i == 0 ? " where " : " and ");
+            switch (condition.operator()) {
+                case EQ -> where.append(path).append(" = ").append(p);
+                case NE -> where.append(path).append(" <> ").append(p);
+                case GT -> where.append(path).append(" > ").append(p);
+                case GE -> where.append(path).append(" >= ").append(p);
+                case LT -> where.append(path).append(" < ").append(p);
+                case LE -> where.append(path).append(" <= ").append(p);
+                case BETWEEN -> where.append(path).append(" between ").append(p).append("a and ").append(p).append('b');
+                case LIKE -> where.append(path).append(" like ").append(p);
+                case IS_NULL -> where.append(path).append(" is null");
+                case IS_NOT_NULL -> where.append(path).append(" is not null");
+                case IN -> {
+                    int size = QueryCriteria.paddedSize(((List<?>) condition.value()).size());
+                    if (size == 0) {
+                        where.append("1 = 0");
+                    } else {
+                        where.append(path).append(" in (");
+                        for (int j = 0; j < size; j++) {
+                            where.append(j == 0 ? "" : ", ").append(p).append('_').append(j);
+                        }
+                        where.append(')');
+                    }
+                }
+            }
+        }
+
+        StringBuilder orderBy = new StringBuilder();
+        List<String> paths = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        criteria.getSorts().forEach((field, direction) -> {
+            String dir = direction.toLowerCase(Locale.ROOT);
+            if (!dir.equals("asc") && !dir.equals("desc")) {
+                throw new IllegalArgumentException("无效的排序方向: " + direction);
+            }
+            String path = ALIAS + "." + checkPath(entity, field);
+            paths.add(path);
+            descending.add(dir.equals("desc"));
+            orderBy.append(orderBy.isEmpty() ? " order by " : ", ").append(path).append(' ').append(dir);
+        });
+
+        String count = "select count(" + ALIAS + ") from " + entityName + " " + ALIAS + where;
+        if (seek) {
+            where.append(where.isEmpty() ? " where " : " and ").append(seekPredicate(paths, descending));
+        }
+        String from = " from " + entityName + " " + ALIAS + where;
+        CompiledQuery compiled = new CompiledQuery(from + orderBy, count);
+        log.debug("编译查询形状: entity={}, select={}", entityName, compiled.select());
+        return compiled;
+    }
+
+    /**
+     * 生成投影记录的构造表达式
+     */
+    private String compileProjection(ProjectionKey key) {
+        Class<?> projectionType = key.projectionType();
+        if (!projectionType.isRecord()) {
+            throw new IllegalArgumentException("投影类型必须是record: " + projectionType.getName());
+        }
+        EntityType<?> entity = entityManager.getMetamodel().entity(key.entityType());
+        StringJoiner arguments = new StringJoiner(", ", "new " + projectionType.getName() + "(", ")");
+        for (RecordComponent component : projectionType.getRecordComponents()) {
+            ProjectionField field = component.getAnnotation(ProjectionField.class);
+            arguments.add(ALIAS + "." + checkPath(entity, field != null ? field.value() : component.getName()));
+        }
+        return arguments.toString();
+    }
+
+    /**
+     * 生成"排在上一页最后一条记录之后"的条件
+     * <p>
+     * (a, b, c)之后展开为：a > :k0 or (a = :k0 and b > :k1) or (a = :k0 and b = :k1 and c > :k2)，
+     * 降序字段使用小于号。前面额外加上第一个排序键的范围条件，便于数据库使用索引定位起点
+     */
+    private static String seekPredicate(List<String> paths, List<Boolean> descending) {
+        StringBuilder predicate = new StringBuilder("(")
+                .append(paths.getFirst()).append(descending.getFirst() ? " <= " : " >= ").append(":k0 and (");
+        for (int i = 0; i < paths.size(); i++) {
+            predicate.append(i == 0 ? "" : " or ").append('(');
+            for (int j = 0; j < i; j++) {
+                predicate.append(paths.get(j)).append(" = :k").append(j).append(" and ");
+            }
+            predicate.append(paths.get(i)).append(descending.get(i) ? " < " : " > ").append(":k").append(i).append(')');
+        }
+        return predicate.append("))").toString();
+    }
+
+    /**
+     * 复制查询条件，排序键中没有标识符时在末尾追加标识符升序
+     */
+    private static QueryCriteria withIdentifierSort(EntityType<?> entity, QueryCriteria criteria) {
+        String id = entity.getSingularAttributes().stream()
+                .filter(SingularAttribute::isId)
+                .map(Attribute::getName)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("游标分页不支持复合标识符: " + entity.getName()));
+        QueryCriteria ordered = new QueryCriteria();
+        ordered.setConditions(criteria.getConditions());
+        ordered.getSorts().putAll(criteria.getSorts());
+        ordered.getSorts().putIfAbsent(id, "asc");
+        return ordered;
+    }
+
+    private String encodeCursor(String signature, Object row, List<String> keys) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(row);
+        List<Object> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Object value = wrapper.getPropertyValue(key);
+            if (value == null) {
+                throw new IllegalStateException("游标分页的排序字段不能为空: " + key);
+            }
+            values.add(value);
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("s", signature.hashCode(), "k", values));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (Exception e) {
+            throw new IllegalStateException("无法生成分页游标", e);
+        }
+    }
+
+    private List<Object> decodeCursor(String cursor, String signature, ManagedType<?> entity, List<String> keys) {
+        try {
+            JsonNode node = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            JsonNode values = node.get("k");
+            if (node.get("s").asInt() != signature.hashCode() || values.size() != keys.size()) {
+                throw new IllegalArgumentException("分页游标与查询条件不匹配");
+            }
+            List<Object> after = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                after.add(objectMapper.treeToValue(values.get(i), resolve(entity, keys.get(i)).getJavaType()));
+            }
+            return after;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
+    /**
+     * 按元模型校验以"."分隔的属性路径
+     */
+    private static String checkPath(ManagedType<?> entity, String field) {
+        resolve(entity, field);
+        return field;
+    }
+
+    /**
+     * 按元模型解析以"."分隔的属性路径
+     *
+     * @return 路径最后一段对应的属性
+     */
+    private static Attribute<?, ?> resolve(ManagedType<?> entity, String field) {
+        ManagedType<?> current = entity;
+        String[] segments = field.split("\\.");
+        Attribute<?, ?> attribute = null;
+        for (int i = 0; i < segments.length; i++) {
+            try {
+                attribute = current == null ? null : current.getAttribute(segments[i]);
+            } catch (IllegalArgumentException e) {
+                attribute = null;
+            }
+            if (attribute == null) {
+                throw new IllegalArgumentException("未知的查询字段: " + field);
+            }
+            if (i < segments.length - 1) {
+                current = attribute instanceof SingularAttribute<?, ?> singular
+                        && singular.getType().getPersistenceType() != Type.PersistenceType.BASIC
+                        ? (ManagedType<?>) singular.getType() : null;
+            }
+        }
+        return attribute;
+    }
+
+    private static void bind(TypedQuery<?> query, QueryCriteria criteria) {
+        List<Condition> conditions = criteria.getConditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            Condition condition = conditions.get(i);
+            String p = "p" + i;
+            switch (condition.operator()) {
+                case IS_NULL, IS_NOT_NULL -> {
+                }
+                case BETWEEN -> {
+                    List<?> range = (List<?>) condition.value();
+                    query.setParameter(p + "a", range.get(0));
+                    query.setParameter(p + "b", range.get(1));
+                }
+                case IN -> {
+                    List<?> values = (List<?>) condition.value();
+                    int size = QueryCriteria.paddedSize(values.size());
+                    for (int j = 0; j < size; j++) {
+                        query.setParameter(p + "_" + j, values.get(Math.min(j, values.size() - 1)));
+                    }
+                }
+                default -> query.setParameter(p, condition.value());
+            }
+        }
+    }
+
+    private record ShapeKey(Class<?> entityType, String signature, boolean seek) {
+    }
+
+    private record ProjectionKey(Class<?> entityType, Class<?> projectionType) {
+    }
+
+    /**
+     * 编译好的查询形状
+     *
+     * @param body  查询语句中from之后的部分
+     * @param count 计数语句
+     */
+    private record CompiledQuery(String body, String count) {
+
+        String select() {
+            return select(ALIAS);
+        }
+
+        String select(String selection) {
+            return "select " + selection + body;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.CacheableQuery;
+import cn.treedeep.king.core.application.cqrs.query.Query;
+import cn.treedeep.king.core.application.cqrs.query.QueryException;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 相同查询合并器
+ * <p>
+ * 热点查询的缓存过期时，大量相同的查询会同时到达查询总线并各自访问数据库。
+ * 合并器让同一时刻的相同查询只执行一次：
+ * <ul>
+ * <li>在途登记 - 第一个到达的查询负责执行，执行期间到达的相同查询等待并共享它的结果或异常</li>
+ * <li>最长等待 - 等待超过上限或执行者被取消时不再等待，自行执行</li>
+ * <li>相同的判定 - 实现了{@link CacheableQuery}的查询按查询类型和缓存键判定；
+ * 否则查询类自身实现了equals时按查询对象判定；两者都不满足的查询不合并</li>
+ * </ul>
+ * 共享的结果是同一个对象，调用方不应修改查询结果。在读写事务中执行的查询需要看到本事务的修改，不参与合并。
+ * <p>
+ * 监控指标：query.coalescing.calls - 按role标签区分执行者（leader）、共享结果者（follower）和等待超时者（timeout）
+ */
+@Slf4j
+@Component
+public class QueryCoalescer {
+
+    private final boolean enabled;
+    private final long maxWait;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Boolean> valueTypes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Counter[]> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 构造相同查询合并器
+     *
+     * @param properties    CQRS配置属性
+     * @param meterRegistry 指标注册表
+     */
+    public QueryCoalescer(CqrsProperties properties, MeterRegistry meterRegistry) {
+        CqrsProperties.QueryCoalescingProperties coalescing = properties.getQuery().getCoalescing();
+        this.enabled = coalescing.isEnabled();
+        this.maxWait = coalescing.getMaxWait();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 执行查询，相同的查询正在执行时等待并共享其结果
+     *
+     * @param query  查询对象
+     * @param loader 执行查询的逻辑
+     * @param <R>    查询结果类型
+     * @return 查询结果
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R execute(Query<R> query, Supplier<R> loader) {
+        if (!enabled || inReadWriteTransaction()) {
+            return loader.get();
+        }
+        Object value = coalescingValue(query);
+        if (value == null) {
+            return loader.get();
+        }
+
+        Key key = new Key(query.getClass(), value);
+        CompletableFuture<Object> execution = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, execution);
+        Counter[] metrics = counters(query.getClass());
+
+        if (existing == null) {
+            metrics[0].increment();
+            try {
+                R result = loader.get();
+                execution.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                execution.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, execution);
+            }
+        }
+
+        try {
+            R result = (R) existing.get(maxWait, TimeUnit.MILLISECONDS);
+            metrics[1].increment();
+            return result;
+        } catch (TimeoutException e) {
+            metrics[2].increment();
+            log.debug("等待相同查询超时，自行执行: {}", query.getQueryName());
+            return loader.get();
+        } catch (CancellationException e) {
+            // 执行者的取消只属于它自己的调用，不是查询本身的失败
+            metrics[2].increment();
+            log.debug("相同查询的执行者已取消，自行执行: {}", query.getQueryName());
+            return loader.get();
+        } catch (ExecutionException e) {
+            metrics[1].increment();
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new QueryException("查询处理失败: " + query.getQueryName(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryException("等待相同查询的结果时被中断: " + query.getQueryName(), e);
+        }
+    }
+
+    /**
+     * 获取用于判定相同查询的值
+     *
+     * @return 不能判定时返回null
+     */
+    private Object coalescingValue(Query<?> query) {
+        if (query instanceof CacheableQuery cacheable) {
+            return cacheable.cacheKey();
+        }
+        return valueTypes.computeIfAbsent(query.getClass(), QueryCoalescer::declaresEquals) ? query : null;
+    }
+
+    private static boolean declaresEquals(Class<?> type) {
+        try {
+            return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private Counter[] counters(Class<?> queryType) {
+        return counters.computeIfAbsent(queryType, type -> new Counter[]{
+                counter(type, "leader"), counter(type, "follower"), counter(type, "timeout")});
+    }
+
+    private Counter counter(Class<?> queryType, String role) {
+        return Counter.builder("query.coalescing.calls")
+                .description("相同查询合并的调用次数")
+                .tag("query", queryType.getSimpleName())
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    private boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private record Key(Class<?> queryType, Object value) {
+    }
+}
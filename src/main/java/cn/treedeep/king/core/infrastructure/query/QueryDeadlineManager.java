@@ -0,0 +1,229 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.Query;
+import cn.treedeep.king.core.application.cqrs.query.QueryException;
+import cn.treedeep.king.core.application.cqrs.query.QueryTimeoutException;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 查询执行期限管理器
+ * <p>
+ * 为查询设置执行期限，超过期限或调用方放弃等待时在数据库端取消正在执行的语句，及时归还数据库连接：
+ * <ul>
+ * <li>期限来源 - 调用时指定的期限优先，其次是按查询类型配置的期限，最后是默认期限</li>
+ * <li>语句超时 - 查询在带超时的只读事务中执行，Hibernate把事务的剩余时间设置为每条JDBC语句的超时时间，
+ * 期限过后的语句直接失败；事务超时以秒为单位，不足一秒按一秒计</li>
+ * <li>主动取消 - 到达期限或调用方取消时，通过{@link Session#cancelQuery()}取消正在执行的语句，
+ * 参与调用方已有事务（语句超时不生效）时同样有效</li>
+ * </ul>
+ * 超时的查询抛出{@link QueryTimeoutException}，取消的查询抛出{@link CancellationException}。
+ * <p>
+ * 监控指标：query.deadline.aborted - 按outcome标签区分超时（timeout）和取消（cancelled）的查询数
+ */
+@Slf4j
+@Component
+public class QueryDeadlineManager implements DisposableBean {
+
+    private static final String TIMEOUT = "timeout";
+    private static final String CANCELLED = "cancelled";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+    private final CqrsProperties.QueryDeadlineProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Counter[]> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "query-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 构造查询执行期限管理器
+     *
+     * @param properties         CQRS配置属性
+     * @param transactionManager 事务管理器
+     * @param meterRegistry      指标注册表
+     */
+    public QueryDeadlineManager(CqrsProperties properties, PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties.getQuery().getDeadline();
+        this.transactionManager = transactionManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 确定查询的执行期限
+     *
+     * @param query     查询对象
+     * @param requested 调用时指定的期限，为null时使用配置
+     * @return 执行期限，不限制时返回null
+     */
+    public Duration resolve(Query<?> query, Duration requested) {
+        if (requested != null) {
+            return requested.isZero() || requested.isNegative() ? null : requested;
+        }
+        long millis = properties.getQueries().getOrDefault(query.getClass().getSimpleName(), properties.getDefaultTimeout());
+        return millis > 0 ? Duration.ofMillis(millis) : null;
+    }
+
+    /**
+     * 在期限内执行查询
+     *
+     * @param query    查询对象
+     * @param deadline 执行期限，为null时不限制
+     * @param caller   调用方等待的结果，取消时同时取消查询；超时时以{@link QueryTimeoutException}结束，可以为null
+     * @param loader   执行查询的逻辑
+     * @param <R>      查询结果类型
+     * @return 查询结果
+     */
+    public <R> R execute(Query<R> query, Duration deadline, CompletableFuture<?> caller, Supplier<R> loader) {
+        if (deadline == null && caller == null) {
+            return loader.get();
+        }
+
+        Execution execution = new Execution(query, deadline, caller);
+        ScheduledFuture<?> timer = deadline == null ? null
+                : watchdog.schedule(() -> execution.abort(TIMEOUT), deadline.toNanos(), TimeUnit.NANOSECONDS);
+        if (caller != null) {
+            caller.whenComplete((r, e) -> {
+                if (caller.isCancelled()) {
+                    execution.abort(CANCELLED);
+                }
+            });
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        if (deadline != null) {
+            transaction.setTimeout((int) Math.max(1, (deadline.toMillis() + 999) / 1000));
+        }
+        try {
+            return transaction.execute(status -> {
+                execution.attach(entityManager.unwrap(Session.class));
+                return loader.get();
+            });
+        } catch (RuntimeException e) {
+            if (execution.outcome == null && deadline != null && causedByTimeout(e)) {
+                execution.abort(TIMEOUT);
+            }
+            if (TIMEOUT.equals(execution.outcome)) {
+                counters(query.getClass())[0].increment();
+                throw execution.timeoutException(e);
+            }
+            if (CANCELLED.equals(execution.outcome)) {
+                counters(query.getClass())[1].increment();
+                CancellationException cancelled = new CancellationException("查询已取消: " + query.getQueryName());
+                cancelled.initCause(e);
+                throw cancelled;
+            }
+            throw e;
+        } finally {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            execution.detach();
+        }
+    }
+
+    /**
+     * 语句超时和事务超时在不同层次被包装成不同的异常
+     */
+    private static boolean causedByTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransactionTimedOutException
+                    || cause instanceof jakarta.persistence.QueryTimeoutException
+                    || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    private Counter[] counters(Class<?> queryType) {
+        return counters.computeIfAbsent(queryType, type -> new Counter[]{counter(type, TIMEOUT), counter(type, CANCELLED)});
+    }
+
+    private Counter counter(Class<?> queryType, String outcome) {
+        return Counter.builder("query.deadline.aborted")
+                .description("超过执行期限或被取消的查询数")
+                .tag("query", queryType.getSimpleName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一次带期限的查询执行
+     */
+    private static final class Execution {
+
+        private final Query<?> query;
+        private final Duration deadline;
+        private final CompletableFuture<?> caller;
+        private Session session;
+        private volatile String outcome;
+
+        Execution(Query<?> query, Duration deadline, CompletableFuture<?> caller) {
+            this.query = query;
+            this.deadline = deadline;
+            this.caller = caller;
+        }
+
+        synchronized void attach(Session session) {
+            if (outcome != null) {
+                throw new QueryException("查询在开始执行前已结束: " + outcome);
+            }
+            this.session = session;
+        }
+
+        synchronized void detach() {
+            session = null;
+        }
+
+        synchronized void abort(String reason) {
+            if (outcome != null) {
+                return;
+            }
+            outcome = reason;
+            if (session != null) {
+                try {
+                    session.cancelQuery();
+                } catch (RuntimeException e) {
+                    log.debug("取消查询语句失败: {}, error={}", query.getQueryName(), e.getMessage());
+                }
+            }
+            if (TIMEOUT.equals(reason) && caller != null) {
+                caller.completeExceptionally(timeoutException(null));
+            }
+        }
+
+        QueryTimeoutException timeoutException(Throwable cause) {
+            String message = "查询超过执行期限: " + query.getQueryName() + ", 期限: " + deadline.toMillis() + "ms";
+            return cause != null ? new QueryTimeoutException(message, cause) : new QueryTimeoutException(message);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.CacheableQuery;
+import cn.treedeep.king.core.application.cqrs.query.Query;
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+/**
+ * 查询结果缓存
+ * <p>
+ * 缓存实现了{@link CacheableQuery}的查询结果，每种查询类型一个独立的缓存区域，
+ * 过期时间和容量可以按查询类型配置。缓存条目由领域事件精确失效：
+ * <ul>
+ * <li>按聚合根ID - 事件的聚合根ID命中条目声明的依赖时，只移除这些条目</li>
+ * <li>按聚合根类型 - 事件的聚合根类型命中查询声明的依赖时，清空该查询类型的缓存区域</li>
+ * </ul>
+ * 领域事件在事务提交后才发布，收到事件时新数据已经可见。
+ * 查询执行期间收到的失效事件会使本次结果不再写入缓存，避免把旧数据缓存下来；
+ * 在读写事务中执行的查询可能读到未提交的数据，不读也不写缓存；流式结果只能消费一次，也不缓存。
+ * <p>
+ * 监控指标：
+ * <ul>
+ * <li>query.cache.requests - 命中/未命中次数，按result标签区分</li>
+ * <li>query.cache.staleness - 命中时返回结果的已缓存时长</li>
+ * <li>query.cache.invalidations - 被领域事件失效的条目数</li>
+ * <li>query.cache.size - 缓存条目数</li>
+ * </ul>
+ * 缓存只在本节点内生效，其他节点发布的事件需要经由事件总线送达本节点后才能失效本节点的缓存。
+ */
+@Slf4j
+@Component
+public class QueryResultCache {
+
+    private final CqrsProperties.QueryCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<Class<?>, Region> regions = new ConcurrentHashMap<>();
+    private final Map<String, Set<Entry>> byAggregateId = new ConcurrentHashMap<>();
+    private final Map<String, Set<Region>> byAggregateType = new ConcurrentHashMap<>();
+
+    /**
+     * 构造查询结果缓存
+     *
+     * @param properties    CQRS配置属性
+     * @param meterRegistry 指标注册表
+     */
+    public QueryResultCache(CqrsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties.getQueryCache();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 是否启用查询缓存
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 从缓存获取查询结果，未命中时执行查询并缓存结果
+     *
+     * @param query  查询对象，未实现{@link CacheableQuery}时直接执行查询
+     * @param loader 执行查询的逻辑
+     * @param <R>    查询结果类型
+     * @return 查询结果
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R get(Query<R> query, Supplier<R> loader) {
+        if (!properties.isEnabled() || !(query instanceof CacheableQuery cacheable) || inReadWriteTransaction()) {
+            return loader.get();
+        }
+
+        Region region = regions.computeIfAbsent(query.getClass(), Region::new);
+        Object key = cacheable.cacheKey();
+        Entry cached = region.cache.getIfPresent(key);
+        if (cached != null) {
+            region.hits.increment();
+            region.staleness.record(System.nanoTime() - cached.createdAt, TimeUnit.NANOSECONDS);
+            return (R) cached.value;
+        }
+        region.misses.increment();
+
+        // 先登记依赖再执行查询，执行期间到达的失效事件能找到这个条目
+        Entry entry = new Entry(region, key, Set.copyOf(cacheable.dependsOnAggregates()));
+        long epoch = region.epoch.get();
+        index(entry, cacheable.dependsOnAggregateTypes());
+
+        R value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            unindex(entry);
+            throw e;
+        }
+
+        if (value == null || value instanceof BaseStream<?, ?> || value instanceof Publisher<?>
+                || entry.invalidated || region.epoch.get() != epoch) {
+            unindex(entry);
+            return value;
+        }
+        entry.value = value;
+        entry.createdAt = System.nanoTime();
+        region.cache.put(key, entry);
+        if (entry.invalidated) {
+            // 写入缓存的同时被失效，以失效为准
+            region.cache.asMap().remove(key, entry);
+        }
+        return value;
+    }
+
+    /**
+     * 清空指定查询类型的缓存
+     *
+     * @param queryType 查询类型
+     */
+    public void invalidateAll(Class<? extends Query<?>> queryType) {
+        Region region = regions.get(queryType);
+        if (region != null) {
+            region.clear();
+        }
+    }
+
+    /**
+     * 根据已发布的领域事件失效缓存
+     *
+     * @param event 领域事件
+     */
+    @EventListener
+    public void onDomainEvent(DomainEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String aggregateId = event.getAggregateId();
+        if (aggregateId != null) {
+            Set<Entry> entries = byAggregateId.get(aggregateId);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    entry.invalidated = true;
+                    if (entry.region.cache.asMap().remove(entry.key, entry)) {
+                        entry.region.invalidations.increment();
+                    }
+                }
+            }
+        }
+        String aggregateType = event.getAggregateType();
+        if (aggregateType != null) {
+            Set<Region> dependents = byAggregateType.get(aggregateType);
+            if (dependents != null) {
+                dependents.forEach(Region::clear);
+            }
+        }
+    }
+
+    private boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void index(Entry entry, Set<String> aggregateTypes) {
+        for (String aggregateId : entry.aggregateIds) {
+            byAggregateId.computeIfAbsent(aggregateId, id -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+        for (String aggregateType : aggregateTypes) {
+            byAggregateType.computeIfAbsent(aggregateType, type -> ConcurrentHashMap.newKeySet()).add(entry.region);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        for (String aggregateId : entry.aggregateIds) {
+            byAggregateId.computeIfPresent(aggregateId, (id, entries) -> {
+                entries.remove(entry);
+                return entries.isEmpty() ? null : entries;
+            });
+        }
+    }
+
+    /**
+     * 单个查询类型的缓存区域
+     */
+    private final class Region {
+
+        private final Cache<Object, Entry> cache;
+        private final AtomicLong epoch = new AtomicLong();
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter invalidations;
+        private final Timer staleness;
+
+        Region(Class<?> queryType) {
+            String name = queryType.getSimpleName();
+            CqrsProperties.QueryCacheRegionProperties config = properties.getQueries().get(name);
+            long ttl = config != null && config.getTtl() != null ? config.getTtl() : properties.getDefaultTtl();
+            long maximumSize = config != null && config.getMaximumSize() != null
+                    ? config.getMaximumSize() : properties.getDefaultMaximumSize();
+
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttl))
+                    .<Object, Entry>removalListener((key, entry, cause) -> {
+                        if (entry != null) {
+                            unindex(entry);
+                        }
+                    })
+                    .build();
+            this.hits = Counter.builder("query.cache.requests")
+                    .description("查询缓存请求次数")
+                    .tag("query", name)
+                    .tag("result", "hit")
+                    .register(meterRegistry);
+            this.misses = Counter.builder("query.cache.requests")
+                    .description("查询缓存请求次数")
+                    .tag("query", name)
+                    .tag("result", "miss")
+                    .register(meterRegistry);
+            this.invalidations = Counter.builder("query.cache.invalidations")
+                    .description("被领域事件失效的缓存条目数")
+                    .tag("query", name)
+                    .register(meterRegistry);
+            this.staleness = Timer.builder("query.cache.staleness")
+                    .description("命中时返回结果的已缓存时长")
+                    .tag("query", name)
+                    .register(meterRegistry);
+            Gauge.builder("query.cache.size", cache, Cache::estimatedSize)
+                    .description("查询缓存条目数")
+                    .tag("query", name)
+                    .register(meterRegistry);
+
+            log.debug("创建查询缓存区域: query={}, ttl={}s, maximumSize={}", name, ttl, maximumSize);
+        }
+
+        void clear() {
+            epoch.incrementAndGet();
+            long size = cache.estimatedSize();
+            cache.invalidateAll();
+            invalidations.increment(size);
+        }
+    }
+
+    /**
+     * 缓存条目，以对象标识区分，同一个缓存键被重新写入后旧条目的失效不影响新条目
+     */
+    private static final class Entry {
+
+        private final Region region;
+        private final Object key;
+        private final Set<String> aggregateIds;
+        private volatile Object value;
+        private volatile long createdAt;
+        private volatile boolean invalidated;
+
+        Entry(Region region, Object key, Set<String> aggregateIds) {
+            this.region = region;
+            this.key = key;
+            this.aggregateIds = aggregateIds;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package cn.treedeep.king.core.infrastructure.readmodel;
+
+import java.util.Map;
+
+/**
+ * 读模型存储的内存占用报告
+ *
+ * @param name           存储名称
+ * @param rows           记录数
+ * @param slots          已分配的槽位数
+ * @param distinctValues 每个索引的不同值个数
+ * @param storageBytes   槽位表和主键映射的估算字节数
+ * @param indexBytes     索引的估算字节数
+ * @param rowBytes       记录本身的估算字节数，未提供估算函数时为-1
+ */
+public record ReadModelMemoryReport(String name,
+                                    int rows,
+                                    int slots,
+                                    Map<String, Integer> distinctValues,
+                                    long storageBytes,
+                                    long indexBytes,
+                                    long rowBytes) {
+
+    /**
+     * 估算的总字节数，不含未估算的记录本身
+     */
+    public long totalBytes() {
+        return storageBytes + indexBytes + Math.max(0, rowBytes);
+    }
+}
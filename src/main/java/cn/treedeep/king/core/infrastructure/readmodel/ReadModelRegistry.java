@@ -0,0 +1,165 @@
+package cn.treedeep.king.core.infrastructure.readmodel;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventPosition;
+import cn.treedeep.king.core.domain.EventStore;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * 内存读模型注册表
+ * <p>
+ * 收集容器中所有的{@link ReadModelStore}，负责：
+ * <ul>
+ * <li>增量维护 - 把已发布的领域事件投递给声明了对应处理方式的存储</li>
+ * <li>启动重建 - 应用启动时按全局顺序重放事件存储中的全部事件，重建期间到达的事件暂存后按事件ID去重应用；
+ * 重建在Web服务开始接收请求之前完成；重建失败的存储拒绝查询，直到调用{@link #rebuild}重新重建成功</li>
+ * <li>监控 - 按存储发布记录数和估算内存占用指标（readmodel.rows、readmodel.memory.bytes）</li>
+ * </ul>
+ * 读模型只存在于本节点内存中，多节点部署时每个节点各自维护，其他节点发布的事件需要经由事件总线送达本节点。
+ */
+@Slf4j
+@Component
+public class ReadModelRegistry implements SmartLifecycle {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    /**
+     * 重建期间发布的事件的发生时间不会早于重建开始前这段时间，这部分重放事件需要记录ID用于去重
+     */
+    private static final Duration REBUILD_OVERLAP = Duration.ofMinutes(10);
+
+    private final List<ReadModelStore<?>> stores;
+    private final EventStore eventStore;
+    private volatile boolean running;
+
+    /**
+     * 构造内存读模型注册表
+     *
+     * @param stores        容器中的读模型存储
+     * @param eventStore    事件存储，用于启动重建
+     * @param meterRegistry 指标注册表
+     */
+    public ReadModelRegistry(ObjectProvider<ReadModelStore<?>> stores, EventStore eventStore, MeterRegistry meterRegistry) {
+        this.stores = stores.orderedStream().toList();
+        this.eventStore = eventStore;
+        for (ReadModelStore<?> store : this.stores) {
+            Gauge.builder("readmodel.rows", store, ReadModelStore::size)
+                    .description("内存读模型记录数")
+                    .tag("store", store.getName())
+                    .register(meterRegistry);
+            Gauge.builder("readmodel.memory.bytes", store, ReadModelStore::estimatedBytes)
+                    .description("内存读模型估算内存占用")
+                    .tag("store", store.getName())
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * 把已发布的领域事件投递给读模型存储
+     *
+     * @param event 领域事件
+     */
+    @EventListener
+    public void onDomainEvent(DomainEvent event) {
+        for (ReadModelStore<?> store : stores) {
+            if (store.handles(event.getClass())) {
+                store.accept(event);
+            }
+        }
+    }
+
+    /**
+     * 从事件存储重建读模型
+     * <p>
+     * 重建期间读取仍然可用，但只能看到已重放的部分。
+     * 重放失败时存储被标记为不可查询，查询抛出异常而不是返回部分数据，重新调用本方法成功后恢复
+     *
+     * @param store 读模型存储
+     */
+    public void rebuild(ReadModelStore<?> store) {
+        long start = System.nanoTime();
+        OffsetDateTime startedAt = DateTimeUtil.now();
+        store.beginRebuild(startedAt.minus(REBUILD_OVERLAP));
+        long replayed = 0;
+        String failure = null;
+        try {
+            EventPosition position = EventPosition.START;
+            while (true) {
+                List<DomainEvent> batch = eventStore.readAllEvents(position, startedAt, REBUILD_BATCH_SIZE);
+                for (DomainEvent event : batch) {
+                    if (store.handles(event.getClass())) {
+                        store.replay(event);
+                        replayed++;
+                    }
+                }
+                if (batch.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                position = EventPosition.of(batch.getLast());
+            }
+        } catch (Exception e) {
+            failure = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+            log.error("读模型重建失败，重新重建成功前拒绝查询: store={}, 已重放事件={}, error={}",
+                    store.getName(), replayed, failure, e);
+        } finally {
+            store.finishRebuild();
+            store.rebuildCompleted(failure);
+        }
+        if (failure != null) {
+            return;
+        }
+        log.info("读模型重建完成: store={}, 重放事件={}, 记录数={}, 耗时={}ms",
+                store.getName(), replayed, store.size(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    /**
+     * 获取所有读模型存储的内存占用报告
+     */
+    public List<ReadModelMemoryReport> memoryReports() {
+        return stores.stream().map(ReadModelStore::memoryReport).toList();
+    }
+
+    public List<ReadModelStore<?>> getStores() {
+        return stores;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (ReadModelStore<?> store : stores) {
+            if (store.isRebuildOnStartup()) {
+                rebuild(store);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 在Web服务启动之前重建
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,671 @@
+package cn.treedeep.king.core.infrastructure.readmodel;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventPosition;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * 内存读模型存储
+ * <p>
+ * 把热点查询数据（商品目录、账户状态等）的投影保存在内存中，由领域事件增量维护：
+ * <ul>
+ * <li>槽位存储 - 每条记录占一个整数槽位，删除后的槽位被复用</li>
+ * <li>哈希索引 - 字段值到槽位的映射，用于等值查询</li>
+ * <li>有序索引 - 按字段值排序的映射，用于范围查询和有序遍历</li>
+ * <li>紧凑倒排 - 索引中同一个值对应的槽位保存为可增长的int数组，不产生装箱对象；每条记录保存它在各个倒排中的位置，
+ * 删除时用倒排末尾的槽位填补空位，低基数索引上的写入和删除也是常数时间</li>
+ * <li>事件驱动 - 通过{@link #on}声明事件到存储操作的映射，由{@link ReadModelRegistry}投递已发布的事件，
+ * 启动时从事件存储重放全部历史事件重建</li>
+ * </ul>
+ * 读取使用读锁，事件在写锁中逐个应用，读到的总是某个事件应用完成后的状态。
+ * 最近一次重建失败时存储只包含部分数据，查询抛出{@link IllegalStateException}，直到重新重建成功。
+ * 索引字段的值在写入时提取并保存，记录对象在写入后被修改不会破坏索引，但应当把记录视为不可变对象。
+ * 内存占用的估算值随写入增量维护，{@link #memoryReport()}不遍历记录和索引。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * @Bean
+ * public ReadModelStore<ProductView> productCatalog() {
+ *     return ReadModelStore.builder("product-catalog", ProductView::id)
+ *             .hashIndex("category", ProductView::category)
+ *             .sortedIndex("price", ProductView::price)
+ *             .build()
+ *             .on(ProductCreatedEvent.class, (store, e) -> store.put(new ProductView(e.getAggregateId(), ...)))
+ *             .on(ProductDeletedEvent.class, (store, e) -> store.remove(e.getAggregateId()));
+ * }
+ *
+ * List<ProductView> books = productCatalog.findBy("category", "books");
+ * List<ProductView> cheap = productCatalog.range("price", BigDecimal.ZERO, BigDecimal.TEN);
+ * }
+ * </pre>
+ *
+ * @param <V> 记录类型
+ */
+@Slf4j
+public class ReadModelStore<V> {
+
+    /**
+     * 每个倒排除槽位数组元素外的估算字节数：映射条目约40字节，倒排对象24字节，数组头16字节
+     */
+    private static final long POSTING_OVERHEAD = 80;
+
+    private final String name;
+    private final Function<V, ?> keyExtractor;
+    private final Index[] indexes;
+    private final Map<String, Index> indexesByName;
+    private final ToLongFunction<V> rowSizeEstimator;
+    private final boolean rebuildOnStartup;
+    private final Map<Class<?>, BiConsumer<ReadModelStore<V>, DomainEvent>> eventHandlers = new LinkedHashMap<>();
+    private final Map<Class<?>, List<BiConsumer<ReadModelStore<V>, DomainEvent>>> resolvedHandlers = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Object, Integer> slotsByKey = new HashMap<>();
+    private Object[] rows = new Object[64];
+    private Object[][] indexKeys = new Object[64][];
+    private int[][] postingPositions = new int[64][];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+    private long postingBytes;
+    private long rowBytes;
+
+    private volatile EventPosition position = EventPosition.START;
+    private volatile long appliedEvents;
+    private volatile String rebuildFailure;
+    private boolean rebuilding;
+    private final List<DomainEvent> pendingEvents = new ArrayList<>();
+    private OffsetDateTime overlapFrom;
+    private Set<String> replayedIds;
+
+    private ReadModelStore(Builder<V> builder) {
+        this.name = builder.name;
+        this.keyExtractor = builder.keyExtractor;
+        this.indexes = builder.indexes.toArray(Index[]::new);
+        this.indexesByName = new HashMap<>();
+        for (Index index : indexes) {
+            indexesByName.put(index.name, index);
+        }
+        this.rowSizeEstimator = builder.rowSizeEstimator;
+        this.rebuildOnStartup = builder.rebuildOnStartup;
+    }
+
+    /**
+     * 创建读模型存储构建器
+     *
+     * @param name         存储名称，用于日志和监控
+     * @param keyExtractor 主键提取函数
+     */
+    public static <V> Builder<V> builder(String name, Function<V, ?> keyExtractor) {
+        return new Builder<>(name, keyExtractor);
+    }
+
+    /**
+     * 声明事件的处理方式，事件类型的子类同样适用
+     *
+     * @param eventType 事件类型
+     * @param handler   处理逻辑，在写锁中执行
+     * @return 当前存储
+     */
+    @SuppressWarnings("unchecked")
+    public <E extends DomainEvent> ReadModelStore<V> on(Class<E> eventType, BiConsumer<ReadModelStore<V>, E> handler) {
+        eventHandlers.put(eventType, (BiConsumer<ReadModelStore<V>, DomainEvent>) handler);
+        resolvedHandlers.clear();
+        return this;
+    }
+
+
+    /**
+     * 按主键获取记录
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<V> get(Object key) {
+        checkReady();
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsByKey.get(key);
+            return slot == null ? Optional.empty() : Optional.of((V) rows[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按哈希索引或有序索引等值查询
+     *
+     * @param indexName 索引名称
+     * @param value     字段值
+     * @return 匹配的记录，顺序不固定
+     */
+    public List<V> findBy(String indexName, Object value) {
+        checkReady();
+        Index index = index(indexName);
+        lock.readLock().lock();
+        try {
+            Posting posting = index.postings.get(value);
+            return posting == null ? new ArrayList<>() : collect(posting);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按有序索引范围查询
+     *
+     * @param indexName 索引名称，必须是有序索引
+     * @param from      下界（包含），为null表示不限
+     * @param to        上界（包含），为null表示不限
+     * @return 匹配的记录，按字段值升序排序，字段值相同的记录顺序不固定
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<V> range(String indexName, Comparable<?> from, Comparable<?> to) {
+        checkReady();
+        Index index = index(indexName);
+        if (!(index.postings instanceof NavigableMap<?, ?>)) {
+            throw new IllegalArgumentException("不是有序索引: " + indexName);
+        }
+        NavigableMap<Object, Posting> sorted = (NavigableMap<Object, Posting>) index.postings;
+        lock.readLock().lock();
+        try {
+            NavigableMap<Object, Posting> view = from == null && to == null ? sorted
+                    : from == null ? sorted.headMap(to, true)
+                    : to == null ? sorted.tailMap(from, true)
+                    : sorted.subMap((Comparable) from, true, (Comparable) to, true);
+            List<V> result = new ArrayList<>();
+            for (Posting posting : view.values()) {
+                result.addAll(collect(posting));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 统计索引中某个值对应的记录数，不复制记录
+     */
+    public int countBy(String indexName, Object value) {
+        checkReady();
+        Index index = index(indexName);
+        lock.readLock().lock();
+        try {
+            Posting posting = index.postings.get(value);
+            return posting == null ? 0 : posting.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取记录数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * 写入记录，主键已存在时替换
+     */
+    public void put(V row) {
+        Object key = Objects.requireNonNull(keyExtractor.apply(row), "读模型记录的主键不能为空");
+        lock.writeLock().lock();
+        try {
+            Integer existing = slotsByKey.get(key);
+            int slot;
+            if (existing != null) {
+                slot = existing;
+                unindex(slot);
+                rowBytes -= estimateRow(rows[slot]);
+            } else {
+                slot = allocate();
+                slotsByKey.put(key, slot);
+            }
+            rows[slot] = row;
+            rowBytes += estimateRow(row);
+            Object[] keys = new Object[indexes.length];
+            int[] positions = new int[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                keys[i] = indexes[i].extractor.apply(row);
+                if (keys[i] != null) {
+                    positions[i] = addPosting(indexes[i], keys[i], slot);
+                }
+            }
+            indexKeys[slot] = keys;
+            postingPositions[slot] = positions;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按主键删除记录
+     *
+     * @return 记录是否存在
+     */
+    public boolean remove(Object key) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsByKey.remove(key);
+            if (slot == null) {
+                return false;
+            }
+            unindex(slot);
+            rowBytes -= estimateRow(rows[slot]);
+            rows[slot] = null;
+            indexKeys[slot] = null;
+            postingPositions[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 清空所有记录
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slotsByKey.clear();
+            for (Index index : indexes) {
+                index.postings.clear();
+            }
+            rows = new Object[64];
+            indexKeys = new Object[64][];
+            postingPositions = new int[64][];
+            freeCount = 0;
+            nextSlot = 0;
+            postingBytes = 0;
+            rowBytes = 0;
+            position = EventPosition.START;
+            appliedEvents = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * 应用一个已发布的事件，重建期间的事件暂存到重建完成后应用
+     */
+    void accept(DomainEvent event) {
+        synchronized (pendingEvents) {
+            if (rebuilding) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+
+    /**
+     * 是否声明了该事件的处理方式
+     */
+    boolean handles(Class<?> eventType) {
+        return !handlers(eventType).isEmpty();
+    }
+
+    /**
+     * 开始重建，之后收到的事件暂存到重建完成
+     *
+     * @param overlapFrom 发生时间不早于该时间的重放事件记录事件ID，用于和暂存的事件去重
+     */
+    void beginRebuild(OffsetDateTime overlapFrom) {
+        synchronized (pendingEvents) {
+            rebuilding = true;
+        }
+        clear();
+        this.overlapFrom = overlapFrom;
+        this.replayedIds = new HashSet<>();
+    }
+
+    /**
+     * 记录重建结果，重建失败时拒绝查询，重建成功后恢复
+     *
+     * @param failure 失败原因，为null表示重建成功
+     */
+    void rebuildCompleted(String failure) {
+        this.rebuildFailure = failure;
+    }
+
+    /**
+     * 重放一个从事件存储读取的历史事件
+     */
+    void replay(DomainEvent event) {
+        apply(event);
+        if (!event.getOccurredOn().isBefore(overlapFrom)) {
+            replayedIds.add(event.getEventId());
+        }
+    }
+
+    /**
+     * 结束重建，应用重建期间暂存的、没有被重放过的事件
+     * <p>
+     * 按事件ID而不是位置去重：发生时间较早但提交较晚的事件可能没有被重放，却在重建期间被发布
+     */
+    void finishRebuild() {
+        while (true) {
+            List<DomainEvent> pending;
+            synchronized (pendingEvents) {
+                if (pendingEvents.isEmpty()) {
+                    rebuilding = false;
+                    replayedIds = null;
+                    return;
+                }
+                pending = new ArrayList<>(pendingEvents);
+                pendingEvents.clear();
+            }
+            for (DomainEvent event : pending) {
+                if (!replayedIds.contains(event.getEventId())) {
+                    apply(event);
+                }
+            }
+        }
+    }
+
+    void apply(DomainEvent event) {
+        List<BiConsumer<ReadModelStore<V>, DomainEvent>> handlers = handlers(event.getClass());
+        if (handlers.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (BiConsumer<ReadModelStore<V>, DomainEvent> handler : handlers) {
+                handler.accept(this, event);
+            }
+            EventPosition eventPosition = EventPosition.of(event);
+            if (eventPosition.compareTo(position) > 0) {
+                position = eventPosition;
+            }
+            appliedEvents++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<BiConsumer<ReadModelStore<V>, DomainEvent>> handlers(Class<?> eventType) {
+        return resolvedHandlers.computeIfAbsent(eventType, type -> eventHandlers.entrySet().stream()
+                .filter(entry -> entry.getKey().isAssignableFrom(type))
+                .map(Map.Entry::getValue)
+                .toList());
+    }
+
+
+    /**
+     * 估算内存占用
+     * <p>
+     * 索引和槽位表按对象布局估算；记录本身的大小只有在构建时提供了估算函数时才计入。
+     * 估算值在写入时增量维护，报告本身只读取计数器
+     */
+    public ReadModelMemoryReport memoryReport() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> distinctValues = new LinkedHashMap<>();
+            for (Index index : indexes) {
+                distinctValues.put(index.name, index.postings.size());
+            }
+            return new ReadModelMemoryReport(name, slotsByKey.size(), rows.length, distinctValues,
+                    storageBytes(), indexBytes(), rowSizeEstimator == null ? -1 : rowBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 估算的总字节数，与{@link ReadModelMemoryReport#totalBytes()}一致，不创建报告对象
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return storageBytes() + indexBytes() + rowBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long storageBytes() {
+        // 槽位表：记录引用、索引值数组引用和倒排位置数组引用，各8字节；主键映射：HashMap.Node约32字节 + Integer 16字节 + 桶引用
+        return 24L * rows.length + 4L * freeSlots.length + 56L * slotsByKey.size();
+    }
+
+    private long indexBytes() {
+        if (indexes.length == 0) {
+            return 0;
+        }
+        // 倒排 + 每条记录保存的索引值数组和倒排位置数组
+        return postingBytes + (32L + 12L * indexes.length) * slotsByKey.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRebuildOnStartup() {
+        return rebuildOnStartup;
+    }
+
+    /**
+     * 获取最后应用的事件位置
+     */
+    public EventPosition getPosition() {
+        return position;
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents;
+    }
+
+    /**
+     * 是否可以查询，最近一次重建失败时不可查询
+     */
+    public boolean isReady() {
+        return rebuildFailure == null;
+    }
+
+
+    private void checkReady() {
+        String failure = rebuildFailure;
+        if (failure != null) {
+            throw new IllegalStateException("读模型 " + name + " 重建失败，只包含部分数据，重新重建成功前不可查询: " + failure);
+        }
+    }
+
+    private Index index(String indexName) {
+        Index index = indexesByName.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("读模型 " + name + " 没有索引: " + indexName);
+        }
+        return index;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+            indexKeys = Arrays.copyOf(indexKeys, indexKeys.length * 2);
+            postingPositions = Arrays.copyOf(postingPositions, postingPositions.length * 2);
+        }
+        return nextSlot++;
+    }
+
+    private void unindex(int slot) {
+        Object[] keys = indexKeys[slot];
+        if (keys == null) {
+            return;
+        }
+        int[] positions = postingPositions[slot];
+        for (int i = 0; i < indexes.length; i++) {
+            if (keys[i] != null) {
+                removePosting(i, keys[i], positions[i]);
+            }
+        }
+    }
+
+    /**
+     * 把槽位追加到字段值的倒排末尾
+     *
+     * @return 槽位在倒排中的位置
+     */
+    private int addPosting(Index index, Object value, int slot) {
+        Posting posting = index.postings.get(value);
+        if (posting == null) {
+            posting = new Posting();
+            index.postings.put(value, posting);
+            postingBytes += POSTING_OVERHEAD + 4L * posting.slots.length;
+        }
+        if (posting.size == posting.slots.length) {
+            postingBytes += 4L * posting.slots.length;
+            posting.slots = Arrays.copyOf(posting.slots, posting.slots.length * 2);
+        }
+        posting.slots[posting.size] = slot;
+        return posting.size++;
+    }
+
+    /**
+     * 从倒排中删除指定位置的槽位，用倒排末尾的槽位填补并更新它记录的位置
+     */
+    private void removePosting(int indexNo, Object value, int position) {
+        Map<Object, Posting> postings = indexes[indexNo].postings;
+        Posting posting = postings.get(value);
+        int last = posting.slots[--posting.size];
+        if (position != posting.size) {
+            posting.slots[position] = last;
+            postingPositions[last][indexNo] = position;
+        }
+        if (posting.size == 0) {
+            postings.remove(value);
+            postingBytes -= POSTING_OVERHEAD + 4L * posting.slots.length;
+        }
+    }
+
+    private long estimateRow(Object row) {
+        return rowSizeEstimator == null || row == null ? 0 : rowSizeEstimator.applyAsLong(cast(row));
+    }
+
+    private List<V> collect(Posting posting) {
+        List<V> result = new ArrayList<>(posting.size);
+        for (int i = 0; i < posting.size; i++) {
+            result.add(cast(rows[posting.slots[i]]));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V cast(Object row) {
+        return (V) row;
+    }
+
+    /**
+     * 一个字段值对应的槽位，前size个元素有效
+     */
+    private static final class Posting {
+
+        private int[] slots = new int[2];
+        private int size;
+    }
+
+    /**
+     * 索引定义
+     */
+    private static final class Index {
+
+        private final String name;
+        private final Function<Object, ?> extractor;
+        private final Map<Object, Posting> postings;
+
+        @SuppressWarnings("unchecked")
+        Index(String name, Function<?, ?> extractor, boolean sorted) {
+            this.name = name;
+            this.extractor = (Function<Object, ?>) extractor;
+            this.postings = sorted ? new TreeMap<>() : new HashMap<>();
+        }
+    }
+
+    /**
+     * 读模型存储构建器
+     *
+     * @param <V> 记录类型
+     */
+    public static final class Builder<V> {
+
+        private final String name;
+        private final Function<V, ?> keyExtractor;
+        private final List<Index> indexes = new ArrayList<>();
+        private ToLongFunction<V> rowSizeEstimator;
+        private boolean rebuildOnStartup = true;
+
+        private Builder(String name, Function<V, ?> keyExtractor) {
+            this.name = Objects.requireNonNull(name);
+            this.keyExtractor = Objects.requireNonNull(keyExtractor);
+        }
+
+        /**
+         * 添加哈希索引，用于等值查询
+         *
+         * @param indexName 索引名称
+         * @param extractor 字段提取函数，返回null的记录不进入索引
+         */
+        public Builder<V> hashIndex(String indexName, Function<V, ?> extractor) {
+            indexes.add(new Index(indexName, extractor, false));
+            return this;
+        }
+
+        /**
+         * 添加有序索引，用于等值查询、范围查询和有序遍历
+         *
+         * @param indexName 索引名称
+         * @param extractor 字段提取函数，返回null的记录不进入索引
+         */
+        public <C extends Comparable<? super C>> Builder<V> sortedIndex(String indexName, Function<V, C> extractor) {
+            indexes.add(new Index(indexName, extractor, true));
+            return this;
+        }
+
+        /**
+         * 设置单条记录的内存估算函数，用于内存报告
+         */
+        public Builder<V> rowSizeEstimator(ToLongFunction<V> rowSizeEstimator) {
+            this.rowSizeEstimator = rowSizeEstimator;
+            return this;
+        }
+
+        /**
+         * 设置启动时是否从事件存储重建，默认重建
+         */
+        public Builder<V> rebuildOnStartup(boolean rebuildOnStartup) {
+            this.rebuildOnStartup = rebuildOnStartup;
+            return this;
+        }
+
+        public ReadModelStore<V> build() {
+            Set<String> names = new HashSet<>();
+            for (Index index : indexes) {
+                if (!names.add(index.name)) {
+                    throw new IllegalArgumentException("重复的索引名称: " + index.name);
+                }
+            }
+            return new ReadModelStore<>(this);
+        }
+    }
+}
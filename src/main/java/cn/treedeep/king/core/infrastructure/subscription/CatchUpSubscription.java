@@ -0,0 +1,233 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventFilter;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.EventPosition;
+import cn.treedeep.king.core.infrastructure.eventbus.HandlerRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 追赶订阅
+ * <p>
+ * 一个订阅对应一组处理器和一个检查点，通常对应一个读模型。
+ * 订阅从检查点之后按全局顺序读取事件存储，读完历史事件后自动切换为实时模式，
+ * 积压再次超过一批时切换回追赶模式。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * subscriptionRunner.register("order-summary")
+ *         .subscribe(OrderCreatedEvent.class.getName(), orderSummaryProjector)
+ *         .subscribe(OrderPaidEvent.class.getName(), orderSummaryProjector)
+ *         .onReset(orderSummaryRepository::deleteAllInBatch)
+ *         .partitions(8);
+ * }
+ * </pre>
+ */
+public class CatchUpSubscription {
+
+    /**
+     * 订阅模式
+     */
+    public enum Mode {
+        /**
+         * 追赶模式 - 连续读取整批历史事件，不等待轮询间隔
+         */
+        CATCH_UP,
+        /**
+         * 实时模式 - 已追上事件流末尾，按轮询间隔读取新事件
+         */
+        LIVE
+    }
+
+    /**
+     * 没有检查点时的起始位置
+     */
+    public enum StartFrom {
+        /**
+         * 从第一个事件开始，用于构建完整的读模型
+         */
+        BEGINNING,
+        /**
+         * 从注册时刻开始，只处理之后发生的事件
+         */
+        LATEST
+    }
+
+    private final String id;
+    private final StartFrom startFrom;
+    private final HandlerRegistry registry = new HandlerRegistry();
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final Map<String, Integer> failedAttempts = new ConcurrentHashMap<>();
+
+    private volatile Runnable resetAction = () -> {
+    };
+    private volatile boolean resetRequested;
+    private volatile boolean loaded;
+    private volatile EventPosition position = EventPosition.START;
+    private volatile Mode mode = Mode.CATCH_UP;
+    private volatile long processedEvents;
+    private volatile int partitions;
+    private PartitionedEventProcessor processor;
+
+    CatchUpSubscription(String id, StartFrom startFrom, int partitions) {
+        this.id = id;
+        this.startFrom = startFrom;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    /**
+     * 订阅事件类型，同样匹配其子类事件
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     * @return 当前订阅
+     */
+    public CatchUpSubscription subscribe(String eventType, EventHandler<?> handler) {
+        registry.subscribe(eventType, handler);
+        return this;
+    }
+
+    /**
+     * 按条件订阅事件类型
+     * <p>
+     * 事件头不随事件持久化，从事件存储读取的事件只能按聚合根类型过滤
+     *
+     * @param eventType 事件类型的完全限定名
+     * @param handler   事件处理器
+     * @param filter    过滤条件
+     * @return 当前订阅
+     */
+    public CatchUpSubscription subscribe(String eventType, EventHandler<?> handler, EventFilter filter) {
+        registry.subscribe(eventType, handler, filter);
+        return this;
+    }
+
+    /**
+     * 设置重建前执行的清理动作，通常用于清空读模型
+     *
+     * @param action 清理动作
+     * @return 当前订阅
+     */
+    public CatchUpSubscription onReset(Runnable action) {
+        this.resetAction = action;
+        return this;
+    }
+
+    /**
+     * 设置分区数
+     * <p>
+     * 大于1时每批事件按聚合根分区并行处理，同一聚合根的事件保持有序。
+     * 运行中修改会在当前批处理完成后生效
+     *
+     * @param partitions 分区数
+     * @return 当前订阅
+     */
+    public CatchUpSubscription partitions(int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.partitions = partitions;
+        return this;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public StartFrom getStartFrom() {
+        return startFrom;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public EventPosition getPosition() {
+        return position;
+    }
+
+    public long getProcessedEvents() {
+        return processedEvents;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    EventHandler<?>[] handlers(DomainEvent event) {
+        return registry.route(event);
+    }
+
+    boolean tryBeginPoll() {
+        return polling.compareAndSet(false, true);
+    }
+
+    void endPoll() {
+        polling.set(false);
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    void load(EventPosition position, long processedEvents) {
+        this.failedAttempts.clear();
+        this.position = position;
+        this.processedEvents = processedEvents;
+        this.loaded = true;
+    }
+
+    void advance(EventPosition position, int count) {
+        this.position = position;
+        this.processedEvents += count;
+    }
+
+    /**
+     * 记录事件处理失败一次
+     *
+     * @return 该事件累计失败的次数
+     */
+    int recordFailure(DomainEvent event) {
+        return failedAttempts.merge(event.getEventId(), 1, Integer::sum);
+    }
+
+    /**
+     * 事件处理成功或已停放后清除失败次数
+     */
+    void clearFailures(DomainEvent event) {
+        failedAttempts.remove(event.getEventId());
+    }
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    void requestReset() {
+        this.resetRequested = true;
+    }
+
+    boolean consumeResetRequest() {
+        if (!resetRequested) {
+            return false;
+        }
+        resetRequested = false;
+        return true;
+    }
+
+    Runnable getResetAction() {
+        return resetAction;
+    }
+
+    PartitionedEventProcessor getProcessor() {
+        return processor;
+    }
+
+    void setProcessor(PartitionedEventProcessor processor) {
+        this.processor = processor;
+    }
+}
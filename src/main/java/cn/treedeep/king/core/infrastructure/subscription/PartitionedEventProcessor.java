@@ -0,0 +1,226 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 按聚合根分区的并行事件处理器
+ * <p>
+ * 按{@link DomainEvent#getAggregateId()}的哈希把事件分配到N个分区：
+ * <ul>
+ * <li>分区内有序 - 同一聚合根的事件总是落在同一分区，按提交顺序串行处理</li>
+ * <li>分区间并行 - 各分区同时处理，任意时刻每个分区最多占用一个线程</li>
+ * <li>分区指标 - 每个分区的积压事件数、最早积压事件在分区队列中的等待时间，
+ * 以及最早积压事件距其发生时间的延迟</li>
+ * <li>平滑调整 - {@link #rebalance}暂停提交，等待所有分区排空后再切换分区数，
+ * 因此调整前后同一聚合根的事件不会并发处理，也不会乱序</li>
+ * </ul>
+ */
+@Slf4j
+public class PartitionedEventProcessor implements AutoCloseable {
+
+    private final String name;
+    private final MeterRegistry registry;
+    private final ExecutorService executor;
+    private final ReadWriteLock rebalanceLock = new ReentrantReadWriteLock();
+    private final List<Gauge> gauges = new ArrayList<>();
+
+    private volatile Partition[] partitions;
+
+    /**
+     * 构造分区处理器
+     *
+     * @param name       处理器名称，用于线程名和指标标签
+     * @param partitions 分区数
+     * @param registry   指标注册表
+     */
+    public PartitionedEventProcessor(String name, int partitions, MeterRegistry registry) {
+        this.name = name;
+        this.registry = registry;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "projection-" + name + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.partitions = createPartitions(partitions);
+    }
+
+    /**
+     * 当前分区数
+     */
+    public int getPartitions() {
+        return partitions.length;
+    }
+
+    /**
+     * 提交一批事件，按分区并行处理
+     *
+     * @param events 按全局顺序排列的事件
+     * @param action 事件处理动作，抛出异常时对应的Future以异常结束，同分区的后续事件照常处理
+     * @return 所有事件处理完成后结束的Future
+     */
+    public CompletableFuture<Void> processAll(List<DomainEvent> events, Consumer<DomainEvent> action) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[events.size()];
+        rebalanceLock.readLock().lock();
+        try {
+            Partition[] current = partitions;
+            for (int i = 0; i < events.size(); i++) {
+                DomainEvent event = events.get(i);
+                futures[i] = current[partitionOf(event, current.length)].submit(event, action);
+            }
+        } finally {
+            rebalanceLock.readLock().unlock();
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 调整分区数
+     * <p>
+     * 调整期间新的提交会等待，已提交的事件全部处理完成后才切换到新的分区
+     *
+     * @param newPartitions 新的分区数
+     */
+    public void rebalance(int newPartitions) {
+        if (newPartitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + newPartitions);
+        }
+        rebalanceLock.writeLock().lock();
+        try {
+            Partition[] current = partitions;
+            if (current.length == newPartitions) {
+                return;
+            }
+            CompletableFuture<?>[] drained = new CompletableFuture<?>[current.length];
+            for (int i = 0; i < current.length; i++) {
+                drained[i] = current[i].idle();
+            }
+            CompletableFuture.allOf(drained).join();
+
+            partitions = createPartitions(newPartitions);
+            log.info("分区处理器已调整分区数: processor={}, partitions={} -> {}", name, current.length, newPartitions);
+        } finally {
+            rebalanceLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        gauges.forEach(registry::remove);
+        executor.shutdown();
+    }
+
+    private static int partitionOf(DomainEvent event, int count) {
+        Object key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+        return Math.floorMod(key.hashCode(), count);
+    }
+
+    private Partition[] createPartitions(int count) {
+        gauges.forEach(registry::remove);
+        gauges.clear();
+
+        Partition[] created = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            Partition partition = new Partition();
+            created[i] = partition;
+            String index = String.valueOf(i);
+            gauges.add(Gauge.builder("projection.partition.pending", partition, p -> p.pending.get())
+                    .description("分区积压的事件数")
+                    .tag("processor", name)
+                    .tag("partition", index)
+                    .register(registry));
+            gauges.add(Gauge.builder("projection.partition.wait", partition, Partition::waitSeconds)
+                    .description("分区中最早积压事件在队列中的等待秒数")
+                    .tag("processor", name)
+                    .tag("partition", index)
+                    .register(registry));
+            gauges.add(Gauge.builder("projection.partition.lag", partition, Partition::lagSeconds)
+                    .description("分区中最早积压事件距其发生时间的秒数，分区空闲时为0")
+                    .tag("processor", name)
+                    .tag("partition", index)
+                    .register(registry));
+        }
+        return created;
+    }
+
+    /**
+     * 分区，按提交顺序串行执行任务
+     */
+    private final class Partition implements Runnable {
+
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicLong headSubmittedAt = new AtomicLong();
+        private volatile DomainEvent head;
+        private volatile CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Void> submit(DomainEvent event, Consumer<DomainEvent> action) {
+            Task task = new Task(event, action, System.nanoTime());
+            last = task.future;
+            tasks.add(task);
+            if (pending.getAndIncrement() == 0) {
+                headSubmittedAt.set(task.submittedAt);
+                head = event;
+                executor.execute(this);
+            }
+            return task.future;
+        }
+
+        /**
+         * 最后提交的任务完成时结束，调用方需保证期间没有新的提交
+         */
+        CompletableFuture<Void> idle() {
+            return last.handle((v, e) -> null);
+        }
+
+        double waitSeconds() {
+            return pending.get() == 0 ? 0.0 : (System.nanoTime() - headSubmittedAt.get()) / 1_000_000_000.0;
+        }
+
+        double lagSeconds() {
+            DomainEvent event = head;
+            if (pending.get() == 0 || event == null || event.getOccurredOn() == null) {
+                return 0.0;
+            }
+            return Math.max(0L, Duration.between(event.getOccurredOn(), DateTimeUtil.now()).toMillis()) / 1000.0;
+        }
+
+        @Override
+        public void run() {
+            do {
+                Task task = tasks.poll();
+                headSubmittedAt.set(task.submittedAt);
+                head = task.event;
+                try {
+                    task.action.accept(task.event);
+                    task.future.complete(null);
+                } catch (Throwable e) {
+                    task.future.completeExceptionally(e);
+                }
+            } while (pending.decrementAndGet() != 0);
+        }
+    }
+
+    private record Task(DomainEvent event, Consumer<DomainEvent> action, long submittedAt,
+                        CompletableFuture<Void> future) {
+
+        Task(DomainEvent event, Consumer<DomainEvent> action, long submittedAt) {
+            this(event, action, submittedAt, new CompletableFuture<>());
+        }
+    }
+}
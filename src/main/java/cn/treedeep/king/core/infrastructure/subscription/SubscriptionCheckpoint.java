@@ -0,0 +1,69 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Comment;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 订阅检查点实体
+ * <p>
+ * 记录每个追赶订阅最后处理完成的事件位置，重启后从该位置之后继续处理
+ */
+@Data
+@Entity
+@Table(name = "event_subscription_checkpoint")
+@Comment("事件订阅检查点表")
+public class SubscriptionCheckpoint {
+
+    /**
+     * 订阅ID
+     */
+    @Id
+    @Column(name = "subscription_id", length = 128)
+    @Comment("订阅ID")
+    private String subscriptionId;
+
+    /**
+     * 最后处理事件的发生时间
+     */
+    @Column(name = "position_occurred_on")
+    @Comment("最后处理事件的发生时间")
+    private OffsetDateTime positionOccurredOn;
+
+    /**
+     * 最后处理事件的聚合根ID，旧版本保存的检查点为null
+     */
+    @Column(name = "position_aggregate_id")
+    @Comment("最后处理事件的聚合根ID")
+    private String positionAggregateId;
+
+    /**
+     * 最后处理事件的聚合根版本号，旧版本保存的检查点为null
+     */
+    @Column(name = "position_aggregate_version")
+    @Comment("最后处理事件的聚合根版本号")
+    private Long positionAggregateVersion;
+
+    /**
+     * 最后处理事件的ID
+     */
+    @Column(name = "position_event_id")
+    @Comment("最后处理事件的ID")
+    private String positionEventId;
+
+    /**
+     * 累计处理的事件数
+     */
+    @Column(name = "processed_events")
+    @Comment("累计处理的事件数")
+    private long processedEvents;
+
+    /**
+     * 更新时间
+     */
+    @Column(name = "updated_at")
+    @Comment("更新时间")
+    private OffsetDateTime updatedAt;
+}
@@ -0,0 +1,11 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 订阅检查点仓储接口
+ */
+@Repository
+public interface SubscriptionCheckpointRepository extends JpaRepository<SubscriptionCheckpoint, String> {
+}
@@ -0,0 +1,402 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.EventPosition;
+import cn.treedeep.king.core.domain.EventStore;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.core.domain.event.HandlerInvocation;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import cn.treedeep.king.shared.utils.DateTimeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * 追赶订阅运行器
+ * <p>
+ * 为每个{@link CatchUpSubscription}定时从事件存储按全局顺序批量读取事件并交给处理器：
+ * <ul>
+ * <li>检查点 - 每批处理完成后在独立事务中保存最后处理的位置，重启后从检查点继续</li>
+ * <li>追赶与实时 - 读到整批事件时立即读取下一批；不足一批时切换为实时模式，按轮询间隔读取</li>
+ * <li>稳定窗口 - 只读取发生时间早于"当前时间 - 稳定窗口"的事件，
+ * 避免晚提交但发生时间更早的事件被跳过，稳定窗口应大于最长的命令事务耗时</li>
+ * <li>重建 - {@link #rebuild}清除检查点并执行订阅的清理动作后从头重新处理</li>
+ * <li>失败处理 - 停在失败的事件上，下个轮询周期重试；配置了死信队列时，
+ * 事件连续失败{@code maxAttempts}次后停放到死信队列并继续</li>
+ * <li>分区处理 - 订阅的分区数大于1时，每批事件交给{@link PartitionedEventProcessor}按聚合根分区并行处理，
+ * 整批完成后检查点推进到最早失败的事件之前；分区数的调整在两批之间进行</li>
+ * </ul>
+ * 投递语义为至少一次，处理器需要保证幂等。
+ */
+@Slf4j
+public class SubscriptionRunner implements SmartLifecycle {
+
+    private final EventStore eventStore;
+    private final SubscriptionCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EventStoreProperties.SubscriptionProperties properties;
+    private final MeterRegistry registry;
+    private final Map<String, CatchUpSubscription> subscriptions = new ConcurrentHashMap<>();
+
+    private DeadLetterQueue deadLetterQueue;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public SubscriptionRunner(EventStore eventStore,
+                              SubscriptionCheckpointRepository checkpointRepository,
+                              PlatformTransactionManager transactionManager,
+                              EventStoreProperties.SubscriptionProperties properties,
+                              MeterRegistry registry) {
+        this.eventStore = eventStore;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * 设置死信队列
+     *
+     * @param deadLetterQueue 死信队列，为null时失败的事件会阻塞订阅直到处理成功，
+     *                        否则连续失败{@code maxAttempts}次后停放
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    /**
+     * 注册从头开始的订阅
+     *
+     * @param subscriptionId 订阅ID，同时作为检查点的主键
+     * @return 新注册的订阅，用于继续添加处理器
+     */
+    public CatchUpSubscription register(String subscriptionId) {
+        return register(subscriptionId, CatchUpSubscription.StartFrom.BEGINNING);
+    }
+
+    /**
+     * 注册订阅
+     *
+     * @param subscriptionId 订阅ID，同时作为检查点的主键
+     * @param startFrom      没有检查点时的起始位置
+     * @return 新注册的订阅，用于继续添加处理器
+     * @throws IllegalStateException 订阅ID已被注册
+     */
+    public CatchUpSubscription register(String subscriptionId, CatchUpSubscription.StartFrom startFrom) {
+        CatchUpSubscription subscription = new CatchUpSubscription(subscriptionId, startFrom, properties.getPartitions());
+        if (subscriptions.putIfAbsent(subscriptionId, subscription) != null) {
+            throw new IllegalStateException("Subscription already registered: " + subscriptionId);
+        }
+
+        Gauge.builder("subscription.mode", subscription, s -> s.getMode() == CatchUpSubscription.Mode.LIVE ? 1 : 0)
+                .description("订阅模式，1为实时模式，0为追赶模式")
+                .tag("subscription", subscriptionId)
+                .register(registry);
+        Gauge.builder("subscription.position.age", subscription,
+                        s -> Duration.between(s.getPosition().occurredOn(), DateTimeUtil.now()).toMillis() / 1000.0)
+                .description("最后处理的事件距今的秒数")
+                .tag("subscription", subscriptionId)
+                .register(registry);
+
+        log.info("注册追赶订阅: subscription={}, startFrom={}", subscriptionId, startFrom);
+        if (running) {
+            schedule(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * 重建订阅
+     * <p>
+     * 在订阅的轮询线程中执行：清除检查点、执行清理动作，然后从第一个事件开始重新处理
+     *
+     * @param subscriptionId 订阅ID
+     */
+    public void rebuild(String subscriptionId) {
+        CatchUpSubscription subscription = subscriptions.get(subscriptionId);
+        if (subscription == null) {
+            throw new IllegalArgumentException("Subscription not found: " + subscriptionId);
+        }
+        subscription.requestReset();
+        if (running) {
+            scheduler.execute(() -> poll(subscription));
+        }
+    }
+
+    /**
+     * 获取所有已注册的订阅
+     */
+    public Collection<CatchUpSubscription> getSubscriptions() {
+        return List.copyOf(subscriptions.values());
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, properties.getThreads()), r -> {
+            Thread thread = new Thread(r, "event-subscription");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        subscriptions.values().forEach(this::schedule);
+        log.info("追赶订阅运行器已启动，订阅数: {}，批大小: {}，轮询间隔: {}ms，稳定窗口: {}ms",
+                subscriptions.size(), properties.getBatchSize(), properties.getPollInterval(), properties.getSettleTime());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scheduler.shutdownNow();
+            }
+        }
+        subscriptions.values().forEach(this::closeProcessor);
+        log.info("追赶订阅运行器已停止");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void schedule(CatchUpSubscription subscription) {
+        scheduler.scheduleWithFixedDelay(() -> poll(subscription),
+                0, properties.getPollInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 处理订阅积压的事件
+     * <p>
+     * 同一订阅同一时刻只有一个线程在处理，重叠的调度直接返回
+     */
+    void poll(CatchUpSubscription subscription) {
+        if (!subscription.tryBeginPoll()) {
+            return;
+        }
+        try {
+            if (!subscription.isLoaded()) {
+                loadCheckpoint(subscription);
+            }
+            if (subscription.consumeResetRequest()) {
+                reset(subscription);
+            }
+
+            int batchSize = properties.getBatchSize();
+            while (running) {
+                OffsetDateTime upTo = DateTimeUtil.now().minus(Duration.ofMillis(properties.getSettleTime()));
+                List<DomainEvent> batch = eventStore.readAllEvents(subscription.getPosition(), upTo, batchSize);
+
+                int processed = process(subscription, batch);
+                if (processed > 0) {
+                    saveCheckpoint(subscription, EventPosition.of(batch.get(processed - 1)), processed);
+                }
+                if (processed < batch.size()) {
+                    // 处理失败，停在失败的事件上等待下个轮询周期
+                    break;
+                }
+
+                if (batch.size() < batchSize) {
+                    switchMode(subscription, CatchUpSubscription.Mode.LIVE);
+                    break;
+                }
+                switchMode(subscription, CatchUpSubscription.Mode.CATCH_UP);
+            }
+        } catch (Exception e) {
+            log.error("追赶订阅处理失败: subscription={}, error={}", subscription.getId(), e.getMessage(), e);
+        } finally {
+            subscription.endPoll();
+        }
+    }
+
+    /**
+     * 处理一批事件
+     *
+     * @return 处理完成的事件数，小于批大小表示在某个事件上失败
+     */
+    private int process(CatchUpSubscription subscription, List<DomainEvent> batch) {
+        int processed = subscription.getPartitions() > 1
+                ? processPartitioned(subscription, batch)
+                : processSequential(subscription, batch);
+
+        if (processed > 0) {
+            Counter.builder("subscription.events.processed")
+                    .description("追赶订阅处理的事件数")
+                    .tag("subscription", subscription.getId())
+                    .register(registry)
+                    .increment(processed);
+        }
+        return processed;
+    }
+
+    private int processSequential(CatchUpSubscription subscription, List<DomainEvent> batch) {
+        if (subscription.getProcessor() != null) {
+            closeProcessor(subscription);
+            log.info("追赶订阅切换为顺序处理: subscription={}", subscription.getId());
+        }
+        int[] processed = new int[1];
+        HandlerInvocation.runManaged(() -> {
+            for (DomainEvent event : batch) {
+                if (!handle(subscription, event)) {
+                    return;
+                }
+                processed[0]++;
+            }
+        });
+        return processed[0];
+    }
+
+    /**
+     * 按聚合根分区并行处理一批事件
+     * <p>
+     * 整批完成后返回最早失败事件之前的事件数，检查点推进到该事件之前，之后成功的事件在下个轮询周期重新处理。
+     * 同一聚合根在失败事件之后的事件本批内跳过，保证重试时仍按顺序处理
+     */
+    private int processPartitioned(CatchUpSubscription subscription, List<DomainEvent> batch) {
+        PartitionedEventProcessor processor = subscription.getProcessor();
+        if (processor == null) {
+            processor = new PartitionedEventProcessor(subscription.getId(), subscription.getPartitions(), registry);
+            subscription.setProcessor(processor);
+        } else if (processor.getPartitions() != subscription.getPartitions()) {
+            processor.rebalance(subscription.getPartitions());
+        }
+
+        Set<Object> failedAggregates = ConcurrentHashMap.newKeySet();
+        Set<DomainEvent> failedEvents = ConcurrentHashMap.newKeySet();
+        processor.processAll(batch, event -> {
+            Object key = event.getAggregateId() != null ? event.getAggregateId() : event.getEventId();
+            if (failedAggregates.contains(key)) {
+                failedEvents.add(event);
+                return;
+            }
+            try {
+                HandlerInvocation.runManaged(() -> {
+                    if (!handle(subscription, event)) {
+                        failedAggregates.add(key);
+                        failedEvents.add(event);
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                log.error("追赶订阅分区处理失败: subscription={}, eventId={}, error={}",
+                        subscription.getId(), event.getEventId(), e.getMessage(), e);
+                failedAggregates.add(key);
+                failedEvents.add(event);
+            }
+        }).join();
+
+        if (failedEvents.isEmpty()) {
+            return batch.size();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (failedEvents.contains(batch.get(i))) {
+                return i;
+            }
+        }
+        return batch.size();
+    }
+
+    /**
+     * 将事件交给订阅的所有处理器
+     *
+     * @return 是否可以继续处理后续事件，事件处理失败且未停放到死信队列时返回false
+     */
+    @SuppressWarnings("unchecked")
+    private boolean handle(CatchUpSubscription subscription, DomainEvent event) {
+        for (EventHandler<?> handler : subscription.handlers(event)) {
+            try {
+                ((EventHandler<DomainEvent>) handler).handle(event);
+            } catch (Exception e) {
+                int attempts = subscription.recordFailure(event);
+                if (deadLetterQueue == null || attempts < properties.getMaxAttempts()) {
+                    log.error("追赶订阅事件处理失败，将在下个轮询周期重试: subscription={}, eventType={}, eventId={}, attempts={}, error={}",
+                            subscription.getId(), event.getClass().getSimpleName(), event.getEventId(), attempts, e.getMessage(), e);
+                    return false;
+                }
+                log.warn("追赶订阅事件处理失败，已停放到死信队列: subscription={}, eventType={}, eventId={}, attempts={}, error={}",
+                        subscription.getId(), event.getClass().getSimpleName(), event.getEventId(), attempts, e.getMessage());
+                deadLetterQueue.park(event, handler, e, attempts);
+            }
+        }
+        subscription.clearFailures(event);
+        return true;
+    }
+
+    private void closeProcessor(CatchUpSubscription subscription) {
+        if (subscription.getProcessor() != null) {
+            subscription.getProcessor().close();
+            subscription.setProcessor(null);
+        }
+    }
+
+    private void loadCheckpoint(CatchUpSubscription subscription) {
+        SubscriptionCheckpoint checkpoint = checkpointRepository.findById(subscription.getId()).orElse(null);
+        if (checkpoint != null) {
+            // 旧版本的检查点没有聚合根ID和版本号，与检查点同一时间发生的聚合根事件会被重新处理一次
+            subscription.load(new EventPosition(checkpoint.getPositionOccurredOn(),
+                            checkpoint.getPositionAggregateId(),
+                            EventPosition.version(checkpoint.getPositionAggregateVersion()),
+                            checkpoint.getPositionEventId()),
+                    checkpoint.getProcessedEvents());
+            log.info("追赶订阅从检查点继续: subscription={}, position={}", subscription.getId(), subscription.getPosition());
+        } else if (subscription.getStartFrom() == CatchUpSubscription.StartFrom.LATEST) {
+            subscription.load(EventPosition.at(DateTimeUtil.now()), 0L);
+        } else {
+            subscription.load(EventPosition.START, 0L);
+        }
+    }
+
+    private void reset(CatchUpSubscription subscription) {
+        log.info("开始重建追赶订阅: subscription={}", subscription.getId());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (checkpointRepository.existsById(subscription.getId())) {
+                checkpointRepository.deleteById(subscription.getId());
+            }
+        });
+        subscription.getResetAction().run();
+        subscription.load(EventPosition.START, 0L);
+        switchMode(subscription, CatchUpSubscription.Mode.CATCH_UP);
+    }
+
+    private void saveCheckpoint(CatchUpSubscription subscription, EventPosition position, int count) {
+        subscription.advance(position, count);
+        transactionTemplate.executeWithoutResult(status -> {
+            SubscriptionCheckpoint checkpoint = new SubscriptionCheckpoint();
+            checkpoint.setSubscriptionId(subscription.getId());
+            checkpoint.setPositionOccurredOn(position.occurredOn());
+            checkpoint.setPositionAggregateId(position.aggregateId());
+            checkpoint.setPositionAggregateVersion(position.aggregateVersion());
+            checkpoint.setPositionEventId(position.eventId());
+            checkpoint.setProcessedEvents(subscription.getProcessedEvents());
+            checkpoint.setUpdatedAt(DateTimeUtil.now());
+            checkpointRepository.save(checkpoint);
+        });
+    }
+
+    private void switchMode(CatchUpSubscription subscription, CatchUpSubscription.Mode mode) {
+        if (subscription.getMode() != mode) {
+            subscription.setMode(mode);
+            log.info("追赶订阅切换为{}模式: subscription={}, position={}, processed={}",
+                    mode == CatchUpSubscription.Mode.LIVE ? "实时" : "追赶",
+                    subscription.getId(), subscription.getPosition(), subscription.getProcessedEvents());
+        }
+    }
+}
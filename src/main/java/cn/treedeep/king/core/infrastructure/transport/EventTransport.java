@@ -0,0 +1,63 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 事件传输SPI
+ * <p>
+ * {@link cn.treedeep.king.core.infrastructure.eventbus.TransportEventBus}通过传输层在发布方和处理器之间异步投递事件，
+ * 传输层负责持久化和按消费者记录进度，实现至少一次投递：
+ * <ul>
+ * <li>发送 - {@link #send}返回时消息已经持久化，同一批消息的顺序保持不变</li>
+ * <li>拉取 - {@link #poll}按发送顺序返回消费者尚未读取的消息，未确认的消息在重启后重新投递</li>
+ * <li>确认 - {@link #acknowledge}为累积确认，确认一条记录即确认它之前的所有记录</li>
+ * <li>回退 - {@link #rewind}把消费者的读取位置退回已确认的位置，处理失败时未确认的记录不重启也会重新投递</li>
+ * </ul>
+ * 内置{@link FileEventTransport}作为嵌入式实现和参考实现，接入消息中间件时实现此接口即可。
+ */
+public interface EventTransport extends AutoCloseable {
+
+    /**
+     * 发送一批消息
+     *
+     * @param messages 消息，按顺序投递
+     * @throws TransportException 持久化失败
+     */
+    void send(List<TransportMessage> messages);
+
+    /**
+     * 拉取消费者尚未读取的消息
+     *
+     * @param consumer   消费者名称，每个消费者独立记录进度
+     * @param maxRecords 最多返回的记录数
+     * @param timeout    没有新消息时的最长等待时间
+     * @return 按发送顺序排列的记录，超时返回空列表
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    List<TransportRecord> poll(String consumer, int maxRecords, Duration timeout) throws InterruptedException;
+
+    /**
+     * 确认消费者已处理到指定记录（含）
+     *
+     * @param consumer 消费者名称
+     * @param record   已处理的最后一条记录
+     */
+    void acknowledge(String consumer, TransportRecord record);
+
+    /**
+     * 把消费者的读取位置退回已确认的位置
+     * <p>
+     * 之后的{@link #poll}从最后一次确认之后重新返回记录，与进程重启后的行为一致
+     *
+     * @param consumer 消费者名称
+     */
+    void rewind(String consumer);
+
+    /**
+     * 关闭传输层，释放文件或连接
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,547 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * 基于文件的嵌入式事件传输
+ * <p>
+ * 不依赖外部服务的持久化队列，适用于单机部署、本地开发和CI环境：
+ * <ul>
+ * <li>追加日志 - 消息按顺序追加到分段日志文件，文件名为分段的起始位置，达到分段大小后滚动到新文件</li>
+ * <li>批量落盘 - 一次{@link #send}的所有消息合并写入，开启同步写时只调用一次fsync</li>
+ * <li>消费者进度 - 每个消费者的已确认位置保存在consumers目录下，重启或{@link #rewind}后从已确认位置之后继续</li>
+ * <li>崩溃恢复 - 启动时校验最后一个分段的记录长度和CRC，截断未写完的尾部记录</li>
+ * <li>清理 - 所有已知消费者都确认过的分段会被删除，没有消费者时保留全部分段</li>
+ * </ul>
+ * 记录格式为：长度(4字节) + CRC32C(4字节) + 记录体，记录体依次为位置、事件ID、事件类型、聚合根ID和事件数据。
+ * 消费者只能读到已经落盘（关闭同步写时为已经写入）的记录。
+ */
+@Slf4j
+public class FileEventTransport implements EventTransport {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSET_SUFFIX = ".offset";
+    private static final int HEADER_SIZE = 8;
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private final Path directory;
+    private final Path consumerDirectory;
+    private final long segmentSize;
+    private final boolean syncOnWrite;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Condition appended = writeLock.newCondition();
+
+    /**
+     * 读取与分段删除之间的互斥，读取时持有读锁
+     */
+    private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final ConcurrentNavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<>();
+    private final Map<String, Long> committed = new ConcurrentHashMap<>();
+
+    private Segment active;
+    private volatile long nextOffset;
+    private volatile boolean closed;
+
+    /**
+     * 打开或创建日志目录
+     *
+     * @param directory   日志目录
+     * @param segmentSize 分段文件大小上限（字节）
+     * @param syncOnWrite 是否在每次发送后fsync，关闭后进程崩溃不丢消息，但操作系统崩溃可能丢失最近的消息
+     */
+    public FileEventTransport(Path directory, long segmentSize, boolean syncOnWrite) {
+        this.directory = directory;
+        this.consumerDirectory = directory.resolve("consumers");
+        this.segmentSize = segmentSize;
+        this.syncOnWrite = syncOnWrite;
+        try {
+            Files.createDirectories(consumerDirectory);
+            loadSegments();
+            loadCommittedOffsets();
+        } catch (IOException e) {
+            throw new TransportException("Failed to open event log: " + directory, e);
+        }
+        log.info("文件事件传输已打开: directory={}, segments={}, nextOffset={}, consumers={}",
+                directory, segments.size(), nextOffset, committed.keySet());
+    }
+
+    @Override
+    public void send(List<TransportMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            ensureOpen();
+            long offset = nextOffset;
+            long position = active.size;
+            for (TransportMessage message : messages) {
+                ByteBuffer record = encode(offset, message);
+                if (position > 0 && position + record.remaining() > segmentSize) {
+                    publish(position, offset);
+                    roll(offset);
+                    position = 0;
+                }
+                while (record.hasRemaining()) {
+                    position += active.channel.write(record, position);
+                }
+                offset++;
+            }
+            publish(position, offset);
+        } catch (IOException e) {
+            throw new TransportException("Failed to append " + messages.size() + " messages to event log", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<TransportRecord> poll(String consumer, int maxRecords, Duration timeout) throws InterruptedException {
+        Cursor cursor = cursors.computeIfAbsent(consumer, this::openCursor);
+        List<TransportRecord> records = read(cursor, maxRecords);
+        if (!records.isEmpty() || timeout.isZero()) {
+            return records;
+        }
+
+        long nanos = timeout.toNanos();
+        writeLock.lock();
+        try {
+            while (!closed && cursor.nextOffset >= nextOffset && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return read(cursor, maxRecords);
+    }
+
+    @Override
+    public void acknowledge(String consumer, TransportRecord record) {
+        long offset = record.offset() + 1;
+        Long previous = committed.get(consumer);
+        if (previous != null && previous >= offset) {
+            return;
+        }
+        committed.put(consumer, offset);
+        try {
+            Path target = consumerDirectory.resolve(consumer + OFFSET_SUFFIX);
+            Path temp = consumerDirectory.resolve(consumer + OFFSET_SUFFIX + ".tmp");
+            Files.writeString(temp, Long.toString(offset), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new TransportException("Failed to commit offset for consumer " + consumer, e);
+        }
+        deleteAcknowledgedSegments();
+    }
+
+    @Override
+    public void rewind(String consumer) {
+        // 丢弃内存中的游标，下次拉取时从已确认的位置重新打开
+        Cursor cursor = cursors.remove(consumer);
+        if (cursor != null) {
+            log.debug("消费者读取位置已退回: consumer={}, from={}, to={}",
+                    consumer, cursor.nextOffset, committed.get(consumer));
+        }
+    }
+
+    /**
+     * 下一条消息的位置，即已写入的消息总数
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * 消费者已确认的位置（不含）
+     *
+     * @param consumer 消费者名称
+     * @return 下一条待确认消息的位置，没有确认记录时返回最早保留的位置
+     */
+    public long getCommittedOffset(String consumer) {
+        return committed.getOrDefault(consumer, segments.firstKey());
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+        } finally {
+            writeLock.unlock();
+        }
+        segmentLock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                closeQuietly(segment);
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+        log.info("文件事件传输已关闭: directory={}, nextOffset={}", directory, nextOffset);
+    }
+
+    /**
+     * 使已写入的记录对消费者可见，需持有写锁
+     */
+    private void publish(long position, long offset) throws IOException {
+        if (syncOnWrite) {
+            active.channel.force(false);
+        }
+        active.size = position;
+        nextOffset = offset;
+        appended.signalAll();
+    }
+
+    /**
+     * 滚动到新的分段，需持有写锁且当前分段已发布
+     */
+    private void roll(long baseOffset) throws IOException {
+        Segment segment = openSegment(baseOffset);
+        segments.put(baseOffset, segment);
+        active = segment;
+        log.debug("事件日志滚动到新分段: baseOffset={}", baseOffset);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new TransportException("Event log is closed: " + directory);
+        }
+    }
+
+    private static ByteBuffer encode(long offset, TransportMessage message) {
+        byte[] eventId = bytes(message.eventId());
+        byte[] eventType = bytes(message.eventType());
+        byte[] aggregateId = bytes(message.aggregateId());
+        byte[] payload = bytes(message.payload());
+        int bodyLength = Long.BYTES + 4 * Integer.BYTES
+                + length(eventId) + length(eventType) + length(aggregateId) + length(payload);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodyLength);
+        buffer.putInt(bodyLength);
+        buffer.putInt(0);
+        buffer.putLong(offset);
+        putBytes(buffer, eventId);
+        putBytes(buffer, eventType);
+        putBytes(buffer, aggregateId);
+        putBytes(buffer, payload);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), HEADER_SIZE, bodyLength);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] value) {
+        return value == null ? 0 : value.length;
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private Cursor openCursor(String consumer) {
+        if (!CONSUMER_NAME.matcher(consumer).matches()) {
+            throw new IllegalArgumentException("Invalid consumer name: " + consumer);
+        }
+        Cursor cursor = new Cursor();
+        segmentLock.readLock().lock();
+        try {
+            seek(cursor, Math.max(committed.getOrDefault(consumer, 0L), segments.firstKey()));
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        return cursor;
+    }
+
+    /**
+     * 把游标定位到指定位置，需持有分段读锁
+     */
+    private void seek(Cursor cursor, long offset) {
+        Segment segment = segments.floorEntry(offset).getValue();
+        long position = 0;
+        long current = segment.baseOffset;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try {
+            while (current < offset && position < segment.size) {
+                header.clear();
+                readFully(segment.channel, header, position);
+                position += HEADER_SIZE + header.getInt(0);
+                current++;
+            }
+        } catch (IOException e) {
+            throw new TransportException("Failed to seek event log to offset " + offset, e);
+        }
+        cursor.segmentBase = segment.baseOffset;
+        cursor.position = position;
+        cursor.nextOffset = current;
+    }
+
+    private List<TransportRecord> read(Cursor cursor, int maxRecords) {
+        List<TransportRecord> records = new ArrayList<>(Math.min(maxRecords, 256));
+        synchronized (cursor) {
+            segmentLock.readLock().lock();
+            try {
+                ensureOpen();
+                while (records.size() < maxRecords) {
+                    Segment segment = segments.get(cursor.segmentBase);
+                    if (segment == null) {
+                        // 所在分段已被清理，从最早保留的位置继续
+                        seek(cursor, Math.max(cursor.nextOffset, segments.firstKey()));
+                        continue;
+                    }
+                    if (cursor.position >= segment.size) {
+                        Map.Entry<Long, Segment> next = segments.higherEntry(segment.baseOffset);
+                        if (next == null) {
+                            break;
+                        }
+                        // 新分段创建前旧分段的大小已经发布，切换前再检查一次旧分段是否还有未读记录
+                        if (cursor.position >= segment.size) {
+                            cursor.segmentBase = next.getKey();
+                            cursor.position = 0;
+                        }
+                        continue;
+                    }
+                    Entry entry = readEntry(segment, cursor.position);
+                    TransportRecord record = entry.record();
+                    cursor.position += entry.size();
+                    cursor.nextOffset = record.offset() + 1;
+                    records.add(record);
+                }
+            } catch (IOException e) {
+                throw new TransportException("Failed to read event log", e);
+            } finally {
+                segmentLock.readLock().unlock();
+            }
+        }
+        return records;
+    }
+
+    private Entry readEntry(Segment segment, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(segment.channel, header, position);
+        int length = header.getInt(0);
+        int expectedCrc = header.getInt(Integer.BYTES);
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(segment.channel, body, position + HEADER_SIZE);
+        CRC32C crc = new CRC32C();
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new TransportException("Corrupted record in segment " + segment.path + " at position " + position);
+        }
+
+        body.flip();
+        long offset = body.getLong();
+        TransportMessage message = new TransportMessage(getString(body), getString(body), getString(body), getString(body));
+        return new Entry(new TransportRecord(offset, message), HEADER_SIZE + length);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of segment at position " + position);
+            }
+        }
+    }
+
+    private void loadSegments() throws IOException {
+        List<Long> baseOffsets = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> baseOffsets.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        Collections.sort(baseOffsets);
+
+        for (Long baseOffset : baseOffsets) {
+            Segment segment = openSegment(baseOffset);
+            segment.size = segment.channel.size();
+            segments.put(baseOffset, segment);
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, openSegment(0L));
+        }
+        active = segments.lastEntry().getValue();
+        nextOffset = recover(active);
+    }
+
+    /**
+     * 校验最后一个分段，截断未写完或损坏的尾部记录
+     *
+     * @return 下一条消息的位置
+     */
+    private long recover(Segment segment) throws IOException {
+        long fileSize = segment.channel.size();
+        long position = 0;
+        long offset = segment.baseOffset;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(segment.channel, header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + HEADER_SIZE + length > fileSize) {
+                break;
+            }
+            try {
+                if (readEntry(segment, position).record().offset() != offset) {
+                    break;
+                }
+            } catch (TransportException e) {
+                break;
+            }
+            position += HEADER_SIZE + length;
+            offset++;
+        }
+        if (position < fileSize) {
+            log.warn("事件日志尾部存在不完整的记录，已截断: segment={}, validSize={}, fileSize={}",
+                    segment.path, position, fileSize);
+            segment.channel.truncate(position);
+            segment.channel.force(true);
+        }
+        segment.size = position;
+        return offset;
+    }
+
+    private void loadCommittedOffsets() throws IOException {
+        try (Stream<Path> files = Files.list(consumerDirectory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(OFFSET_SUFFIX)).toList()) {
+                String name = file.getFileName().toString();
+                String consumer = name.substring(0, name.length() - OFFSET_SUFFIX.length());
+                committed.put(consumer, Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()));
+            }
+        }
+    }
+
+    /**
+     * 删除所有已知消费者都已确认的分段，当前写入的分段始终保留
+     */
+    private void deleteAcknowledgedSegments() {
+        if (committed.isEmpty()) {
+            return;
+        }
+        long minimum = Collections.min(committed.values());
+        List<Segment> removable = new ArrayList<>();
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            Long nextBase = segments.higherKey(entry.getKey());
+            if (nextBase == null || nextBase > minimum) {
+                break;
+            }
+            removable.add(entry.getValue());
+        }
+        if (removable.isEmpty()) {
+            return;
+        }
+
+        segmentLock.writeLock().lock();
+        try {
+            for (Segment segment : removable) {
+                segments.remove(segment.baseOffset);
+                closeQuietly(segment);
+                Files.deleteIfExists(segment.path);
+                log.debug("已删除确认完成的事件日志分段: {}", segment.path);
+            }
+        } catch (IOException e) {
+            log.warn("删除事件日志分段失败: {}", e.getMessage());
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    private Segment openSegment(long baseOffset) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(baseOffset, path, channel);
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            log.warn("关闭事件日志分段失败: segment={}, error={}", segment.path, e.getMessage());
+        }
+    }
+
+    /**
+     * 日志分段
+     */
+    private static final class Segment {
+
+        final long baseOffset;
+        final Path path;
+        final FileChannel channel;
+
+        /**
+         * 对消费者可见的字节数，只包含完整的记录
+         */
+        volatile long size;
+
+        Segment(long baseOffset, Path path, FileChannel channel) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * 读取到的记录及其在分段中占用的字节数
+     */
+    private record Entry(TransportRecord record, int size) {
+    }
+
+    /**
+     * 消费者的读取位置，未确认前只保存在内存中
+     */
+    private static final class Cursor {
+        long segmentBase;
+        long position;
+        volatile long nextOffset;
+    }
+}
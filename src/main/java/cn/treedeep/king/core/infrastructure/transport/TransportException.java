@@ -0,0 +1,15 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+/**
+ * 事件传输异常
+ */
+public class TransportException extends RuntimeException {
+
+    public TransportException(String message) {
+        super(message);
+    }
+
+    public TransportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
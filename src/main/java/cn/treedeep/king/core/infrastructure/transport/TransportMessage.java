@@ -0,0 +1,12 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+/**
+ * 传输消息
+ *
+ * @param eventId     事件ID
+ * @param eventType   事件类型的完全限定名，用于反序列化
+ * @param aggregateId 聚合根ID，可用于中间件分区
+ * @param payload     序列化后的事件数据
+ */
+public record TransportMessage(String eventId, String eventType, String aggregateId, String payload) {
+}
@@ -0,0 +1,10 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+/**
+ * 传输记录，拉取到的消息及其在传输层中的位置
+ *
+ * @param offset  位置，同一传输层内单调递增，用于确认
+ * @param message 消息
+ */
+public record TransportRecord(long offset, TransportMessage message) {
+}
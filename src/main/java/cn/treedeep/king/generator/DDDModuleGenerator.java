@@ -159,6 +159,7 @@ public class DDDModuleGenerator {
         Files.createDirectories(modulePath.resolve("infrastructure/acl"));
         // Files.createDirectories(modulePath.resolve("infrastructure/acl/dto"));
         Files.createDirectories(modulePath.resolve("infrastructure/repository"));
+        Files.createDirectories(modulePath.resolve("infrastructure/query"));
         Files.createDirectories(modulePath.resolve("infrastructure/service"));
 
         // 表现层目录
@@ -328,6 +329,7 @@ public class DDDModuleGenerator {
             aggregateGenerator.generateAggregateRepository();
             aggregateGenerator.generateAggregateRepositoryImpl();
             aggregateGenerator.generateAggregateJpaRepository();
+            aggregateGenerator.generateQueryService();
             aggregateGenerator.generateDomainServiceInterface();
             aggregateGenerator.generateDomainServiceImpl();
 
@@ -168,6 +168,14 @@ public class DDDTemplateGenerator {
         writeFile(modulePath.resolve("infrastructure/repository/" + params.get("entityNameCamel") + "AggregateJpaRepository.java"), content);
     }
 
+    /**
+     * 生成查询服务
+     */
+    public void generateQueryService() throws IOException {
+        String content = processTemplate("infrastructure/query/QueryService.java.ftl", params);
+        writeFile(modulePath.resolve("infrastructure/query/" + params.get("entityNameCamel") + "QueryService.java"), content);
+    }
+
     /**
      * 生成领域服务接口
      */
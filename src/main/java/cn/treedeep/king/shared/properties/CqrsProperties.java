@@ -3,6 +3,9 @@ package cn.treedeep.king.shared.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * CQRS配置属性类
  * <p>
@@ -14,6 +17,11 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * <li>异步执行配置 - 控制命令异步处理的线程池参数</li>
  * <li>重试配置 - 定义命令执行失败时的重试策略</li>
  * <li>验证配置 - 控制命令和查询的验证行为</li>
+ * <li>准入控制配置 - 按命令类型限制并发，过载时快速拒绝</li>
+ * <li>幂等性配置 - 命令去重的本地近端缓存和后端存储</li>
+ * <li>链路配置 - 命令处理各阶段的纳秒级耗时统计</li>
+ * <li>查询执行配置 - 异步查询和并行批量查询的线程池及总超时</li>
+ * <li>查询缓存配置 - 按查询类型缓存查询结果，由领域事件失效</li>
  * <li>监控配置 - 配置性能指标收集和链路追踪</li>
  * </ul>
  * <p>
@@ -30,6 +38,13 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *       backoff-delay: 1000
  *     validation:
  *       enabled: true
+ *     admission:
+ *       enabled: true
+ *       max-concurrency: 200
+ *       commands:
+ *         PayOrderCommand:
+ *           priority: critical
+ *           limit: 100
  *       }
  * </pre>
  */
@@ -52,6 +67,31 @@ public class CqrsProperties {
      */
     private ValidationProperties validation = new ValidationProperties();
 
+    /**
+     * 准入控制配置
+     */
+    private AdmissionProperties admission = new AdmissionProperties();
+
+    /**
+     * 幂等性配置
+     */
+    private IdempotencyProperties idempotency = new IdempotencyProperties();
+
+    /**
+     * 命令链路配置
+     */
+    private TracingProperties tracing = new TracingProperties();
+
+    /**
+     * 查询执行配置
+     */
+    private QueryProperties query = new QueryProperties();
+
+    /**
+     * 查询结果缓存配置
+     */
+    private QueryCacheProperties queryCache = new QueryCacheProperties();
+
     /**
      * 异步执行配置属性
      * <p>
@@ -125,4 +165,361 @@ public class CqrsProperties {
          */
         private boolean validationEnabled = true;
     }
+
+    /**
+     * 准入控制配置属性
+     * <p>
+     * 为每种命令类型设置并发上限和有界等待队列，并按优先级划分全局并发额度，
+     * 保证批量命令涌入时关键命令（如支付）仍能获得执行机会
+     */
+    @Data
+    public static class AdmissionProperties {
+        /**
+         * 是否启用准入控制
+         */
+        private boolean enabled = false;
+
+        /**
+         * 全局最大并发命令数
+         */
+        private int maxConcurrency = 200;
+
+        /**
+         * normal优先级命令可占用的全局并发比例
+         */
+        private double normalShare = 0.8;
+
+        /**
+         * bulk优先级命令可占用的全局并发比例
+         */
+        private double bulkShare = 0.5;
+
+        /**
+         * 未单独配置的命令的默认优先级：critical/normal/bulk
+         */
+        private String defaultPriority = "normal";
+
+        /**
+         * 未单独配置的命令的默认并发上限
+         */
+        private int defaultLimit = 50;
+
+        /**
+         * 未单独配置的命令的默认等待队列长度，0表示超过上限立即拒绝
+         */
+        private int defaultQueueSize = 0;
+
+        /**
+         * 排队等待的最长时间（毫秒）
+         */
+        private long maxWait = 50;
+
+        /**
+         * 自适应限流配置
+         */
+        private AdaptiveProperties adaptive = new AdaptiveProperties();
+
+        /**
+         * 按命令类型（类的简单名称）单独配置
+         */
+        private Map<String, CommandLimitProperties> commands = new HashMap<>();
+    }
+
+    /**
+     * 单个命令类型的准入配置
+     * <p>
+     * 未设置的字段使用{@link AdmissionProperties}中的默认值
+     */
+    @Data
+    public static class CommandLimitProperties {
+        /**
+         * 优先级：critical/normal/bulk
+         */
+        private String priority;
+
+        /**
+         * 并发上限
+         */
+        private Integer limit;
+
+        /**
+         * 等待队列长度
+         */
+        private Integer queueSize;
+    }
+
+    /**
+     * 自适应限流配置属性
+     * <p>
+     * 根据观测到的执行延迟动态调整每种命令的并发上限：
+     * 延迟接近基线时逐步放大上限，延迟明显升高时收缩上限
+     */
+    @Data
+    public static class AdaptiveProperties {
+        /**
+         * 是否启用自适应限流
+         */
+        private boolean enabled = false;
+
+        /**
+         * 并发上限的下界
+         */
+        private int minLimit = 4;
+
+        /**
+         * 并发上限的上界
+         */
+        private int maxLimit = 500;
+
+        /**
+         * 可容忍的延迟倍数（相对于基线延迟）
+         */
+        private double tolerance = 2.0;
+
+        /**
+         * 上限调整的平滑系数（0~1）
+         */
+        private double smoothing = 0.2;
+    }
+
+    /**
+     * 幂等性配置属性
+     * <p>
+     * 命令去重采用两级结构：进程内的近端缓存记录最近见过的命令ID，
+     * 命中时无需访问后端存储；未命中时再由后端存储（redis/jdbc/memory）做最终判定
+     */
+    @Data
+    public static class IdempotencyProperties {
+        /**
+         * 后端存储类型：redis、jdbc（无Redis部署时使用数据库表）或 memory（单节点）
+         */
+        private String backend = "redis";
+
+        /**
+         * 幂等性记录的过期时间（秒）
+         */
+        private long expiration = 24 * 60 * 60;
+
+        /**
+         * JDBC后端使用的表名
+         */
+        private String tableName = "command_idempotency";
+
+        /**
+         * 本地近端缓存配置
+         */
+        private LocalCacheProperties localCache = new LocalCacheProperties();
+
+        /**
+         * 重复命令合并配置
+         */
+        private CoalescingProperties coalescing = new CoalescingProperties();
+    }
+
+    /**
+     * 重复命令合并配置属性
+     * <p>
+     * 原命令仍在执行时到达的重复命令直接挂到原命令的结果上；
+     * 原命令成功提交后，其结果在短时间内保留，供迟到的重试直接返回
+     */
+    @Data
+    public static class CoalescingProperties {
+        /**
+         * 是否启用重复命令合并
+         */
+        private boolean enabled = true;
+
+        /**
+         * 已完成结果的保留时间（秒）
+         */
+        private long resultTtl = 60;
+
+        /**
+         * 最多保留的已完成结果数
+         */
+        private long maximumResults = 10_000;
+    }
+
+    /**
+     * 本地近端缓存配置属性
+     */
+    @Data
+    public static class LocalCacheProperties {
+        /**
+         * 是否启用本地近端缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条数
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * 写入后过期时间（秒），应远小于客户端的重试窗口
+         */
+        private long expireAfterWrite = 30;
+    }
+
+    /**
+     * 命令链路配置属性
+     * <p>
+     * 按阶段（幂等性检查、验证、处理器、聚合保存、事件存储追加、事件发布、事务提交）
+     * 统计命令处理的纳秒级耗时，定位延迟回退发生在哪个阶段
+     */
+    @Data
+    public static class TracingProperties {
+        /**
+         * 是否启用分阶段耗时统计
+         */
+        private boolean enabled = true;
+
+        /**
+         * 是否发布百分位直方图（用于在监控系统中计算p99等分位数）
+         */
+        private boolean percentileHistogram = true;
+
+        /**
+         * 慢命令阈值（毫秒），总耗时超过该值时输出各阶段耗时摘要，0表示不输出
+         */
+        private long slowThreshold = 0;
+    }
+
+    /**
+     * 查询执行配置属性
+     * <p>
+     * 异步查询和并行批量查询在独立的查询线程池中执行，与命令线程池隔离
+     */
+    @Data
+    public static class QueryProperties {
+        /**
+         * 是否使用虚拟线程执行异步查询
+         */
+        private boolean virtualThreads = false;
+
+        /**
+         * 核心线程数，使用虚拟线程时不生效
+         */
+        private int corePoolSize = 8;
+
+        /**
+         * 最大线程数，使用虚拟线程时为最大并发查询数
+         */
+        private int maxPoolSize = 32;
+
+        /**
+         * 队列容量，使用虚拟线程时不生效
+         */
+        private int queueCapacity = 200;
+
+        /**
+         * 线程名前缀
+         */
+        private String threadNamePrefix = "query-";
+
+        /**
+         * 并行批量查询未指定时的总超时时间（毫秒）
+         */
+        private long timeout = 5000;
+
+        /**
+         * 查询条件编译引擎最多缓存的查询形状数
+         */
+        private long criteriaShapeCacheSize = 1_000;
+
+        /**
+         * 流式查询每次从数据库读取的记录数
+         */
+        private int fetchSize = 1_000;
+
+        /**
+         * 相同查询合并配置
+         */
+        private QueryCoalescingProperties coalescing = new QueryCoalescingProperties();
+
+        /**
+         * 查询执行期限配置
+         */
+        private QueryDeadlineProperties deadline = new QueryDeadlineProperties();
+    }
+
+    /**
+     * 查询执行期限配置属性
+     * <p>
+     * 超过期限的查询在数据库端被取消，调用方收到QueryTimeoutException，连接随即归还连接池
+     */
+    @Data
+    public static class QueryDeadlineProperties {
+        /**
+         * 未单独配置的查询类型的默认期限（毫秒），0表示不限制
+         */
+        private long defaultTimeout = 0;
+
+        /**
+         * 按查询类型（类的简单名称）配置的期限（毫秒），0表示不限制
+         */
+        private Map<String, Long> queries = new HashMap<>();
+    }
+
+    /**
+     * 相同查询合并配置属性
+     * <p>
+     * 同时到达的相同查询只执行一次，其余查询共享其结果
+     */
+    @Data
+    public static class QueryCoalescingProperties {
+        /**
+         * 是否启用相同查询合并
+         */
+        private boolean enabled = false;
+
+        /**
+         * 等待相同查询结果的最长时间（毫秒），超过后自行执行
+         */
+        private long maxWait = 1000;
+    }
+
+    /**
+     * 查询结果缓存配置属性
+     * <p>
+     * 只有实现了CacheableQuery的查询才会被缓存，缓存条目在其依赖的聚合根发布领域事件时失效
+     */
+    @Data
+    public static class QueryCacheProperties {
+        /**
+         * 是否启用查询结果缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 未单独配置的查询的缓存时间（秒）
+         */
+        private long defaultTtl = 300;
+
+        /**
+         * 未单独配置的查询的最大缓存条数
+         */
+        private long defaultMaximumSize = 1_000;
+
+        /**
+         * 按查询类型（类的简单名称）单独配置
+         */
+        private Map<String, QueryCacheRegionProperties> queries = new HashMap<>();
+    }
+
+    /**
+     * 单个查询类型的缓存配置属性
+     */
+    @Data
+    public static class QueryCacheRegionProperties {
+        /**
+         * 缓存时间（秒），为空时使用默认值
+         */
+        private Long ttl;
+
+        /**
+         * 最大缓存条数，为空时使用默认值
+         */
+        private Long maximumSize;
+    }
 }
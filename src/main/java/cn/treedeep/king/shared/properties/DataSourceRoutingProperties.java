@@ -0,0 +1,92 @@
+package cn.treedeep.king.shared.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离数据源配置属性
+ * <p>
+ * 主库沿用spring.datasource的配置，只读事务路由到这里配置的只读副本。
+ * <p>
+ * 配置示例（本地使用两个内嵌数据库验证）：
+ * <pre>{@code
+ * spring:
+ *   datasource:
+ *     url: jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1
+ * app:
+ *   datasource:
+ *     routing:
+ *       enabled: true
+ *       strategy: least-loaded
+ *       replicas:
+ *         - name: replica-1
+ *           url: jdbc:h2:mem:replica1;DB_CLOSE_DELAY=-1
+ * }</pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.routing")
+public class DataSourceRoutingProperties {
+    /**
+     * 是否启用读写分离
+     */
+    private boolean enabled = false;
+
+    /**
+     * 副本选择策略：round-robin（轮询）或 least-loaded（当前借出连接数最少）
+     */
+    private String strategy = "round-robin";
+
+    /**
+     * 执行过写事务后，同一会话的只读事务继续使用主库的时间（毫秒），用于读到自己刚写入的数据，0表示不粘滞
+     */
+    private long stickyWindow = 5000;
+
+    /**
+     * 副本健康检查间隔（毫秒）
+     */
+    private long healthCheckInterval = 5000;
+
+    /**
+     * 只读副本
+     */
+    private List<ReplicaProperties> replicas = new ArrayList<>();
+
+    /**
+     * 只读副本配置属性
+     */
+    @Data
+    public static class ReplicaProperties {
+        /**
+         * 副本名称，用于日志和监控
+         */
+        private String name;
+
+        /**
+         * JDBC连接地址
+         */
+        private String url;
+
+        /**
+         * 用户名，为空时使用主库的用户名
+         */
+        private String username;
+
+        /**
+         * 密码，为空时使用主库的密码
+         */
+        private String password;
+
+        /**
+         * 驱动类名，为空时根据连接地址推断
+         */
+        private String driverClassName;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maximumPoolSize = 10;
+    }
+}
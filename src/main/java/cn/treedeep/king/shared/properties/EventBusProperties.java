@@ -10,7 +10,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "app.event-bus")
 public class EventBusProperties {
     /**
-     * 事件总线类型：simple（简单实现）或 rabbitmq（RabbitMQ实现）
+     * 事件总线类型：simple（简单实现）、ring（环形缓冲区实现）、file（嵌入式文件队列）
+     * 或 transport（使用应用提供的EventTransport，RabbitMQ等消息中间件通过实现EventTransport接入）
      */
     private String type = "simple";
 
@@ -29,6 +30,36 @@ public class EventBusProperties {
      */
     private RetryProperties retry = new RetryProperties();
 
+    /**
+     * 环形缓冲区配置，type为ring时生效
+     */
+    private RingProperties ring = new RingProperties();
+
+    /**
+     * 死信配置
+     */
+    private DeadLetterProperties deadLetter = new DeadLetterProperties();
+
+    /**
+     * 批量事件处理器配置
+     */
+    private BatchProperties batch = new BatchProperties();
+
+    /**
+     * 传输层消费配置，type为file或transport时生效
+     */
+    private TransportProperties transport = new TransportProperties();
+
+    /**
+     * 嵌入式文件队列配置，type为file时生效
+     */
+    private FileProperties file = new FileProperties();
+
+    /**
+     * 领域事件发布器配置
+     */
+    private PublisherProperties publisher = new PublisherProperties();
+
     @Data
     public static class RetryProperties {
         /**
@@ -41,4 +72,112 @@ public class EventBusProperties {
          */
         private long initialDelay = 1000;
     }
+
+    @Data
+    public static class RingProperties {
+        /**
+         * 缓冲区大小，必须是2的幂
+         */
+        private int bufferSize = 65536;
+
+        /**
+         * 消费者线程数，事件按聚合根ID分配到各消费者
+         */
+        private int consumers = 4;
+
+        /**
+         * 消费者单批处理的最大事件数
+         */
+        private int maxBatchSize = 1024;
+
+        /**
+         * 等待策略：busy-spin、yielding、sleeping、blocking
+         */
+        private String waitStrategy = "yielding";
+    }
+
+    @Data
+    public static class DeadLetterProperties {
+        /**
+         * 是否启用死信队列
+         */
+        private boolean enabled = false;
+
+        /**
+         * 批量重新投递时每批读取的死信数
+         */
+        private int redriveBatchSize = 100;
+
+        /**
+         * 批量重新投递的速率（每秒事件数）
+         */
+        private double redriveRate = 50.0;
+    }
+
+    @Data
+    public static class BatchProperties {
+        /**
+         * 批大小上限，处理器未指定时使用
+         */
+        private int maxSize = 500;
+
+        /**
+         * 批的最长等待时间（毫秒），处理器未指定时使用
+         */
+        private long linger = 50;
+    }
+
+    @Data
+    public static class TransportProperties {
+        /**
+         * 消费者名称，传输层按名称记录确认位置，多个应用共用同一队列时应各不相同
+         */
+        private String consumer = "default";
+
+        /**
+         * 每次拉取的最大记录数
+         */
+        private int batchSize = 256;
+
+        /**
+         * 没有新消息时的等待时间（毫秒）
+         */
+        private long pollTimeout = 500;
+    }
+
+    @Data
+    public static class FileProperties {
+        /**
+         * 日志目录
+         */
+        private String directory = "./data/event-bus";
+
+        /**
+         * 分段文件大小上限（字节）
+         */
+        private long segmentSize = 64L * 1024 * 1024;
+
+        /**
+         * 是否在每次写入后fsync
+         */
+        private boolean syncOnWrite = true;
+    }
+
+    @Data
+    public static class PublisherProperties {
+        /**
+         * 是否在独立线程池中投递事务提交后的事件
+         */
+        private boolean async = false;
+
+        /**
+         * 投递线程数，大于1时不同事务的事件之间不保证顺序
+         */
+        private int poolSize = 1;
+
+        /**
+         * 等待投递的批数上限，超出时在提交线程中投递
+         */
+        private int queueCapacity = 10000;
+    }
 }
@@ -31,6 +31,18 @@ public class EventStoreProperties {
     @NestedConfigurationProperty
     private EventStoreSnapshotProperties snapshot = new EventStoreSnapshotProperties();
 
+    /**
+     * 发件箱配置
+     */
+    @NestedConfigurationProperty
+    private OutboxProperties outbox = new OutboxProperties();
+
+    /**
+     * 追赶订阅配置
+     */
+    @NestedConfigurationProperty
+    private SubscriptionProperties subscription = new SubscriptionProperties();
+
 
     /**
      * 事件存储快照配置属性
@@ -48,4 +60,72 @@ public class EventStoreProperties {
         private int frequency = 100;
     }
 
+    /**
+     * 事务发件箱配置属性
+     */
+    @Data
+    public static class OutboxProperties {
+        /**
+         * 是否启用发件箱（需要JPA事件存储所在的数据源）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 中继轮询间隔（毫秒）
+         */
+        private long pollInterval = 200;
+
+        /**
+         * 中继每批投递的事件数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 事件在连续多少个轮询周期投递失败后停放，不再阻塞同一聚合根的后续事件
+         */
+        private int maxAttempts = 5;
+    }
+
+    /**
+     * 追赶订阅配置属性
+     */
+    @Data
+    public static class SubscriptionProperties {
+        /**
+         * 是否启用追赶订阅
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每批读取的事件数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 实时模式下的轮询间隔（毫秒）
+         */
+        private long pollInterval = 1000;
+
+        /**
+         * 稳定窗口（毫秒），只读取发生时间早于该窗口的事件，应大于最长的命令事务耗时
+         */
+        private long settleTime = 2000;
+
+        /**
+         * 运行订阅的线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 订阅默认的分区数，大于1时按聚合根分区并行处理每批事件
+         */
+        private int partitions = 1;
+
+        /**
+         * 配置了死信队列时，事件在连续多少个轮询周期处理失败后停放到死信队列；
+         * 没有死信队列时失败的事件一直重试
+         */
+        private int maxAttempts = 3;
+    }
+
 }
@@ -0,0 +1,215 @@
+package cn.treedeep.king.shared.trace;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 命令执行链路的分阶段耗时记录
+ * <p>
+ * 命令总线为每条命令开启一个与当前线程绑定的记录，
+ * 命令处理流程中的各个组件（处理器、仓储、事件存储、事件发布器）在各自的阶段上累加纳秒级耗时，
+ * 不依赖任何监控框架，未开启记录时各记录点只有一次ThreadLocal读取的开销。
+ * <p>
+ * 使用示例：
+ * <pre>
+ * {@code
+ * long start = CommandTrace.start();
+ * eventStore.saveEvents(aggregateId, events, version);
+ * CommandTrace.record(CommandTrace.Stage.EVENT_STORE_APPEND, start);
+ * }
+ * </pre>
+ */
+public final class CommandTrace {
+
+    /**
+     * 命令处理阶段
+     */
+    public enum Stage {
+        /**
+         * 幂等性检查
+         */
+        IDEMPOTENCY,
+        /**
+         * 命令验证
+         */
+        VALIDATION,
+        /**
+         * 命令处理器业务逻辑
+         */
+        HANDLER,
+        /**
+         * 聚合根持久化
+         */
+        AGGREGATE_SAVE,
+        /**
+         * 事件存储追加
+         */
+        EVENT_STORE_APPEND,
+        /**
+         * 领域事件发布
+         */
+        PUBLISH,
+        /**
+         * 事务提交
+         */
+        COMMIT;
+
+        private final String tagValue = name().toLowerCase();
+
+        /**
+         * 指标标签值
+         */
+        public String tagValue() {
+            return tagValue;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final ThreadLocal<CommandTrace> CURRENT = new ThreadLocal<>();
+
+    private final String commandType;
+    private final String commandId;
+    private final long startNanos;
+    private final long[] stageNanos = new long[STAGES.length];
+    private final CommandTrace previous;
+    private long endNanos;
+    private boolean success = true;
+
+    private CommandTrace(String commandType, String commandId, CommandTrace previous) {
+        this.commandType = commandType;
+        this.commandId = commandId;
+        this.previous = previous;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 为当前线程开启一条命令记录
+     * <p>
+     * 处理器内部再次分发的命令会开启嵌套记录，{@link #detach()}后恢复外层记录
+     *
+     * @param commandType 命令类型
+     * @param commandId   命令ID
+     * @return 新开启的记录
+     */
+    public static CommandTrace begin(String commandType, String commandId) {
+        CommandTrace trace = new CommandTrace(commandType, commandId, CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * 获取阶段开始时间
+     *
+     * @return 当前线程有记录时返回System.nanoTime()，否则返回0
+     */
+    public static long start() {
+        return CURRENT.get() != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 在当前线程的记录上累加阶段耗时
+     *
+     * @param stage      阶段
+     * @param startNanos {@link #start()}的返回值
+     */
+    public static void record(Stage stage, long startNanos) {
+        CommandTrace trace = CURRENT.get();
+        if (trace != null && startNanos != 0L) {
+            trace.stageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * 在本记录上累加阶段耗时，用于已脱离线程绑定的回调（如事务同步）
+     *
+     * @param stage 阶段
+     * @param nanos 耗时（纳秒）
+     */
+    public void add(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()] += nanos;
+    }
+
+    /**
+     * 解除与当前线程的绑定，恢复外层记录
+     */
+    public void detach() {
+        if (CURRENT.get() != this) {
+            return;
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * 标记记录结束
+     *
+     * @param success 命令是否执行成功
+     */
+    public void finish(boolean success) {
+        this.endNanos = System.nanoTime();
+        this.success = this.success && success;
+    }
+
+    public String getCommandType() {
+        return commandType;
+    }
+
+    public String getCommandId() {
+        return commandId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * 获取阶段累计耗时
+     *
+     * @param stage 阶段
+     * @return 耗时（纳秒）
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /**
+     * 获取总耗时
+     *
+     * @return 耗时（纳秒），未结束时返回截至当前的耗时
+     */
+    public long getTotalNanos() {
+        return (endNanos != 0L ? endNanos : System.nanoTime()) - startNanos;
+    }
+
+    /**
+     * 生成各阶段耗时摘要，用于日志输出
+     *
+     * @return 形如"total=12.345ms, idempotency=0.812ms, ..."的摘要
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder(160);
+        appendMillis(sb.append("total="), getTotalNanos());
+        for (Stage stage : STAGES) {
+            long nanos = stageNanos[stage.ordinal()];
+            if (nanos > 0) {
+                appendMillis(sb.append(", ").append(stage.tagValue()).append('='), nanos);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction).append("ms");
+    }
+}
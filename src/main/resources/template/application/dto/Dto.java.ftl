@@ -1,13 +1,17 @@
 package ${packageName}.${moduleNameLower}.application.dto;
 
 import ${packageName}.${moduleNameLower}.domain.${entityNameCamel};
-import lombok.Getter;
+import cn.treedeep.king.core.application.cqrs.query.ProjectionField;
 
-@Getter
-public class ${entityNameCamel}Dto {
-    private final String id;
+/**
+ * ${entityNameCamel}「数据传输对象」
+ * <p>
+ * 列表查询直接投影为该记录，只查询记录需要的列，不加载聚合。
+ * 组件按名称对应聚合属性，不同名时用@ProjectionField指定属性路径
+ */
+public record ${entityNameCamel}Dto(@ProjectionField("id.value") String id) {
 
     public ${entityNameCamel}Dto(${entityNameCamel} ${entityNameLower}) {
-        this.id = ${entityNameLower}.getId().getValue();
+        this(${entityNameLower}.getId().getValue());
     }
 }
@@ -6,11 +6,21 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 @AllArgsConstructor
+@Getter
 public class SayHelloQuery extends Query<ListQueryResult> {
 
-    @Getter
     private String name;
 
+    /**
+     * 页码，从0开始
+     */
+    private int page;
+
+    /**
+     * 每页大小
+     */
+    private int size;
+
     @Override
     public String getQueryName() {
         return "SayHelloQuery";
@@ -4,30 +4,38 @@ import ${packageName}.${moduleNameLower}.application.dto.${entityNameCamel}Dto;
 import ${packageName}.${moduleNameLower}.application.query.SayHelloQuery;
 import ${packageName}.${moduleNameLower}.application.query.result.ListQueryResult;
 import ${packageName}.${moduleNameLower}.domain.${entityNameCamel};
-import ${packageName}.${moduleNameLower}.domain.repository.${entityNameCamel}AggregateRepository;
+import ${packageName}.${moduleNameLower}.domain.${entityNameCamel}Id;
 import cn.treedeep.king.core.application.cqrs.query.AbstractQueryHandler;
+import cn.treedeep.king.core.application.cqrs.query.CriteriaQueryService;
+import cn.treedeep.king.core.application.cqrs.query.QPage;
 import cn.treedeep.king.core.application.cqrs.query.QueryBus;
+import cn.treedeep.king.core.application.cqrs.query.QueryCriteria;
 import cn.treedeep.king.core.application.cqrs.query.QueryResult;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 @Component
-public class SayHelloQueryHandler extends AbstractQueryHandler<SayHelloQuery, ${entityNameCamel}AggregateRepository, ListQueryResult> {
+public class SayHelloQueryHandler extends AbstractQueryHandler<SayHelloQuery, ListQueryResult> {
 
-    protected SayHelloQueryHandler(${entityNameCamel}AggregateRepository repository, QueryBus queryBus) {
-        super(repository, queryBus);
+    private final CriteriaQueryService<${entityNameCamel}, ${entityNameCamel}Id> queryService;
+
+    protected SayHelloQueryHandler(QueryBus queryBus, CriteriaQueryService<${entityNameCamel}, ${entityNameCamel}Id> queryService) {
+        super(queryBus);
+        this.queryService = queryService;
     }
 
     @Override
     protected ListQueryResult doHandle(SayHelloQuery query, CompletableFuture<QueryResult<ListQueryResult>> future) {
-        ListQueryResult queryResult = new ListQueryResult();
+        // 直接投影为DTO并分页，不加载完整的聚合
+        QueryCriteria criteria = new QueryCriteria().addSort("id.value", "asc");
+        QPage<${entityNameCamel}Dto> page = queryService.findProjectedPage(criteria, ${entityNameCamel}Dto.class, query.getPage(), query.getSize());
 
-        List<${entityNameCamel}> list = aggregateRepository.findAll();
-        queryResult.setList(list.stream().map(${entityNameCamel}Dto::new).toList());
-
-        System.out.println("查询doHandle：" + query.getName());
+        ListQueryResult queryResult = new ListQueryResult();
+        queryResult.setList(page.getContent());
+        queryResult.setTotal(page.getTotalElements());
+        queryResult.setPage(page.getCurrentPage());
+        queryResult.setSize(page.getPageSize());
 
         if (future != null) {
             // 异步调用返回结果
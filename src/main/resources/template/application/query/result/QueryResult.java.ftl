@@ -9,4 +9,10 @@ import java.util.List;
 public class ListQueryResult {
 
     List<${entityNameCamel}Dto> list;
+
+    long total;
+
+    int page;
+
+    int size;
 }
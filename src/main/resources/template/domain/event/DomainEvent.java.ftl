@@ -1,6 +1,8 @@
 package ${packageName}.${moduleNameLower}.domain.event;
 
+import cn.treedeep.king.core.domain.AggregateEvent;
 import cn.treedeep.king.core.domain.DomainEvent;
+import ${packageName}.${moduleNameLower}.domain.${entityNameCamel};
 import ${packageName}.${moduleNameLower}.domain.${entityNameCamel}Id;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
@@ -11,6 +13,7 @@ import org.hibernate.annotations.Comment;
 @Entity
 @Table(name = "say_hello_events")
 @Comment("SayHello事件表")
+@AggregateEvent(${entityNameCamel}.class)
 @NoArgsConstructor
 @Getter
 public class SayHelloEvent extends DomainEvent {
@@ -1,7 +1,11 @@
 package ${packageName}.${moduleNameLower}.domain.event;
 
+<#if aggregateRootClass?has_content>
+import cn.treedeep.king.core.domain.AggregateEvent;
+</#if>
 import cn.treedeep.king.core.domain.DomainEvent;
 <#if aggregateRootClass?has_content>
+import ${packageName}.${moduleNameLower}.domain.${aggregateRootClass};
 import ${packageName}.${moduleNameLower}.domain.${aggregateRootClass}Id;
 </#if>
 import jakarta.persistence.Entity;
@@ -38,6 +42,9 @@ import java.time.LocalDate;
  * @since ${dateTime}
  */
 @Entity
+<#if aggregateRootClass?has_content>
+@AggregateEvent(${aggregateRootClass}.class)
+</#if>
 @Table(name = "${tableName}")
 @Comment("${eventComment}事件表")
 @Getter
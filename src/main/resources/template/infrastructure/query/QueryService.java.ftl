@@ -0,0 +1,27 @@
+package ${packageName}.${moduleNameLower}.infrastructure.query;
+
+import ${packageName}.${moduleNameLower}.domain.${entityNameCamel};
+import ${packageName}.${moduleNameLower}.domain.${entityNameCamel}Id;
+import cn.treedeep.king.core.infrastructure.query.AbstractJpaQueryService;
+import cn.treedeep.king.core.infrastructure.query.CriteriaQueryEngine;
+import org.springframework.stereotype.Service;
+
+/**
+ * Copyright © ${copyright} 版权所有
+ * <p>
+ * ${entityNameCamel}「查询服务（JPA 实现）」
+ * <p>
+ * 应用层通过CriteriaQueryService接口按条件查询和投影分页，不直接依赖JPA仓储
+ * <p>
+ * Power by AggregateX
+ *
+ * @author ${author}
+ * @since ${dateTime}
+ */
+@Service("${entityNameLower}QueryService")
+public class ${entityNameCamel}QueryService extends AbstractJpaQueryService<${entityNameCamel}, ${entityNameCamel}Id> {
+
+    public ${entityNameCamel}QueryService(CriteriaQueryEngine engine) {
+        super(engine);
+    }
+}
@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.concurrent.CompletableFuture;
@@ -26,6 +27,11 @@ import java.util.concurrent.CompletableFuture;
 @Tag(name = "SayHello Management", description = "👋你好～")
 public class SayHelloController {
 
+    /**
+     * 每页最多返回的记录数
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
     private CommandBus commandBus;
     private QueryBus queryBus;
 
@@ -39,8 +45,10 @@ public class SayHelloController {
 
     @Operation(summary = "获取对话列表", description = "list")
     @GetMapping("/records")
-    public ResponseEntity<ListQueryResult> records() {
-        ListQueryResult queryResult = queryBus.execute(new SayHelloQuery("查询条件"));
+    public ResponseEntity<ListQueryResult> records(@RequestParam(defaultValue = "0") int page,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        ListQueryResult queryResult = queryBus.execute(new SayHelloQuery("查询条件", Math.max(page, 0), pageSize));
         return ResponseEntity.ok(queryResult);
     }
 }
@@ -0,0 +1,152 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import cn.treedeep.king.core.infrastructure.query.QueryCoalescer;
+import cn.treedeep.king.core.infrastructure.query.QueryDeadlineManager;
+import cn.treedeep.king.core.infrastructure.query.QueryResultCache;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryBusTest {
+
+    static class StreamQuery extends Query<Stream<String>> {
+    }
+
+    static class ListQuery extends Query<List<String>> {
+    }
+
+    /**
+     * 所有实例都相同的查询，用于触发合并
+     */
+    static class SameQuery extends Query<String> {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameQuery;
+        }
+
+        @Override
+        public int hashCode() {
+            return SameQuery.class.hashCode();
+        }
+    }
+
+    private final CqrsProperties properties = new CqrsProperties();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryDeadlineManager deadlineManager =
+            new QueryDeadlineManager(properties, mock(PlatformTransactionManager.class), registry);
+    private final QueryBus bus = new QueryBus(new QueryResultCache(properties, registry),
+            new QueryCoalescer(properties, registry), deadlineManager, mock(AsyncTaskExecutor.class), properties);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        deadlineManager.destroy();
+    }
+
+    @Test
+    void rejectsAndClosesStreamResults() {
+        AtomicBoolean closed = new AtomicBoolean();
+        bus.register(new QueryHandler<StreamQuery, Stream<String>>() {
+            @Override
+            public Stream<String> handle(StreamQuery query, CompletableFuture<QueryResult<Stream<String>>> future) {
+                return Stream.of("a", "b").onClose(() -> closed.set(true));
+            }
+
+            @Override
+            public Class<StreamQuery> getQueryType() {
+                return StreamQuery.class;
+            }
+        });
+
+        assertThatThrownBy(() -> bus.execute(new StreamQuery()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("streamByCriteria");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void returnsMaterializedResults() {
+        bus.register(new QueryHandler<ListQuery, List<String>>() {
+            @Override
+            public List<String> handle(ListQuery query, CompletableFuture<QueryResult<List<String>>> future) {
+                return List.of("a", "b");
+            }
+
+            @Override
+            public Class<ListQuery> getQueryType() {
+                return ListQuery.class;
+            }
+        });
+
+        assertThat(bus.execute(new ListQuery())).containsExactly("a", "b");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void queryWithOwnDeadlineDoesNotJoinInFlightExecution() throws Exception {
+        properties.getQuery().getCoalescing().setEnabled(true);
+        properties.getQuery().getCoalescing().setMaxWait(10_000);
+        QueryDeadlineManager passThrough = mock(QueryDeadlineManager.class);
+        when(passThrough.resolve(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(passThrough.execute(any(), any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(3)).get());
+        QueryBus coalescingBus = new QueryBus(new QueryResultCache(properties, registry),
+                new QueryCoalescer(properties, registry), passThrough, mock(AsyncTaskExecutor.class), properties);
+
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch releaseLeader = new CountDownLatch(1);
+        coalescingBus.register(new QueryHandler<SameQuery, String>() {
+            @Override
+            public String handle(SameQuery query, CompletableFuture<QueryResult<String>> future) {
+                int call = calls.incrementAndGet();
+                if (call == 1) {
+                    leaderStarted.countDown();
+                    try {
+                        releaseLeader.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return "call-" + call;
+            }
+
+            @Override
+            public Class<SameQuery> getQueryType() {
+                return SameQuery.class;
+            }
+        });
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> coalescingBus.execute(new SameQuery()));
+        try {
+            assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // 指定了期限的调用不等待正在执行的相同查询，也不会把自己的期限带给它
+            assertThat(coalescingBus.execute(new SameQuery(), Duration.ofSeconds(5))).isEqualTo("call-2");
+        } finally {
+            releaseLeader.countDown();
+        }
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("call-1");
+        assertThat(registry.get("query.coalescing.calls").tag("role", "follower").counter().count()).isZero();
+        assertThat(registry.get("query.coalescing.calls").tag("role", "timeout").counter().count()).isZero();
+    }
+}
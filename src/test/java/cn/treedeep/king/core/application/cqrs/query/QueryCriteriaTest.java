@@ -0,0 +1,78 @@
+package cn.treedeep.king.core.application.cqrs.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCriteriaTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void filtersAreAViewOverEqualityConditions() {
+        QueryCriteria criteria = new QueryCriteria()
+                .eq("status", "PAID")
+                .gt("amount", 100)
+                .addFilter("deletedAt", null);
+
+        Map<String, Object> filters = criteria.getFilters();
+        assertThat(filters.keySet()).containsExactly("status", "deletedAt");
+        assertThat(filters).containsEntry("status", "PAID").containsEntry("deletedAt", null);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void filtersViewWritesThroughToConditions() {
+        QueryCriteria criteria = new QueryCriteria()
+                .eq("status", "NEW")
+                .gt("amount", 100);
+
+        criteria.getFilters().put("status", "PAID");
+        criteria.getFilters().put("owner", "alice");
+        criteria.getFilters().put("deletedAt", null);
+        criteria.getFilters().remove("owner");
+
+        assertThat(criteria.getConditions()).containsExactly(
+                new QueryCriteria.Condition("status", QueryCriteria.Operator.EQ, "PAID"),
+                new QueryCriteria.Condition("amount", QueryCriteria.Operator.GT, 100),
+                new QueryCriteria.Condition("deletedAt", QueryCriteria.Operator.IS_NULL, null));
+
+        criteria.getFilters().clear();
+        assertThat(criteria.getConditions()).containsExactly(
+                new QueryCriteria.Condition("amount", QueryCriteria.Operator.GT, 100));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void setFiltersReplacesEqualityConditionsOnly() {
+        QueryCriteria criteria = new QueryCriteria()
+                .eq("status", "NEW")
+                .in("region", List.of("east"));
+
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("status", "PAID");
+        filters.put("owner", "alice");
+        criteria.setFilters(filters);
+
+        assertThat(criteria.getConditions()).containsExactly(
+                new QueryCriteria.Condition("region", QueryCriteria.Operator.IN, List.of("east")),
+                new QueryCriteria.Condition("status", QueryCriteria.Operator.EQ, "PAID"),
+                new QueryCriteria.Condition("owner", QueryCriteria.Operator.EQ, "alice"));
+    }
+
+    @Test
+    void setSortsAcceptsAnyMapAndKeepsItsIterationOrder() {
+        QueryCriteria criteria = new QueryCriteria();
+        Map<String, String> sorts = new HashMap<>();
+        sorts.put("createdAt", "desc");
+        criteria.setSorts(sorts);
+        criteria.addSort("id", "asc");
+
+        assertThat(criteria.getSorts().keySet()).containsExactly("createdAt", "id");
+        assertThat(criteria.signature()).endsWith("|createdAt desc;id asc;");
+    }
+}
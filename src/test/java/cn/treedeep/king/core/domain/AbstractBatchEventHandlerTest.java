@@ -0,0 +1,65 @@
+package cn.treedeep.king.core.domain;
+
+import cn.treedeep.king.core.domain.validation.BusinessConstraintValidator;
+import cn.treedeep.king.core.domain.validation.CustomValidationRegistry;
+import cn.treedeep.king.core.domain.validation.DefaultEventIntegrityChecker;
+import cn.treedeep.king.core.domain.validation.DomainEventValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class AbstractBatchEventHandlerTest {
+
+    static class TestEvent extends DomainEvent {
+        TestEvent(String aggregateId, Long version) {
+            setAggregateId(aggregateId);
+            setAggregateVersion(version);
+        }
+    }
+
+    static class RecordingHandler extends AbstractBatchEventHandler<TestEvent> {
+
+        final List<TestEvent> handled = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        RecordingHandler() {
+            super(mock(DomainEventValidator.class), mock(BusinessConstraintValidator.class),
+                    new DefaultEventIntegrityChecker(), mock(CustomValidationRegistry.class));
+        }
+
+        @Override
+        protected void doHandleBatch(List<TestEvent> events) {
+            handled.addAll(events);
+        }
+    }
+
+    @Test
+    void acceptsBatchMixingAggregatesAndNonContiguousVersions() {
+        RecordingHandler handler = new RecordingHandler();
+        List<TestEvent> batch = List.of(
+                new TestEvent("order-1", 3L),
+                new TestEvent("order-2", 0L),
+                new TestEvent("order-1", 7L),
+                new TestEvent("order-3", 1L));
+
+        handler.handleBatch(batch);
+
+        assertThat(handler.handled).containsExactlyElementsOf(batch);
+    }
+
+    @Test
+    void stillRejectsIncompleteEvents() {
+        RecordingHandler handler = new RecordingHandler();
+
+        assertThatThrownBy(() -> handler.handleBatch(List.of(
+                new TestEvent("order-1", 0L),
+                new TestEvent("order-2", null))))
+                .isInstanceOf(ValidationException.class);
+        assertThat(handler.handled).isEmpty();
+    }
+}
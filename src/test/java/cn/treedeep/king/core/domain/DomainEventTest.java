@@ -0,0 +1,45 @@
+package cn.treedeep.king.core.domain;
+
+import org.jmolecules.ddd.types.Identifier;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DomainEventTest {
+
+    abstract static class Order extends AggregateRoot<Identifier> {
+    }
+
+    @AggregateEvent(Order.class)
+    static class OrderCreatedEvent extends DomainEvent {
+    }
+
+    static class OrderExpressCreatedEvent extends OrderCreatedEvent {
+    }
+
+    static class UnboundEvent extends DomainEvent {
+    }
+
+    @Test
+    void derivesAggregateTypeFromAnnotationWhenNotSet() {
+        assertThat(new OrderCreatedEvent().getAggregateType()).isEqualTo("Order");
+        assertThat(new OrderExpressCreatedEvent().getAggregateType()).isEqualTo("Order");
+        assertThat(new UnboundEvent().getAggregateType()).isNull();
+    }
+
+    @Test
+    void explicitAggregateTypeWins() {
+        OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setAggregateType("LegacyOrder");
+
+        assertThat(event.getAggregateType()).isEqualTo("LegacyOrder");
+    }
+
+    @Test
+    void filtersHistoricEventsByDerivedAggregateType() {
+        EventFilter filter = EventFilter.builder().aggregateType("Order").build();
+
+        assertThat(filter.matches(new OrderCreatedEvent())).isTrue();
+        assertThat(filter.matches(new UnboundEvent())).isFalse();
+    }
+}
@@ -0,0 +1,58 @@
+package cn.treedeep.king.core.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventPositionTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void ordersEventsOfTheSameInstantByAggregateVersionRegardlessOfEventId() {
+        List<EventPosition> positions = new ArrayList<>();
+        for (long version = 0; version < 10; version++) {
+            positions.add(new EventPosition(NOW, "order-1", version, UUID.randomUUID().toString()));
+        }
+        List<EventPosition> shuffled = new ArrayList<>(positions);
+        Collections.shuffle(shuffled);
+        Collections.sort(shuffled);
+
+        assertThat(shuffled).containsExactlyElementsOf(positions);
+    }
+
+    @Test
+    void comparesInstantsAcrossOffsets() {
+        EventPosition utc = new EventPosition(NOW, "b", 0, "x");
+        EventPosition shanghai = new EventPosition(NOW.withOffsetSameInstant(ZoneOffset.ofHours(8)), "a", 0, "y");
+
+        assertThat(shanghai).isLessThan(utc);
+    }
+
+    @Test
+    void timePositionPrecedesEveryEventAtThatInstant() {
+        EventPosition at = EventPosition.at(NOW);
+
+        assertThat(at).isLessThan(new EventPosition(NOW, "", -1, "0"));
+        assertThat(at).isLessThan(new EventPosition(NOW, "a", 0, ""));
+        assertThat(at).isGreaterThan(new EventPosition(NOW.minusNanos(1), "z", Long.MAX_VALUE, "z"));
+        assertThat(EventPosition.START).isLessThan(at);
+    }
+
+    @Test
+    void treatsMissingAggregateAsEmptyIdAndNegativeVersion() {
+        EventPosition position = new EventPosition(NOW, null, EventPosition.version(null), null);
+
+        assertThat(position.aggregateId()).isEmpty();
+        assertThat(position.aggregateVersion()).isEqualTo(-1L);
+        assertThat(position.eventId()).isEmpty();
+        assertThat(position).isEqualByComparingTo(EventPosition.at(NOW));
+    }
+}
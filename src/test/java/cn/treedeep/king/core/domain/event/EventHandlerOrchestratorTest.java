@@ -0,0 +1,106 @@
+package cn.treedeep.king.core.domain.event;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class EventHandlerOrchestratorTest {
+
+    static class TestEvent extends DomainEvent {
+    }
+
+    /**
+     * 重试延迟远大于处理器超时
+     */
+    static class SlowBackoff implements RetryStrategy {
+
+        @Override
+        public boolean shouldRetry(DomainEvent event, Exception e, int attempts) {
+            return attempts < 3;
+        }
+
+        @Override
+        public long getNextDelay(int attempts) {
+            return 300;
+        }
+    }
+
+    @HandlerTimeout(100)
+    static class FailsOnceHandler implements EventHandler<TestEvent> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void handle(TestEvent event) {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("transient");
+            }
+        }
+    }
+
+    @HandlerTimeout(50)
+    static class SlowHandler implements EventHandler<TestEvent> {
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void handle(TestEvent event) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DeadLetterQueue deadLetterQueue = mock(DeadLetterQueue.class);
+    private final EventHandlerOrchestrator orchestrator = new EventHandlerOrchestrator(new SlowBackoff(), meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        orchestrator.shutdown();
+    }
+
+    @Test
+    void retryDelayDoesNotCountAgainstHandlerTimeout() {
+        orchestrator.setDeadLetterQueue(deadLetterQueue);
+        FailsOnceHandler handler = new FailsOnceHandler();
+        orchestrator.register(TestEvent.class.getName(), List.of(handler), HandlerExecutionOrder.ExecutionOrder.PARALLEL);
+
+        orchestrator.processEvent(new TestEvent());
+
+        assertThat(handler.calls).hasValue(2);
+        verify(deadLetterQueue, never()).park(any(), any(), any(), anyInt());
+        assertThat(meterRegistry.get("event.handler.execution").tag("outcome", "timeout").timer().count()).isZero();
+    }
+
+    @Test
+    void timedOutAttemptIsParkedWithoutRetry() throws InterruptedException {
+        orchestrator.setDeadLetterQueue(deadLetterQueue);
+        SlowHandler handler = new SlowHandler();
+        orchestrator.register(TestEvent.class.getName(), List.of(handler), HandlerExecutionOrder.ExecutionOrder.PARALLEL);
+        TestEvent event = new TestEvent();
+
+        assertThatThrownBy(() -> orchestrator.processEvent(event)).isInstanceOf(RuntimeException.class);
+        Thread.sleep(400);
+
+        assertThat(handler.calls).hasValue(1);
+        verify(deadLetterQueue).park(same(event), same(handler), any(), anyInt());
+    }
+}
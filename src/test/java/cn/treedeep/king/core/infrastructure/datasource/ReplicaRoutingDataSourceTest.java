@@ -0,0 +1,186 @@
+package cn.treedeep.king.core.infrastructure.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY = "routing-primary";
+    private static final String REPLICA = "routing-replica";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReplicaRoutingDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplica() throws SQLException {
+        dataSource = routing(Map.of("replica-1", h2(REPLICA)), Duration.ZERO);
+        readOnlyTransaction();
+
+        assertThat(connectedDatabase()).isEqualTo(REPLICA);
+        assertThat(connections("replica-1", "replica")).isEqualTo(1.0);
+    }
+
+    @Test
+    void connectionOutsideReadOnlyTransactionUsesPrimary() throws SQLException {
+        dataSource = routing(Map.of("replica-1", h2(REPLICA)), Duration.ZERO);
+
+        assertThat(connectedDatabase()).isEqualTo(PRIMARY);
+        assertThat(connections("primary", "write")).isEqualTo(1.0);
+    }
+
+    @Test
+    void readAfterWriteStaysOnPrimaryWithinStickyWindow() throws SQLException {
+        dataSource = routing(Map.of("replica-1", h2(REPLICA)), Duration.ofMinutes(1));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(connectedDatabase()).isEqualTo(PRIMARY);
+
+        readOnlyTransaction();
+
+        assertThat(connectedDatabase()).isEqualTo(PRIMARY);
+        assertThat(connections("primary", "sticky")).isEqualTo(1.0);
+        assertThat(connections("replica-1", "replica")).isZero();
+    }
+
+    @Test
+    void stickinessIsPerSession() throws SQLException {
+        dataSource = routing(Map.of("replica-1", h2(REPLICA)), Duration.ofMinutes(1));
+        Object[] session = {"writer"};
+        dataSource.setSessionResolver(() -> session[0]);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        connectedDatabase();
+
+        session[0] = "reader";
+        readOnlyTransaction();
+
+        assertThat(connectedDatabase()).isEqualTo(REPLICA);
+    }
+
+    @Test
+    void skipsReplicaThatIsDown() throws SQLException {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("down", unavailable());
+        replicas.put("replica-1", h2(REPLICA));
+        dataSource = routing(replicas, Duration.ZERO);
+        readOnlyTransaction();
+
+        assertThat(connectedDatabase()).isEqualTo(REPLICA);
+        assertThat(connectedDatabase()).isEqualTo(REPLICA);
+        assertThat(connections("replica-1", "replica")).isEqualTo(2.0);
+        assertThat(meterRegistry.get("datasource.replica.healthy").tag("replica", "down").gauge().value()).isZero();
+    }
+
+    @Test
+    void fallsBackToPrimaryWhenAllReplicasAreDown() throws SQLException {
+        dataSource = routing(Map.of("down", unavailable()), Duration.ZERO);
+        readOnlyTransaction();
+
+        assertThat(connectedDatabase()).isEqualTo(PRIMARY);
+        assertThat(connectedDatabase()).isEqualTo(PRIMARY);
+        assertThat(connections("primary", "fallback")).isEqualTo(2.0);
+        assertThat(connections("down", "replica")).isZero();
+    }
+
+    @Test
+    void leastLoadedReleasesActiveCountOnClose() throws SQLException {
+        dataSource = new ReplicaRoutingDataSource(h2(PRIMARY), Map.of("replica-1", h2(REPLICA)),
+                ReplicaRoutingDataSource.Strategy.LEAST_LOADED, Duration.ZERO, Duration.ofHours(1), meterRegistry);
+        readOnlyTransaction();
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getMetaData().getURL()).contains(REPLICA);
+            assertThat(active("replica-1")).isEqualTo(1.0);
+        }
+        assertThat(active("replica-1")).isZero();
+    }
+
+    @Test
+    void connectionWithCredentialsIsRoutedLikeDefaultConnection() throws SQLException {
+        dataSource = routing(Map.of("replica-1", h2(REPLICA)), Duration.ZERO);
+        readOnlyTransaction();
+
+        try (Connection connection = dataSource.getConnection("sa", "")) {
+            assertThat(connection.getMetaData().getURL()).contains(REPLICA);
+        }
+        assertThat(connections("replica-1", "replica")).isEqualTo(1.0);
+    }
+
+    @Test
+    void closeClosesReplicaPoolsButNotPrimary() throws Exception {
+        DataSource primary = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+        DataSource replica = mock(DataSource.class, withSettings().extraInterfaces(AutoCloseable.class));
+        dataSource = new ReplicaRoutingDataSource(primary, Map.of("replica-1", replica),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, Duration.ZERO, Duration.ofHours(1), meterRegistry);
+
+        dataSource.close();
+
+        verify((AutoCloseable) replica).close();
+        verify((AutoCloseable) primary, never()).close();
+    }
+
+    private ReplicaRoutingDataSource routing(Map<String, DataSource> replicas, Duration stickyWindow) {
+        return new ReplicaRoutingDataSource(h2(PRIMARY), replicas, ReplicaRoutingDataSource.Strategy.ROUND_ROBIN,
+                stickyWindow, Duration.ofHours(1), meterRegistry);
+    }
+
+    private static DataSource h2(String database) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    private static DataSource unavailable() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        return dataSource;
+    }
+
+    private static void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    private String connectedDatabase() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.contains(REPLICA) ? REPLICA : url.contains(PRIMARY) ? PRIMARY : url;
+        }
+    }
+
+    private double connections(String target, String reason) {
+        return meterRegistry.get("datasource.routing.connections")
+                .tag("target", target)
+                .tag("reason", reason)
+                .counter()
+                .count();
+    }
+
+    private double active(String replica) {
+        return meterRegistry.get("datasource.replica.active").tag("replica", replica).gauge().value();
+    }
+}
@@ -0,0 +1,100 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventFilter;
+import cn.treedeep.king.core.domain.EventHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HandlerRegistryTest {
+
+    static class BaseEvent extends DomainEvent {
+    }
+
+    static class OrderEvent extends BaseEvent {
+        OrderEvent(String aggregateType) {
+            setAggregateType(aggregateType);
+        }
+    }
+
+    private static EventHandler<DomainEvent> handler() {
+        return event -> {
+        };
+    }
+
+    @Test
+    void routesSubclassEventsToHandlersSubscribedOnParentType() {
+        HandlerRegistry registry = new HandlerRegistry();
+        EventHandler<DomainEvent> exact = handler();
+        EventHandler<DomainEvent> parent = handler();
+        registry.subscribe(BaseEvent.class.getName(), parent);
+        registry.subscribe(OrderEvent.class.getName(), exact);
+
+        assertThat(registry.route(new OrderEvent("Order"))).containsExactly(exact, parent);
+    }
+
+    @Test
+    void appliesAggregateTypeFilter() {
+        HandlerRegistry registry = new HandlerRegistry();
+        EventHandler<DomainEvent> orders = handler();
+        registry.subscribe(OrderEvent.class.getName(), orders, EventFilter.builder().aggregateType("Order").build());
+
+        assertThat(registry.route(new OrderEvent("Order"))).containsExactly(orders);
+        assertThat(registry.route(new OrderEvent("Invoice"))).isEmpty();
+    }
+
+    @Test
+    void subscriptionInvalidatesCompiledTable() {
+        HandlerRegistry registry = new HandlerRegistry();
+        EventHandler<DomainEvent> first = handler();
+        registry.subscribe(OrderEvent.class.getName(), first);
+        assertThat(registry.resolve(OrderEvent.class)).containsExactly(first);
+
+        EventHandler<DomainEvent> second = handler();
+        registry.subscribe(OrderEvent.class.getName(), second);
+        assertThat(registry.resolve(OrderEvent.class)).containsExactly(first, second);
+
+        registry.unsubscribe(OrderEvent.class.getName(), first);
+        assertThat(registry.resolve(OrderEvent.class)).containsExactly(second);
+    }
+
+    @Test
+    void concurrentRoutingNeverKeepsStaleTable() throws Exception {
+        HandlerRegistry registry = new HandlerRegistry();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                while (running.get()) {
+                    registry.resolve(OrderEvent.class);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<EventHandler<DomainEvent>> subscribed = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            EventHandler<DomainEvent> handler = handler();
+            subscribed.add(handler);
+            registry.subscribe(OrderEvent.class.getName(), handler);
+            assertThat(registry.resolve(OrderEvent.class)).hasSize(subscribed.size());
+        }
+
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertThat(registry.resolve(OrderEvent.class)).containsExactlyElementsOf(subscribed);
+    }
+}
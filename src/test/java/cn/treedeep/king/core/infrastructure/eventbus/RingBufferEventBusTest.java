@@ -0,0 +1,118 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RingBufferEventBusTest {
+
+    static class CountedEvent extends DomainEvent {
+        final int index;
+
+        CountedEvent(String aggregateId, int index) {
+            setAggregateId(aggregateId);
+            this.index = index;
+        }
+    }
+
+    private RingBufferEventBus bus;
+
+    private RingBufferEventBus newBus(int bufferSize, int consumers) {
+        bus = new RingBufferEventBus(mock(DomainEventPublisher.class), bufferSize, consumers, 64,
+                new WaitStrategy.Blocking(), new SimpleMeterRegistry());
+        return bus;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        if (bus != null && bus.isRunning()) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void stopDeliversEveryPublishedEventFromConcurrentProducers() throws Exception {
+        newBus(256, 4);
+        AtomicInteger handled = new AtomicInteger();
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event -> handled.incrementAndGet());
+        bus.start();
+
+        int producers = 4;
+        int perProducer = 20_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    bus.publish(new CountedEvent("agg-" + producer + "-" + (i % 16), i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        bus.stop();
+
+        assertThat(handled.get()).isEqualTo(producers * perProducer);
+        assertThat(bus.remainingCapacity()).isEqualTo(256);
+    }
+
+    @Test
+    void preservesPublishOrderPerAggregate() throws Exception {
+        newBus(64, 3);
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event ->
+                seen.computeIfAbsent(event.getAggregateId(), k -> new CopyOnWriteArrayList<>()).add(event.index));
+        bus.start();
+
+        for (int i = 0; i < 5_000; i++) {
+            bus.publish(new CountedEvent("agg-" + (i % 7), i));
+        }
+        bus.stop();
+
+        assertThat(seen).hasSize(7);
+        seen.values().forEach(indexes -> assertThat(indexes).isSorted());
+    }
+
+    @Test
+    void transactionalEventsShareOneSynchronizationAndWaitForCommit() {
+        newBus(16, 1);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event -> handled.add(event.index));
+
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 3; i++) {
+            bus.publish(new CountedEvent("agg", i));
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        assertThat(handled).isEmpty();
+
+        // 未启动的总线在提交线程中同步执行处理器
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(handled).containsExactly(0, 1, 2);
+    }
+}
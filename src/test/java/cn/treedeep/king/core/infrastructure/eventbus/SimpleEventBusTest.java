@@ -0,0 +1,87 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SimpleEventBusTest {
+
+    static class CountedEvent extends DomainEvent {
+        final int index;
+
+        CountedEvent(String aggregateId, int index) {
+            setAggregateId(aggregateId);
+            this.index = index;
+        }
+    }
+
+    private final SimpleEventBus bus = new SimpleEventBus(mock(DomainEventPublisher.class), Runnable::run, 4);
+    private final List<Integer> handled = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void asyncEventsInTransactionShareOneSynchronizationAndWaitForCommit() {
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event -> handled.add(event.index));
+
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 3; i++) {
+            bus.publish(new CountedEvent("agg", i));
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        assertThat(handled).isEmpty();
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(handled).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void rolledBackTransactionDropsBufferedEvents() {
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event -> handled.add(event.index));
+
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(new CountedEvent("agg", 0));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertThat(handled).isEmpty();
+        assertThat(TransactionSynchronizationManager.hasResource(bus)).isFalse();
+    }
+
+    @Test
+    void eventsPublishedAfterCommitAreEnqueuedDirectly() {
+        bus.subscribe(CountedEvent.class.getName(), (EventHandler<CountedEvent>) event -> {
+            handled.add(event.index);
+            if (event.index == 0) {
+                bus.publish(new CountedEvent("other", 1));
+            }
+        });
+
+        TransactionSynchronizationManager.initSynchronization();
+        bus.publish(new CountedEvent("agg", 0));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(handled).containsExactly(0, 1);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+}
@@ -0,0 +1,126 @@
+package cn.treedeep.king.core.infrastructure.eventbus;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.core.infrastructure.transport.EventTransport;
+import cn.treedeep.king.core.infrastructure.transport.FileEventTransport;
+import cn.treedeep.king.core.infrastructure.transport.TransportMessage;
+import cn.treedeep.king.core.infrastructure.transport.TransportRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransportEventBusTest {
+
+    static class TestEvent extends DomainEvent {
+        TestEvent(String aggregateId) {
+            setAggregateId(aggregateId);
+        }
+    }
+
+    /**
+     * 第一次确认失败的文件传输
+     */
+    static class FailingAckTransport extends FileEventTransport {
+
+        final AtomicBoolean failNextAck = new AtomicBoolean(true);
+
+        FailingAckTransport(Path directory) {
+            super(directory, 1024 * 1024, false);
+        }
+
+        @Override
+        public void acknowledge(String consumer, TransportRecord record) {
+            if (failNextAck.compareAndSet(true, false)) {
+                throw new IllegalStateException("ack failed");
+            }
+            super.acknowledge(consumer, record);
+        }
+    }
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eventsInTransactionAreSentOnceAfterCommit() {
+        DomainEventSerializer serializer = mock(DomainEventSerializer.class);
+        when(serializer.serialize(any())).thenReturn("{}");
+        EventTransport transport = mock(EventTransport.class);
+        TransportEventBus bus = new TransportEventBus(mock(DomainEventPublisher.class), transport, serializer,
+                "test", 10, Duration.ofMillis(20));
+
+        TransactionSynchronizationManager.initSynchronization();
+        for (int i = 0; i < 3; i++) {
+            bus.publish(new TestEvent("order-" + i));
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        verify(transport, never()).send(anyList());
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        ArgumentCaptor<List<TransportMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(transport).send(captor.capture());
+        assertThat(captor.getValue()).extracting(TransportMessage::aggregateId)
+                .containsExactly("order-0", "order-1", "order-2");
+        assertThat(TransactionSynchronizationManager.hasResource(bus)).isFalse();
+    }
+
+    @Test
+    void consumeFailureRewindsToCommittedOffsetAndRedelivers() throws InterruptedException {
+        TestEvent event = new TestEvent("order-1");
+        DomainEventSerializer serializer = mock(DomainEventSerializer.class);
+        when(serializer.serialize(event)).thenReturn("{}");
+        when(serializer.deserialize(anyString(), anyString())).thenReturn(event);
+
+        List<DomainEvent> handled = new CopyOnWriteArrayList<>();
+        try (FailingAckTransport transport = new FailingAckTransport(directory)) {
+            TransportEventBus bus = new TransportEventBus(mock(DomainEventPublisher.class), transport, serializer,
+                    "test", 10, Duration.ofMillis(20));
+            bus.subscribe(TestEvent.class.getName(), (EventHandler<DomainEvent>) handled::add);
+            bus.start();
+            try {
+                bus.publish(event);
+
+                // 第一次确认失败后退回已确认的位置，同一条记录再投递一次并确认成功
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (transport.getCommittedOffset("test") < 1 && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertThat(transport.getCommittedOffset("test")).isEqualTo(1);
+                assertThat(handled).hasSize(2);
+            } finally {
+                bus.stop();
+            }
+        }
+    }
+}
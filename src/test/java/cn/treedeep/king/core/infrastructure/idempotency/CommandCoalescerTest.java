@@ -0,0 +1,126 @@
+package cn.treedeep.king.core.infrastructure.idempotency;
+
+import cn.treedeep.king.core.application.cqrs.command.Command;
+import cn.treedeep.king.core.application.cqrs.command.CommandResult;
+import cn.treedeep.king.core.infrastructure.monitoring.CommandMetrics;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandCoalescerTest {
+
+    static class TestCommand extends Command {
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CqrsProperties properties = new CqrsProperties();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void duplicateWhileInFlightSharesTheOriginalResult() {
+        CommandCoalescer coalescer = coalescer();
+        TestCommand command = new TestCommand();
+        CompletableFuture<CommandResult<String>> outcome = new CompletableFuture<>();
+
+        assertThat(coalescer.attach(command, outcome)).isNull();
+        CompletableFuture<CommandResult<String>> duplicate = coalescer.attach(command, new CompletableFuture<>());
+        assertThat(duplicate).isNotNull().isNotDone();
+
+        CommandResult<String> result = new CommandResult<>(command, "done");
+        coalescer.complete(command, outcome, CompletableFuture.completedFuture(result));
+
+        assertThat(duplicate.join()).isSameAs(result);
+        assertThat(coalesced("in_flight")).isEqualTo(1.0);
+    }
+
+    @Test
+    void lateRetryGetsCachedResult() {
+        CommandCoalescer coalescer = coalescer();
+        TestCommand command = new TestCommand();
+        CompletableFuture<CommandResult<String>> outcome = new CompletableFuture<>();
+        coalescer.attach(command, outcome);
+        CommandResult<String> result = new CommandResult<>(command, "done");
+        coalescer.complete(command, outcome, CompletableFuture.completedFuture(result));
+
+        CompletableFuture<CommandResult<String>> retry = coalescer.attach(command, new CompletableFuture<>());
+
+        assertThat(retry).isNotNull();
+        assertThat(retry.join()).isSameAs(result);
+        assertThat(coalesced("result_cache")).isEqualTo(1.0);
+    }
+
+    @Test
+    void distinctCommandsAreNotCoalesced() {
+        CommandCoalescer coalescer = coalescer();
+
+        assertThat(coalescer.attach(new TestCommand(), new CompletableFuture<>())).isNull();
+        assertThat(coalescer.attach(new TestCommand(), new CompletableFuture<>())).isNull();
+    }
+
+    @Test
+    void rollbackFailsWaitersAndReleasesTheCommand() {
+        CommandCoalescer coalescer = coalescer();
+        TestCommand command = new TestCommand();
+        CompletableFuture<CommandResult<String>> outcome = new CompletableFuture<>();
+        coalescer.attach(command, outcome);
+        CompletableFuture<CommandResult<String>> duplicate = coalescer.attach(command, new CompletableFuture<>());
+
+        TransactionSynchronizationManager.initSynchronization();
+        coalescer.complete(command, outcome, CompletableFuture.completedFuture(new CommandResult<>(command, "done")));
+        assertThat(duplicate).isNotDone();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(duplicate).isCompletedExceptionally();
+        assertThat(coalescer.attach(command, new CompletableFuture<>())).isNull();
+    }
+
+    @Test
+    void failedExecutionIsNotCached() {
+        CommandCoalescer coalescer = coalescer();
+        TestCommand command = new TestCommand();
+        CompletableFuture<CommandResult<String>> outcome = new CompletableFuture<>();
+        coalescer.attach(command, outcome);
+
+        coalescer.complete(command, outcome, CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        assertThat(outcome).isCompletedExceptionally();
+        assertThat(coalescer.attach(command, new CompletableFuture<>())).isNull();
+    }
+
+    @Test
+    void disabledCoalescerNeverAttaches() {
+        properties.getIdempotency().getCoalescing().setEnabled(false);
+        CommandCoalescer coalescer = coalescer();
+        TestCommand command = new TestCommand();
+
+        assertThat(coalescer.attach(command, new CompletableFuture<>())).isNull();
+        assertThat(coalescer.attach(command, new CompletableFuture<>())).isNull();
+    }
+
+    private CommandCoalescer coalescer() {
+        return new CommandCoalescer(properties, new CommandMetrics(meterRegistry));
+    }
+
+    private double coalesced(String source) {
+        return meterRegistry.get("command.coalesced")
+                .tag("type", TestCommand.class.getSimpleName())
+                .tag("source", source)
+                .counter()
+                .count();
+    }
+}
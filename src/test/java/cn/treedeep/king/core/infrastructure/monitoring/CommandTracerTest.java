@@ -0,0 +1,111 @@
+package cn.treedeep.king.core.infrastructure.monitoring;
+
+import cn.treedeep.king.core.application.cqrs.command.Command;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import cn.treedeep.king.shared.trace.CommandTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandTracerTest {
+
+    static class TestCommand extends Command {
+    }
+
+    /**
+     * 提交耗时固定的事务管理器
+     */
+    static class SlowCommitTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            pause();
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CommandTracer tracer = new CommandTracer(new CqrsProperties(), new CommandMetrics(meterRegistry));
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new SlowCommitTransactionManager());
+
+    @Test
+    void recordsCommitAndAfterCommitPublishWhenEndedInsideTransaction() {
+        CommandTrace trace = tracer.begin(new TestCommand());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pause();
+                }
+            });
+            tracer.end(trace, true);
+        });
+
+        assertThat(trace.isSuccess()).isTrue();
+        assertThat(trace.getStageNanos(CommandTrace.Stage.COMMIT)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(trace.getStageNanos(CommandTrace.Stage.PUBLISH)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(stageCount("commit")).isEqualTo(1);
+        assertThat(stageCount("publish")).isEqualTo(1);
+    }
+
+    @Test
+    void rollbackFinishesTraceAsFailure() {
+        CommandTrace trace = tracer.begin(new TestCommand());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            tracer.end(trace, true);
+        });
+
+        assertThat(trace.isSuccess()).isFalse();
+        assertThat(trace.getStageNanos(CommandTrace.Stage.COMMIT)).isZero();
+    }
+
+    @Test
+    void endsImmediatelyOutsideTransaction() {
+        CommandTrace trace = tracer.begin(new TestCommand());
+
+        tracer.end(trace, false);
+
+        assertThat(trace.isSuccess()).isFalse();
+        assertThat(trace.getTotalNanos()).isPositive();
+    }
+
+    private long stageCount(String stage) {
+        return meterRegistry.get("command.stage")
+                .tag("type", TestCommand.class.getSimpleName())
+                .tag("stage", stage)
+                .timer()
+                .count();
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
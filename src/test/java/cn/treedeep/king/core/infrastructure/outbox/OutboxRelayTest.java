@@ -0,0 +1,107 @@
+package cn.treedeep.king.core.infrastructure.outbox;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.DomainEventPublisher;
+import cn.treedeep.king.core.infrastructure.eventstore.DomainEventSerializer;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    static class TestEvent extends DomainEvent {
+    }
+
+    private final OutboxEventRepository repository = mock(OutboxEventRepository.class);
+    private final DomainEventSerializer serializer = mock(DomainEventSerializer.class);
+    private final DomainEventPublisher publisher = mock(DomainEventPublisher.class);
+    private final EventStoreProperties.OutboxProperties properties = new EventStoreProperties.OutboxProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TestEvent poison = new TestEvent();
+    private OutboxEvent a1;
+    private OutboxEvent a2;
+    private OutboxEvent b1;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties.setMaxAttempts(2);
+        a1 = entry(1L, "A", "a1", poison);
+        a2 = entry(2L, "A", "a2", new TestEvent());
+        b1 = entry(3L, "B", "b1", new TestEvent());
+        doThrow(new IllegalStateException("handler failed"))
+                .when(publisher).dispatch(argThat(events -> events.contains(poison)));
+        relay = new OutboxRelay(repository, serializer, publisher, mock(PlatformTransactionManager.class),
+                properties, meterRegistry);
+    }
+
+    @Test
+    void failingEventBlocksOnlyItsAggregateAndIsParkedAfterMaxAttempts() {
+        when(repository.lockNextBatch(any())).thenReturn(List.of(a1, a2, b1), List.of(a1, a2));
+        when(repository.findNextIds(any())).thenReturn(List.of(1L, 2L, 3L), List.of(1L, 2L));
+
+        relay.drain();
+
+        verify(repository).delete(b1);
+        verify(repository, never()).delete(a2);
+        assertThat(a1.getAttempts()).isEqualTo(1);
+        assertThat(a1.getLastError()).isEqualTo("handler failed");
+        assertThat(a1.getParkedAt()).isNull();
+
+        relay.drain();
+
+        assertThat(a1.getAttempts()).isEqualTo(2);
+        assertThat(a1.getParkedAt()).isNotNull();
+        verify(repository).delete(a2);
+        verify(repository, never()).delete(a1);
+        assertThat(meterRegistry.get("outbox.events.parked").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void undeserializableEventIsIsolated() {
+        when(serializer.deserialize(eq("a1"), any())).thenThrow(new IllegalArgumentException("unknown event class"));
+        when(repository.lockNextBatch(any())).thenReturn(List.of(a1, b1));
+        when(repository.findNextIds(any())).thenReturn(List.of(1L, 3L));
+
+        relay.drain();
+
+        verify(repository).delete(b1);
+        assertThat(a1.getAttempts()).isEqualTo(1);
+        assertThat(a1.getLastError()).isEqualTo("unknown event class");
+    }
+
+    @Test
+    void healthyBatchIsRelayedInOneTransaction() {
+        when(repository.lockNextBatch(any())).thenReturn(List.of(a2, b1));
+
+        relay.drain();
+
+        verify(repository).deleteAllInBatch(List.of(a2, b1));
+        verify(repository, never()).findNextIds(any());
+    }
+
+    private OutboxEvent entry(Long id, String aggregateId, String type, DomainEvent event) {
+        OutboxEvent entry = new OutboxEvent();
+        entry.setId(id);
+        entry.setAggregateId(aggregateId);
+        entry.setEventType(type);
+        when(serializer.deserialize(eq(type), any())).thenReturn(event);
+        when(repository.lockById(id)).thenReturn(Optional.of(entry));
+        return entry;
+    }
+}
@@ -0,0 +1,171 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.CacheableQuery;
+import cn.treedeep.king.core.application.cqrs.query.Query;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryCoalescerTest {
+
+    static class ProductQuery extends Query<String> implements CacheableQuery {
+        private final String productId;
+
+        ProductQuery(String productId) {
+            this.productId = productId;
+        }
+
+        @Override
+        public Object cacheKey() {
+            return productId;
+        }
+    }
+
+    static class PlainQuery extends Query<String> {
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CqrsProperties properties = new CqrsProperties();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseLeader = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        properties.getQuery().getCoalescing().setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseLeader.countDown();
+        executor.shutdownNow();
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void identicalConcurrentQueriesExecuteOnce() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        Future<String> leader = executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), this::blockingLoad));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicInteger followerLoads = new AtomicInteger();
+        Future<String> follower = executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), () -> {
+            followerLoads.incrementAndGet();
+            return "follower";
+        }));
+        waitForFollower();
+        releaseLeader.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+        assertThat(followerLoads).hasValue(0);
+        assertThat(calls("leader")).isEqualTo(1.0);
+        assertThat(calls("follower")).isEqualTo(1.0);
+    }
+
+    @Test
+    void followerReceivesTheLeadersException() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        Future<String> leader = executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), () -> {
+            blockingLoad();
+            throw new IllegalStateException("database down");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), () -> "follower"));
+        waitForFollower();
+        releaseLeader.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("database down");
+    }
+
+    @Test
+    void followerExecutesItselfWhenLeaderIsCancelled() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), () -> {
+            blockingLoad();
+            throw new CancellationException("caller cancelled");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), () -> "self"));
+        waitForFollower();
+        releaseLeader.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("self");
+    }
+
+    @Test
+    void followerExecutesItselfAfterMaxWait() throws Exception {
+        properties.getQuery().getCoalescing().setMaxWait(50);
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), this::blockingLoad));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        String result = coalescer.execute(new ProductQuery("p-1"), () -> "self");
+
+        assertThat(result).isEqualTo("self");
+        assertThat(calls("timeout")).isEqualTo(1.0);
+    }
+
+    @Test
+    void differentKeysAndQueriesWithoutEqualsAreNotCoalesced() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), this::blockingLoad));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(coalescer.execute(new ProductQuery("p-2"), () -> "other")).isEqualTo("other");
+        assertThat(coalescer.execute(new PlainQuery(), () -> "plain")).isEqualTo("plain");
+        assertThat(coalescer.execute(new PlainQuery(), () -> "plain")).isEqualTo("plain");
+    }
+
+    @Test
+    void queriesInReadWriteTransactionAreNotCoalesced() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer(properties, meterRegistry);
+        executor.submit(() -> coalescer.execute(new ProductQuery("p-1"), this::blockingLoad));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThat(coalescer.execute(new ProductQuery("p-1"), () -> "own")).isEqualTo("own");
+    }
+
+    private String blockingLoad() {
+        leaderStarted.countDown();
+        try {
+            releaseLeader.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "leader";
+    }
+
+    /**
+     * 合并器没有暴露等待者，等到follower进入等待后再释放leader
+     */
+    private void waitForFollower() throws InterruptedException {
+        Thread.sleep(100);
+    }
+
+    private double calls(String role) {
+        return meterRegistry.get("query.coalescing.calls")
+                .tag("query", ProductQuery.class.getSimpleName())
+                .tag("role", role)
+                .counter()
+                .count();
+    }
+}
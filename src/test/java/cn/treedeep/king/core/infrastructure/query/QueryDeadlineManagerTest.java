@@ -0,0 +1,157 @@
+package cn.treedeep.king.core.infrastructure.query;
+
+import cn.treedeep.king.core.application.cqrs.query.Query;
+import cn.treedeep.king.core.application.cqrs.query.QueryTimeoutException;
+import cn.treedeep.king.shared.properties.CqrsProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryDeadlineManagerTest {
+
+    static class SlowQuery extends Query<String> {
+    }
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CqrsProperties properties = new CqrsProperties();
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final Session session = mock(Session.class);
+    private final CountDownLatch statementCancelled = new CountDownLatch(1);
+    private QueryDeadlineManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new QueryDeadlineManager(properties, transactionManager, meterRegistry);
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        ReflectionTestUtils.setField(manager, "entityManager", entityManager);
+        doAnswer(invocation -> {
+            statementCancelled.countDown();
+            return null;
+        }).when(session).cancelQuery();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+    }
+
+    @Test
+    void resolvesRequestedThenPerQueryThenDefaultDeadline() {
+        CqrsProperties.QueryDeadlineProperties deadline = properties.getQuery().getDeadline();
+        SlowQuery query = new SlowQuery();
+
+        assertThat(manager.resolve(query, null)).isNull();
+        deadline.setDefaultTimeout(2000);
+        assertThat(manager.resolve(query, null)).isEqualTo(Duration.ofSeconds(2));
+        deadline.getQueries().put("SlowQuery", 500L);
+        assertThat(manager.resolve(query, null)).isEqualTo(Duration.ofMillis(500));
+        assertThat(manager.resolve(query, Duration.ofMillis(100))).isEqualTo(Duration.ofMillis(100));
+        assertThat(manager.resolve(query, Duration.ZERO)).isNull();
+    }
+
+    @Test
+    void runsLoaderDirectlyWithoutDeadlineOrCaller() {
+        assertThat(manager.execute(new SlowQuery(), null, null, () -> "result")).isEqualTo("result");
+
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void runsInReadOnlyTransactionWithTimeoutRoundedUpToSeconds() {
+        manager.execute(new SlowQuery(), Duration.ofMillis(1500), null, () -> "result");
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly()).isTrue();
+        assertThat(definition.getValue().getTimeout()).isEqualTo(2);
+    }
+
+    @Test
+    void cancelsStatementWhenDeadlinePasses() {
+        CompletableFuture<String> caller = new CompletableFuture<>();
+
+        assertThatThrownBy(() -> manager.execute(new SlowQuery(), Duration.ofMillis(50), caller, this::awaitCancel))
+                .isInstanceOf(QueryTimeoutException.class)
+                .hasMessageContaining("SlowQuery");
+
+        verify(session).cancelQuery();
+        assertThat(caller).isCompletedExceptionally();
+        assertThat(aborted("timeout")).isEqualTo(1.0);
+    }
+
+    @Test
+    void cancelsStatementWhenCallerGivesUp() throws Exception {
+        CompletableFuture<String> caller = new CompletableFuture<>();
+        CompletableFuture<String> execution = CompletableFuture.supplyAsync(
+                () -> manager.execute(new SlowQuery(), null, caller, this::awaitCancel));
+        Thread.sleep(100);
+
+        caller.cancel(true);
+
+        assertThatThrownBy(() -> execution.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(CancellationException.class);
+        verify(session).cancelQuery();
+        assertThat(aborted("cancelled")).isEqualTo(1.0);
+    }
+
+    @Test
+    void statementTimeoutIsReportedAsQueryTimeout() {
+        assertThatThrownBy(() -> manager.execute(new SlowQuery(), Duration.ofSeconds(30), null, () -> {
+            throw new IllegalStateException(new SQLTimeoutException("statement timeout"));
+        })).isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(aborted("timeout")).isEqualTo(1.0);
+    }
+
+    @Test
+    void otherFailuresPropagateUnchanged() {
+        assertThatThrownBy(() -> manager.execute(new SlowQuery(), Duration.ofSeconds(30), null, () -> {
+            throw new IllegalArgumentException("bad criteria");
+        })).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 模拟执行中的语句，被取消后数据库驱动抛出异常
+     */
+    private String awaitCancel() {
+        try {
+            if (!statementCancelled.await(5, TimeUnit.SECONDS)) {
+                return "completed";
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new IllegalStateException("statement cancelled");
+    }
+
+    private double aborted(String outcome) {
+        return meterRegistry.get("query.deadline.aborted")
+                .tag("query", SlowQuery.class.getSimpleName())
+                .tag("outcome", outcome)
+                .counter()
+                .count();
+    }
+}
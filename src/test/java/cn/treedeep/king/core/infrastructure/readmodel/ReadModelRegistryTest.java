@@ -0,0 +1,83 @@
+package cn.treedeep.king.core.infrastructure.readmodel;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadModelRegistryTest {
+
+    record Row(String id) {
+    }
+
+    static class RowCreatedEvent extends DomainEvent {
+        RowCreatedEvent(String aggregateId) {
+            setAggregateId(aggregateId);
+            setAggregateVersion(0L);
+        }
+    }
+
+    private final EventStore eventStore = mock(EventStore.class);
+    private ReadModelStore<Row> store;
+    private ReadModelRegistry registry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        store = ReadModelStore.builder("rows", Row::id)
+                .hashIndex("id", Row::id)
+                .build()
+                .on(RowCreatedEvent.class, (s, e) -> s.put(new Row(e.getAggregateId())));
+        ObjectProvider<ReadModelStore<?>> stores = mock(ObjectProvider.class);
+        when(stores.orderedStream()).thenReturn(Stream.<ReadModelStore<?>>of(store));
+        registry = new ReadModelRegistry(stores, eventStore, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void failedRebuildRejectsReadsUntilRebuildSucceeds() {
+        RowCreatedEvent replayed = new RowCreatedEvent("a");
+        when(eventStore.readAllEvents(any(), any(), anyInt()))
+                .thenReturn(List.of(replayed))
+                .thenThrow(new IllegalStateException("event store unavailable"));
+        registry.rebuild(store);
+        assertThat(store.isReady()).isTrue();
+
+        registry.rebuild(store);
+
+        assertThat(store.isReady()).isFalse();
+        assertThatThrownBy(() -> store.get("a"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("event store unavailable");
+        assertThatThrownBy(() -> store.findBy("id", "a")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> store.countBy("id", "a")).isInstanceOf(IllegalStateException.class);
+
+        when(eventStore.readAllEvents(any(), any(), anyInt())).thenReturn(List.of(replayed));
+        registry.rebuild(store);
+
+        assertThat(store.isReady()).isTrue();
+        assertThat(store.get("a")).contains(new Row("a"));
+    }
+
+    @Test
+    void publishedEventsAreStillAppliedWhileNotReady() {
+        when(eventStore.readAllEvents(any(), any(), anyInt())).thenThrow(new IllegalStateException("boom"));
+        registry.rebuild(store);
+
+        registry.onDomainEvent(new RowCreatedEvent("b"));
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.isReady()).isFalse();
+    }
+}
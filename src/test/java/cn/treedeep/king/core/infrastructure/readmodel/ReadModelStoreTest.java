@@ -0,0 +1,59 @@
+package cn.treedeep.king.core.infrastructure.readmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadModelStoreTest {
+
+    record Product(String id, String category, int price) {
+    }
+
+    private final ReadModelStore<Product> store = ReadModelStore.builder("products", Product::id)
+            .hashIndex("category", Product::category)
+            .sortedIndex("price", Product::price)
+            .rowSizeEstimator(product -> 100)
+            .build();
+
+    @Test
+    void removingFromLowCardinalityIndexKeepsRemainingPostings() {
+        IntStream.range(0, 1_000).forEach(i -> store.put(new Product("p" + i, i % 2 == 0 ? "even" : "odd", i)));
+
+        for (int i = 0; i < 1_000; i += 4) {
+            store.remove("p" + i);
+        }
+        store.put(new Product("p1", "even", 1));
+
+        assertThat(store.countBy("category", "even")).isEqualTo(251);
+        assertThat(store.findBy("category", "even"))
+                .extracting(Product::id)
+                .contains("p1", "p2", "p998")
+                .doesNotContain("p0", "p4", "p3");
+        assertThat(store.findBy("category", "odd")).hasSize(499);
+        assertThat(store.range("price", 0, 5)).extracting(Product::id).containsExactly("p1", "p2", "p3", "p5");
+    }
+
+    @Test
+    void memoryCountersFollowWritesAndMatchReport() {
+        store.put(new Product("a", "books", 10));
+        store.put(new Product("b", "books", 20));
+        long twoRows = store.estimatedBytes();
+
+        store.put(new Product("c", "toys", 30));
+        assertThat(store.estimatedBytes()).isGreaterThan(twoRows);
+
+        store.remove("c");
+        assertThat(store.estimatedBytes()).isEqualTo(twoRows);
+
+        ReadModelMemoryReport report = store.memoryReport();
+        assertThat(report.rowBytes()).isEqualTo(200);
+        assertThat(report.distinctValues()).containsEntry("category", 1).containsEntry("price", 2);
+        assertThat(report.totalBytes()).isEqualTo(store.estimatedBytes());
+
+        store.clear();
+        assertThat(store.memoryReport().rowBytes()).isZero();
+        assertThat(store.memoryReport().indexBytes()).isZero();
+    }
+}
@@ -0,0 +1,137 @@
+package cn.treedeep.king.core.infrastructure.subscription;
+
+import cn.treedeep.king.core.domain.DomainEvent;
+import cn.treedeep.king.core.domain.EventHandler;
+import cn.treedeep.king.core.domain.EventPosition;
+import cn.treedeep.king.core.domain.EventStore;
+import cn.treedeep.king.core.domain.event.DeadLetterQueue;
+import cn.treedeep.king.shared.properties.EventStoreProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SubscriptionRunnerTest {
+
+    static class TestEvent extends DomainEvent {
+        TestEvent(String aggregateId, long version) {
+            setAggregateId(aggregateId);
+            setAggregateVersion(version);
+        }
+    }
+
+    private final EventStore eventStore = mock(EventStore.class);
+    private final SubscriptionCheckpointRepository checkpoints = mock(SubscriptionCheckpointRepository.class);
+    private final EventStoreProperties.SubscriptionProperties properties = new EventStoreProperties.SubscriptionProperties();
+    private SubscriptionRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        runner = new SubscriptionRunner(eventStore, checkpoints, mock(PlatformTransactionManager.class),
+                properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.stop();
+    }
+
+    @Test
+    void partitionedBatchAdvancesCheckpointToJustBeforeEarliestFailure() {
+        TestEvent a0 = new TestEvent("A", 0);
+        TestEvent b0 = new TestEvent("B", 0);
+        TestEvent a1 = new TestEvent("A", 1);
+        TestEvent c0 = new TestEvent("C", 0);
+        TestEvent b1 = new TestEvent("B", 1);
+        TestEvent c1 = new TestEvent("C", 1);
+        List<DomainEvent> batch = List.of(a0, b0, a1, c0, b1, c1);
+        when(eventStore.readAllEvents(any(), any(), anyInt())).thenReturn(batch);
+
+        Set<DomainEvent> handled = ConcurrentHashMap.newKeySet();
+        CatchUpSubscription subscription = runner.register("test")
+                .subscribe(TestEvent.class.getName(), (EventHandler<DomainEvent>) event -> {
+                    if (event == c0) {
+                        throw new IllegalStateException("boom");
+                    }
+                    handled.add(event);
+                })
+                .partitions(4);
+
+        runner.poll(subscription);
+
+        assertThat(subscription.getPosition()).isEqualTo(EventPosition.of(a1));
+        assertThat(subscription.getProcessedEvents()).isEqualTo(3);
+        assertThat(handled).contains(a0, b0, a1, b1).doesNotContain(c1);
+
+        ArgumentCaptor<SubscriptionCheckpoint> saved = ArgumentCaptor.forClass(SubscriptionCheckpoint.class);
+        verify(checkpoints).save(saved.capture());
+        assertThat(saved.getValue().getPositionEventId()).isEqualTo(a1.getEventId());
+        assertThat(saved.getValue().getPositionAggregateId()).isEqualTo("A");
+        assertThat(saved.getValue().getPositionAggregateVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void failingEventIsParkedAfterMaxAttempts() {
+        properties.setMaxAttempts(2);
+        DeadLetterQueue deadLetterQueue = mock(DeadLetterQueue.class);
+        runner.setDeadLetterQueue(deadLetterQueue);
+
+        TestEvent first = new TestEvent("A", 0);
+        TestEvent poison = new TestEvent("B", 0);
+        List<DomainEvent> batch = List.of(first, poison);
+        when(eventStore.readAllEvents(any(), any(), anyInt())).thenReturn(batch);
+
+        EventHandler<DomainEvent> handler = event -> {
+            if (event == poison) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        CatchUpSubscription subscription = runner.register("test")
+                .subscribe(TestEvent.class.getName(), handler);
+
+        runner.poll(subscription);
+
+        assertThat(subscription.getPosition()).isEqualTo(EventPosition.of(first));
+        verify(deadLetterQueue, never()).park(any(), any(), any(), anyInt());
+
+        runner.poll(subscription);
+
+        assertThat(subscription.getPosition()).isEqualTo(EventPosition.of(poison));
+        assertThat(subscription.getProcessedEvents()).isEqualTo(2);
+        verify(deadLetterQueue).park(same(poison), same(handler), any(IllegalStateException.class), eq(2));
+    }
+
+    @Test
+    void failingEventBlocksWithoutDeadLetterQueue() {
+        properties.setMaxAttempts(1);
+        TestEvent poison = new TestEvent("A", 0);
+        when(eventStore.readAllEvents(any(), any(), anyInt())).thenReturn(List.of(poison));
+
+        CatchUpSubscription subscription = runner.register("test")
+                .subscribe(TestEvent.class.getName(), (EventHandler<DomainEvent>) event -> {
+                    throw new IllegalStateException("boom");
+                });
+
+        runner.poll(subscription);
+        runner.poll(subscription);
+
+        assertThat(subscription.getPosition()).isEqualTo(EventPosition.START);
+        verify(checkpoints, never()).save(any());
+    }
+}
@@ -0,0 +1,179 @@
+package cn.treedeep.king.core.infrastructure.transport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileEventTransportTest {
+
+    private static final long LARGE_SEGMENT = 1024 * 1024;
+    /**
+     * 小于两条测试消息的大小，每条消息各占一个分段
+     */
+    private static final long TINY_SEGMENT = 64;
+
+    @TempDir
+    Path directory;
+
+    private static List<TransportMessage> messages(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> new TransportMessage("id-" + i, "type", "agg", "payload-" + i))
+                .toList();
+    }
+
+    private static List<Long> offsets(List<TransportRecord> records) {
+        return records.stream().map(TransportRecord::offset).toList();
+    }
+
+    private Path segment(long baseOffset) {
+        return directory.resolve(String.format("%020d.log", baseOffset));
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+
+    @Test
+    void rewindRedeliversRecordsAfterCommittedOffset() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, LARGE_SEGMENT, false)) {
+            transport.send(messages(0, 5));
+
+            List<TransportRecord> first = transport.poll("c", 3, Duration.ZERO);
+            assertThat(offsets(first)).containsExactly(0L, 1L, 2L);
+            transport.acknowledge("c", first.get(1));
+
+            // 未退回时继续读取之后的记录
+            assertThat(offsets(transport.poll("c", 1, Duration.ZERO))).containsExactly(3L);
+
+            transport.rewind("c");
+
+            List<TransportRecord> again = transport.poll("c", 10, Duration.ZERO);
+            assertThat(offsets(again)).containsExactly(2L, 3L, 4L);
+            assertThat(again.getFirst().message().payload()).isEqualTo("payload-2");
+        }
+    }
+
+    @Test
+    void rewindWithoutAcknowledgementStartsFromBeginning() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, LARGE_SEGMENT, false)) {
+            transport.send(messages(0, 3));
+            transport.poll("c", 3, Duration.ZERO);
+
+            transport.rewind("c");
+
+            assertThat(offsets(transport.poll("c", 10, Duration.ZERO))).containsExactly(0L, 1L, 2L);
+        }
+    }
+
+    @Test
+    void reopenResumesAfterCommittedOffset() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            transport.send(messages(0, 4));
+            List<TransportRecord> records = transport.poll("c", 2, Duration.ZERO);
+            transport.acknowledge("c", records.getLast());
+        }
+
+        try (FileEventTransport reopened = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            assertThat(reopened.getNextOffset()).isEqualTo(4);
+            assertThat(reopened.getCommittedOffset("c")).isEqualTo(2);
+            assertThat(offsets(reopened.poll("c", 10, Duration.ZERO))).containsExactly(2L, 3L);
+        }
+    }
+
+    @Test
+    void recoveryTruncatesTornTailRecord() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            transport.send(messages(0, 3));
+        }
+        long validSize = Files.size(segment(0));
+        // 模拟写到一半崩溃：记录头声明的长度超过实际写入的字节
+        try (FileChannel channel = FileChannel.open(segment(0), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(20).putInt(100).putInt(0).flip());
+        }
+
+        try (FileEventTransport reopened = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            assertThat(Files.size(segment(0))).isEqualTo(validSize);
+            assertThat(reopened.getNextOffset()).isEqualTo(3);
+
+            reopened.send(messages(3, 1));
+            List<TransportRecord> records = reopened.poll("c", 10, Duration.ZERO);
+            assertThat(offsets(records)).containsExactly(0L, 1L, 2L, 3L);
+            assertThat(records.getLast().message().eventId()).isEqualTo("id-3");
+        }
+    }
+
+    @Test
+    void recoveryTruncatesTailRecordWithBadChecksum() throws Exception {
+        long sizeAfterTwo;
+        try (FileEventTransport transport = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            transport.send(messages(0, 2));
+            sizeAfterTwo = Files.size(segment(0));
+            transport.send(messages(2, 1));
+        }
+        // 翻转最后一条记录的最后一个字节
+        try (FileChannel channel = FileChannel.open(segment(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = channel.size() - 1;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, last);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~b.get(0)}), last);
+        }
+
+        try (FileEventTransport reopened = new FileEventTransport(directory, LARGE_SEGMENT, true)) {
+            assertThat(Files.size(segment(0))).isEqualTo(sizeAfterTwo);
+            assertThat(reopened.getNextOffset()).isEqualTo(2);
+            assertThat(offsets(reopened.poll("c", 10, Duration.ZERO))).containsExactly(0L, 1L);
+        }
+    }
+
+    @Test
+    void deletesSegmentsOnlyAfterAllKnownConsumersAcknowledged() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, TINY_SEGMENT, false)) {
+            transport.send(messages(0, 5));
+            assertThat(segmentCount()).isEqualTo(5);
+
+            List<TransportRecord> a = transport.poll("a", 10, Duration.ZERO);
+            List<TransportRecord> b = transport.poll("b", 2, Duration.ZERO);
+            transport.acknowledge("b", b.getLast());
+            transport.acknowledge("a", a.getLast());
+
+            // b只确认到位置1，位置2之前的分段可以删除
+            assertThat(segmentCount()).isEqualTo(3);
+            assertThat(Files.exists(segment(0))).isFalse();
+            assertThat(Files.exists(segment(2))).isTrue();
+
+            transport.acknowledge("b", transport.poll("b", 10, Duration.ZERO).getLast());
+
+            // 当前写入的分段始终保留
+            assertThat(segmentCount()).isEqualTo(1);
+            assertThat(Files.exists(segment(4))).isTrue();
+        }
+    }
+
+    @Test
+    void readerOnDeletedSegmentContinuesFromEarliestRetained() throws Exception {
+        try (FileEventTransport transport = new FileEventTransport(directory, TINY_SEGMENT, false)) {
+            transport.send(messages(0, 5));
+
+            // lagging还没有确认过，不参与分段保留
+            assertThat(offsets(transport.poll("lagging", 1, Duration.ZERO))).containsExactly(0L);
+            transport.acknowledge("a", transport.poll("a", 10, Duration.ZERO).getLast());
+            assertThat(Files.exists(segment(0))).isFalse();
+
+            assertThat(offsets(transport.poll("lagging", 10, Duration.ZERO))).containsExactly(4L);
+        }
+    }
+}